@@ -1,13 +1,22 @@
 package com.vscodelife.clientsocket;
 
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.buffer.TypeRegistry;
+import com.vscodelife.socketio.compress.CompressionDictionary;
+import com.vscodelife.socketio.compress.StreamingCompression;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
+import com.vscodelife.socketio.connection.ResumeBuffer;
 import com.vscodelife.socketio.constant.ProtocolId;
 import com.vscodelife.socketio.message.ByteMessage;
 import com.vscodelife.socketio.message.base.HeaderBase;
@@ -38,12 +47,36 @@ public abstract class ByteSocket<H extends HeaderBase>
     private long pingValue;
     private ScheduledFuture<?> pingScheduledFuture;
 
+    // 與服務器協商的壓縮字典編號，0 表示不使用字典
+    private volatile int compressionDictionaryId;
+    // 與服務器協商的串流壓縮上下文，未啟用時為 null
+    private volatile StreamingCompressionContext compressionContext;
+    // 服務器核發的會話恢復憑證，未核發或恢復失敗時為 null
+    private volatile String resumeToken;
+    // 目前會話收到的應用層幀數，與服務器的送出序號一致
+    private final AtomicLong receivedSequence = new AtomicLong();
+    // 服務器停機時建議改連的位址，收到斷線通知後重連，未停機時為 null
+    private volatile String drainHostname;
+    private volatile int drainPort;
+
     protected ByteSocket(Logger logger,
             Class<? extends ChannelInitializer<SocketChannel>> initializerClazz) {
         super(logger, initializerClazz);
 
         protocolRegister.registerProtocol(ProtocolId.PING, catchException(message -> ping(message)));
         protocolRegister.registerProtocol(ProtocolId.DISCONNECT, catchException(message -> disconnected(message)));
+        protocolRegister.registerProtocol(ProtocolId.NOTIFY_TYPE_REGISTRY,
+                catchException(message -> typeRegistry(message)));
+        protocolRegister.registerProtocol(ProtocolId.NOTIFY_COMPRESSION_DICTIONARY,
+                catchException(message -> compressionDictionary(message)));
+        protocolRegister.registerProtocol(ProtocolId.NOTIFY_STREAM_COMPRESSION,
+                catchException(message -> streamCompression(message)));
+        protocolRegister.registerProtocol(ProtocolId.NOTIFY_RESUME_TOKEN,
+                catchException(message -> resumeToken(message)));
+        protocolRegister.registerProtocol(ProtocolId.RESUME_RESULT,
+                catchException(message -> resumeResult(message)));
+        protocolRegister.registerProtocol(ProtocolId.NOTIFY_DRAIN,
+                catchException(message -> drain(message)));
     }
 
     @Override
@@ -68,6 +101,9 @@ public abstract class ByteSocket<H extends HeaderBase>
 
     @Override
     public synchronized void disconnect() {
+        // 主動斷線不再恢復會話
+        resumeToken = null;
+        drainHostname = null;
         super.disconnect();
 
         if (autoReconnect && autoScheduledFuture != null) {
@@ -99,6 +135,10 @@ public abstract class ByteSocket<H extends HeaderBase>
     @Override
     public void onDisconnected(long connectorId, ChannelHandlerContext ctx) {
         super.onDisconnected(connectorId, ctx);
+        // 重新連線後需重新協商字典與串流壓縮
+        compressionDictionaryId = 0;
+        compressionContext = null;
+        StreamingCompressionContext.detach(ctx.channel());
 
         if (pingScheduledFuture != null) {
             pingScheduledFuture.cancel(true);
@@ -106,10 +146,65 @@ public abstract class ByteSocket<H extends HeaderBase>
         }
     }
 
+    @Override
+    public void onReceiveMessage(long connectorId, ChannelHandlerContext ctx, ByteMessage<H> message) {
+        // 在事件迴圈中依接收順序計數；收到新憑證表示服務器從這裡開始編號
+        H header = message.getHeader();
+        if (header != null) {
+            if (ResumeBuffer.isSequenced(header.getMainNo())) {
+                receivedSequence.incrementAndGet();
+            } else if (ProtocolId.NOTIFY_RESUME_TOKEN.equals(header.getProtocolKey())) {
+                receivedSequence.set(0);
+            }
+        }
+        super.onReceiveMessage(connectorId, ctx, message);
+    }
+
     public boolean isAutoReconnect() {
         return autoReconnect;
     }
 
+    public int getCompressionDictionaryId() {
+        return compressionDictionaryId;
+    }
+
+    /**
+     * 取得串流壓縮上下文，未啟用時回傳 null
+     */
+    public StreamingCompressionContext getCompressionContext() {
+        return compressionContext;
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public long getReceivedSequence() {
+        return receivedSequence.get();
+    }
+
+    /**
+     * 連線建立後呼叫，持有恢復憑證時送出恢復請求並回傳 true，否則回傳 false 由呼叫端改送驗證協議
+     */
+    public boolean resumeSession() {
+        String token = resumeToken;
+        if (token == null || !isConnected()) {
+            return false;
+        }
+        ByteArrayBuffer request = new ByteArrayBuffer();
+        request.writeString(token);
+        request.writeLong(receivedSequence.get());
+        send(ProtocolId.RESUME, request);
+        return true;
+    }
+
+    /**
+     * 會話恢復結果，成功時服務器會接著補送遺漏的訊息；子類別可覆寫，失敗時改送驗證協議
+     */
+    protected void onResumed(boolean success) {
+        logger.info("sessionId={} resume session success={}", getSessionId(), success);
+    }
+
     public long getPing() {
         return pingValue;
     }
@@ -128,14 +223,163 @@ public abstract class ByteSocket<H extends HeaderBase>
     }
 
     protected void ping(ByteMessage<H> message) {
+        // requestId 為 0 的是服務器心跳，回送 PING 讓服務器確認連線仍然存活
+        if (message.getHeader().getRequestId() == 0L) {
+            pingSend = System.currentTimeMillis();
+            send(ProtocolId.PING, new ByteArrayBuffer());
+            return;
+        }
         pingRcv = System.currentTimeMillis();
         pingValue = pingRcv - pingSend;
     }
 
+    /**
+     * 核對服務器的結構類型編號，不一致的類型需在客戶端以相同編號註冊
+     */
+    protected void typeRegistry(ByteMessage<H> message) {
+        int matched = TypeRegistry.readFrom(message.getBuffer());
+        logger.info("sessionId={} check server type registry matched={}", message.getSessionId(), matched);
+    }
+
+    /**
+     * 載入服務器提供的壓縮字典並回覆確認，服務器收到確認後才會使用字典壓縮
+     * 字典表為整個程序共用，編號已註冊為不同內容時不取代也不確認，此連線不使用字典壓縮
+     */
+    protected void compressionDictionary(ByteMessage<H> message) {
+        CompressionDictionary dictionary = CompressionDictionary.readFrom(message.getBuffer());
+        CompressionDictionary bound = CompressionDictionary.registerIfAbsent(dictionary);
+        if (!bound.contentEquals(dictionary)) {
+            logger.warn("sessionId={} reject server {}: id is bound to a different dictionary",
+                    message.getSessionId(), dictionary);
+            return;
+        }
+        compressionDictionaryId = dictionary.getId();
+        ByteArrayBuffer ack = new ByteArrayBuffer();
+        ack.writeVarInt(dictionary.getId());
+        send(ProtocolId.NOTIFY_COMPRESSION_DICTIONARY, ack);
+        logger.info("sessionId={} apply server {}", message.getSessionId(), dictionary);
+    }
+
+    /**
+     * 回覆服務器的串流壓縮邀請，接受時立即啟用壓縮端（服務器已準備好解壓縮端）
+     */
+    protected void streamCompression(ByteMessage<H> message) {
+        boolean offered = message.getBuffer().readBool();
+        StreamingCompressionContext context = null;
+        Connector<H, ByteMessage<H>, ByteArrayBuffer> current = connector;
+        if (offered && current != null && current.isConnected() && compressionContext == null) {
+            context = StreamingCompression.getDefault().acquire(true);
+            if (context != null) {
+                if (current.setProperty(StreamingCompressionContext.class, StreamingCompressionContext.PROPERTY,
+                        context)) {
+                    compressionContext = context;
+                } else {
+                    // 連線已中斷，沒有綁定到連線的上下文不會在斷線時釋放，在此歸還記憶體預算
+                    context.release();
+                    context = null;
+                }
+            }
+        }
+        ByteArrayBuffer reply = new ByteArrayBuffer();
+        reply.writeBool(context != null);
+        send(ProtocolId.NOTIFY_STREAM_COMPRESSION, reply);
+        logger.info("sessionId={} stream compression accepted={}", message.getSessionId(), context != null);
+    }
+
+    protected void resumeToken(ByteMessage<H> message) {
+        resumeToken = message.getBuffer().readString();
+        logger.debug("sessionId={} rcv server resume token", message.getSessionId());
+    }
+
+    protected void resumeResult(ByteMessage<H> message) {
+        ByteArrayBuffer buffer = message.getBuffer();
+        int code = buffer.readInt();
+        String msg = buffer.readString();
+        if (code == 200) {
+            setSessionId(buffer.readLong());
+            resumeToken = buffer.readString();
+            onResumed(true);
+        } else {
+            logger.info("sessionId={} resume session failed code={} msg={}", message.getSessionId(), code, msg);
+            resumeToken = null;
+            onResumed(false);
+        }
+    }
+
+    /**
+     * 服務器即將停機：記錄改連的位址（未指定時重連原位址，由綁定同一個埠的新程序接手），
+     * 停機的節點無法恢復會話，重連後改送驗證協議
+     */
+    protected void drain(ByteMessage<H> message) {
+        ByteArrayBuffer buffer = message.getBuffer();
+        long timeoutMillis = buffer.readLong();
+        String redirect = buffer.readString();
+        String hostname = getHostname();
+        int port = getPort();
+        if (redirect != null && !redirect.isEmpty()) {
+            InetSocketAddress address = parseRedirect(redirect, port);
+            if (address != null) {
+                hostname = address.getHostString();
+                port = address.getPort();
+            } else {
+                logger.warn("sessionId={} ignore invalid drain redirect {}", message.getSessionId(), redirect);
+            }
+        }
+        resumeToken = null;
+        drainPort = port;
+        drainHostname = hostname;
+        logger.info("sessionId={} rcv server drain timeout={}ms redirect={}:{}", message.getSessionId(),
+                timeoutMillis, hostname, port);
+        onServerDrain(timeoutMillis, hostname, port);
+    }
+
+    /**
+     * 解析 host、host:port、[IPv6] 或 [IPv6]:port 格式的改連位址，未指定埠時沿用 defaultPort
+     *
+     * @return 格式錯誤或埠超出 1~65535 時回傳 null
+     */
+    protected static InetSocketAddress parseRedirect(String redirect, int defaultPort) {
+        try {
+            URI uri = new URI("tcp://" + redirect);
+            String host = uri.getHost();
+            if (host == null || uri.getRawPath().length() > 0 || uri.getRawQuery() != null
+                    || uri.getRawFragment() != null || uri.getRawUserInfo() != null) {
+                return null;
+            }
+            if (host.startsWith("[") && host.endsWith("]")) {
+                host = host.substring(1, host.length() - 1);
+            }
+            int port = uri.getPort() < 0 ? defaultPort : uri.getPort();
+            if (port < 1 || port > 65535) {
+                return null;
+            }
+            return InetSocketAddress.createUnresolved(host, port);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 收到服務器停機通知，子類別可覆寫（例如暫停送出新請求）；收到斷線通知後會自動改連指定的位址
+     *
+     * @param timeoutMillis 服務器停機的最長等待時間（毫秒）
+     */
+    protected void onServerDrain(long timeoutMillis, String hostname, int port) {
+    }
+
     protected void disconnected(ByteMessage<H> message) {
         long sessionId = message.getSessionId();
         long requestId = message.getRequestId();
         logger.info("sessionId={} requestId={} rcv server notify disconnect", sessionId, requestId);
+        String hostname = drainHostname;
+        if (hostname != null) {
+            int port = drainPort;
+            drainHostname = null;
+            scheduledThread.execute(() -> {
+                logger.info("reconnect to {}:{} after server drain", hostname, port);
+                reconnect(hostname, port);
+            });
+        }
     }
 
     protected class AutoReconnect implements Runnable {
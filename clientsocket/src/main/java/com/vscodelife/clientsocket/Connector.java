@@ -40,7 +40,7 @@ public class Connector<H extends HeaderBase, M extends MessageBase<H, B>, B> imp
 
     private EventLoopGroup bossGroup;
     private Bootstrap bootStrap;
-    private Channel channel;
+    private volatile Channel channel;
 
     protected final AtomicLong sessionId = new AtomicLong(0);
     protected final AtomicBoolean running = new AtomicBoolean(true);
@@ -64,6 +64,8 @@ public class Connector<H extends HeaderBase, M extends MessageBase<H, B>, B> imp
 
     public void onConnected(ChannelHandlerContext ctx) {
         connecting.set(false);
+        // channelActive 可能早於 connect().sync() 返回，先記錄連線讓回呼中即可送出消息
+        channel = ctx.channel();
 
         if (client != null) {
             client.onConnected(id, ctx);
@@ -217,14 +219,20 @@ public class Connector<H extends HeaderBase, M extends MessageBase<H, B>, B> imp
         return v.get();
     }
 
-    public <T> void setProperty(Class<T> clazz, String property, T value) {
+    /**
+     * 設定連線屬性
+     *
+     * @return 是否設定成功，尚未連線時回傳 false
+     */
+    public <T> boolean setProperty(Class<T> clazz, String property, T value) {
         if (channel == null) {
             logger.warn("Cannot set property '{}': channel is null", property);
-            return;
+            return false;
         }
         AttributeKey<T> k = AttributeKey.valueOf(property);
         Attribute<T> v = channel.attr(k);
         v.set(value);
+        return true;
     }
 
     public void send(M message) {
@@ -200,6 +200,11 @@ public abstract class SocketBase<H extends HeaderBase, M extends MessageBase<H,
                 } catch (Exception ee) {
                     logger.error(String.format("socket process protocol has error => %s", ee.getMessage()), ee);
                     onException(0, null, ee);
+                } finally {
+                    // 分派完成後釋放消息，需要保留的處理器應自行 retain
+                    if (message != null) {
+                        message.release();
+                    }
                 }
             }
         } catch (Exception e) {
@@ -103,7 +103,7 @@ public class ProtocolRegister<H extends HeaderBase, M extends MessageBase<H, B>,
      * @param handler 處理器
      */
     public void registerProtocol(int mainNo, int subNo, Consumer<M> handler) {
-        registerProtocol(new ProtocolKey(mainNo, subNo), handler);
+        registerProtocol(ProtocolKey.valueOf(mainNo, subNo), handler);
     }
 
     public void registerProtocol(ProtocolKey key, Consumer<M> handler) {
@@ -115,7 +115,7 @@ public class ProtocolRegister<H extends HeaderBase, M extends MessageBase<H, B>,
      * 檢查指定協定是否已註冊
      */
     public boolean isProtocolRegistered(int mainNo, int subNo) {
-        ProtocolKey key = new ProtocolKey(mainNo, subNo);
+        ProtocolKey key = ProtocolKey.valueOf(mainNo, subNo);
         return processMap.containsKey(key);
     }
 
@@ -145,7 +145,7 @@ public class ProtocolRegister<H extends HeaderBase, M extends MessageBase<H, B>,
     }
 
     public Consumer<M> getProtocolHandler(int mainNo, int subNo) {
-        return getProtocolHandler(new ProtocolKey(mainNo, subNo));
+        return getProtocolHandler(ProtocolKey.valueOf(mainNo, subNo));
     }
 
     /**
@@ -0,0 +1,44 @@
+package com.vscodelife.clientsocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 服務器停機通知中改連位址的解析
+ */
+class ByteSocketRedirectTest {
+
+    static void assertRedirect(String redirect, String host, int port) {
+        InetSocketAddress address = ByteSocket.parseRedirect(redirect, 30001);
+        assertThat(address).as(redirect).isNotNull();
+        assertThat(address.getHostString()).isEqualTo(host);
+        assertThat(address.getPort()).isEqualTo(port);
+        // 不在解析時查詢 DNS
+        assertThat(address.isUnresolved()).isTrue();
+    }
+
+    @Test
+    void parsesHostAndPort() {
+        assertRedirect("10.0.0.2:9001", "10.0.0.2", 9001);
+        assertRedirect("node-2.example.com:65535", "node-2.example.com", 65535);
+        assertRedirect("[::1]:9001", "::1", 9001);
+    }
+
+    @Test
+    void usesDefaultPortWhenMissing() {
+        assertRedirect("10.0.0.2", "10.0.0.2", 30001);
+        assertRedirect("node-2.example.com", "node-2.example.com", 30001);
+        assertRedirect("[fe80::1]", "fe80::1", 30001);
+    }
+
+    @Test
+    void rejectsMalformedAddresses() {
+        for (String redirect : new String[] { "", ":9001", "host:0", "host:65536", "host:abc", "host/path",
+                "host:9001?x=1", "host#frag", "user@host:9001", "::1", "[::1" }) {
+            assertThat(ByteSocket.parseRedirect(redirect, 30001)).as(redirect).isNull();
+        }
+    }
+}
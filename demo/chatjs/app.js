@@ -368,7 +368,7 @@ class ChatApp {
             if (onlineResponse.buffer) {
                 // 響應的 buffer 是 JSON 字符串，需要解析
                 try {
-                    responseData = JSON.parse(onlineResponse.buffer);
+                    responseData = ChatClient.parseBuffer(onlineResponse.buffer);
                 } catch (e) {
                     console.error('解析上線響應 buffer 失敗:', e);
                     responseData = onlineResponse.buffer;
@@ -544,7 +544,7 @@ class ChatApp {
                 responseData = response.data;
             } else if (response.buffer) {
                 try {
-                    responseData = JSON.parse(response.buffer);
+                    responseData = ChatClient.parseBuffer(response.buffer);
                 } catch (e) {
                     console.error('解析用戶列表響應失敗:', e);
                     responseData = response;
@@ -1094,7 +1094,7 @@ class ChatApp {
             let userData = null;
             if (response.buffer) {
                 try {
-                    userData = JSON.parse(response.buffer);
+                    userData = ChatClient.parseBuffer(response.buffer);
                 } catch (e) {
                     console.error('❌ 解析用戶資訊響應失敗:', e);
                     userData = response.buffer;
@@ -3,6 +3,13 @@
  * 處理與後端 ChatWebServer 的通信
  */
 class ChatClient {
+    /**
+     * 取得消息的 buffer 內容，相容 buffer 為巢狀物件（新格式）或 JSON 字串（舊格式）
+     */
+    static parseBuffer(buffer) {
+        return typeof buffer === 'string' ? JSON.parse(buffer) : buffer;
+    }
+
     constructor() {
         this.ws = null;
         this.isConnected = false;
@@ -275,9 +282,9 @@ class ChatClient {
                     userId: this.userId || "",
                     token: this.token || ""
                 },
-                buffer: JSON.stringify({
+                buffer: {
                     token: this.token
-                })
+                }
             };
 
             console.log('🔑 發送 Token 刷新請求:', {
@@ -361,7 +368,7 @@ class ChatClient {
                 userId: this.userId || "",
                 token: this.token || ""
             },
-            buffer: JSON.stringify({ ping: "ping" })  // 將 buffer 序列化為 JSON 字符串
+            buffer: { ping: "ping" }  // buffer 直接以巢狀物件傳送
         };
 
         // 設置 pong 響應回調
@@ -461,7 +468,7 @@ class ChatClient {
         if (message.buffer) {
             // 響應的 buffer 是 JSON 字符串，需要解析
             try {
-                responseData = JSON.parse(message.buffer);
+                responseData = ChatClient.parseBuffer(message.buffer);
             } catch (e) {
                 console.error('解析認證響應 buffer 失敗:', e);
                 responseData = message.buffer;
@@ -544,7 +551,7 @@ class ChatClient {
         let responseData = null;
         if (message.buffer) {
             try {
-                responseData = JSON.parse(message.buffer);
+                responseData = ChatClient.parseBuffer(message.buffer);
             } catch (e) {
                 console.error('解析 Token 刷新響應 buffer 失敗:', e);
                 responseData = message.buffer;
@@ -608,7 +615,7 @@ class ChatClient {
                     try {
                         // buffer 是 JSON 字符串，需要解析
                         if (typeof message.buffer === 'string') {
-                            const parsedBuffer = JSON.parse(message.buffer);
+                            const parsedBuffer = ChatClient.parseBuffer(message.buffer);
                             // 檢查是否有嵌套的 message 字段
                             if (parsedBuffer.message) {
                                 messageData = parsedBuffer.message;
@@ -681,7 +688,7 @@ class ChatClient {
                     userId: this.userId || "",
                     token: this.token || ""
                 },
-                buffer: JSON.stringify(data || {})  // 將 buffer 序列化為 JSON 字符串
+                buffer: data || {}  // buffer 直接以巢狀物件傳送
             };
 
             if (callback) {
@@ -736,7 +743,7 @@ class ChatClient {
                     userId: userId,
                     token: ""
                 },
-                buffer: JSON.stringify(data)  // 將 buffer 序列化為 JSON 字符串
+                buffer: data  // buffer 直接以巢狀物件傳送
             };
 
             // 設置回調來處理認證響應
@@ -7,6 +7,7 @@ import com.vscodelife.demo.client.TestByteClient;
 import com.vscodelife.demo.client.component.CommandManager;
 import com.vscodelife.demo.constant.ProtocolId;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.StreamingCompression;
 
 public class DemoByteClient {
     private static final Logger logger = LoggerFactory.getLogger(DemoByteClient.class);
@@ -17,6 +18,8 @@ public class DemoByteClient {
     public static void main(String[] args) {
         String userId = args == null ? "U002" : args[0];
         String password = args == null ? "pass456" : args[1];
+        // 接受服務器的串流壓縮邀請
+        StreamingCompression.getDefault().setEnabled(true);
         TestByteClient client = new TestByteClient(userId, password);
         client.connect("127.0.0.1", 30001);
         // 創建命令管理器
@@ -1,11 +1,22 @@
 package com.vscodelife.demo;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vscodelife.demo.entity.ChatMessage;
+import com.vscodelife.demo.entity.User;
 import com.vscodelife.demo.server.TestByteServer;
 import com.vscodelife.demo.server.component.ChatManager;
 import com.vscodelife.demo.server.component.UserManager;
+import com.vscodelife.serversocket.component.OfflineMailbox;
+import com.vscodelife.socketio.buffer.TypeRegistry;
+import com.vscodelife.socketio.compress.CompressionDictionary;
+import com.vscodelife.socketio.compress.StreamingCompression;
+import com.vscodelife.socketio.message.base.PersistentFrameStore;
 
 public class DemoByteServer {
     private static final Logger logger = LoggerFactory.getLogger(DemoByteServer.class);
@@ -17,10 +28,65 @@ public class DemoByteServer {
     private static final ChatManager chatManager = ChatManager.getInstance();
 
     public static void main(String[] args) {
+        // 註冊結構類型編號，連線時同步給客戶端
+        TypeRegistry.register(User.class, ChatMessage.class);
+
+        // 載入以 CompressionDictionaryTrainer 離線訓練的壓縮字典，連線時提供給客戶端
+        Path dictionary = Paths.get(System.getProperty("demo.dictionary", "dictionary.bin"));
+        if (Files.isRegularFile(dictionary)) {
+            CompressionDictionary.setDefault(CompressionDictionary.load(1, dictionary));
+            logger.info("load compression dictionary {}", dictionary);
+        }
+
+        // 連線建立時邀請客戶端啟用串流壓縮
+        StreamingCompression.getDefault().setEnabled(true);
+
         // 啟動服務器
         TestByteServer server = new TestByteServer(30001, 100);
+        // 回應快取保存編碼後的幀，重送請求時直接寫出（串流壓縮連線的回應仍保存消息）
+        server.getCacheBase().setFrameMode(true);
+        // 指定快取目錄時回應幀同時寫入本機磁碟，重啟後客戶端重送的請求仍可回放
+        String cacheDir = System.getProperty("demo.cacheDir");
+        PersistentFrameStore store = null;
+        if (cacheDir != null) {
+            store = PersistentFrameStore.open(Paths.get(cacheDir), server.getCacheBase().getTimeout());
+            server.getCacheBase().setPersistentStore(store);
+            logger.info("persistent cache dir={} recovered={}", cacheDir, store.getRecoveredCount());
+        }
+        // 指定信箱目錄時保存送給離線用戶的聊天訊息，用戶登入後補送
+        String mailboxDir = System.getProperty("demo.mailboxDir");
+        OfflineMailbox mailbox = null;
+        if (mailboxDir != null) {
+            mailbox = OfflineMailbox.open(Paths.get(mailboxDir), 7 * 24 * 60 * 60 * 1000L);
+            server.setOfflineMailbox(mailbox);
+            logger.info("offline mailbox dir={} recovered={}", mailboxDir, mailbox.getRecoveredCount());
+        }
+        // accept 時限制連線速率與單一 IP 的連線數（同一個 NAT 後的用戶共用 IP，上限不宜過低）
+        server.getAdmission().setAcceptRate(200, 400);
+        server.getAdmission().setIpAcceptRate(20, 40);
+        server.getAdmission().setMaxPerIp(Integer.getInteger("demo.maxPerIp", 0));
+        // 連線最長存活一天，到期後客戶端重新連線並驗證（更新 token）
+        server.getLifecycle().setMaxSessionAge(24 * 60 * 60 * 1000L);
+        // 斷線後保留會話，客戶端重連時以恢復憑證接續並補送遺漏的訊息
+        server.getSessionResumption().setEnabled(true);
+        // 以 SO_REUSEPORT 綁定，重啟時新程序先啟動，舊程序收到停機信號後優雅停機
+        server.setReusePort(true);
         server.bind();
 
+        // 停機時先讓連線改連並寫完回應，再關閉持久化快取與信箱
+        PersistentFrameStore closeStore = store;
+        OfflineMailbox closeMailbox = mailbox;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.drain(10 * 1000L, System.getProperty("demo.redirect"),
+                    progress -> logger.debug("drain {}", progress));
+            if (closeStore != null) {
+                closeStore.close();
+            }
+            if (closeMailbox != null) {
+                closeMailbox.close();
+            }
+        }));
+
         logger.info("start byte socket start.");
     }
 }
@@ -6,7 +6,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.vscodelife.clientsocket.ByteSocket;
+import com.vscodelife.socketio.buffer.BufferSizePredictor;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.CompressionPolicy;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
 import com.vscodelife.socketio.constant.ProtocolId;
 import com.vscodelife.socketio.message.ByteMessage;
 
@@ -56,6 +59,26 @@ public class TestByteClient extends ByteSocket<ByteUserHeader> {
     public void onConnected(long connectorId, ChannelHandlerContext ctx) {
         super.onConnected(connectorId, ctx);
 
+        // 持有恢復憑證時先嘗試接續斷線前的會話，不需重新驗證與載入狀態
+        if (!resumeSession()) {
+            auth();
+        }
+    }
+
+    @Override
+    protected void onResumed(boolean success) {
+        super.onResumed(success);
+
+        if (success) {
+            authed.set(true);
+            ping();
+        } else {
+            token = null;
+            auth();
+        }
+    }
+
+    private void auth() {
         ByteArrayBuffer request = new ByteArrayBuffer();
         request.writeString(userId);
         request.writeString(password);
@@ -66,8 +89,8 @@ public class TestByteClient extends ByteSocket<ByteUserHeader> {
     public void onDisconnected(long connectorId, ChannelHandlerContext ctx) {
         super.onDisconnected(connectorId, ctx);
 
+        // 保留 token，恢復會話後沿用
         authed.set(false);
-        token = null;
     }
 
     @Override
@@ -88,16 +111,22 @@ public class TestByteClient extends ByteSocket<ByteUserHeader> {
     @Override
     protected ByteMessage<ByteUserHeader> pack(String version, int mainNo, int subNo, long sessionId, long requestId,
             ByteArrayBuffer buffer) {
-        // 檢查是否需要壓縮
-        boolean isCompress = buffer.readableBytes() > 3000;
-        if (isCompress) {
-            buffer.compress();
-        }
+        // 記錄協議編碼大小，供下次預先配置緩衝區容量
+        BufferSizePredictor.getDefault().record(mainNo, subNo, buffer.writerIndex());
         String ip = "127.0.0.1";
         // 產生header
-        ByteUserHeader header = new ByteUserHeader(version, mainNo, subNo, isCompress,
+        ByteUserHeader header = ByteUserHeader.obtain(version, mainNo, subNo, false,
                 sessionId, requestId, userId, token, ip);
-        return new ByteMessage<>(header, buffer);
+        // 已啟用串流壓縮時交由編碼器依送出順序壓縮
+        StreamingCompressionContext context = getCompressionContext();
+        if (context != null && context.isOutbound()) {
+            return ByteMessage.obtain(header, buffer);
+        }
+        // 依壓縮策略壓縮，廣播時多個連線共用同一個緩衝區，因此壓縮結果寫入新的緩衝區
+        // 與服務器協商字典後，小訊息改用字典壓縮
+        ByteArrayBuffer body = CompressionPolicy.getDefault().apply(mainNo, subNo, buffer, header,
+                getCompressionDictionaryId());
+        return ByteMessage.obtain(header, body);
     }
 
     public boolean isAuthed() {
@@ -3,11 +3,14 @@ package com.vscodelife.demo.client.handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alibaba.fastjson2.JSONReader;
 import com.vscodelife.clientsocket.Connector;
 import com.vscodelife.demo.client.ByteUserHeader;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.CompressionCodecs;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
 import com.vscodelife.socketio.message.ByteMessage;
-import com.vscodelife.socketio.util.JsonUtil;
+import com.vscodelife.socketio.message.base.MessagePool;
 import com.vscodelife.socketio.util.NettyUtil;
 
 import io.netty.buffer.ByteBuf;
@@ -93,9 +96,11 @@ public class ByteHeaderDecoderHandler extends LengthFieldBasedFrameDecoder {
             logger.error("Failed to decode body - protocol violation or corrupted data");
             throw new IllegalStateException("Body parsing failed - invalid format or corrupted data");
         }
+        // 依消息頭記錄的壓縮方式解壓縮
+        CompressionCodecs.decompress(header, body, StreamingCompressionContext.get(ctx.channel()));
 
         // 創建消息
-        ByteMessage<ByteUserHeader> message = new ByteMessage<>(header, body);
+        ByteMessage<ByteUserHeader> message = ByteMessage.obtain(header, body);
 
         logger.debug(
                 "Successfully decoded message from client {} {} -> mainNo={} subNo={} requestId={} bodySize={}",
@@ -113,7 +118,14 @@ public class ByteHeaderDecoderHandler extends LengthFieldBasedFrameDecoder {
         try {
             String headerJson = NettyUtil.readString(in);
             logger.debug("Received header JSON: {}", headerJson);
-            ByteUserHeader header = JsonUtil.fromJson(headerJson, ByteUserHeader.class);
+            // 消息頭取自回收池，解析失敗時歸還
+            ByteUserHeader header = ByteUserHeader.obtain();
+            try (JSONReader reader = JSONReader.of(headerJson)) {
+                header.readFrom(reader);
+            } catch (RuntimeException e) {
+                MessagePool.recycle(header);
+                throw e;
+            }
             return header;
         } catch (Exception e) {
             logger.error("Error parsing header JSON: {}", e.getMessage(), e);
@@ -8,7 +8,9 @@ import org.slf4j.LoggerFactory;
 import com.vscodelife.clientsocket.Connector;
 import com.vscodelife.demo.client.ByteUserHeader;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
 import com.vscodelife.socketio.message.ByteMessage;
+import com.vscodelife.socketio.message.base.MessagePool;
 import com.vscodelife.socketio.util.JsonUtil;
 import com.vscodelife.socketio.util.NettyUtil;
 
@@ -39,15 +41,31 @@ public class ByteHeaderEncoderHandler extends MessageToByteEncoder<ByteMessage<B
                 throw new IllegalArgumentException("Header cannot be null");
             }
 
+            // 取出body
+            ByteArrayBuffer body = message.getBuffer();
+            // 串流壓縮必須依實際送出順序進行，因此在編碼器中壓縮；同一則消息可能被快取或送往多個連線，
+            // 壓縮方式只記錄在本次編碼的消息頭副本上，不修改共用的消息頭
+            ByteUserHeader encoded = header;
+            StreamingCompressionContext context = StreamingCompressionContext.get(ctx.channel());
+            if (context != null && !header.isCompress() && context.accepts(body)) {
+                ByteUserHeader copy = header.clone();
+                ByteArrayBuffer compressed = context.compress(body, copy);
+                if (compressed != null) {
+                    body = compressed;
+                    encoded = copy;
+                }
+            }
+
             // 將header轉換為JSON字串
-            String headerJson = JsonUtil.toJson(header);
+            String headerJson = JsonUtil.toJson(encoded);
+            if (encoded != header) {
+                MessagePool.recycle(encoded);
+            }
             // 將JSON字串轉換為byte數組
             byte[] headerBytes = headerJson.getBytes(StandardCharsets.UTF_8);
             // 計算header長度
             int headerLength = headerBytes.length;
 
-            // 取出body
-            ByteArrayBuffer body = message.getBuffer();
             // 計算body長度
             int bodyLength = body == null ? 0 : body.readableBytes();
 
@@ -71,6 +89,9 @@ public class ByteHeaderEncoderHandler extends MessageToByteEncoder<ByteMessage<B
         } catch (Exception e) {
             logger.error("Error encoding byte message: {}", e.getMessage(), e);
             throw e;
+        } finally {
+            // 編碼完成後釋放消息，放入快取的消息已由快取持有引用
+            message.release();
         }
     }
 
@@ -24,6 +24,8 @@ public class ByteMessageHandler extends SimpleChannelInboundHandler<ByteMessage<
     protected void channelRead0(ChannelHandlerContext ctx, ByteMessage<ByteUserHeader> msg) throws Exception {
         if (connector != null && connector.isConnected()) {
             connector.onReceiveMessage(ctx, msg);
+        } else {
+            msg.release();
         }
     }
 }
@@ -3,6 +3,7 @@ package com.vscodelife.demo.entity;
 import java.time.LocalDateTime;
 
 import com.vscodelife.socketio.annotation.MessageTag;
+import com.vscodelife.socketio.annotation.StructType;
 import com.vscodelife.socketio.util.SnowflakeUtil;
 
 import lombok.AllArgsConstructor;
@@ -15,6 +16,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@StructType(id = 2)
 public class ChatMessage {
     public static final int TYPE_SYSTEM = 0; // 系統訊息
     public static final int TYPE_USER = 1; // 用戶訊息
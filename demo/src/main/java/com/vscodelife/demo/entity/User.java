@@ -1,6 +1,7 @@
 package com.vscodelife.demo.entity;
 
 import com.vscodelife.socketio.annotation.MessageTag;
+import com.vscodelife.socketio.annotation.StructType;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,6 +13,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@StructType(id = 1)
 public class User {
     @MessageTag(order = 1)
     private String userId; // 用戶編號
@@ -0,0 +1,89 @@
+package com.vscodelife.demo.entity;
+
+import com.alibaba.fastjson2.JSONReader;
+import com.vscodelife.socketio.message.base.HeaderBase;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 示範服務器與客戶端共用的用戶消息頭欄位（用戶ID、認證令牌、客戶端IP）
+ */
+@Getter
+@Setter
+public abstract class UserHeaderBase extends HeaderBase {
+    protected String userId; // 用戶ID
+    protected String token; // 認證令牌
+    protected String ip; // 客戶端IP
+
+    protected UserHeaderBase() {
+        super();
+    }
+
+    protected UserHeaderBase(String version, int mainNo, int subNo, boolean isCompress, long sessionId,
+            long requestId, String userId, String token, String ip) {
+        super(version, mainNo, subNo, isCompress, sessionId, requestId, 0L);
+
+        this.userId = userId;
+        this.token = token;
+        this.ip = ip;
+    }
+
+    /**
+     * 填入從回收池取得的消息頭
+     */
+    protected void fill(String version, int mainNo, int subNo, boolean isCompress, long sessionId, long requestId,
+            String userId, String token, String ip) {
+        this.version = version;
+        this.mainNo = mainNo;
+        this.subNo = subNo;
+        this.isCompress = isCompress;
+        this.sessionId = sessionId;
+        this.requestId = requestId;
+        this.userId = userId;
+        this.token = token;
+        this.ip = ip;
+    }
+
+    /**
+     * 複製消息頭之外的欄位（壓縮方式、接收時間）到 clone() 取得的實例
+     */
+    protected <T extends UserHeaderBase> T copyTo(T header) {
+        header.compressMode = compressMode;
+        header.rcvTimestamp = rcvTimestamp;
+        return header;
+    }
+
+    @Override
+    protected boolean readField(String name, JSONReader reader) {
+        switch (name) {
+            case "userId":
+                userId = reader.readString();
+                return true;
+            case "token":
+                token = reader.readString();
+                return true;
+            case "ip":
+                ip = reader.readString();
+                return true;
+            default:
+                return super.readField(name, reader);
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+
+        this.userId = null;
+        this.token = null;
+        this.ip = null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "version=%s mainNo=%d subNo=%d isCompress=%s sessionId=%d requestId=%d userId=%s token=%s ip=%s",
+                version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+    }
+}
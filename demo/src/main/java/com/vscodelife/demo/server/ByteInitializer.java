@@ -1,9 +1,5 @@
 package com.vscodelife.demo.server;
 
-import java.net.SocketException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,28 +17,14 @@ public class ByteInitializer extends ChannelInitializer<SocketChannel> {
     private static Logger logger = LoggerFactory.getLogger(ByteInitializer.class);
 
     private final TestByteServer socket;
-    private final ScheduledExecutorService authScheduler;
 
     public ByteInitializer(TestByteServer socket) {
         this.socket = socket;
-        // 創建專用於認證的調度器
-        this.authScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "auth-scheduler");
-            t.setDaemon(true);
-            return t;
-        });
     }
 
     @Override
     public void initChannel(SocketChannel channel) throws Exception {
-        int rConnect = 100;
-        int cConnect = socket.getLimitConnect();
-        int limitConnect = 0;
-        int nowConnect = socket.getNowConnect();
-        limitConnect = Math.max(cConnect, rConnect);
-        if (nowConnect >= limitConnect) {
-            throw new SocketException("over connected");
-        }
+        // 連線數、來源 IP 與 accept 速率已由服務器的 AdmissionController 在 accept 時檢查
         ChannelPipeline pipeline = channel.pipeline();
 
         // 1. decoder: 將原始 ByteBuf 解碼為 ByteMessage<ByteUserHeader>
@@ -52,7 +34,7 @@ public class ByteInitializer extends ChannelInitializer<SocketChannel> {
         pipeline.addLast("connect", new ByteConnectHandler(socket));
 
         // 3. auth: 處理已解碼的認證消息 (必須在 decoder 之後，其他業務 handler 之前)
-        pipeline.addLast("auth", new ByteAuthenticationHandler(socket, authScheduler));
+        pipeline.addLast("auth", new ByteAuthenticationHandler(socket));
 
         // 4. message: 處理業務消息
         pipeline.addLast("message", new ByteMessageHandler(socket));
@@ -42,13 +42,13 @@ public final class ByteProtocol {
         //
         List<ChatMessage> recentMessages = ChatManager.getInstance().getRecentMessages(10);
         // 回應用戶信息
-        ByteArrayBuffer response = new ByteArrayBuffer();
+        ByteArrayBuffer response = ByteArrayBuffer.forProtocol(message.getProtocolKey());
         response.writeInt(200);
         response.writeString("success");
         response.writeStruct(recentMessages);
         server.send(sessionId, message.getHeader().getProtocolKey(), requestId, response);
         // 廣播用戶上線
-        ByteArrayBuffer broadcastMsg = new ByteArrayBuffer();
+        ByteArrayBuffer broadcastMsg = ByteArrayBuffer.forProtocol(ProtocolId.MESSAGE);
         broadcastMsg.writeStruct(msg);
         server.broadcast(ProtocolId.MESSAGE, broadcastMsg);
     }
@@ -62,12 +62,12 @@ public final class ByteProtocol {
         //
         ChatMessage msg = ChatManager.getInstance().userOfflineWithMessage(userId);
         // 回應用戶信息
-        ByteArrayBuffer response = new ByteArrayBuffer();
+        ByteArrayBuffer response = ByteArrayBuffer.forProtocol(message.getProtocolKey());
         response.writeInt(200);
         response.writeString("success");
         server.send(sessionId, message.getHeader().getProtocolKey(), requestId, response);
         // 廣播用戶下線
-        ByteArrayBuffer broadcastMsg = new ByteArrayBuffer();
+        ByteArrayBuffer broadcastMsg = ByteArrayBuffer.forProtocol(ProtocolId.MESSAGE);
         broadcastMsg.writeStruct(msg);
         server.broadcast(ProtocolId.MESSAGE, broadcastMsg);
     }
@@ -80,7 +80,7 @@ public final class ByteProtocol {
         //
         List<User> users = ChatManager.getInstance().getAllOnlineUsers();
         // 回應用戶信息
-        ByteArrayBuffer response = new ByteArrayBuffer();
+        ByteArrayBuffer response = ByteArrayBuffer.forProtocol(message.getProtocolKey());
         response.writeInt(200);
         response.writeString("success");
         response.writeList(users);
@@ -97,12 +97,12 @@ public final class ByteProtocol {
         //
         User user = ChatManager.getInstance().getUser(targetId);
         if (user == null) {
-            ByteArrayBuffer response = new ByteArrayBuffer();
+            ByteArrayBuffer response = ByteArrayBuffer.forProtocol(message.getProtocolKey());
             response.writeInt(404);
             response.writeString("user not found");
             server.send(sessionId, message.getHeader().getProtocolKey(), requestId, response);
         } else {
-            ByteArrayBuffer response = new ByteArrayBuffer();
+            ByteArrayBuffer response = ByteArrayBuffer.forProtocol(message.getProtocolKey());
             response.writeInt(200);
             response.writeString("success");
             response.writeStruct(user);
@@ -120,14 +120,14 @@ public final class ByteProtocol {
         //
         ChatMessage msg = ChatManager.getInstance().addMessage(userId, content);
         // 回應用戶信息
-        ByteArrayBuffer response = new ByteArrayBuffer();
+        ByteArrayBuffer response = ByteArrayBuffer.forProtocol(message.getProtocolKey());
         response.writeInt(200);
         response.writeString("success");
         server.send(sessionId, message.getHeader().getProtocolKey(), requestId, response);
-        // 廣播用戶發話
-        ByteArrayBuffer broadcastMsg = new ByteArrayBuffer();
+        // 廣播用戶發話，離線用戶存入信箱，下次登入時收到
+        ByteArrayBuffer broadcastMsg = ByteArrayBuffer.forProtocol(ProtocolId.MESSAGE);
         broadcastMsg.writeStruct(msg);
-        server.broadcast(ProtocolId.MESSAGE, broadcastMsg);
+        server.broadcastToUsers(UserManager.getInstance().getAllUserIds(), ProtocolId.MESSAGE, broadcastMsg);
     }
 
 }
@@ -2,35 +2,34 @@ package com.vscodelife.demo.server;
 
 import com.vscodelife.serversocket.connection.ByteConnection;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.CompressionPolicy;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
 import com.vscodelife.socketio.message.ByteMessage;
 
 import io.netty.channel.Channel;
 
 public class ByteUserConnection extends ByteConnection {
-    private static final long DEFAULT_TIMEOUT = 5 * 60 * 1000L;
-
     private String token;
     private String userId;
     private boolean authed;
-    private long timeout;
 
     public ByteUserConnection() {
         super();
-
-        this.timeout = System.currentTimeMillis() + DEFAULT_TIMEOUT;
     }
 
     public ByteUserConnection(Channel channel, String version, long sessionId, long connectTime) {
         super(channel, version, sessionId, connectTime);
-
-        this.timeout = System.currentTimeMillis() + DEFAULT_TIMEOUT;
     }
 
     @Override
-    public void setConnectTime(long connectTime) {
-        super.setConnectTime(connectTime);
-
-        timeout = connectTime + DEFAULT_TIMEOUT;
+    public void setChannel(Channel channel) {
+        super.setChannel(channel);
+        // 恢復會話時驗證狀態延續到新的連線
+        if (channel != null && authed) {
+            setProperty(String.class, channel, "userId", userId);
+            setProperty(String.class, channel, "token", token);
+            setProperty(Boolean.class, channel, "authed", authed);
+        }
     }
 
     public String getToken() {
@@ -63,20 +62,11 @@ public class ByteUserConnection extends ByteConnection {
         setProperty(Boolean.class, channel, "authed", authed);
     }
 
-    public long getTimeout() {
-        return timeout;
-    }
-
-    public void setTimeout(long timeout) {
-        this.timeout = timeout;
-    }
-
     @Override
     public void send(int mainNo, int subNo, long requestId, ByteArrayBuffer buffer) {
         try {
             if (channel != null) {
-                channel.writeAndFlush(
-                        pack(version, mainNo, subNo, sessionId, userId, token, requestId, buffer));
+                write(pack(version, mainNo, subNo, sessionId, userId, token, requestId, buffer));
             }
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -85,15 +75,19 @@ public class ByteUserConnection extends ByteConnection {
 
     private ByteMessage<ByteUserHeader> pack(String version, int mainNo, int subNo, long sessionId, String userId,
             String token, long requestId, ByteArrayBuffer buffer) {
-        // 檢查是否需要壓縮
-        boolean isCompress = buffer.readableBytes() > 3000;
-        if (isCompress) {
-            buffer.compress();
-        }
         String ip = getIp();
         // 產生header
-        ByteUserHeader header = new ByteUserHeader(version, mainNo, subNo, isCompress,
+        ByteUserHeader header = ByteUserHeader.obtain(version, mainNo, subNo, false,
                 sessionId, requestId, userId, token, ip);
-        return new ByteMessage<>(header, buffer);
+        // 已啟用串流壓縮時交由編碼器依送出順序壓縮
+        StreamingCompressionContext context = getCompressionContext();
+        if (context != null && context.isOutbound()) {
+            return ByteMessage.obtain(header, buffer);
+        }
+        // 依壓縮策略壓縮，廣播時多個連線共用同一個緩衝區，因此壓縮結果寫入新的緩衝區
+        // 客戶端確認字典後，小訊息改用字典壓縮
+        ByteArrayBuffer body = CompressionPolicy.getDefault().apply(mainNo, subNo, buffer, header,
+                getCompressionDictionaryId());
+        return ByteMessage.obtain(header, body);
     }
 }
@@ -1,17 +1,9 @@
 package com.vscodelife.demo.server;
 
-import com.vscodelife.socketio.message.base.HeaderBase;
-
-import lombok.Getter;
-import lombok.Setter;
-
-@Getter
-@Setter
-public class ByteUserHeader extends HeaderBase {
-    private String userId;
-    private String token;
-    private String ip;
+import com.vscodelife.demo.entity.UserHeaderBase;
+import com.vscodelife.socketio.message.base.MessagePool;
 
+public class ByteUserHeader extends UserHeaderBase {
     // 無參構造函數，用於 JSON 反序列化
     public ByteUserHeader() {
         super();
@@ -24,22 +16,28 @@ public class ByteUserHeader extends HeaderBase {
 
     public ByteUserHeader(String version, int mainNo, int subNo, boolean isCompress, long sessionId, long requestId,
             String userId, String token, String ip) {
-        super(version, mainNo, subNo, isCompress, sessionId, requestId, 0L);
+        super(version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+    }
 
-        this.userId = userId;
-        this.token = token;
-        this.ip = ip;
+    /**
+     * 從回收池取得空白的消息頭（解碼時使用），回收池關閉時等同於建立新實例
+     */
+    public static ByteUserHeader obtain() {
+        return MessagePool.acquire(ByteUserHeader.class, ByteUserHeader::new);
     }
 
-    @Override
-    public String toString() {
-        return String.format(
-                "version=%s mainNo=%d subNo=%d isCompress=%s sessionId=%d requestId=%d userId=%s token=%s ip=%s",
-                version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+    /**
+     * 從回收池取得消息頭，回收池關閉時等同於建立新實例
+     */
+    public static ByteUserHeader obtain(String version, int mainNo, int subNo, boolean isCompress, long sessionId,
+            long requestId, String userId, String token, String ip) {
+        ByteUserHeader header = MessagePool.acquire(ByteUserHeader.class, ByteUserHeader::new);
+        header.fill(version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+        return header;
     }
 
     @Override
     public ByteUserHeader clone() {
-        return new ByteUserHeader(version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+        return copyTo(obtain(version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip));
     }
 }
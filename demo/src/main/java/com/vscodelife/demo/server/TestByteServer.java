@@ -13,6 +13,11 @@ public class TestByteServer extends ByteSocket<ByteUserHeader, ByteUserConnectio
 
         ByteProtocol.server = this;
 
+        // 連線後 30 秒內需完成驗證，45 秒沒有收到消息時送出心跳，5 分鐘沒有收到消息時斷線
+        lifecycle.setAuthTimeout(30 * 1000L);
+        lifecycle.setHeartbeatInterval(45 * 1000L);
+        lifecycle.setIdleTimeout(5 * 60 * 1000L);
+
         int protocolCount = protocolRegister.scanAndRegisterProtocols(ByteProtocol.class);
 
         logger.info("reg protocol count={}", protocolCount);
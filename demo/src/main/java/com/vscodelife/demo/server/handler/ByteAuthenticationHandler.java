@@ -3,9 +3,6 @@ package com.vscodelife.demo.server.handler;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,19 +31,13 @@ import io.netty.util.AttributeKey;
 public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteMessage<ByteUserHeader>> {
     private static final Logger logger = LoggerFactory.getLogger(ByteAuthenticationHandler.class);
 
-    // 驗證超時時間（秒）
-    private static final int AUTH_TIMEOUT_SECONDS = 30;
-
     // Channel 屬性鍵
     private static final AttributeKey<Boolean> AUTH_STATE_KEY = AttributeKey.valueOf("authenticated");
-    private static final AttributeKey<ScheduledFuture<?>> AUTH_TIMEOUT_KEY = AttributeKey.valueOf("authTimeout");
 
     private final TestByteServer socket;
-    private final ScheduledExecutorService scheduler;
 
-    public ByteAuthenticationHandler(TestByteServer socket, ScheduledExecutorService scheduler) {
+    public ByteAuthenticationHandler(TestByteServer socket) {
         this.socket = socket;
-        this.scheduler = scheduler;
     }
 
     @Override
@@ -56,39 +47,11 @@ public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteM
         // 設置初始驗證狀態為未驗證
         setAuthenticated(ctx, false);
 
-        // 設置驗證超時
-        ScheduledFuture<?> timeoutFuture = scheduler.schedule(() -> {
-            // 檢查是否驗證成功
-            if (!isAuthenticated(ctx)) {
-                logger.warn("Authentication timeout for client {}, closing connection",
-                        ctx.channel().remoteAddress());
-                // 取得用戶連接
-                ByteUserConnection connection = socket.getConnection(ctx.channel());
-                if (connection != null) {
-                    ByteArrayBuffer response = new ByteArrayBuffer();
-                    response.writeInt(408);
-                    response.writeString("auth timeout");
-                    connection.send(ProtocolId.AUTH_RESULT, response);
-                    connection.disconnect();
-                } else {
-                    ctx.close();
-                }
-            }
-        }, AUTH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-
-        ctx.channel().attr(AUTH_TIMEOUT_KEY).set(timeoutFuture);
+        // 驗證期限由服務器的連線生命週期時間輪管理，期限內未驗證時斷線
 
         super.channelActive(ctx);
     }
 
-    @Override
-    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        // 取消驗證超時任務
-        cancelAuthTimeout(ctx);
-
-        super.channelInactive(ctx);
-    }
-
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, ByteMessage<ByteUserHeader> message) throws Exception {
         logger.info("Client {} send request, message={}", ctx.channel().remoteAddress(), message);
@@ -102,14 +65,18 @@ public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteM
         // 取得用戶連接
         ByteUserConnection connection = socket.getConnection(ctx.channel());
         if (connection != null) {
+            boolean forwarded = false;
             try {
                 // 檢查是否為驗證協議
-                if (!ProtocolId.AUTH.equals(protocolKey)) {
-                    // 如果尚未通過驗證，則拒絕該消息處理
-                    if (!isAuthenticated(ctx)) {
+                if (ProtocolId.RESUME.equals(protocolKey)) {
+                    handleResume(ctx, message);
+                } else if (!ProtocolId.AUTH.equals(protocolKey)) {
+                    // 如果尚未通過驗證，則拒絕該消息處理（壓縮協商的回覆可能早於驗證送達，不含用戶資料）
+                    if (!isAuthenticated(ctx) && !isNegotiation(protocolKey)) {
                         throw new AuthException("invalid protocol");
                     } else { // 已驗證，將消息pass給下個handler
                         ctx.fireChannelRead(message);
+                        forwarded = true;
                     }
                 } else {
                     handleAuthentication(ctx, connection, message);
@@ -128,6 +95,11 @@ public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteM
                 connection.disconnect();
                 logger.error(String.format("process auth has unknown error=%s",
                         e2.getMessage()), e2);
+            } finally {
+                // 未轉交給下個處理器的消息由本處理器消化，處理完畢後釋放
+                if (!forwarded) {
+                    message.release();
+                }
             }
         }
     }
@@ -136,8 +108,6 @@ public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteM
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         logger.error("Exception in authentication handler for client {}: {}",
                 ctx.channel().remoteAddress(), cause.getMessage(), cause);
-        // 取消驗證超時任務
-        cancelAuthTimeout(ctx);
         // 關閉連接
         ctx.close();
     }
@@ -164,8 +134,8 @@ public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteM
 
         // 標記為已驗證
         setAuthenticated(ctx, true);
-        // 取消超時任務
-        cancelAuthTimeout(ctx);
+        // 通知生命週期管理，取消驗證期限
+        notifyAuthenticated(ctx);
         // 從 pipeline 中移除自己，後續消息直接進入正常處理流程
         removeAuthHandler(ctx);
 
@@ -179,10 +149,36 @@ public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteM
         response.writeString("auth success");
         response.writeString(token);
         connection.send(ProtocolId.AUTH_RESULT, requestId, response);
+        // 核發會話恢復憑證，斷線重連後可接續會話
+        socket.issueResumeToken(connection);
+        // 送出離線期間存入信箱的消息
+        socket.bindUser(userId, connection);
 
         logger.info("用戶 {} 驗證成功，生成 token: {}", userId, token);
     }
 
+    /**
+     * 以恢復憑證接續斷線前的會話，成功時沿用原本的驗證狀態，失敗時客戶端改送驗證協議
+     */
+    private void handleResume(ChannelHandlerContext ctx, ByteMessage<ByteUserHeader> message) {
+        ByteArrayBuffer request = message.getBuffer();
+        String resumeToken = request.readString();
+        long sequence = request.readLong();
+        ByteUserConnection connection = socket.resumeConnection(ctx.channel(), resumeToken, sequence);
+        if (connection != null && connection.isAuthed()) {
+            setAuthenticated(ctx, true);
+            notifyAuthenticated(ctx);
+            removeAuthHandler(ctx);
+            socket.bindUser(connection.getUserId(), connection);
+            logger.info("用戶 {} 恢復會話 sessionId={}", connection.getUserId(), connection.getSessionId());
+        }
+    }
+
+    private boolean isNegotiation(ProtocolKey protocolKey) {
+        return ProtocolId.NOTIFY_COMPRESSION_DICTIONARY.equals(protocolKey)
+                || ProtocolId.NOTIFY_STREAM_COMPRESSION.equals(protocolKey);
+    }
+
     /**
      * 驗證用戶帳號密碼
      */
@@ -249,11 +245,11 @@ public class ByteAuthenticationHandler extends SimpleChannelInboundHandler<ByteM
         ctx.channel().attr(AUTH_STATE_KEY).set(authenticated);
     }
 
-    private void cancelAuthTimeout(ChannelHandlerContext ctx) {
-        ScheduledFuture<?> timeoutFuture = ctx.channel().attr(AUTH_TIMEOUT_KEY).get();
-        if (timeoutFuture != null && !timeoutFuture.isDone()) {
-            timeoutFuture.cancel(false);
-        }
+    /**
+     * 通知生命週期管理驗證完成，取消驗證期限
+     */
+    private void notifyAuthenticated(ChannelHandlerContext ctx) {
+        socket.getLifecycle().authenticated(ctx.channel());
     }
 
     private void removeAuthHandler(ChannelHandlerContext ctx) {
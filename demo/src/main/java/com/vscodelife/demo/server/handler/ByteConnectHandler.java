@@ -9,6 +9,8 @@ import org.slf4j.LoggerFactory;
 import com.vscodelife.demo.server.ByteUserConnection;
 import com.vscodelife.demo.server.TestByteServer;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.buffer.TypeRegistry;
+import com.vscodelife.socketio.compress.CompressionDictionary;
 import com.vscodelife.socketio.constant.ProtocolId;
 
 import io.netty.channel.Channel;
@@ -28,6 +30,8 @@ public class ByteConnectHandler extends ChannelDuplexHandler {
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         // 取得當前連線的channel
         Channel incoming = ctx.channel();
+        // 開始計算驗證期限、閒置與心跳
+        socket.getLifecycle().register(incoming);
         // 將連線加入管理
         if (socket.putConnection(incoming)) {
             ByteUserConnection connection = socket.getConnection(incoming);
@@ -35,6 +39,16 @@ public class ByteConnectHandler extends ChannelDuplexHandler {
                 ByteArrayBuffer response = new ByteArrayBuffer();
                 response.writeLong(connection.getSessionId());
                 connection.send(ProtocolId.NOTIFY_SESSION_ID, response);
+                // 同步結構類型編號，之後的結構只需傳送編號
+                connection.send(ProtocolId.NOTIFY_TYPE_REGISTRY, TypeRegistry.writeTo(new ByteArrayBuffer()));
+                // 提供壓縮字典，客戶端確認後小訊息改用字典壓縮
+                CompressionDictionary dictionary = CompressionDictionary.getDefault();
+                if (dictionary != null) {
+                    connection.send(ProtocolId.NOTIFY_COMPRESSION_DICTIONARY,
+                            dictionary.writeTo(new ByteArrayBuffer(dictionary.size() + 8)));
+                }
+                // 邀請客戶端啟用串流壓縮（長時間連線的連續訊息共用壓縮前後文）
+                connection.offerStreamCompression();
             }
         }
 
@@ -45,14 +59,23 @@ public class ByteConnectHandler extends ChannelDuplexHandler {
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         // 取得當前連線的channel
         Channel incoming = ctx.channel();
+        socket.getLifecycle().unregister(incoming);
         // 將連線從管理中移除
         ByteUserConnection connection = socket.removeConnection(incoming);
-        if (connection != null) {
+        // 持有恢復憑證的會話暫停等待客戶端重連，其餘直接結束
+        if (connection != null && !socket.suspendConnection(connection)) {
             connection.destroy();
         }
         logger.info("client: {} is offline channelId={}", incoming.remoteAddress(), incoming.id());
     }
 
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        // 收到任何消息都視為活動（只更新時間，不移動時間輪項目）
+        socket.getLifecycle().touch(ctx.channel());
+        super.channelRead(ctx, msg);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         Channel incoming = ctx.channel();
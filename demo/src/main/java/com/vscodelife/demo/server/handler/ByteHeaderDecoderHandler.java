@@ -5,12 +5,15 @@ import java.net.SocketException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alibaba.fastjson2.JSONReader;
 import com.vscodelife.demo.server.ByteUserConnection;
 import com.vscodelife.demo.server.ByteUserHeader;
 import com.vscodelife.demo.server.TestByteServer;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.CompressionCodecs;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
 import com.vscodelife.socketio.message.ByteMessage;
-import com.vscodelife.socketio.util.JsonUtil;
+import com.vscodelife.socketio.message.base.MessagePool;
 import com.vscodelife.socketio.util.JwtUtil;
 import com.vscodelife.socketio.util.NettyUtil;
 
@@ -83,6 +86,7 @@ public class ByteHeaderDecoderHandler extends LengthFieldBasedFrameDecoder {
                     logger.error("Failed to send error response to client: {}", sendException.getMessage());
                 }
                 connection.disconnect();
+                message.release();
                 return null; // 連接已斷開，不需要繼續傳遞消息
             }
         }
@@ -123,9 +127,11 @@ public class ByteHeaderDecoderHandler extends LengthFieldBasedFrameDecoder {
             logger.error("Failed to decode body - protocol violation or corrupted data");
             throw new IllegalStateException("Body parsing failed - invalid format or corrupted data");
         }
+        // 依消息頭記錄的壓縮方式解壓縮
+        CompressionCodecs.decompress(header, body, StreamingCompressionContext.get(ctx.channel()));
 
         // 創建消息
-        ByteMessage<ByteUserHeader> message = new ByteMessage<>(header, body);
+        ByteMessage<ByteUserHeader> message = ByteMessage.obtain(header, body);
 
         logger.debug(
                 "Successfully decoded message from client {} {} -> mainNo={} subNo={} requestId={} bodySize={}",
@@ -143,7 +149,14 @@ public class ByteHeaderDecoderHandler extends LengthFieldBasedFrameDecoder {
         try {
             String headerJson = NettyUtil.readString(in);
             logger.debug("Received header JSON: {}", headerJson);
-            ByteUserHeader header = JsonUtil.fromJson(headerJson, ByteUserHeader.class);
+            // 消息頭取自回收池，解析失敗時歸還
+            ByteUserHeader header = ByteUserHeader.obtain();
+            try (JSONReader reader = JSONReader.of(headerJson)) {
+                header.readFrom(reader);
+            } catch (RuntimeException e) {
+                MessagePool.recycle(header);
+                throw e;
+            }
             return header;
         } catch (Exception e) {
             logger.error("Error parsing header JSON: {}", e.getMessage(), e);
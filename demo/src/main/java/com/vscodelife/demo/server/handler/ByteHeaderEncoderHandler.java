@@ -8,7 +8,10 @@ import org.slf4j.LoggerFactory;
 import com.vscodelife.demo.server.ByteUserHeader;
 import com.vscodelife.demo.server.TestByteServer;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
+import com.vscodelife.socketio.connection.ResumeBuffer;
 import com.vscodelife.socketio.message.ByteMessage;
+import com.vscodelife.socketio.message.base.MessagePool;
 import com.vscodelife.socketio.message.base.CacheBase;
 import com.vscodelife.socketio.util.JsonUtil;
 import com.vscodelife.socketio.util.NettyUtil;
@@ -44,15 +47,33 @@ public class ByteHeaderEncoderHandler extends MessageToByteEncoder<ByteMessage<B
                 throw new IllegalArgumentException("Header cannot be null");
             }
 
+            // 取出body
+            ByteArrayBuffer body = message.getBuffer();
+            // 串流壓縮必須依實際送出順序進行，因此在編碼器中壓縮；同一則消息可能被快取或送往多個連線，
+            // 壓縮方式只記錄在本次編碼的消息頭副本上，不修改共用的消息頭
+            ByteUserHeader encoded = header;
+            StreamingCompressionContext context = StreamingCompressionContext.get(ctx.channel());
+            boolean streamCompressed = false;
+            if (context != null && !header.isCompress() && context.accepts(body)) {
+                ByteUserHeader copy = header.clone();
+                ByteArrayBuffer compressed = context.compress(body, copy);
+                if (compressed != null) {
+                    body = compressed;
+                    encoded = copy;
+                    streamCompressed = true;
+                }
+            }
+
             // 將header轉換為JSON字串
-            String headerJson = JsonUtil.toJson(header);
+            String headerJson = JsonUtil.toJson(encoded);
+            if (encoded != header) {
+                MessagePool.recycle(encoded);
+            }
             // 將JSON字串轉換為byte數組
             byte[] headerBytes = headerJson.getBytes(StandardCharsets.UTF_8);
             // 計算header長度
             int headerLength = headerBytes.length;
 
-            // 取出body
-            ByteArrayBuffer body = message.getBuffer();
             // 計算body長度
             int bodyLength = body == null ? 0 : body.readableBytes();
 
@@ -60,18 +81,31 @@ public class ByteHeaderEncoderHandler extends MessageToByteEncoder<ByteMessage<B
             int totalLength = 4 + 4 + headerLength + 4 + bodyLength;
 
             // 寫入總長度
+            int frameIndex = out.writerIndex();
             NettyUtil.writeInt(out, totalLength);
             // 進行header編碼
             encodeHeader(out, headerBytes);
             // 進行body編碼
             encodeBody(out, body);
+            // 應用層幀記錄送出序號，客戶端恢復會話時補送遺漏的部分
+            ResumeBuffer resumeBuffer = ResumeBuffer.get(ctx.channel());
+            if (resumeBuffer != null && ResumeBuffer.isSequenced(header.getMainNo())) {
+                resumeBuffer.append(message);
+            }
             // 用戶ID為空視為訪客
             if (StrUtil.isEmpty(header.getUserId())) {
                 header.setUserId("guest");
             }
             // 放入快取
             if (cacheManager.isEnabled() && cacheManager.isIncluded(message)) {
-                cacheManager.putMessage(header.getUserId(), message);
+                if (cacheManager.isFrameMode() && !streamCompressed) {
+                    // 保存編碼後的幀，回放時直接寫出
+                    cacheManager.putFrame(header.getUserId(), header.getProtocolKey(), header.getRequestId(),
+                            out, frameIndex, out.writerIndex() - frameIndex);
+                } else {
+                    // 串流壓縮的幀依賴連線的壓縮狀態無法直接回放，保存消息於回放時重新編碼
+                    cacheManager.putMessage(header.getUserId(), message);
+                }
             }
 
             logger.debug(
@@ -82,6 +116,9 @@ public class ByteHeaderEncoderHandler extends MessageToByteEncoder<ByteMessage<B
         } catch (Exception e) {
             logger.error("Error encoding byte message: {}", e.getMessage(), e);
             throw e;
+        } finally {
+            // 編碼完成後釋放消息，放入快取的消息已由快取持有引用
+            message.release();
         }
     }
 
@@ -7,9 +7,11 @@ import com.vscodelife.demo.server.ByteUserConnection;
 import com.vscodelife.demo.server.ByteUserHeader;
 import com.vscodelife.demo.server.TestByteServer;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.connection.ResumeBuffer;
 import com.vscodelife.socketio.message.ByteMessage;
 import com.vscodelife.socketio.message.base.CacheBase;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 
@@ -28,8 +30,6 @@ public class ByteMessageHandler extends SimpleChannelInboundHandler<ByteMessage<
     protected void channelRead0(ChannelHandlerContext ctx, ByteMessage<ByteUserHeader> msg) throws Exception {
         ByteUserConnection connection = socket.getConnection(ctx.channel());
         if (connection != null) {
-            // 設置更新時間
-            connection.setTimeout(System.currentTimeMillis() + 5 * 60 * 1000);
             // 設定檔頭
             ByteUserHeader header = msg.getHeader();
             int mainNo = header.getMainNo();
@@ -39,9 +39,25 @@ public class ByteMessageHandler extends SimpleChannelInboundHandler<ByteMessage<
             String token = header.getToken();
             // 檢查是否有快取消息
             if (cacheManager.isEnabled() && cacheManager.isIncluded(msg)) {
+                if (cacheManager.isFrameMode()) {
+                    ByteBuf preFrame = cacheManager.peekFrame(userId, mainNo, subNo, requestId);
+                    if (preFrame != null) {
+                        // 已編碼的幀直接寫出，不經過編碼器（由 ResumeBuffer 記錄送出序號）
+                        ResumeBuffer.writeFrame(ctx.channel(), preFrame);
+                        msg.release();
+                        return;
+                    }
+                }
                 ByteMessage<ByteUserHeader> preMessage = cacheManager.peekMessage(userId, mainNo, subNo, requestId);
                 if (preMessage != null) {
+                    // 快取消息已由 peekMessage 保留引用，寫出後由編碼器釋放
                     ctx.channel().writeAndFlush(preMessage);
+                    msg.release();
+                    return;
+                }
+                // 相同請求仍在處理中時等待其回應，不重複分派
+                if (cacheManager.joinRequest(userId, mainNo, subNo, requestId, ctx.channel())) {
+                    msg.release();
                     return;
                 }
             }
@@ -56,6 +72,8 @@ public class ByteMessageHandler extends SimpleChannelInboundHandler<ByteMessage<
             logger.debug("put message - [{},{}] - {} - {} - {} - {} - {}", mainNo,
                     subNo, userId, connection.getAddress(), connection.getSessionId(),
                     requestId, token);
+        } else {
+            msg.release();
         }
     }
 }
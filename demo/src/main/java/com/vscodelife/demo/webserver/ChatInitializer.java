@@ -1,6 +1,5 @@
 package com.vscodelife.demo.webserver;
 
-import java.net.SocketException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -41,14 +40,7 @@ public class ChatInitializer extends ChannelInitializer<SocketChannel> {
 
     @Override
     public void initChannel(SocketChannel channel) throws Exception {
-        int rConnect = 100;
-        int cConnect = socket.getLimitConnect();
-        int limitConnect = 0;
-        int nowConnect = socket.getNowConnect();
-        limitConnect = Math.max(cConnect, rConnect);
-        if (nowConnect >= limitConnect) {
-            throw new SocketException("over connected");
-        }
+        // 連線數、來源 IP 與 accept 速率已由服務器的 AdmissionController 在 accept 時檢查
         ChannelPipeline pipeline = channel.pipeline();
 
         // 配置 WebSocket 處理器管道
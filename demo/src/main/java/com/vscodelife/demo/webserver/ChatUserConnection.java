@@ -102,8 +102,8 @@ public class ChatUserConnection extends JsonConnection {
             String token, long requestId, JsonMapBuffer buffer) {
         String ip = getIp();
         // 產生header
-        ChatUserHeader header = new ChatUserHeader(version, mainNo, subNo, false,
+        ChatUserHeader header = ChatUserHeader.obtain(version, mainNo, subNo, false,
                 sessionId, requestId, userId, token, ip);
-        return new JsonMessage<>(header, buffer);
+        return JsonMessage.obtain(header, buffer);
     }
 }
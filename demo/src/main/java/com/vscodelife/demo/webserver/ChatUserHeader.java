@@ -1,20 +1,12 @@
 package com.vscodelife.demo.webserver;
 
-import com.vscodelife.socketio.message.base.HeaderBase;
-
-import lombok.Getter;
-import lombok.Setter;
+import com.vscodelife.demo.entity.UserHeaderBase;
+import com.vscodelife.socketio.message.base.MessagePool;
 
 /**
  * 聊天服務器的用戶頭部信息
  */
-@Getter
-@Setter
-public class ChatUserHeader extends HeaderBase {
-    private String userId; // 用戶ID
-    private String token; // 認證令牌
-    private String ip; // 客戶端IP
-
+public class ChatUserHeader extends UserHeaderBase {
     // 無參構造函數，用於 JSON 反序列化
     public ChatUserHeader() {
         super();
@@ -27,25 +19,28 @@ public class ChatUserHeader extends HeaderBase {
 
     public ChatUserHeader(String version, int mainNo, int subNo, boolean isCompress, long sessionId, long requestId,
             String userId, String token, String ip) {
-        super(version, mainNo, subNo, isCompress, sessionId, requestId, 0L);
+        super(version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+    }
 
-        this.userId = userId;
-        this.token = token;
-        this.ip = ip;
+    /**
+     * 從回收池取得空白的消息頭（解碼時使用），回收池關閉時等同於建立新實例
+     */
+    public static ChatUserHeader obtain() {
+        return MessagePool.acquire(ChatUserHeader.class, ChatUserHeader::new);
     }
 
-    @Override
-    public String toString() {
-        return String.format(
-                "version=%s mainNo=%d subNo=%d isCompress=%s sessionId=%d requestId=%d userId=%s token=%s ip=%s",
-                version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+    /**
+     * 從回收池取得消息頭，回收池關閉時等同於建立新實例
+     */
+    public static ChatUserHeader obtain(String version, int mainNo, int subNo, boolean isCompress, long sessionId,
+            long requestId, String userId, String token, String ip) {
+        ChatUserHeader header = MessagePool.acquire(ChatUserHeader.class, ChatUserHeader::new);
+        header.fill(version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip);
+        return header;
     }
 
     @Override
     public ChatUserHeader clone() {
-        return new ChatUserHeader(
-                getVersion(), getMainNo(), getSubNo(), isCompress(),
-                getSessionId(), getRequestId(),
-                userId, token, ip);
+        return copyTo(obtain(version, mainNo, subNo, isCompress, sessionId, requestId, userId, token, ip));
     }
 }
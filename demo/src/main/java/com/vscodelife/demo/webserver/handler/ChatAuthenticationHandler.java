@@ -99,6 +99,7 @@ public class ChatAuthenticationHandler extends SimpleChannelInboundHandler<JsonM
         // 取得用戶連接
         ChatUserConnection connection = socket.getConnection(ctx.channel());
         if (connection != null) {
+            boolean forwarded = false;
             try {
                 // 檢查是否為驗證協議
                 if (!ProtocolId.AUTH.equals(protocolKey)) {
@@ -107,6 +108,7 @@ public class ChatAuthenticationHandler extends SimpleChannelInboundHandler<JsonM
                         throw new AuthException("invalid protocol");
                     } else { // 已驗證，將消息pass給下個handler
                         ctx.fireChannelRead(message);
+                        forwarded = true;
                     }
                 } else {
                     handleAuthentication(ctx, connection, message);
@@ -125,6 +127,11 @@ public class ChatAuthenticationHandler extends SimpleChannelInboundHandler<JsonM
                 connection.disconnect();
                 logger.error(String.format("process auth has unknown error=%s",
                         e2.getMessage()), e2);
+            } finally {
+                // 未轉交給下個處理器的消息由本處理器消化，處理完畢後釋放
+                if (!forwarded) {
+                    message.release();
+                }
             }
         }
     }
@@ -6,7 +6,6 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.alibaba.fastjson2.JSONObject;
 import com.vscodelife.demo.webserver.ChatUserConnection;
 import com.vscodelife.demo.webserver.ChatUserHeader;
 import com.vscodelife.demo.webserver.ChatWebServer;
@@ -14,19 +13,23 @@ import com.vscodelife.demo.webserver.util.TokenUtil;
 import com.vscodelife.socketio.buffer.JsonMapBuffer;
 import com.vscodelife.socketio.constant.ProtocolId;
 import com.vscodelife.socketio.message.JsonMessage;
+import com.vscodelife.socketio.message.JsonMessageCodec;
 import com.vscodelife.socketio.message.base.ProtocolKey;
-import com.vscodelife.socketio.util.JsonUtil;
 
 import io.jsonwebtoken.Claims;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 
 /**
  * 聊天消息解碼處理器 - WebSocket版本
- * 負責將WebSocketFrame解碼為JsonMessage對象
+ * 負責將WebSocketFrame解碼為JsonMessage對象，文字幀為 JSON，二進位幀為 JSONB
  */
-public class ChatHeaderDecoderHandler extends MessageToMessageDecoder<TextWebSocketFrame> {
+public class ChatHeaderDecoderHandler extends MessageToMessageDecoder<WebSocketFrame> {
     private static final Logger logger = LoggerFactory.getLogger(ChatHeaderDecoderHandler.class);
 
     private final ChatWebServer socket;
@@ -35,22 +38,34 @@ public class ChatHeaderDecoderHandler extends MessageToMessageDecoder<TextWebSoc
         this.socket = socket;
     }
 
-    protected void decode(ChannelHandlerContext ctx, TextWebSocketFrame frame, List<Object> out) throws Exception {
-        // 取得JSON字串
-        String json = frame.text();
-        // 解析整個JSON
-        JSONObject jsonObj = JsonUtil.parseObject(json);
-        // 解析header內容
-        ChatUserHeader header = jsonObj.getJSONObject("header").toJavaObject(ChatUserHeader.class);
-        // 取得buffer內容
-        JsonMapBuffer buffer = new JsonMapBuffer(jsonObj.getString("buffer"));
+    @Override
+    public boolean acceptInboundMessage(Object msg) throws Exception {
+        // 只處理數據幀，控制幀（ping/pong/close）交由後續處理器
+        return msg instanceof TextWebSocketFrame || msg instanceof BinaryWebSocketFrame;
+    }
 
-        JsonMessage<ChatUserHeader> message = new JsonMessage<ChatUserHeader>(header, buffer);
+    protected void decode(ChannelHandlerContext ctx, WebSocketFrame frame, List<Object> out) throws Exception {
+        ByteBuf content = frame.content();
+        byte[] bytes = ByteBufUtil.getBytes(content, content.readerIndex(), content.readableBytes(), false);
+        int offset = content.hasArray() && bytes == content.array()
+                ? content.arrayOffset() + content.readerIndex()
+                : 0;
+        JsonMessage<ChatUserHeader> message;
+        if (frame instanceof BinaryWebSocketFrame) {
+            // JSONB 二進位幀
+            message = JsonMessageCodec.getDefault().decodeJsonb(bytes, offset, content.readableBytes(),
+                    ChatUserHeader::obtain);
+        } else {
+            // 直接從 UTF-8 內容一次解析 header 與 buffer（相容 buffer 為字串的舊格式），header 取自回收池
+            message = JsonMessageCodec.getDefault().decode(bytes, offset, content.readableBytes(),
+                    ChatUserHeader::obtain);
+        }
+        ChatUserHeader header = message.getHeader();
 
         long requestId = header.getRequestId();
         // 取得協議鍵
         ProtocolKey protocolKey = header.getProtocolKey();
-        logger.info("requestId={} header={}", requestId, jsonObj.getJSONObject("header").toString());
+        logger.info("requestId={} header={}", requestId, header);
         logger.debug("Protocol comparison: received={}, AUTH={}, equals={}",
                 protocolKey, ProtocolId.AUTH, ProtocolId.AUTH.equals(protocolKey));
 
@@ -73,6 +88,7 @@ public class ChatHeaderDecoderHandler extends MessageToMessageDecoder<TextWebSoc
                 response.put("message", "Authentication required");
                 connection.send(header.getProtocolKey(), header.getRequestId(), response);
                 connection.disconnect();
+                message.release();
                 return;
 
             } else if (connection.isAuthed()) {
@@ -93,6 +109,7 @@ public class ChatHeaderDecoderHandler extends MessageToMessageDecoder<TextWebSoc
                         logger.error("Failed to send error response to client: {}", sendException.getMessage());
                     }
                     connection.disconnect();
+                    message.release();
                     return; // 連接已斷開，不需要繼續傳遞消息
                 }
             }
@@ -5,21 +5,24 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vscodelife.demo.webserver.ChatUserConnection;
 import com.vscodelife.demo.webserver.ChatUserHeader;
 import com.vscodelife.demo.webserver.ChatWebServer;
 import com.vscodelife.socketio.buffer.JsonMapBuffer;
 import com.vscodelife.socketio.message.JsonMessage;
+import com.vscodelife.socketio.message.JsonMessageCodec;
 import com.vscodelife.socketio.message.base.CacheBase;
-import com.vscodelife.socketio.util.JsonUtil;
 import com.vscodelife.socketio.util.StrUtil;
 
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 
 /**
  * 聊天消息編碼處理器 - WebSocket版本
- * 負責將JsonMessage對象編碼為WebSocketFrame發送
+ * 負責將JsonMessage對象編碼為WebSocketFrame發送，依握手協商的格式選擇文字 JSON 或 JSONB 二進位幀
  */
 public class ChatHeaderEncoderHandler extends MessageToMessageEncoder<JsonMessage<ChatUserHeader>> {
     private static final Logger logger = LoggerFactory.getLogger(ChatHeaderEncoderHandler.class);
@@ -44,11 +47,17 @@ public class ChatHeaderEncoderHandler extends MessageToMessageEncoder<JsonMessag
             if (header == null) {
                 throw new IllegalArgumentException("Header cannot be null");
             }
-            // 將消息對象轉換為JSON字符串
-            String json = JsonUtil.toJson(message);
-            // 編碼為文本WebSocket幀
-            TextWebSocketFrame frame = new TextWebSocketFrame(json);
-            out.add(frame);
+            ChatUserConnection connection = socket.getConnection(ctx.channel());
+            if (connection != null && connection.isJsonb()) {
+                // 客戶端於握手時選用 JSONB，編碼為二進位WebSocket幀
+                byte[] jsonb = JsonMessageCodec.getDefault().encodeToJsonb(message);
+                out.add(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(jsonb)));
+            } else {
+                // 一次寫出 header 與 buffer 的 UTF-8 JSON，buffer 不再先轉成字串
+                byte[] json = JsonMessageCodec.getDefault().encodeToBytes(message);
+                // 編碼為文本WebSocket幀
+                out.add(new TextWebSocketFrame(Unpooled.wrappedBuffer(json)));
+            }
             // 用戶ID為空視為訪客
             if (StrUtil.isEmpty(header.getUserId())) {
                 header.setUserId("guest");
@@ -65,6 +74,9 @@ public class ChatHeaderEncoderHandler extends MessageToMessageEncoder<JsonMessag
         } catch (Exception e) {
             logger.error("Error encoding byte message: {}", e.getMessage(), e);
             throw e;
+        } finally {
+            // 編碼完成後釋放消息，放入快取的消息已由快取持有引用
+            message.release();
         }
     }
 }
@@ -45,7 +45,14 @@ public class ChatMessageHandler extends SimpleChannelInboundHandler<JsonMessage<
             if (cacheManager.isEnabled() && cacheManager.isIncluded(msg)) {
                 JsonMessage<ChatUserHeader> preMessage = cacheManager.peekMessage(userId, mainNo, subNo, requestId);
                 if (preMessage != null) {
+                    // 快取消息已由 peekMessage 保留引用，寫出後由編碼器釋放
                     ctx.channel().writeAndFlush(preMessage);
+                    msg.release();
+                    return;
+                }
+                // 相同請求仍在處理中時等待其回應，不重複分派
+                if (cacheManager.joinRequest(userId, mainNo, subNo, requestId, ctx.channel())) {
+                    msg.release();
                     return;
                 }
             }
@@ -60,6 +67,8 @@ public class ChatMessageHandler extends SimpleChannelInboundHandler<JsonMessage<
             logger.debug("put message - [{},{}] - {} - {} - {} - {} - {}", mainNo,
                     subNo, userId, connection.getAddress(), connection.getSessionId(),
                     requestId, token);
+        } else {
+            msg.release();
         }
     }
 }
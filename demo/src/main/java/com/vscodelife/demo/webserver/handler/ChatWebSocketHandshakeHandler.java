@@ -3,7 +3,9 @@ package com.vscodelife.demo.webserver.handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vscodelife.demo.webserver.ChatUserConnection;
 import com.vscodelife.demo.webserver.ChatWebServer;
+import com.vscodelife.socketio.message.JsonMessageCodec;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -28,6 +30,10 @@ import io.netty.util.CharsetUtil;
 public class ChatWebSocketHandshakeHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandshakeHandler.class);
 
+    // 支援的子協定，依序比對客戶端請求；未帶子協定的瀏覽器使用文字 JSON
+    private static final String SUBPROTOCOLS = JsonMessageCodec.SUBPROTOCOL_JSONB + ","
+            + JsonMessageCodec.SUBPROTOCOL_JSON;
+
     private final ChatWebServer server;
     private WebSocketServerHandshaker handshaker;
 
@@ -46,7 +52,7 @@ public class ChatWebSocketHandshakeHandler extends SimpleChannelInboundHandler<F
 
         // 處理 WebSocket 握手
         WebSocketServerHandshakerFactory wsFactory = new WebSocketServerHandshakerFactory(
-                getWebSocketLocation(req), null, false);
+                getWebSocketLocation(req), SUBPROTOCOLS, false);
         handshaker = wsFactory.newHandshaker(req);
 
         if (handshaker == null) {
@@ -59,7 +65,14 @@ public class ChatWebSocketHandshakeHandler extends SimpleChannelInboundHandler<F
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
                     if (future.isSuccess()) {
-                        logger.info("WebSocket handshake completed for {}", ctx.channel().remoteAddress());
+                        // 客戶端選用 JSONB 子協定時，之後的消息改以二進位幀傳送
+                        boolean jsonb = JsonMessageCodec.SUBPROTOCOL_JSONB.equals(handshaker.selectedSubprotocol());
+                        ChatUserConnection connection = server.getConnection(ctx.channel());
+                        if (connection != null) {
+                            connection.setJsonb(jsonb);
+                        }
+                        logger.info("WebSocket handshake completed for {} jsonb={}", ctx.channel().remoteAddress(),
+                                jsonb);
 
                         // 握手成功後，移除此處理器，因為後續不再需要處理 HTTP
                         ctx.pipeline().remove(ChatWebSocketHandshakeHandler.this);
@@ -0,0 +1,224 @@
+package com.vscodelife.demo.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.buffer.StructCodec;
+import com.vscodelife.socketio.buffer.TypeRegistry;
+
+/**
+ * 編譯期產生的結構編解碼器與反射序列化的位元組必須完全相同，且可互相讀取
+ *
+ * <p>
+ * 反射序列化的一方以隔離的 ClassLoader 重新載入示範實體，並隱藏 {@code *_StructCodec} 類別，
+ * 使 {@link ByteArrayBuffer} 找不到編解碼器而改用反射。兩個 ClassLoader 的類別以相同編號註冊，
+ * 每次序列化前清空 {@link TypeRegistry}，避免編號衝突。
+ * </p>
+ */
+class StructCodecTest {
+    private static final String ENTITY_PACKAGE = "com.vscodelife.demo.entity.";
+
+    private final ClassLoader reflective = new ReflectiveLoader(StructCodecTest.class.getClassLoader());
+
+    @BeforeEach
+    void setUp() {
+        TypeRegistry.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TypeRegistry.clear();
+    }
+
+    /**
+     * 重新載入示範實體並隱藏產生的編解碼器，其他類別委派給上層
+     */
+    static final class ReflectiveLoader extends ClassLoader {
+        ReflectiveLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(ENTITY_PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            if (name.endsWith(StructCodec.CLASS_SUFFIX)) {
+                throw new ClassNotFoundException(name);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        byte[] bytes = in.readAllBytes();
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    // ==================== 測試資料 ====================
+
+    static User user(String id) {
+        // password 沒有 @MessageTag，不會被序列化
+        return new User(id, null, "name-" + id, "M", 30, "engineer");
+    }
+
+    static StructSample fullSample() {
+        StructSample sample = new StructSample();
+        sample.setFlag(true);
+        sample.setSmall((short) -12);
+        sample.setLetter('中');
+        sample.setTotal(Long.MIN_VALUE);
+        sample.setRatio(Math.PI);
+        sample.setBoxed(-7);
+        sample.setText("混合 ASCII 與 😀");
+        sample.setTime(LocalDateTime.of(2026, 10, 19, 8, 30, 15));
+        sample.setInts(new int[] { 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE });
+        sample.setLongs(new long[] { 1L, Long.MAX_VALUE });
+        sample.setFloats(new float[] { 1.5f, -0.0f, Float.MIN_VALUE });
+        sample.setDoubles(new double[] { Double.MAX_VALUE, 2.25 });
+        sample.setBytes(new byte[] { 0, 1, -1, 127, -128 });
+        sample.setNames(new ArrayList<>(Arrays.asList("a", null, "")));
+        sample.setMembers(new ArrayList<>(Arrays.asList(user("u1"), null, user("u2"))));
+        sample.setOwner(user("owner"));
+        return sample;
+    }
+
+    static StructSample emptySample() {
+        // 陣列與列表為空，其餘參考型別皆為 null
+        StructSample sample = new StructSample();
+        sample.setInts(new int[0]);
+        sample.setBytes(new byte[0]);
+        sample.setNames(new ArrayList<>());
+        sample.setMembers(new ArrayList<>());
+        return sample;
+    }
+
+    static Stream<Object> values() {
+        User withNulls = new User();
+        withNulls.setAge(-1);
+        ChatMessage chat = new ChatMessage(ChatMessage.TYPE_USER, 1234567890123L, "u1", "名稱", "內容 😀",
+                LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+        ChatMessage chatWithNulls = new ChatMessage();
+        chatWithNulls.setMessageType(ChatMessage.TYPE_SYSTEM);
+        return Stream.of(user("u1"), withNulls, chat, chatWithNulls, fullSample(), emptySample(),
+                new StructSample());
+    }
+
+    // ==================== 轉換 ====================
+
+    /**
+     * 逐欄位複製為指定 ClassLoader 的同名類別實例，巢狀實體與列表元素一併轉換
+     */
+    static Object copy(Object value, ClassLoader loader) throws ReflectiveOperationException {
+        if (value instanceof List<?> list) {
+            List<Object> copied = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copied.add(copy(element, loader));
+            }
+            return copied;
+        }
+        if (value == null || !value.getClass().getName().startsWith(ENTITY_PACKAGE)) {
+            return value;
+        }
+        Class<?> type = Class.forName(value.getClass().getName(), true, loader);
+        Object copied = type.getDeclaredConstructor().newInstance();
+        for (Field field : value.getClass().getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            Field target = type.getDeclaredField(field.getName());
+            field.setAccessible(true);
+            target.setAccessible(true);
+            target.set(copied, copy(field.get(value), loader));
+        }
+        return copied;
+    }
+
+    Object toReflective(Object value) throws ReflectiveOperationException {
+        return copy(value, reflective);
+    }
+
+    static Object fromReflective(Object value) throws ReflectiveOperationException {
+        return copy(value, StructCodecTest.class.getClassLoader());
+    }
+
+    static byte[] encode(Object value) {
+        TypeRegistry.clear();
+        return new ByteArrayBuffer().writeStruct(value).toBytes();
+    }
+
+    static Object decode(byte[] bytes, Class<?> type) {
+        TypeRegistry.clear();
+        ByteArrayBuffer buffer = new ByteArrayBuffer(bytes);
+        Object value = buffer.readStruct(type);
+        assertThat(buffer.readableBytes()).isZero();
+        return value;
+    }
+
+    // ==================== 比對 ====================
+
+    @ParameterizedTest
+    @MethodSource("values")
+    void generatedCodecIsUsedOnlyOutsideIsolatedLoader(Object value) throws ClassNotFoundException {
+        String codecName = value.getClass().getName() + StructCodec.CLASS_SUFFIX;
+        assertThat(Class.forName(codecName)).isNotNull();
+        assertThatThrownBy(() -> reflective.loadClass(codecName)).isInstanceOf(ClassNotFoundException.class);
+        assertThat(reflective.loadClass(value.getClass().getName())).isNotSameAs(value.getClass());
+    }
+
+    @ParameterizedTest
+    @MethodSource("values")
+    void generatedAndReflectiveBytesAreIdentical(Object value) throws ReflectiveOperationException {
+        byte[] generated = encode(value);
+        byte[] reflected = encode(toReflective(value));
+        assertThat(generated).isEqualTo(reflected);
+    }
+
+    @ParameterizedTest
+    @MethodSource("values")
+    void generatedCodecReadsReflectiveBytes(Object value) throws ReflectiveOperationException {
+        byte[] reflected = encode(toReflective(value));
+        Object decoded = decode(reflected, value.getClass());
+        assertThat(decoded).isEqualTo(value);
+        assertThat(encode(decoded)).isEqualTo(reflected);
+    }
+
+    @ParameterizedTest
+    @MethodSource("values")
+    void reflectiveReadsGeneratedBytes(Object value) throws ReflectiveOperationException {
+        byte[] generated = encode(value);
+        Class<?> type = reflective.loadClass(value.getClass().getName());
+        Object decoded = decode(generated, type);
+        assertThat(decoded.getClass()).isSameAs(type);
+        assertThat(fromReflective(decoded)).isEqualTo(value);
+        assertThat(encode(decoded)).isEqualTo(generated);
+    }
+}
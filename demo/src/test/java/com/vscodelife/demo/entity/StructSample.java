@@ -0,0 +1,51 @@
+package com.vscodelife.demo.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.vscodelife.socketio.annotation.MessageTag;
+import com.vscodelife.socketio.annotation.StructType;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 涵蓋編解碼器產生器支援的各種欄位型別，用於比對產生的編解碼器與反射序列化
+ */
+@Data
+@NoArgsConstructor
+@StructType(id = 100)
+public class StructSample {
+    @MessageTag(order = 1)
+    private boolean flag;
+    @MessageTag(order = 2)
+    private short small;
+    @MessageTag(order = 3)
+    private char letter;
+    @MessageTag(order = 4)
+    private long total;
+    @MessageTag(order = 5)
+    private double ratio;
+    @MessageTag(order = 6)
+    private Integer boxed;
+    @MessageTag(order = 7)
+    private String text;
+    @MessageTag(order = 8)
+    private LocalDateTime time;
+    @MessageTag(order = 9)
+    private int[] ints;
+    @MessageTag(order = 10)
+    private long[] longs;
+    @MessageTag(order = 11)
+    private float[] floats;
+    @MessageTag(order = 12)
+    private double[] doubles;
+    @MessageTag(order = 13)
+    private byte[] bytes;
+    @MessageTag(order = 14)
+    private List<String> names;
+    @MessageTag(order = 15)
+    private List<User> members;
+    @MessageTag(order = 16)
+    private User owner;
+}
@@ -1,26 +1,47 @@
 package com.vscodelife.serversocket;
 
+import java.net.StandardSocketOptions;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 
+import com.vscodelife.serversocket.component.ConnectionLifecycle;
+import com.vscodelife.serversocket.component.DrainProgress;
+import com.vscodelife.serversocket.component.OfflineMailbox;
+import com.vscodelife.serversocket.component.SessionResumption;
+import com.vscodelife.serversocket.connection.ByteConnection;
+import com.vscodelife.socketio.buffer.BufferSizePredictor;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.CompressionDictionary;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
 import com.vscodelife.socketio.connection.IConnection;
+import com.vscodelife.socketio.connection.ResumeBuffer;
 import com.vscodelife.socketio.constant.ProtocolId;
 import com.vscodelife.socketio.message.ByteCache;
 import com.vscodelife.socketio.message.ByteMessage;
 import com.vscodelife.socketio.message.base.HeaderBase;
+import com.vscodelife.socketio.message.base.ProtocolKey;
 import com.vscodelife.socketio.util.ExecutorUtil;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioChannelOption;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 
 public abstract class ByteSocket<H extends HeaderBase, C extends IConnection<ByteArrayBuffer>>
@@ -30,11 +51,30 @@ public abstract class ByteSocket<H extends HeaderBase, C extends IConnection<Byt
     protected final ScheduledExecutorService scheduledThread = Executors
             .newSingleThreadScheduledExecutor(ExecutorUtil.makeName("bytesocketschedulepool"));
 
+    protected static final int DEFAULT_UPDATE_RESUMPTION_INTERVAL = 1;
+    protected static final int DEFAULT_UPDATE_MAILBOX_INTERVAL = 10;
+    protected static final int DEFAULT_MAILBOX_BATCH = 64;
+    protected static final long DEFAULT_DRAIN_CHECK_INTERVAL = 100L;
+
+    protected final ConnectionLifecycle lifecycle = new ConnectionLifecycle();
+    protected final SessionResumption<C> resumption = new SessionResumption<>();
+    // 用戶編號 → 目前的會話編號，由 bindUser 綁定
+    protected final Map<String, Long> userSessions = new ConcurrentHashMap<>();
+    protected volatile OfflineMailbox mailbox;
+    protected final AtomicBoolean draining = new AtomicBoolean(false);
+    protected volatile boolean reusePort;
+
     protected ByteSocket(Logger logger, int port, int limitConnect,
             Class<? extends ChannelInitializer<SocketChannel>> initializerClazz) {
         super(logger, port, limitConnect, initializerClazz);
 
         protocolRegister.registerProtocol(ProtocolId.PING, catchException(message -> ping(message)));
+        protocolRegister.registerProtocol(ProtocolId.NOTIFY_COMPRESSION_DICTIONARY,
+                catchException(message -> compressionDictionary(message)));
+        protocolRegister.registerProtocol(ProtocolId.NOTIFY_STREAM_COMPRESSION,
+                catchException(message -> streamCompression(message)));
+
+        lifecycle.setListener(new LifecycleListener());
     }
 
     @Override
@@ -52,7 +92,12 @@ public abstract class ByteSocket<H extends HeaderBase, C extends IConnection<Byt
             bootStrap = new ServerBootstrap();
             bootStrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
                     .option(ChannelOption.SO_BACKLOG, 1024)
+                    .handler(admission.getAcceptHandler())
                     .childOption(ChannelOption.SO_KEEPALIVE, true).childHandler(handler);
+            if (reusePort) {
+                // 新舊程序同時綁定同一個埠，舊程序停止接受連線後由新程序接手
+                bootStrap.option(NioChannelOption.of(StandardSocketOptions.SO_REUSEPORT), true);
+            }
 
             logger.info("byte server is open");
 
@@ -78,14 +123,24 @@ public abstract class ByteSocket<H extends HeaderBase, C extends IConnection<Byt
     public void bind() {
         // 啟動主執行緒
         mainThread.execute(this);
-        // 註冊定時檢查連線逾時更新檢查
+        // 註冊定時推進連線生命週期時間輪（每個刻度一次）
+        long tick = lifecycle.getTickMillis();
         scheduledThread.scheduleAtFixedRate(new UpdateConnection(() -> {
             updateConnections();
-        }), DEFAULT_UPDATE_CONNECTION_INTERVAL, DEFAULT_UPDATE_CONNECTION_INTERVAL, TimeUnit.SECONDS);
+        }), tick, tick, TimeUnit.MILLISECONDS);
         // 註冊定時更新快取管理
         scheduledThread.scheduleAtFixedRate(new UpdateCacheManager(), DEFAULT_UPDATE_CACHE_MANAGER_INTERVAL,
                 DEFAULT_UPDATE_CACHE_MANAGER_INTERVAL,
                 TimeUnit.SECONDS);
+        // 註冊定時清理准入控制的 IP 令牌桶
+        scheduledThread.scheduleAtFixedRate(new UpdateAdmission(), DEFAULT_UPDATE_ADMISSION_INTERVAL,
+                DEFAULT_UPDATE_ADMISSION_INTERVAL, TimeUnit.SECONDS);
+        // 註冊定時結束逾時未恢復的會話
+        scheduledThread.scheduleAtFixedRate(new UpdateResumption(), DEFAULT_UPDATE_RESUMPTION_INTERVAL,
+                DEFAULT_UPDATE_RESUMPTION_INTERVAL, TimeUnit.SECONDS);
+        // 註冊定時清理離線信箱
+        scheduledThread.scheduleAtFixedRate(new UpdateMailbox(), DEFAULT_UPDATE_MAILBOX_INTERVAL,
+                DEFAULT_UPDATE_MAILBOX_INTERVAL, TimeUnit.SECONDS);
     }
 
     @Override
@@ -114,13 +169,459 @@ public abstract class ByteSocket<H extends HeaderBase, C extends IConnection<Byt
             scheduledThread.shutdownNow();
             Thread.currentThread().interrupt();
         }
+
+        // 排程停止後將離線信箱最後存入的消息寫回磁碟（信箱由設定端關閉）
+        OfflineMailbox box = mailbox;
+        if (box != null) {
+            box.flush();
+        }
     }
 
+    /**
+     * 推進連線生命週期時間輪，只處理期限到期的連線，不掃描全部連線
+     */
     protected void updateConnections() {
-        C[] connections = getConnections();
-        for (@SuppressWarnings("unused")
-        C connection : connections) {
-            // 實作檢查連線是否逾時處理邏輯
+        lifecycle.update(System.currentTimeMillis());
+    }
+
+    // ==================== 連線生命週期 ====================
+
+    public ConnectionLifecycle getLifecycle() {
+        return lifecycle;
+    }
+
+    /**
+     * 驗證期限已到，回覆 408 後斷線（不保留會話）
+     */
+    protected void authTimeout(Channel channel) {
+        logger.warn("authentication timeout for client {}, closing connection", channel.remoteAddress());
+        C connection = getConnection(channel);
+        if (connection != null) {
+            ByteArrayBuffer response = new ByteArrayBuffer();
+            response.writeInt(408);
+            response.writeString("auth timeout");
+            connection.send(ProtocolId.AUTH_RESULT, response);
+            connection.disconnect();
+        } else {
+            channel.close();
+        }
+    }
+
+    /**
+     * 閒置逾時，直接關閉連線；持有恢復憑證的會話仍可由客戶端恢復
+     */
+    protected void idleTimeout(Channel channel) {
+        logger.info("client {} is idle, closing connection", channel.remoteAddress());
+        channel.close();
+    }
+
+    /**
+     * 送出服務器心跳（requestId 為 0 的 PING），客戶端收到後回送 PING 作為活動
+     */
+    protected void heartbeat(Channel channel) {
+        C connection = getConnection(channel);
+        if (connection != null) {
+            connection.send(ProtocolId.PING, 0L, ByteArrayBuffer.forProtocol(ProtocolId.PING));
+        }
+    }
+
+    /**
+     * 連線超過最長存活時間，通知客戶端斷線後重新連線與驗證
+     */
+    protected void maxSessionAge(Channel channel) {
+        logger.info("client {} reached max session age, closing connection", channel.remoteAddress());
+        C connection = getConnection(channel);
+        if (connection != null) {
+            connection.disconnect();
+        } else {
+            channel.close();
+        }
+    }
+
+    // ==================== 優雅停機 ====================
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    /**
+     * 設定是否以 SO_REUSEPORT 綁定埠（需在 bind 之前設定），重啟時新程序可先綁定同一個埠再讓舊程序停機
+     */
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
+    public boolean isDraining() {
+        return draining.get();
+    }
+
+    /**
+     * 優雅停機：停止接受新連線並通知客戶端改連其他節點，在期限內處理完已收到的請求、寫出回應後關閉
+     *
+     * <ol>
+     * <li>關閉監聽埠，送出 {@link ProtocolId#NOTIFY_DRAIN}（剩餘時間與建議改連的位址），斷線的會話不再保留</li>
+     * <li>等待已收到的請求處理完成；之後停止讀取新請求，再處理一次期間讀入的請求</li>
+     * <li>等待送出緩衝區寫完，送出斷線通知並關閉連線，最後關閉服務器</li>
+     * </ol>
+     *
+     * 任一階段到期時直接進入下一階段，期限到時仍未完成的請求與資料會被捨棄。
+     *
+     * @param timeoutMillis 最長等待時間（毫秒）
+     * @param redirect      建議客戶端改連的位址（host:port），null 表示重連原位址（由綁定同一個埠的新程序接手）
+     * @param progress      進度回報，每個檢查週期呼叫一次，可為 null
+     * @return 期限內全部處理完成並寫出時回傳 true
+     */
+    public boolean drain(long timeoutMillis, String redirect, Consumer<DrainProgress> progress) {
+        if (!draining.compareAndSet(false, true)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + timeoutMillis;
+        logger.info("drain start timeout={}ms redirect={} connections={} queued={}", timeoutMillis, redirect,
+                getNowConnect(), messageQueue.size());
+        // 停止接受新連線
+        if (channel != null) {
+            channel.close().awaitUninterruptibly();
+        }
+        // 停機後會話無法在本節點恢復
+        resumption.setEnabled(false);
+        for (C connection : getConnections()) {
+            ByteArrayBuffer buffer = ByteArrayBuffer.forProtocol(ProtocolId.NOTIFY_DRAIN);
+            buffer.writeLong(timeoutMillis);
+            buffer.writeString(redirect != null ? redirect : "");
+            connection.send(ProtocolId.NOTIFY_DRAIN, buffer);
+        }
+        boolean completed = awaitDrain(DrainProgress.PHASE_DISPATCH, start, deadline, progress, this::isIdle);
+        // 停止讀取新請求，等待事件迴圈處理完目前的讀取後再處理一次
+        for (C connection : getConnections()) {
+            Channel child = connection.getChannel();
+            if (child != null) {
+                child.config().setAutoRead(false);
+                child.eventLoop().submit(() -> {
+                }).awaitUninterruptibly(Math.max(1L, deadline - System.currentTimeMillis()));
+            }
+        }
+        completed &= awaitDrain(DrainProgress.PHASE_DISPATCH, start, deadline, progress, this::isIdle);
+        completed &= awaitDrain(DrainProgress.PHASE_FLUSH, start, deadline, progress,
+                () -> getPendingWriteBytes() == 0);
+        for (C connection : getConnections()) {
+            connection.disconnect();
+        }
+        awaitDrain(DrainProgress.PHASE_CLOSE, start, deadline, progress, () -> getNowConnect() == 0);
+        DrainProgress done = drainProgress(DrainProgress.PHASE_DONE, start);
+        if (progress != null) {
+            progress.accept(done);
+        }
+        logger.info("drain finish completed={} {}", completed, done);
+        close();
+        return completed;
+    }
+
+    private boolean awaitDrain(String phase, long start, long deadline, Consumer<DrainProgress> progress,
+            BooleanSupplier finished) {
+        while (!finished.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                logger.warn("drain phase={} timeout {}", phase, drainProgress(phase, start));
+                return false;
+            }
+            if (progress != null) {
+                progress.accept(drainProgress(phase, start));
+            }
+            try {
+                Thread.sleep(DEFAULT_DRAIN_CHECK_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private DrainProgress drainProgress(String phase, long start) {
+        return new DrainProgress(phase, getNowConnect(), messageQueue.size(), getPendingWriteBytes(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 全部連線尚未寫出的位元組數
+     */
+    public long getPendingWriteBytes() {
+        long pending = 0L;
+        for (C connection : getConnections()) {
+            Channel child = connection.getChannel();
+            ChannelOutboundBuffer buffer = child != null ? child.unsafe().outboundBuffer() : null;
+            if (buffer != null) {
+                pending += buffer.totalPendingWriteBytes();
+            }
+        }
+        return pending;
+    }
+
+    // ==================== 會話恢復 ====================
+
+    public SessionResumption<C> getSessionResumption() {
+        return resumption;
+    }
+
+    /**
+     * 為已驗證的連線核發恢復憑證，之後送出的應用層幀開始編號並保存在送出幀緩衝區；未啟用會話恢復時不做任何事
+     */
+    public void issueResumeToken(C connection) {
+        if (!resumption.isEnabled() || !(connection instanceof ByteConnection byteConnection)) {
+            return;
+        }
+        Channel channel = connection.getChannel();
+        if (channel == null) {
+            return;
+        }
+        // 在事件迴圈中綁定緩衝區並送出憑證，客戶端以憑證通知為計數起點
+        if (!channel.eventLoop().inEventLoop()) {
+            channel.eventLoop().execute(() -> issueResumeToken(connection));
+            return;
+        }
+        String token = resumption.newToken();
+        byteConnection.enableResume(token);
+        ByteArrayBuffer buffer = new ByteArrayBuffer();
+        buffer.writeString(token);
+        connection.send(ProtocolId.NOTIFY_RESUME_TOKEN, buffer);
+    }
+
+    /**
+     * 連線中斷時呼叫（已由 removeConnection 移出連線管理），持有恢復憑證的會話改為暫停等待客戶端重連
+     * <p>
+     * 串流壓縮上下文綁定在已中斷的 Channel 上，兩端的壓縮狀態隨連線結束，在此釋放（歸還記憶體預算），
+     * 客戶端在新連線上重新協商
+     * </p>
+     *
+     * @return 會話已暫停時回傳 true，呼叫端不可再 destroy 連線
+     */
+    public boolean suspendConnection(C connection) {
+        if (!resumption.isEnabled() || !(connection instanceof ByteConnection byteConnection)) {
+            return false;
+        }
+        String token = byteConnection.getResumeToken();
+        ResumeBuffer buffer = byteConnection.getResumeBuffer();
+        if (token == null || buffer == null) {
+            return false;
+        }
+        buffer.suspend();
+        ResumeBuffer.detach(connection.getChannel());
+        StreamingCompressionContext.detach(connection.getChannel());
+        resumption.park(token, connection);
+        logger.info("suspend sessionId={} sequence={} pending={}", connection.getSessionId(),
+                buffer.getSequence(), buffer.size());
+        return true;
+    }
+
+    /**
+     * 客戶端以恢復憑證與最後收到的序號恢復會話，需在新連線的事件迴圈中呼叫
+     *
+     * <p>
+     * 成功時新連線改用原會話的連線物件與會話編號（新連線建立時暫時配置的會話移除），
+     * 回覆 {@link ProtocolId#RESUME_RESULT} 與新的恢復憑證後補送遺漏的幀；
+     * 失敗時回覆失敗結果，客戶端改以一般流程重新驗證。
+     * </p>
+     *
+     * @return 恢復的連線，失敗時回傳 null
+     */
+    public C resumeConnection(Channel channel, String token, long acknowledged) {
+        C connection = resumption.take(token);
+        if (!(connection instanceof ByteConnection byteConnection)) {
+            return rejectResume(channel, 404, "session not found");
+        }
+        ResumeBuffer buffer = byteConnection.getResumeBuffer();
+        // 先綁定新的 Channel 再結束暫停，期間其他執行緒送出的消息仍保存在緩衝區並一起回放
+        List<Object> missed = buffer.resume(acknowledged, () -> connection.setChannel(channel));
+        if (missed == null) {
+            logger.info("sessionId={} can not resume from sequence={} current={}", connection.getSessionId(),
+                    acknowledged, buffer.getSequence());
+            connection.destroy();
+            return rejectResume(channel, 410, "session expired");
+        }
+        // 移除新連線暫時配置的會話，已協商的字典沿用到恢復的會話；
+        // Channel 上的串流壓縮上下文已由恢復的會話接手，先解除暫時連線與 Channel 的關聯再 destroy，
+        // 只釋放暫時連線自己持有的資源
+        C fresh = removeConnection(channel);
+        if (fresh != null) {
+            if (fresh instanceof ByteConnection freshConnection) {
+                byteConnection.setCompressionDictionaryId(freshConnection.getCompressionDictionaryId());
+            }
+            fresh.setChannel(null);
+            fresh.destroy();
+        }
+        long sessionId = connection.getSessionId();
+        setProperty(Long.class, channel, "sessionId", sessionId);
+        connectionMap.put(sessionId, connection);
+        int nowValue = nowConnect.incrementAndGet();
+        if (maxConnect.intValue() < nowValue) {
+            maxConnect.set(nowValue);
+        }
+        onConnect(sessionId);
+        // 憑證只能使用一次，恢復成功後重新核發
+        String nextToken = resumption.newToken();
+        byteConnection.enableResume(nextToken);
+        ByteArrayBuffer result = new ByteArrayBuffer();
+        result.writeInt(200);
+        result.writeString("resume success");
+        result.writeLong(sessionId);
+        result.writeString(nextToken);
+        connection.send(ProtocolId.RESUME_RESULT, result);
+        buffer.replay(channel, missed);
+        logger.info("resume sessionId={} from sequence={} replay={} address={}", sessionId, acknowledged,
+                missed.size(), channel.remoteAddress());
+        return connection;
+    }
+
+    private C rejectResume(Channel channel, int code, String msg) {
+        ByteArrayBuffer result = new ByteArrayBuffer();
+        result.writeInt(code);
+        result.writeString(msg);
+        send(channel, ProtocolId.RESUME_RESULT, result);
+        return null;
+    }
+
+    /**
+     * 結束逾時未恢復的會話
+     */
+    protected void updateResumption() {
+        int expired = resumption.update(System.currentTimeMillis(), connection -> {
+            connection.destroy();
+            logger.info("sessionId={} resume timeout, session is closed", connection.getSessionId());
+        });
+        if (expired > 0) {
+            logger.debug("expire suspended session count={} and remain={}", expired, resumption.size());
+        }
+    }
+
+    /**
+     * 記錄協議編碼大小，供下次預先配置緩衝區容量
+     */
+    @Override
+    protected void recordBufferSize(int mainNo, int subNo, ByteArrayBuffer buffer) {
+        if (buffer != null) {
+            BufferSizePredictor.getDefault().record(mainNo, subNo, buffer.writerIndex());
+        }
+    }
+
+    // ==================== 離線信箱 ====================
+
+    public OfflineMailbox getOfflineMailbox() {
+        return mailbox;
+    }
+
+    /**
+     * 設定離線信箱，未設定時送給離線用戶的消息直接捨棄
+     */
+    public void setOfflineMailbox(OfflineMailbox mailbox) {
+        this.mailbox = mailbox;
+    }
+
+    /**
+     * 將用戶綁定到已驗證（或恢復）的連線，並開始送出離線期間存入信箱的消息
+     */
+    public void bindUser(String userId, C connection) {
+        if (userId == null || connection == null) {
+            return;
+        }
+        userSessions.put(userId, connection.getSessionId());
+        deliverMailbox(userId, connection);
+    }
+
+    /**
+     * 送出消息給用戶，用戶不在線時存入離線信箱；在線但離線消息尚未送完時也存入信箱，確保送達順序
+     *
+     * @return 已送給在線連線時回傳 true
+     */
+    public boolean sendToUser(String userId, int mainNo, int subNo, ByteArrayBuffer buffer) {
+        recordBufferSize(mainNo, subNo, buffer);
+        return deliverToUser(userId, mainNo, subNo, buffer);
+    }
+
+    public boolean sendToUser(String userId, ProtocolKey protocol, ByteArrayBuffer buffer) {
+        return sendToUser(userId, protocol.getMainNo(), protocol.getSubNo(), buffer);
+    }
+
+    /**
+     * 送出消息給一組用戶，不在線的用戶存入離線信箱
+     *
+     * @return 送給在線連線的用戶數
+     */
+    public int broadcastToUsers(Collection<String> userIds, ProtocolKey protocol, ByteArrayBuffer buffer) {
+        int mainNo = protocol.getMainNo();
+        int subNo = protocol.getSubNo();
+        recordBufferSize(mainNo, subNo, buffer);
+        int delivered = 0;
+        for (String userId : userIds) {
+            if (deliverToUser(userId, mainNo, subNo, buffer)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private boolean deliverToUser(String userId, int mainNo, int subNo, ByteArrayBuffer buffer) {
+        Long sessionId = userSessions.get(userId);
+        C connection = sessionId != null ? getConnection(sessionId) : null;
+        OfflineMailbox box = mailbox;
+        if (connection != null) {
+            // 信箱還有尚未送出的離線消息時排在它們後面，由分批送出依存入順序送達
+            if (box != null && box.size(userId) > 0 && box.post(userId, mainNo, subNo, buffer)) {
+                deliverMailbox(userId, connection);
+            } else {
+                connection.send(mainNo, subNo, buffer);
+            }
+            return true;
+        }
+        if (sessionId != null) {
+            userSessions.remove(userId, sessionId);
+        }
+        if (box != null && box.post(userId, mainNo, subNo, buffer)) {
+            // 存入期間用戶剛好完成驗證時，由這裡補送
+            Long current = userSessions.get(userId);
+            C online = current != null ? getConnection(current) : null;
+            if (online != null) {
+                deliverMailbox(userId, online);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在連線的事件迴圈中分批送出信箱中的消息，每批送完後再排入下一批，避免一次佔用事件迴圈
+     */
+    protected void deliverMailbox(String userId, C connection) {
+        OfflineMailbox box = mailbox;
+        Channel channel = connection.getChannel();
+        if (box == null || channel == null || box.size(userId) == 0) {
+            return;
+        }
+        if (!channel.eventLoop().inEventLoop()) {
+            channel.eventLoop().execute(() -> deliverMailbox(userId, connection));
+            return;
+        }
+        // 連線已中斷時保留在信箱，等待下次驗證
+        if (!channel.isActive()) {
+            return;
+        }
+        List<OfflineMailbox.Letter> letters = box.poll(userId, DEFAULT_MAILBOX_BATCH);
+        for (OfflineMailbox.Letter letter : letters) {
+            connection.send(letter.getMainNo(), letter.getSubNo(), letter.getBuffer());
+        }
+        logger.debug("sessionId={} userId={} deliver offline messages={} remain={}", connection.getSessionId(),
+                userId, letters.size(), box.size(userId));
+        if (box.size(userId) > 0) {
+            channel.eventLoop().execute(() -> deliverMailbox(userId, connection));
+        }
+    }
+
+    /**
+     * 清理離線信箱中全部過期或已送出的區段，並將期間存入的消息寫回磁碟
+     */
+    protected void updateMailbox() {
+        OfflineMailbox box = mailbox;
+        if (box != null) {
+            box.update(System.currentTimeMillis());
+            box.flush();
         }
     }
 
@@ -131,6 +632,94 @@ public abstract class ByteSocket<H extends HeaderBase, C extends IConnection<Byt
         long sessionId = header.getSessionId();
         long requestId = header.getRequestId();
         logger.info("sessionId={} requestId={} rcv client ask ping request", sessionId, requestId);
-        send(sessionId, mainNo, subNo, requestId, new ByteArrayBuffer());
+        send(sessionId, mainNo, subNo, requestId, ByteArrayBuffer.forProtocol(mainNo, subNo));
+    }
+
+    /**
+     * 客戶端確認已載入壓縮字典，之後送往此連線的小訊息可使用字典壓縮
+     */
+    protected void compressionDictionary(ByteMessage<H> message) {
+        long sessionId = message.getSessionId();
+        int dictionaryId = message.getBuffer().readVarInt();
+        C connection = getConnection(sessionId);
+        if (!(connection instanceof ByteConnection byteConnection)) {
+            return;
+        }
+        if (CompressionDictionary.get(dictionaryId) == null) {
+            logger.warn("sessionId={} ack unknown compression dictionary id={}", sessionId, dictionaryId);
+            return;
+        }
+        byteConnection.setCompressionDictionaryId(dictionaryId);
+        logger.info("sessionId={} ack compression dictionary id={}", sessionId, dictionaryId);
+    }
+
+    /**
+     * 客戶端回覆串流壓縮邀請，接受時開始壓縮送往此連線的訊息，拒絕時釋放上下文
+     */
+    protected void streamCompression(ByteMessage<H> message) {
+        long sessionId = message.getSessionId();
+        boolean accepted = message.getBuffer().readBool();
+        C connection = getConnection(sessionId);
+        if (connection == null) {
+            return;
+        }
+        StreamingCompressionContext context = StreamingCompressionContext.get(connection.getChannel());
+        if (accepted && context != null) {
+            context.enableOutbound();
+        } else {
+            StreamingCompressionContext.detach(connection.getChannel());
+        }
+        logger.info("sessionId={} stream compression accepted={}", sessionId, accepted && context != null);
+    }
+
+    protected class UpdateMailbox implements Runnable {
+        @Override
+        public void run() {
+            try {
+                if (running.get()) {
+                    updateMailbox();
+                }
+            } catch (Exception e) {
+                logger.error(String.format("update mailbox has error=%s", e.getMessage()), e);
+            }
+        }
+    }
+
+    protected class UpdateResumption implements Runnable {
+        @Override
+        public void run() {
+            try {
+                if (running.get()) {
+                    updateResumption();
+                }
+            } catch (Exception e) {
+                logger.error(String.format("update resumption has error=%s", e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * 生命週期事件切換到連線的事件迴圈處理
+     */
+    protected class LifecycleListener implements ConnectionLifecycle.Listener {
+        @Override
+        public void onAuthTimeout(Channel channel) {
+            channel.eventLoop().execute(() -> authTimeout(channel));
+        }
+
+        @Override
+        public void onIdle(Channel channel) {
+            channel.eventLoop().execute(() -> idleTimeout(channel));
+        }
+
+        @Override
+        public void onHeartbeat(Channel channel) {
+            channel.eventLoop().execute(() -> heartbeat(channel));
+        }
+
+        @Override
+        public void onMaxSessionAge(Channel channel) {
+            channel.eventLoop().execute(() -> maxSessionAge(channel));
+        }
     }
 }
@@ -52,6 +52,7 @@ public abstract class JsonSocket<H extends HeaderBase, C extends IConnection<Jso
             bootStrap = new ServerBootstrap();
             bootStrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
                     .option(ChannelOption.SO_BACKLOG, 1024)
+                    .handler(admission.getAcceptHandler())
                     .childOption(ChannelOption.SO_KEEPALIVE, true).childHandler(handler);
 
             logger.info("json server is open");
@@ -86,6 +87,9 @@ public abstract class JsonSocket<H extends HeaderBase, C extends IConnection<Jso
         scheduledThread.scheduleAtFixedRate(new UpdateCacheManager(), DEFAULT_UPDATE_CACHE_MANAGER_INTERVAL,
                 DEFAULT_UPDATE_CACHE_MANAGER_INTERVAL,
                 TimeUnit.SECONDS);
+        // 註冊定時清理准入控制的 IP 令牌桶
+        scheduledThread.scheduleAtFixedRate(new UpdateAdmission(), DEFAULT_UPDATE_ADMISSION_INTERVAL,
+                DEFAULT_UPDATE_ADMISSION_INTERVAL, TimeUnit.SECONDS);
     }
 
     @Override
@@ -1,9 +1,7 @@
 package com.vscodelife.serversocket;
 
 import java.lang.reflect.Constructor;
-import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -12,6 +10,7 @@ import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 
+import com.vscodelife.serversocket.component.AdmissionController;
 import com.vscodelife.serversocket.component.ProtocolCatcher;
 import com.vscodelife.serversocket.component.ProtocolRegister;
 import com.vscodelife.serversocket.component.RateLimiter;
@@ -20,6 +19,7 @@ import com.vscodelife.socketio.message.base.CacheBase;
 import com.vscodelife.socketio.message.base.HeaderBase;
 import com.vscodelife.socketio.message.base.MessageBase;
 import com.vscodelife.socketio.message.base.ProtocolKey;
+import com.vscodelife.socketio.util.ConcurrentLongMap;
 import com.vscodelife.socketio.util.DateUtil;
 import com.vscodelife.socketio.util.profiler.ProfilerUtil;
 
@@ -46,11 +46,12 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     private static final long DEFAULT_ABANDON_RCV_TIMESTAMP = 5000L;
 
     protected static final int DEFAULT_UPDATE_CONNECTION_INTERVAL = 60;
-    protected static final int DEFAULT_UPDATE_CACHE_MANAGER_INTERVAL = 60;
+    protected static final int DEFAULT_UPDATE_CACHE_MANAGER_INTERVAL = 1;
+    protected static final int DEFAULT_UPDATE_ADMISSION_INTERVAL = 10;
 
     protected final Logger logger;
     protected final Class<? extends ChannelInitializer<SocketChannel>> initializerClazz;
-    protected final Map<Long, C> connectionMap = new ConcurrentHashMap<Long, C>();
+    protected final ConcurrentLongMap<C> connectionMap = new ConcurrentLongMap<C>();
     protected final int port;
 
     protected final int limitConnect;
@@ -60,6 +61,8 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     protected final AtomicBoolean running = new AtomicBoolean(true);
 
     protected final Queue<M> messageQueue = new LinkedBlockingQueue<>();
+    // 是否正在分派消息（已從佇列取出但尚未處理完）
+    protected volatile boolean dispatching;
 
     protected EventLoopGroup bossGroup;
     protected EventLoopGroup workerGroup;
@@ -67,6 +70,7 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     protected Channel channel;
 
     protected final RateLimiter rateLimiter = new RateLimiter();
+    protected final AdmissionController admission;
     protected final CacheBase<M, B> cacheManager;
     protected final ProtocolRegister<H, C, M, B> protocolRegister;
 
@@ -90,6 +94,7 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
         this.initializerClazz = initializerClazz;
         this.limitConnect = limitConnect;
         this.port = port;
+        this.admission = new AdmissionController(limitConnect);
 
         this.cacheManager = createCacheInstance();
 
@@ -111,10 +116,8 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     }
 
     public long genSessionId() {
-        if (sessionId.longValue() > Long.MAX_VALUE) {
-            sessionId.set(0);
-        }
-        return sessionId.incrementAndGet();
+        // 用完後從 1 重新開始（0 保留給尚未配置會話的連線）
+        return sessionId.updateAndGet(id -> id == Long.MAX_VALUE ? 1L : id + 1L);
     }
 
     // ==================== 基本抽象方法 ====================
@@ -149,6 +152,13 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
         return port;
     }
 
+    /**
+     * 連線准入控制，連線額度預設為 limitConnect
+     */
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
     protected abstract CacheBase<M, B> createCacheInstance() throws RuntimeException;
 
     protected ChannelInitializer<SocketChannel> createInitializer(
@@ -231,9 +241,6 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     }
 
     public C getConnection(long sessionId) {
-        if (!connectionMap.containsKey(sessionId)) {
-            return null;
-        }
         return connectionMap.get(sessionId);
     }
 
@@ -241,10 +248,9 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
         C connection = null;
         if (channel != null) {
             long sessionId = getProperty(long.class, channel, "sessionId");
-            if (!connectionMap.containsKey(sessionId)) {
+            connection = connectionMap.get(sessionId);
+            if (connection == null) {
                 logger.error("connection key is not exist => {}", sessionId);
-            } else {
-                connection = connectionMap.get(sessionId);
             }
         }
         return connection;
@@ -309,11 +315,10 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
                 logger.error("connection can not create instance => {}", sessionId);
                 return false;
             }
-            if (connectionMap.containsKey(sessionId)) {
+            if (connectionMap.putIfAbsent(sessionId, connection) != null) {
                 logger.error("connection key has already exist => {}", sessionId);
                 return false;
             }
-            connectionMap.put(sessionId, connection);
             int nowValue = nowConnect.incrementAndGet();
             int maxValue = maxConnect.intValue();
             if (maxValue < nowValue) {
@@ -375,11 +380,10 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
                 logger.error("connection can not create instance => {}", sessionId);
                 return false;
             }
-            if (connectionMap.containsKey(sessionId)) {
+            if (connectionMap.putIfAbsent(sessionId, connection) != null) {
                 logger.error("connection key has already exist => {}", sessionId);
                 return false;
             }
-            connectionMap.put(sessionId, connection);
             int nowValue = nowConnect.incrementAndGet();
             int maxValue = maxConnect.intValue();
             if (maxValue < nowValue) {
@@ -397,11 +401,10 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
         C connection = null;
         if (channel != null) {
             long sessionId = getProperty(long.class, channel, "sessionId");
-            if (!connectionMap.containsKey(sessionId)) {
+            connection = connectionMap.remove(sessionId);
+            if (connection == null) {
                 logger.error("connection key is not exist => {}", sessionId);
             } else {
-                connection = connectionMap.get(sessionId);
-                connectionMap.remove(sessionId);
                 nowConnect.decrementAndGet();
 
                 onDisconnect(sessionId);
@@ -416,18 +419,34 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     protected void process() {
         try {
             while (!messageQueue.isEmpty()) {
+                // 先標記再取出，佇列為空且未標記時才表示沒有處理中的消息
+                dispatching = true;
                 M message = popMessage();
                 try {
                     dispatcher(message);
                 } catch (Exception ee) {
                     logger.error(String.format("socket process protocol has error => %s", ee.getMessage()), ee);
+                } finally {
+                    // 分派完成後釋放消息，需要保留的處理器應自行 retain
+                    if (message != null) {
+                        message.release();
+                    }
                 }
             }
         } catch (Exception e) {
             logger.error(String.format("socket process has unknown error => %s", e.getMessage()), e);
+        } finally {
+            dispatching = false;
         }
     }
 
+    /**
+     * 佇列中沒有等待處理的消息且沒有處理中的消息
+     */
+    public boolean isIdle() {
+        return messageQueue.isEmpty() && !dispatching;
+    }
+
     public void putMessage(M message) {
         // 取得消息頭
         H header = message.getHeader();
@@ -535,7 +554,14 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
         };
     }
 
+    /**
+     * 送出前記錄緩衝區大小，每個緩衝區只呼叫一次，廣播時不會依連線數重複記錄；預設不處理
+     */
+    protected void recordBufferSize(int mainNo, int subNo, B buffer) {
+    }
+
     public void broadcast(ProtocolKey protocol, B buffer) {
+        recordBufferSize(protocol.getMainNo(), protocol.getSubNo(), buffer);
         IConnection<B>[] connections = getConnections();
         if (connections != null) {
             for (IConnection<B> connection : connections) {
@@ -551,6 +577,7 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     public void send(long sessionId, ProtocolKey protocol, long requestId, B buffer) {
         IConnection<B> connection = getConnection(sessionId);
         if (connection != null) {
+            recordBufferSize(protocol.getMainNo(), protocol.getSubNo(), buffer);
             connection.send(protocol, requestId, buffer);
         }
     }
@@ -562,11 +589,13 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     public void send(Channel channel, ProtocolKey protocol, long requestId, B buffer) {
         IConnection<B> connection = getConnection(channel);
         if (connection != null) {
+            recordBufferSize(protocol.getMainNo(), protocol.getSubNo(), buffer);
             connection.send(protocol, requestId, buffer);
         }
     }
 
     public void broadcast(int mainNo, int subNo, B buffer) {
+        recordBufferSize(mainNo, subNo, buffer);
         IConnection<B>[] connections = getConnections();
         if (connections != null) {
             for (IConnection<B> connection : connections) {
@@ -582,6 +611,7 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     public void send(long sessionId, int mainNo, int subNo, long requestId, B buffer) {
         IConnection<B> connection = getConnection(sessionId);
         if (connection != null) {
+            recordBufferSize(mainNo, subNo, buffer);
             connection.send(mainNo, subNo, requestId, buffer);
         }
     }
@@ -593,6 +623,7 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
     public void send(Channel channel, int mainNo, int subNo, long requestId, B buffer) {
         IConnection<B> connection = getConnection(channel);
         if (connection != null) {
+            recordBufferSize(mainNo, subNo, buffer);
             connection.send(mainNo, subNo, requestId, buffer);
         }
     }
@@ -628,4 +659,17 @@ public abstract class SocketBase<H extends HeaderBase, C extends IConnection<B>,
             }
         }
     }
+
+    protected class UpdateAdmission implements Runnable {
+        @Override
+        public void run() {
+            try {
+                if (running.get()) {
+                    admission.update();
+                }
+            } catch (Exception e) {
+                logger.error(String.format("update admission has error=%s", e.getMessage()), e);
+            }
+        }
+    }
 }
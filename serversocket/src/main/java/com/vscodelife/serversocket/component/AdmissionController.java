@@ -0,0 +1,402 @@
+package com.vscodelife.serversocket.component;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+
+/**
+ * 連線准入控制，在 accept 時（建立 pipeline 之前）決定是否接受新連線
+ *
+ * <ul>
+ * <li>連線額度：以 CAS 保留與釋放，並發 accept 時不會超過上限</li>
+ * <li>每個 IP 與每個子網段（IPv4 /24、IPv6 /64）的連線數上限</li>
+ * <li>accept 速率：全域與每個 IP 各一個令牌桶，擋下 SYN flood 與同一個 NAT 的重連風暴</li>
+ * </ul>
+ *
+ * 拒絕的連線以 SO_LINGER=0 直接重設並強制關閉，不註冊到事件迴圈也不建立 pipeline。
+ * 各項上限為 0 表示不限制；拒絕次數依原因分別統計。
+ */
+public class AdmissionController {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    public static final int ADMITTED = 0;
+    /**
+     * 全域 accept 速率超過上限
+     */
+    public static final int REJECT_ACCEPT_RATE = 1;
+    /**
+     * 單一 IP 的 accept 速率超過上限
+     */
+    public static final int REJECT_IP_RATE = 2;
+    /**
+     * 連線額度已滿
+     */
+    public static final int REJECT_CAPACITY = 3;
+    /**
+     * 單一 IP 的連線數超過上限
+     */
+    public static final int REJECT_IP = 4;
+    /**
+     * 單一子網段的連線數超過上限
+     */
+    public static final int REJECT_SUBNET = 5;
+
+    private static final int REASON_COUNT = 6;
+    private static final int IPV4_SUBNET_PREFIX = 24;
+    private static final int IPV6_SUBNET_PREFIX = 64;
+
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final Map<InetAddress, Integer> ipConnections = new ConcurrentHashMap<>();
+    private final Map<InetAddress, Integer> subnetConnections = new ConcurrentHashMap<>();
+    private final Map<InetAddress, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLongArray rejected = new AtomicLongArray(REASON_COUNT);
+    private final AcceptHandler acceptHandler = new AcceptHandler();
+
+    private volatile int maxConnections;
+    private volatile int maxPerIp;
+    private volatile int maxPerSubnet;
+    private volatile TokenBucket acceptBucket;
+    private volatile double ipAcceptRate;
+    private volatile int ipAcceptBurst;
+
+    /**
+     * @param maxConnections 連線額度，0 表示不限制
+     */
+    public AdmissionController(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxPerIp() {
+        return maxPerIp;
+    }
+
+    /**
+     * 設定單一 IP 的連線數上限，0 表示不限制
+     */
+    public void setMaxPerIp(int maxPerIp) {
+        this.maxPerIp = maxPerIp;
+    }
+
+    public int getMaxPerSubnet() {
+        return maxPerSubnet;
+    }
+
+    /**
+     * 設定單一子網段（IPv4 /24、IPv6 /64）的連線數上限，0 表示不限制
+     */
+    public void setMaxPerSubnet(int maxPerSubnet) {
+        this.maxPerSubnet = maxPerSubnet;
+    }
+
+    /**
+     * 設定全域 accept 速率，0 表示不限制
+     *
+     * @param perSecond 每秒接受的連線數
+     * @param burst     瞬間可接受的連線數
+     */
+    public void setAcceptRate(double perSecond, int burst) {
+        this.acceptBucket = perSecond > 0 ? new TokenBucket(perSecond, burst, System.nanoTime()) : null;
+    }
+
+    /**
+     * 設定單一 IP 的 accept 速率，0 表示不限制
+     *
+     * @param perSecond 每秒接受的連線數
+     * @param burst     瞬間可接受的連線數
+     */
+    public void setIpAcceptRate(double perSecond, int burst) {
+        this.ipAcceptBurst = burst;
+        this.ipAcceptRate = perSecond;
+        ipBuckets.clear();
+    }
+
+    /**
+     * accept 時使用的 Handler，加在服務器 Channel（bootstrap.handler）上
+     */
+    public AcceptHandler getAcceptHandler() {
+        return acceptHandler;
+    }
+
+    // ==================== 准入 ====================
+
+    /**
+     * 嘗試接受來自 address 的連線，接受時保留額度，連線關閉後必須呼叫 {@link #release(InetAddress)}
+     *
+     * @return {@link #ADMITTED} 或拒絕原因
+     */
+    public int tryAdmit(InetAddress address) {
+        int reason = admit(address);
+        if (reason == ADMITTED) {
+            admitted.incrementAndGet();
+        } else {
+            rejected.incrementAndGet(reason);
+        }
+        return reason;
+    }
+
+    private int admit(InetAddress address) {
+        long now = System.nanoTime();
+        TokenBucket bucket = acceptBucket;
+        if (bucket != null && !bucket.tryAcquire(now)) {
+            return REJECT_ACCEPT_RATE;
+        }
+        double ipRate = ipAcceptRate;
+        if (ipRate > 0) {
+            TokenBucket ipBucket = ipBuckets.computeIfAbsent(address,
+                    key -> new TokenBucket(ipRate, ipAcceptBurst, now));
+            if (!ipBucket.tryAcquire(now)) {
+                return REJECT_IP_RATE;
+            }
+        }
+        if (!reserve()) {
+            return REJECT_CAPACITY;
+        }
+        if (!acquire(ipConnections, address, maxPerIp)) {
+            reserved.decrementAndGet();
+            return REJECT_IP;
+        }
+        InetAddress subnet = subnetOf(address);
+        if (!acquire(subnetConnections, subnet, maxPerSubnet)) {
+            decrement(ipConnections, address);
+            reserved.decrementAndGet();
+            return REJECT_SUBNET;
+        }
+        return ADMITTED;
+    }
+
+    /**
+     * 釋放 {@link #tryAdmit(InetAddress)} 保留的額度
+     */
+    public void release(InetAddress address) {
+        decrement(subnetConnections, subnetOf(address));
+        decrement(ipConnections, address);
+        reserved.decrementAndGet();
+    }
+
+    private boolean reserve() {
+        for (;;) {
+            int current = reserved.get();
+            int limit = maxConnections;
+            if (limit > 0 && current >= limit) {
+                return false;
+            }
+            if (reserved.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static boolean acquire(Map<InetAddress, Integer> counts, InetAddress key, int limit) {
+        int count = counts.merge(key, 1, Integer::sum);
+        if (limit > 0 && count > limit) {
+            decrement(counts, key);
+            return false;
+        }
+        return true;
+    }
+
+    private static void decrement(Map<InetAddress, Integer> counts, InetAddress key) {
+        counts.computeIfPresent(key, (k, v) -> v <= 1 ? null : v - 1);
+    }
+
+    private static InetAddress subnetOf(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        int prefix = bytes.length == 4 ? IPV4_SUBNET_PREFIX : IPV6_SUBNET_PREFIX;
+        for (int i = prefix / 8; i < bytes.length; i++) {
+            bytes[i] = 0;
+        }
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            return address;
+        }
+    }
+
+    /**
+     * 移除已補滿的 IP 令牌桶，由排程定時呼叫
+     *
+     * @return 移除的令牌桶數
+     */
+    public int update() {
+        long nanos = System.nanoTime();
+        int removed = 0;
+        Iterator<TokenBucket> it = ipBuckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isFull(nanos)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // ==================== 統計 ====================
+
+    /**
+     * 目前保留的連線額度
+     */
+    public int getReserved() {
+        return reserved.get();
+    }
+
+    /**
+     * 來自 address 的連線數
+     */
+    public int getConnections(InetAddress address) {
+        Integer count = ipConnections.get(address);
+        return count != null ? count : 0;
+    }
+
+    public long getAdmittedCount() {
+        return admitted.get();
+    }
+
+    /**
+     * 依原因統計的拒絕次數
+     */
+    public long getRejectedCount(int reason) {
+        return reason > ADMITTED && reason < REASON_COUNT ? rejected.get(reason) : 0L;
+    }
+
+    public long getRejectedCount() {
+        long total = 0L;
+        for (int i = 1; i < REASON_COUNT; i++) {
+            total += rejected.get(i);
+        }
+        return total;
+    }
+
+    public static String reasonName(int reason) {
+        switch (reason) {
+            case ADMITTED:
+                return "admitted";
+            case REJECT_ACCEPT_RATE:
+                return "acceptRate";
+            case REJECT_IP_RATE:
+                return "ipRate";
+            case REJECT_CAPACITY:
+                return "capacity";
+            case REJECT_IP:
+                return "ip";
+            case REJECT_SUBNET:
+                return "subnet";
+            default:
+                return "unknown";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "AdmissionController{reserved=%d, admitted=%d, acceptRate=%d, ipRate=%d, capacity=%d, ip=%d, subnet=%d}",
+                reserved.get(), admitted.get(), rejected.get(REJECT_ACCEPT_RATE), rejected.get(REJECT_IP_RATE),
+                rejected.get(REJECT_CAPACITY), rejected.get(REJECT_IP), rejected.get(REJECT_SUBNET));
+    }
+
+    /**
+     * 服務器 Channel 上的 Handler，收到新接受的子 Channel 時檢查准入；拒絕時直接重設連線，
+     * 接受時在子 Channel 關閉或註冊失敗後釋放額度（只釋放一次）
+     */
+    @Sharable
+    public class AcceptHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (!(msg instanceof Channel child)) {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+            SocketAddress remote = child.remoteAddress();
+            if (!(remote instanceof InetSocketAddress inet) || inet.getAddress() == null) {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+            InetAddress address = inet.getAddress();
+            int reason = tryAdmit(address);
+            if (reason != ADMITTED) {
+                logger.debug("reject client {} reason={}", remote, reasonName(reason));
+                try {
+                    child.config().setOption(ChannelOption.SO_LINGER, 0);
+                } catch (Exception e) {
+                    // 設定失敗時仍正常關閉
+                }
+                child.unsafe().closeForcibly();
+                return;
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable releaseOnce = () -> {
+                if (released.compareAndSet(false, true)) {
+                    release(address);
+                }
+            };
+            child.closeFuture().addListener(future -> releaseOnce.run());
+            ctx.fireChannelRead(msg);
+            // 註冊失敗時 ServerBootstrapAcceptor 以 closeForcibly 關閉子 Channel，closeFuture 不會完成；
+            // 這些失敗在 register 呼叫中同步發生，傳遞返回後子 Channel 已關閉即表示註冊失敗
+            if (!child.isOpen()) {
+                releaseOnce.run();
+            }
+        }
+    }
+
+    private static final class TokenBucket {
+        private final double perNano;
+        private final double capacity;
+        private double tokens;
+        private long lastNanos;
+
+        TokenBucket(double perSecond, int burst, long now) {
+            this.perNano = perSecond / 1_000_000_000d;
+            this.capacity = Math.max(1, burst);
+            this.tokens = capacity;
+            this.lastNanos = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1d) {
+                tokens -= 1d;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            long elapsed = now - lastNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * perNano);
+                lastNanos = now;
+            }
+        }
+    }
+}
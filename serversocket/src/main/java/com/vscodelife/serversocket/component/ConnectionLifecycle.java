@@ -0,0 +1,274 @@
+package com.vscodelife.serversocket.component;
+
+import com.vscodelife.socketio.util.TimingWheel;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * 連線生命週期管理：驗證期限、閒置偵測、服務器心跳與會話最長存活時間
+ *
+ * <p>
+ * 每條連線在時間輪中只有一個項目，到期時間為各項期限中最早的一個。收到消息時
+ * {@link #touch(Channel)} 只更新最後活動時間，不移動時間輪項目；項目到期時才依最新狀態
+ * 判斷要觸發的事件並排入下一個期限（延遲重排）。因此每個連線事件的成本為 O(1)，
+ * 不需要定時掃描全部連線。
+ * </p>
+ *
+ * <ul>
+ * <li>驗證期限：連線後 authTimeout 內未呼叫 {@link #authenticated(Channel)}</li>
+ * <li>服務器心跳：heartbeatInterval 內沒有收到消息時送出一次心跳，之後每隔 heartbeatInterval 再送</li>
+ * <li>閒置：idleTimeout 內沒有收到消息</li>
+ * <li>最長存活：連線超過 maxSessionAge</li>
+ * </ul>
+ *
+ * 各項時間為 0 表示停用，全部停用時不建立時間輪項目。事件回呼在 {@link #update(long)} 的執行緒上呼叫，
+ * 由 {@link Listener} 負責切換到連線的事件迴圈。
+ * 時間輪是本類別自己的 {@link TimingWheel} 實例，與快取、會話恢復使用相同的實作但不共用實例，
+ * 各自以自己的刻度推進。
+ */
+public class ConnectionLifecycle {
+    private static final AttributeKey<State> KEY = AttributeKey.valueOf("connectionLifecycle");
+
+    private final TimingWheel<State> wheel;
+
+    private volatile Listener listener;
+    private volatile long authTimeout;
+    private volatile long idleTimeout;
+    private volatile long heartbeatInterval;
+    private volatile long maxSessionAge;
+
+    public ConnectionLifecycle() {
+        this(TimingWheel.DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * @param tickMillis 時間輪刻度（毫秒），事件最多延後一個刻度觸發
+     */
+    public ConnectionLifecycle(long tickMillis) {
+        this.wheel = new TimingWheel<>(tickMillis, TimingWheel.DEFAULT_WHEEL_SIZE);
+    }
+
+    public long getTickMillis() {
+        return wheel.getTickMillis();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public long getAuthTimeout() {
+        return authTimeout;
+    }
+
+    /**
+     * 設定連線後必須完成驗證的時間（毫秒），0 表示不限制
+     */
+    public void setAuthTimeout(long authTimeout) {
+        this.authTimeout = authTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * 設定沒有收到任何消息時關閉連線的時間（毫秒），0 表示不限制
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    /**
+     * 設定沒有收到消息時服務器送出心跳的間隔（毫秒），0 表示不送出
+     */
+    public void setHeartbeatInterval(long heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public long getMaxSessionAge() {
+        return maxSessionAge;
+    }
+
+    /**
+     * 設定連線最長存活時間（毫秒），到期後要求客戶端重新連線與驗證，0 表示不限制
+     */
+    public void setMaxSessionAge(long maxSessionAge) {
+        this.maxSessionAge = maxSessionAge;
+    }
+
+    /**
+     * 管理中的連線數
+     */
+    public int size() {
+        return wheel.size();
+    }
+
+    // ==================== 連線事件 ====================
+
+    /**
+     * 連線建立時呼叫，開始計算各項期限
+     */
+    public void register(Channel channel) {
+        long now = System.currentTimeMillis();
+        State state = new State(channel, now);
+        long deadline = state.nextDeadline();
+        if (deadline == Long.MAX_VALUE) {
+            return;
+        }
+        channel.attr(KEY).set(state);
+        state.timeout = wheel.scheduleAt(state, deadline);
+    }
+
+    /**
+     * 收到消息時呼叫，只更新最後活動時間
+     */
+    public void touch(Channel channel) {
+        State state = channel.attr(KEY).get();
+        if (state != null) {
+            state.lastRead = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 連線完成驗證（或恢復會話）時呼叫，解除驗證期限
+     */
+    public void authenticated(Channel channel) {
+        State state = channel.attr(KEY).get();
+        if (state != null) {
+            state.authed = true;
+        }
+    }
+
+    /**
+     * 連線中斷時呼叫，移除時間輪項目
+     */
+    public void unregister(Channel channel) {
+        State state = channel.attr(KEY).getAndSet(null);
+        if (state != null) {
+            state.closed = true;
+            TimingWheel.Timeout<State> timeout = state.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    /**
+     * 推進時間輪並處理到期的連線，由排程定時呼叫（間隔不大於刻度）
+     *
+     * @return 到期處理的連線數
+     */
+    public int update(long now) {
+        return wheel.advance(now, state -> check(state, now));
+    }
+
+    private void check(State state, long now) {
+        if (state.closed || !state.channel.isActive()) {
+            return;
+        }
+        Listener target = listener;
+        long lastRead = state.lastRead;
+        long auth = authTimeout;
+        long idle = idleTimeout;
+        long age = maxSessionAge;
+        if (!state.authed && auth > 0 && now - state.connectTime >= auth) {
+            state.closed = true;
+            if (target != null) {
+                target.onAuthTimeout(state.channel);
+            }
+            return;
+        }
+        if (age > 0 && now - state.connectTime >= age) {
+            state.closed = true;
+            if (target != null) {
+                target.onMaxSessionAge(state.channel);
+            }
+            return;
+        }
+        if (idle > 0 && now - lastRead >= idle) {
+            state.closed = true;
+            if (target != null) {
+                target.onIdle(state.channel);
+            }
+            return;
+        }
+        long heartbeat = heartbeatInterval;
+        if (heartbeat > 0 && now - Math.max(lastRead, state.lastHeartbeat) >= heartbeat) {
+            state.lastHeartbeat = now;
+            if (target != null) {
+                target.onHeartbeat(state.channel);
+            }
+        }
+        long deadline = state.nextDeadline();
+        if (deadline != Long.MAX_VALUE) {
+            state.timeout = wheel.scheduleAt(state, deadline);
+        }
+    }
+
+    /**
+     * 生命週期事件，回呼在排程執行緒上呼叫
+     */
+    public interface Listener {
+        /**
+         * 驗證期限已到
+         */
+        void onAuthTimeout(Channel channel);
+
+        /**
+         * 超過閒置時間沒有收到消息
+         */
+        void onIdle(Channel channel);
+
+        /**
+         * 需要送出服務器心跳
+         */
+        void onHeartbeat(Channel channel);
+
+        /**
+         * 連線超過最長存活時間
+         */
+        void onMaxSessionAge(Channel channel);
+    }
+
+    private final class State {
+        private final Channel channel;
+        private final long connectTime;
+        private volatile long lastRead;
+        private volatile boolean authed;
+        private volatile boolean closed;
+        private long lastHeartbeat;
+        private volatile TimingWheel.Timeout<State> timeout;
+
+        State(Channel channel, long connectTime) {
+            this.channel = channel;
+            this.connectTime = connectTime;
+            this.lastRead = connectTime;
+        }
+
+        /**
+         * 各項期限中最早的一個，全部停用時回傳 Long.MAX_VALUE
+         */
+        long nextDeadline() {
+            long deadline = Long.MAX_VALUE;
+            long lastActive = lastRead;
+            if (!authed && authTimeout > 0) {
+                deadline = Math.min(deadline, connectTime + authTimeout);
+            }
+            if (maxSessionAge > 0) {
+                deadline = Math.min(deadline, connectTime + maxSessionAge);
+            }
+            if (idleTimeout > 0) {
+                deadline = Math.min(deadline, lastActive + idleTimeout);
+            }
+            if (heartbeatInterval > 0) {
+                deadline = Math.min(deadline, Math.max(lastActive, lastHeartbeat) + heartbeatInterval);
+            }
+            return deadline;
+        }
+    }
+}
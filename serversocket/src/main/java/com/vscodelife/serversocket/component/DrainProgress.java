@@ -0,0 +1,72 @@
+package com.vscodelife.serversocket.component;
+
+/**
+ * 優雅停機的進度
+ */
+public class DrainProgress {
+    /**
+     * 等待已收到的請求處理完成
+     */
+    public static final String PHASE_DISPATCH = "dispatch";
+    /**
+     * 等待送出緩衝區寫完
+     */
+    public static final String PHASE_FLUSH = "flush";
+    /**
+     * 通知斷線並等待連線關閉
+     */
+    public static final String PHASE_CLOSE = "close";
+    /**
+     * 停機完成
+     */
+    public static final String PHASE_DONE = "done";
+
+    private final String phase;
+    private final int connections;
+    private final int queued;
+    private final long pendingBytes;
+    private final long elapsedMillis;
+
+    public DrainProgress(String phase, int connections, int queued, long pendingBytes, long elapsedMillis) {
+        this.phase = phase;
+        this.connections = connections;
+        this.queued = queued;
+        this.pendingBytes = pendingBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * 尚未關閉的連線數
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * 等待處理的消息數
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * 尚未寫出的位元組數
+     */
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("phase=%s connections=%d queued=%d pendingBytes=%d elapsed=%dms", phase, connections,
+                queued, pendingBytes, elapsedMillis);
+    }
+}
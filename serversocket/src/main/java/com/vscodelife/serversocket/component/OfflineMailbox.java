@@ -0,0 +1,446 @@
+package com.vscodelife.serversocket.component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.util.SegmentLog;
+import com.vscodelife.socketio.util.SegmentLog.Segment;
+
+/**
+ * 單機的離線信箱，保存送給離線用戶的消息，用戶驗證後分批送出
+ *
+ * <p>
+ * 消息以本機目錄下的記憶體映射區段檔（{@link SegmentLog}）只追加保存，不需要外部訊息中介：
+ * </p>
+ *
+ * <ul>
+ * <li>記錄分為消息與確認兩種，確認記錄表示該用戶序號以前（含）的消息已取出，每筆附 CRC32C</li>
+ * <li>記憶體中每個用戶只保存待送消息在區段中的位置，內容於取出時才從映射區讀取</li>
+ * <li>區段存活超過保留時間或寫滿時換新區段；最舊的區段沒有待送消息（已取出或過期）時整檔刪除，
+ * 只從最舊的區段開始刪除，確認記錄一定晚於它確認的消息，恢復時不會讓已取出的消息重新出現</li>
+ * <li>每個用戶最多保留 maxPerUser 筆，超過時捨棄最舊的一筆；區段數超過上限時捨棄最舊的區段</li>
+ * <li>啟動時依序掃描區段重建索引，只驗證最後一個區段（唯一可能寫到一半的區段）的 CRC</li>
+ * </ul>
+ *
+ * 消息在 {@link #poll(String, int)} 取出時即寫入確認記錄，送出途中斷線遺漏的消息由會話恢復補送。
+ * 寫入只進入作業系統頁快取，程序結束後仍保留，但不保證斷電時的持久性；
+ * {@link #flush()} 強制寫回磁碟（ByteSocket 於定時清理與停機時呼叫），{@link #close()} 關閉前也會寫回。
+ */
+public class OfflineMailbox implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(OfflineMailbox.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_PER_USER = 1000;
+    public static final int DEFAULT_MAX_SEGMENTS = 64;
+
+    private static final String SUFFIX = ".mbx";
+    private static final int MAGIC = 0x54534D42; // "TSMB"
+    private static final int VERSION = 1;
+    private static final byte TYPE_MESSAGE = 1;
+    private static final byte TYPE_ACK = 2;
+    // 記錄頭：length(4) + crc(4) + type(1) + expireAt(8) + sequence(8) + mainNo(4) + subNo(4) + userLength(2)
+    private static final int RECORD_HEADER = 35;
+    private static final int MAX_USER_LENGTH = 0xFFFF;
+
+    private final SegmentLog log;
+    private final long retention;
+    private final int maxPerUser;
+    private final int maxSegments;
+    private final Map<String, Pending> users = new HashMap<>();
+
+    private long nextSequence = 1L;
+    private int size;
+    private int recovered;
+    private boolean closed;
+
+    private OfflineMailbox(Path directory, long retention, int maxPerUser, int segmentSize, int maxSegments) {
+        this.log = new SegmentLog(directory, SUFFIX, MAGIC, VERSION, segmentSize, RECORD_HEADER, retention);
+        this.retention = retention;
+        this.maxPerUser = maxPerUser;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * 開啟（或建立）信箱目錄並從既有區段恢復待送消息
+     *
+     * @param directory   本機目錄
+     * @param retention   消息保留時間（毫秒），同時是區段換新週期
+     * @param maxPerUser  每個用戶最多保留的消息數
+     * @param segmentSize 區段檔大小（位元組）
+     * @param maxSegments 區段數上限，限制信箱佔用的磁碟空間
+     */
+    public static OfflineMailbox open(Path directory, long retention, int maxPerUser, int segmentSize,
+            int maxSegments) {
+        if (maxPerUser < 1 || maxSegments < 2) {
+            throw new IllegalArgumentException("maxPerUser must be positive and maxSegments at least 2");
+        }
+        OfflineMailbox mailbox = new OfflineMailbox(directory, Math.max(1L, retention), maxPerUser, segmentSize,
+                maxSegments);
+        try {
+            mailbox.recover();
+        } catch (IOException e) {
+            mailbox.close();
+            throw new RuntimeException("開啟離線信箱時發生錯誤: " + e.getMessage(), e);
+        }
+        return mailbox;
+    }
+
+    public static OfflineMailbox open(Path directory, long retention) {
+        return open(directory, retention, DEFAULT_MAX_PER_USER, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public Path getDirectory() {
+        return log.getDirectory();
+    }
+
+    public long getRetention() {
+        return retention;
+    }
+
+    /**
+     * 全部用戶的待送消息數（含尚未清理的過期消息）
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 用戶的待送消息數
+     */
+    public synchronized int size(String userId) {
+        Pending pending = users.get(userId);
+        return pending == null ? 0 : pending.size;
+    }
+
+    public synchronized int getUserCount() {
+        return users.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return log.size();
+    }
+
+    /**
+     * 啟動時恢復的待送消息數
+     */
+    public synchronized int getRecoveredCount() {
+        return recovered;
+    }
+
+    // ==================== 存入與取出 ====================
+
+    /**
+     * 存入一筆送給離線用戶的消息，內容為 buffer 的全部資料，不影響 buffer 的讀寫位置
+     *
+     * @return 消息超過區段大小、用戶編號過長或信箱已關閉時回傳 false
+     */
+    public synchronized boolean post(String userId, int mainNo, int subNo, ByteArrayBuffer buffer) {
+        byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = buffer != null ? buffer.toBytes() : new byte[0];
+        int recordLength = RECORD_HEADER + user.length + payload.length;
+        if (closed || user.length > MAX_USER_LENGTH
+                || recordLength + RECORD_HEADER + user.length > log.getMaxRecordLength()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        // 超過用戶上限時捨棄最舊的消息，並寫入確認記錄讓恢復時不再出現
+        Pending pending = users.get(userId);
+        if (pending != null && pending.size >= maxPerUser) {
+            long dropped = pending.poll();
+            long sequence = sequenceAt(dropped);
+            release(dropped);
+            append(TYPE_ACK, user, sequence, 0L, 0, 0, null, now);
+            logger.debug("userId={} mailbox is full, drop oldest message", userId);
+        }
+        long location = append(TYPE_MESSAGE, user, nextSequence++, now + retention, mainNo, subNo, payload, now);
+        // 寫入時可能因區段數上限捨棄舊區段，佇列在寫入後才取得
+        users.computeIfAbsent(userId, k -> new Pending()).add(location);
+        log.get(SegmentLog.segmentOf(location)).retain();
+        size++;
+        return true;
+    }
+
+    /**
+     * 依存入順序取出用戶最多 max 筆未過期的消息，取出後即寫入確認記錄
+     *
+     * @return 取出的消息，沒有待送消息時回傳空列表
+     */
+    public synchronized List<Letter> poll(String userId, int max) {
+        Pending pending = users.get(userId);
+        if (closed || pending == null || max < 1) {
+            return new ArrayList<>(0);
+        }
+        long now = System.currentTimeMillis();
+        List<Letter> letters = new ArrayList<>(Math.min(max, pending.size));
+        long acknowledged = 0L;
+        while (letters.size() < max && pending.size > 0) {
+            long location = pending.poll();
+            release(location);
+            ByteBuffer buffer = log.get(SegmentLog.segmentOf(location)).getBuffer();
+            int offset = SegmentLog.offsetOf(location);
+            acknowledged = buffer.getLong(offset + 17);
+            if (buffer.getLong(offset + 9) > now) {
+                letters.add(read(buffer, offset));
+            }
+        }
+        if (pending.size == 0) {
+            users.remove(userId);
+        }
+        if (acknowledged > 0) {
+            append(TYPE_ACK, userId.getBytes(StandardCharsets.UTF_8), acknowledged, 0L, 0, 0, null, now);
+        }
+        return letters;
+    }
+
+    /**
+     * 清理過期消息並刪除沒有待送消息的最舊區段，讓目前區段依保留時間換新
+     */
+    public synchronized void update(long now) {
+        if (closed) {
+            return;
+        }
+        trim(now);
+        log.expire(now);
+    }
+
+    /**
+     * 將已寫入的內容強制寫回磁碟
+     */
+    public synchronized void flush() {
+        log.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        log.flush();
+        log.close();
+        users.clear();
+        size = 0;
+    }
+
+    // ==================== 記錄 ====================
+
+    private long append(byte type, byte[] user, long sequence, long expireAt, int mainNo, int subNo,
+            byte[] payload, long now) {
+        int payloadLength = payload != null ? payload.length : 0;
+        int recordLength = RECORD_HEADER + user.length + payloadLength;
+        if (!log.fits(recordLength, now)) {
+            roll(now);
+        }
+        Segment segment = log.current();
+        ByteBuffer buffer = segment.getBuffer().duplicate();
+        buffer.position(segment.getPosition() + SegmentLog.RECORD_PREFIX);
+        buffer.put(type);
+        buffer.putLong(expireAt);
+        buffer.putLong(sequence);
+        buffer.putInt(mainNo);
+        buffer.putInt(subNo);
+        buffer.putShort((short) user.length);
+        buffer.put(user);
+        if (payloadLength > 0) {
+            buffer.put(payload);
+        }
+        long location = log.commit(segment, recordLength);
+        if (type == TYPE_MESSAGE) {
+            segment.updateExpireAt(expireAt);
+        }
+        return location;
+    }
+
+    private static Letter read(ByteBuffer buffer, int offset) {
+        int recordLength = buffer.getInt(offset);
+        int userLength = buffer.getShort(offset + 33) & 0xFFFF;
+        int payloadLength = recordLength - RECORD_HEADER - userLength;
+        byte[] payload = new byte[payloadLength];
+        buffer.get(offset + RECORD_HEADER + userLength, payload);
+        ByteArrayBuffer content = payloadLength > 0 ? new ByteArrayBuffer(payload) : new ByteArrayBuffer();
+        return new Letter(buffer.getInt(offset + 25), buffer.getInt(offset + 29), content);
+    }
+
+    private long sequenceAt(long location) {
+        return log.get(SegmentLog.segmentOf(location)).getBuffer().getLong(SegmentLog.offsetOf(location) + 17);
+    }
+
+    private void release(long location) {
+        Segment segment = log.get(SegmentLog.segmentOf(location));
+        if (segment != null) {
+            segment.release();
+        }
+        size--;
+    }
+
+    // ==================== 區段 ====================
+
+    private void roll(long now) {
+        trim(now);
+        // 區段數仍達上限時捨棄最舊的區段，其中的待送消息一併捨棄
+        while (log.size() >= maxSegments) {
+            Segment oldest = log.first();
+            logger.warn("mailbox segment limit reached, drop segment {} with pending={}", oldest.getPath(),
+                    oldest.getLive());
+            log.delete(oldest);
+            dropBefore(firstSegmentId());
+        }
+        log.roll(now);
+    }
+
+    /**
+     * 從最舊的區段開始刪除沒有待送消息或全部過期的區段
+     */
+    private void trim(long now) {
+        boolean dropped = false;
+        Segment segment;
+        while ((segment = log.first()) != null && segment != log.current()
+                && (segment.getLive() <= 0 || segment.getMaxExpireAt() <= now)) {
+            log.delete(segment);
+            dropped = true;
+        }
+        if (dropped) {
+            dropBefore(firstSegmentId());
+        }
+    }
+
+    private int firstSegmentId() {
+        Segment first = log.first();
+        return first == null ? Integer.MAX_VALUE : first.getId();
+    }
+
+    /**
+     * 移除位於已刪除區段的待送消息，每個用戶的消息依位置排序，只需檢查佇列開頭
+     */
+    private void dropBefore(int firstSegmentId) {
+        Iterator<Pending> it = users.values().iterator();
+        while (it.hasNext()) {
+            Pending pending = it.next();
+            while (pending.size > 0 && SegmentLog.segmentOf(pending.peek()) < firstSegmentId) {
+                pending.poll();
+                size--;
+            }
+            if (pending.size == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        long now = System.currentTimeMillis();
+        log.recover((segment, offset, recordLength) -> {
+            ByteBuffer buffer = segment.getBuffer();
+            int userLength = buffer.getShort(offset + 33) & 0xFFFF;
+            if (RECORD_HEADER + userLength > recordLength) {
+                return false;
+            }
+            byte[] user = new byte[userLength];
+            buffer.get(offset + RECORD_HEADER, user);
+            String userId = new String(user, StandardCharsets.UTF_8);
+            long sequence = buffer.getLong(offset + 17);
+            if (buffer.get(offset + 8) == TYPE_ACK) {
+                Pending pending = users.get(userId);
+                while (pending != null && pending.size > 0 && sequenceAt(pending.peek()) <= sequence) {
+                    release(pending.poll());
+                }
+                if (pending != null && pending.size == 0) {
+                    users.remove(userId);
+                }
+            } else {
+                long expireAt = buffer.getLong(offset + 9);
+                segment.updateExpireAt(expireAt);
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                if (expireAt > now) {
+                    users.computeIfAbsent(userId, k -> new Pending())
+                            .add(SegmentLog.location(segment.getId(), offset));
+                    segment.retain();
+                    size++;
+                }
+            }
+            return true;
+        }, now);
+        trim(now);
+        recovered = size;
+        logger.info("recover offline mailbox dir={} segments={} users={} messages={}", log.getDirectory(),
+                log.size(), users.size(), recovered);
+    }
+
+    /**
+     * 取出的離線消息
+     */
+    public static final class Letter {
+        private final int mainNo;
+        private final int subNo;
+        private final ByteArrayBuffer buffer;
+
+        Letter(int mainNo, int subNo, ByteArrayBuffer buffer) {
+            this.mainNo = mainNo;
+            this.subNo = subNo;
+            this.buffer = buffer;
+        }
+
+        public int getMainNo() {
+            return mainNo;
+        }
+
+        public int getSubNo() {
+            return subNo;
+        }
+
+        public ByteArrayBuffer getBuffer() {
+            return buffer;
+        }
+    }
+
+    /**
+     * 用戶待送消息位置的環狀佇列，不需要每筆建立物件
+     */
+    private static final class Pending {
+        private long[] items = new long[8];
+        private int head;
+        private int size;
+
+        void add(long location) {
+            if (size == items.length) {
+                long[] grown = new long[items.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = items[(head + i) & (items.length - 1)];
+                }
+                items = grown;
+                head = 0;
+            }
+            items[(head + size) & (items.length - 1)] = location;
+            size++;
+        }
+
+        long peek() {
+            return items[head];
+        }
+
+        long poll() {
+            long location = items[head];
+            head = (head + 1) & (items.length - 1);
+            size--;
+            if (size == 0) {
+                head = 0;
+                if (items.length > 64) {
+                    items = Arrays.copyOf(items, 8);
+                }
+            }
+            return location;
+        }
+    }
+}
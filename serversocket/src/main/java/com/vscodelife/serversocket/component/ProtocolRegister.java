@@ -121,11 +121,11 @@ public class ProtocolRegister<H extends HeaderBase, C extends IConnection<B>, M
      * @param handler 處理器
      */
     public void registerProtocol(int mainNo, int subNo, Consumer<M> handler) {
-        registerProtocol(new ProtocolKey(mainNo, subNo), handler, false);
+        registerProtocol(ProtocolKey.valueOf(mainNo, subNo), handler, false);
     }
 
     public void registerProtocol(int mainNo, int subNo, Consumer<M> handler, boolean cached) {
-        registerProtocol(new ProtocolKey(mainNo, subNo), handler, cached);
+        registerProtocol(ProtocolKey.valueOf(mainNo, subNo), handler, cached);
     }
 
     public void registerProtocol(ProtocolKey key, Consumer<M> handler) {
@@ -144,7 +144,7 @@ public class ProtocolRegister<H extends HeaderBase, C extends IConnection<B>, M
      * 檢查指定協定是否已註冊
      */
     public boolean isProtocolRegistered(int mainNo, int subNo) {
-        ProtocolKey key = new ProtocolKey(mainNo, subNo);
+        ProtocolKey key = ProtocolKey.valueOf(mainNo, subNo);
         return processMap.containsKey(key);
     }
 
@@ -174,7 +174,7 @@ public class ProtocolRegister<H extends HeaderBase, C extends IConnection<B>, M
     }
 
     public Consumer<M> getProtocolHandler(int mainNo, int subNo) {
-        return getProtocolHandler(new ProtocolKey(mainNo, subNo));
+        return getProtocolHandler(ProtocolKey.valueOf(mainNo, subNo));
     }
 
     /**
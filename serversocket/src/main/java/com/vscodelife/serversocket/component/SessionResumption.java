@@ -0,0 +1,113 @@
+package com.vscodelife.serversocket.component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.vscodelife.socketio.util.TimingWheel;
+
+/**
+ * 暫停中的會話，依恢復憑證保存斷線的連線物件直到客戶端重連或逾時
+ *
+ * <ul>
+ * <li>憑證為 128 位元隨機值，只能使用一次，恢復成功後重新核發</li>
+ * <li>逾時由時間輪排程，{@link #update(long, Consumer)} 只處理到期的會話</li>
+ * </ul>
+ *
+ * @param <C> 連線類型
+ */
+public class SessionResumption<C> {
+    private static final long DEFAULT_RESUME_TIMEOUT = 60 * 1000L;
+    private static final int TOKEN_BYTES = 16;
+
+    private final Map<String, Parked<C>> parked = new ConcurrentHashMap<>();
+    private final TimingWheel<String> wheel = new TimingWheel<>();
+    private final SecureRandom random = new SecureRandom();
+
+    private volatile boolean enabled;
+    private volatile long timeout = DEFAULT_RESUME_TIMEOUT;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 設定斷線後保留會話的時間（毫秒）
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public int size() {
+        return parked.size();
+    }
+
+    /**
+     * 產生新的恢復憑證
+     */
+    public String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * 保存斷線的連線，逾時後交由 {@link #update(long, Consumer)} 的回呼結束會話
+     */
+    public void park(String token, C connection) {
+        Parked<C> entry = new Parked<>(connection);
+        entry.timeout = wheel.scheduleAt(token, System.currentTimeMillis() + timeout);
+        Parked<C> previous = parked.put(token, entry);
+        if (previous != null) {
+            previous.timeout.cancel();
+        }
+    }
+
+    /**
+     * 取出暫停中的會話，憑證不存在或已逾時時回傳 null
+     */
+    public C take(String token) {
+        if (token == null) {
+            return null;
+        }
+        Parked<C> entry = parked.remove(token);
+        if (entry == null) {
+            return null;
+        }
+        entry.timeout.cancel();
+        return entry.connection;
+    }
+
+    /**
+     * 推進逾時時間輪，逾時的會話交給 expired 回呼結束
+     *
+     * @return 逾時的會話數
+     */
+    public int update(long now, Consumer<C> expired) {
+        return wheel.advance(now, token -> {
+            Parked<C> entry = parked.remove(token);
+            if (entry != null) {
+                expired.accept(entry.connection);
+            }
+        });
+    }
+
+    private static final class Parked<C> {
+        private final C connection;
+        private volatile TimingWheel.Timeout<String> timeout;
+
+        Parked(C connection) {
+            this.connection = connection;
+        }
+    }
+}
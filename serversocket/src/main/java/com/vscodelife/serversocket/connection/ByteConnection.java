@@ -6,7 +6,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.compress.StreamingCompression;
+import com.vscodelife.socketio.compress.StreamingCompressionContext;
 import com.vscodelife.socketio.connection.IConnection;
+import com.vscodelife.socketio.connection.ResumeBuffer;
 import com.vscodelife.socketio.constant.ProtocolId;
 import com.vscodelife.socketio.util.DateUtil;
 
@@ -22,6 +25,11 @@ public abstract class ByteConnection implements IConnection<ByteArrayBuffer> {
     protected String version;
     protected long sessionId;
     protected long connectTime;
+    // 客戶端已確認的壓縮字典編號，0 表示不使用字典
+    protected volatile int compressionDictionaryId;
+    // 會話恢復憑證與送出幀緩衝區，未啟用會話恢復時為 null
+    protected volatile String resumeToken;
+    protected volatile ResumeBuffer resumeBuffer;
 
     protected ByteConnection() {
         this(null, "0.0.1", 0L, 0L);
@@ -66,6 +74,10 @@ public abstract class ByteConnection implements IConnection<ByteArrayBuffer> {
     @Override
     public void setChannel(Channel channel) {
         this.channel = channel;
+        // 恢復會話時送出序號延續到新的連線
+        if (channel != null && resumeBuffer != null) {
+            ResumeBuffer.attach(channel, resumeBuffer);
+        }
     }
 
     @Override
@@ -106,6 +118,75 @@ public abstract class ByteConnection implements IConnection<ByteArrayBuffer> {
         this.connectTime = connectTime;
     }
 
+    public int getCompressionDictionaryId() {
+        return compressionDictionaryId;
+    }
+
+    public void setCompressionDictionaryId(int compressionDictionaryId) {
+        this.compressionDictionaryId = compressionDictionaryId;
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public ResumeBuffer getResumeBuffer() {
+        return resumeBuffer;
+    }
+
+    /**
+     * 啟用會話恢復並設定恢復憑證，第一次啟用時建立送出幀緩衝區並綁定在連線上，需在連線的事件迴圈中呼叫
+     */
+    public void enableResume(String resumeToken) {
+        if (resumeBuffer == null) {
+            resumeBuffer = new ResumeBuffer();
+            if (channel != null) {
+                ResumeBuffer.attach(channel, resumeBuffer);
+            }
+        }
+        this.resumeToken = resumeToken;
+    }
+
+    /**
+     * 寫出消息，會話暫停（斷線等待恢復）時改為保存在送出幀緩衝區，恢復後補送
+     */
+    protected void write(Object message) {
+        ResumeBuffer buffer = resumeBuffer;
+        if (buffer != null && buffer.offer(message)) {
+            return;
+        }
+        if (channel != null) {
+            channel.writeAndFlush(message);
+        }
+    }
+
+    /**
+     * 取得連線的串流壓縮上下文，未啟用時回傳 null
+     */
+    public StreamingCompressionContext getCompressionContext() {
+        return StreamingCompressionContext.get(channel);
+    }
+
+    /**
+     * 邀請客戶端啟用串流壓縮，先準備好解壓縮端，客戶端接受後才開始壓縮送出的訊息
+     *
+     * @return 是否送出邀請，未啟用或超出記憶體預算時回傳 false
+     */
+    public boolean offerStreamCompression() {
+        if (channel == null || getCompressionContext() != null) {
+            return false;
+        }
+        StreamingCompressionContext context = StreamingCompression.getDefault().acquire(false);
+        if (context == null) {
+            return false;
+        }
+        StreamingCompressionContext.attach(channel, context);
+        ByteArrayBuffer buffer = new ByteArrayBuffer();
+        buffer.writeBool(true);
+        send(ProtocolId.NOTIFY_STREAM_COMPRESSION, buffer);
+        return true;
+    }
+
     @Override
     public ChannelId getId() {
         return channel != null ? channel.id() : null;
@@ -145,7 +226,9 @@ public abstract class ByteConnection implements IConnection<ByteArrayBuffer> {
 
     @Override
     public void disconnect() {
-        send(ProtocolId.DISCONNECT, new ByteArrayBuffer());
+        // 服務器主動斷線的會話不可恢復
+        resumeToken = null;
+        send(ProtocolId.DISCONNECT, ByteArrayBuffer.forProtocol(ProtocolId.DISCONNECT));
 
         if (channel != null) {
             channel.close();
@@ -154,6 +237,12 @@ public abstract class ByteConnection implements IConnection<ByteArrayBuffer> {
 
     @Override
     public void destroy() {
+        StreamingCompressionContext.detach(channel);
+        ResumeBuffer buffer = resumeBuffer;
+        if (buffer != null) {
+            ResumeBuffer.detach(channel);
+            buffer.clear();
+        }
         logger.debug("sessionId={} connection is destroyed", sessionId);
     }
 
@@ -164,7 +253,7 @@ public abstract class ByteConnection implements IConnection<ByteArrayBuffer> {
 
     @Override
     public void sendServerBusyMessage(int mainNo, int subNo, long requestId) {
-        ByteArrayBuffer buffer = new ByteArrayBuffer();
+        ByteArrayBuffer buffer = ByteArrayBuffer.forProtocol(mainNo, subNo);
         buffer.writeInt(503);
         buffer.writeString("server is busy");
         send(mainNo, subNo, requestId, buffer);
@@ -22,6 +22,8 @@ public abstract class JsonConnection implements IConnection<JsonMapBuffer> {
     protected String version;
     protected long sessionId;
     protected long connectTime;
+    // 握手時協商的傳輸格式，true 表示以 JSONB 二進位幀傳送
+    protected volatile boolean jsonb;
 
     protected JsonConnection() {
         this(null, "0.0.1", 0L, 0L);
@@ -96,6 +98,21 @@ public abstract class JsonConnection implements IConnection<JsonMapBuffer> {
         }
     }
 
+    /**
+     * 是否以 JSONB 二進位格式（BinaryWebSocketFrame）傳送，未在握手時選用者維持文字 JSON
+     */
+    public boolean isJsonb() {
+        return jsonb;
+    }
+
+    public void setJsonb(boolean jsonb) {
+        this.jsonb = jsonb;
+
+        if (channel != null) {
+            setProperty(Boolean.class, channel, "jsonb", jsonb);
+        }
+    }
+
     @Override
     public long getConnectTime() {
         return connectTime;
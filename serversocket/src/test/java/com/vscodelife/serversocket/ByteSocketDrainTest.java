@@ -0,0 +1,296 @@
+package com.vscodelife.serversocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vscodelife.serversocket.component.DrainProgress;
+import com.vscodelife.serversocket.connection.ByteConnection;
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.constant.ProtocolId;
+import com.vscodelife.socketio.message.ByteMessage;
+import com.vscodelife.socketio.message.base.HeaderBase;
+import com.vscodelife.socketio.message.base.ProtocolKey;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.socket.SocketChannel;
+
+/**
+ * 優雅停機：停止接受連線、送出含改連位址的停機通知，並在連線全部關閉或期限到時結束
+ *
+ * <p>
+ * 以 Netty 本地傳輸模擬監聽埠與客戶端，消息物件直接傳遞，不經過編解碼。
+ * </p>
+ */
+class ByteSocketDrainTest {
+    private static final Logger logger = LoggerFactory.getLogger(ByteSocketDrainTest.class);
+
+    /**
+     * 送出的協議與內容
+     */
+    static final class Frame {
+        final ProtocolKey protocol;
+        final ByteArrayBuffer buffer;
+
+        Frame(ProtocolKey protocol, ByteArrayBuffer buffer) {
+            this.protocol = protocol;
+            this.buffer = buffer;
+        }
+    }
+
+    public static class FrameConnection extends ByteConnection {
+        public FrameConnection() {
+            super();
+        }
+
+        @Override
+        public void send(int mainNo, int subNo, ByteArrayBuffer buffer) {
+            send(mainNo, subNo, 0L, buffer);
+        }
+
+        @Override
+        public void send(int mainNo, int subNo, long requestId, ByteArrayBuffer buffer) {
+            write(new Frame(ProtocolKey.valueOf(mainNo, subNo), buffer));
+        }
+    }
+
+    static class NoopInitializer extends ChannelInitializer<SocketChannel> {
+        @Override
+        protected void initChannel(SocketChannel ch) {
+        }
+    }
+
+    static class DrainSocket extends ByteSocket<HeaderBase, FrameConnection> {
+        DrainSocket() {
+            super(ByteSocketDrainTest.logger, 9000, 100, NoopInitializer.class);
+        }
+
+        @Override
+        public Class<DrainSocket> getSocketClazz() {
+            return DrainSocket.class;
+        }
+
+        @Override
+        protected Class<FrameConnection> getConnectionClass() {
+            return FrameConnection.class;
+        }
+
+        @Override
+        public String getVersion() {
+            return "0.0.1";
+        }
+
+        @Override
+        public void onConnect(long sessionId) {
+        }
+
+        @Override
+        public void onDisconnect(long sessionId) {
+        }
+    }
+
+    /**
+     * 客戶端，收到的幀依序放入佇列
+     */
+    static final class Client {
+        final Channel channel;
+        final BlockingQueue<Frame> frames;
+
+        Client(Channel channel, BlockingQueue<Frame> frames) {
+            this.channel = channel;
+            this.frames = frames;
+        }
+
+        Frame next() throws InterruptedException {
+            return frames.poll(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private final LocalAddress address = new LocalAddress(ByteSocketDrainTest.class);
+    private final EventLoopGroup group = new DefaultEventLoopGroup(2);
+    private DrainSocket socket;
+    // 關閉時不移出連線管理的連線，模擬客戶端遲遲不關閉的情況
+    private volatile boolean holdConnections;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        socket = new DrainSocket();
+        socket.channel = new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        socket.putConnection(ctx.channel());
+                    }
+
+                    @Override
+                    public void channelInactive(ChannelHandlerContext ctx) {
+                        if (!holdConnections) {
+                            socket.removeConnection(ctx.channel());
+                        }
+                    }
+
+                    @Override
+                    public boolean isSharable() {
+                        return true;
+                    }
+                })
+                .bind(address).sync().channel();
+    }
+
+    @AfterEach
+    void tearDown() {
+        socket.close();
+        if (socket.channel != null) {
+            socket.channel.close().awaitUninterruptibly();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+    }
+
+    ChannelFuture connect(BlockingQueue<Frame> frames) {
+        return new Bootstrap().group(group).channel(LocalChannel.class)
+                .handler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        frames.add((Frame) msg);
+                    }
+                })
+                .connect(address);
+    }
+
+    Client connect() throws InterruptedException {
+        BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+        Channel channel = connect(frames).sync().channel();
+        return new Client(channel, frames);
+    }
+
+    void awaitConnections(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (socket.getNowConnect() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(socket.getNowConnect()).isEqualTo(count);
+    }
+
+    static void assertDrainNotice(Frame frame, long timeoutMillis, String redirect) {
+        assertThat(frame).isNotNull();
+        assertThat(frame.protocol).isEqualTo(ProtocolId.NOTIFY_DRAIN);
+        assertThat(frame.buffer.readLong()).isEqualTo(timeoutMillis);
+        assertThat(frame.buffer.readString()).isEqualTo(redirect);
+        assertThat(frame.buffer.readableBytes()).isZero();
+    }
+
+    // ==================== 完成 ====================
+
+    @Test
+    void notifiesClientsAndFinishesWhenConnectionsClose() throws InterruptedException {
+        Client first = connect();
+        Client second = connect();
+        awaitConnections(2);
+        socket.getSessionResumption().setEnabled(true);
+
+        List<DrainProgress> progress = new CopyOnWriteArrayList<>();
+        long start = System.currentTimeMillis();
+        assertThat(socket.drain(5000L, "10.0.0.2:9001", progress::add)).isTrue();
+        assertThat(System.currentTimeMillis() - start).isLessThan(4000L);
+
+        for (Client client : List.of(first, second)) {
+            assertDrainNotice(client.next(), 5000L, "10.0.0.2:9001");
+            assertThat(client.next().protocol).isEqualTo(ProtocolId.DISCONNECT);
+            assertThat(client.channel.closeFuture().await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(socket.getNowConnect()).isZero();
+        assertThat(socket.isDraining()).isTrue();
+        assertThat(socket.getSessionResumption().isEnabled()).isFalse();
+        assertThat(progress).isNotEmpty();
+        DrainProgress done = progress.get(progress.size() - 1);
+        assertThat(done.getPhase()).isEqualTo(DrainProgress.PHASE_DONE);
+        assertThat(done.getConnections()).isZero();
+
+        // 只能停機一次
+        assertThat(socket.drain(1000L, null, null)).isFalse();
+    }
+
+    @Test
+    void nullRedirectIsSentAsEmptyAddress() throws InterruptedException {
+        Client client = connect();
+        awaitConnections(1);
+        assertThat(socket.drain(5000L, null, null)).isTrue();
+        assertDrainNotice(client.next(), 5000L, "");
+    }
+
+    @Test
+    void stopsAcceptingNewConnections() throws InterruptedException {
+        Client client = connect();
+        awaitConnections(1);
+        // 佇列中有等待處理的消息，停機停在處理階段，期間嘗試建立新連線
+        socket.putMessage(new ByteMessage<>(new HeaderBase("0.0.1", 1, 1, false, 1L, 1L, 0L),
+                new ByteArrayBuffer()));
+        List<Boolean> accepted = new ArrayList<>();
+        socket.drain(500L, "10.0.0.2:9001", p -> {
+            if (accepted.isEmpty()) {
+                accepted.add(connect(new LinkedBlockingQueue<>()).awaitUninterruptibly().isSuccess());
+            }
+        });
+        assertThat(accepted).containsExactly(false);
+        assertThat(socket.channel.isOpen()).isFalse();
+        assertDrainNotice(client.next(), 500L, "10.0.0.2:9001");
+    }
+
+    // ==================== 期限 ====================
+
+    @Test
+    void stopsWaitingForQueuedMessagesAtDeadline() throws InterruptedException {
+        connect();
+        awaitConnections(1);
+        // 沒有啟動主執行緒，佇列中的消息不會被處理
+        socket.putMessage(new ByteMessage<>(new HeaderBase("0.0.1", 1, 1, false, 1L, 1L, 0L),
+                new ByteArrayBuffer()));
+
+        List<DrainProgress> progress = new CopyOnWriteArrayList<>();
+        long start = System.currentTimeMillis();
+        assertThat(socket.drain(300L, null, progress::add)).isFalse();
+        long elapsed = System.currentTimeMillis() - start;
+        assertThat(elapsed).isGreaterThanOrEqualTo(300L).isLessThan(3000L);
+        assertThat(progress).anyMatch(p -> p.getPhase().equals(DrainProgress.PHASE_DISPATCH) && p.getQueued() == 1);
+        assertThat(progress.get(progress.size() - 1).getPhase()).isEqualTo(DrainProgress.PHASE_DONE);
+    }
+
+    @Test
+    void stopsWaitingForConnectionsAtDeadline() throws InterruptedException {
+        holdConnections = true;
+        connect();
+        awaitConnections(1);
+
+        List<DrainProgress> progress = new CopyOnWriteArrayList<>();
+        long start = System.currentTimeMillis();
+        // 請求與送出都已完成，只有連線沒有移出
+        assertThat(socket.drain(300L, null, progress::add)).isTrue();
+        assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(300L).isLessThan(3000L);
+        assertThat(progress).anyMatch(p -> p.getPhase().equals(DrainProgress.PHASE_CLOSE));
+        DrainProgress done = progress.get(progress.size() - 1);
+        assertThat(done.getPhase()).isEqualTo(DrainProgress.PHASE_DONE);
+        assertThat(done.getConnections()).isEqualTo(1);
+    }
+}
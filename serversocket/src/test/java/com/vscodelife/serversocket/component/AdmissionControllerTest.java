@@ -0,0 +1,274 @@
+package com.vscodelife.serversocket.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * 連線准入的額度保留與釋放、IP 與子網段上限、令牌桶，以及 accept Handler 的釋放時機
+ */
+class AdmissionControllerTest {
+
+    static InetAddress address(String literal) {
+        try {
+            return InetAddress.getByName(literal);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(literal, e);
+        }
+    }
+
+    /**
+     * 遠端位址為指定 IP 的子 Channel
+     */
+    static EmbeddedChannel child(String literal) {
+        InetSocketAddress remote = new InetSocketAddress(address(literal), 40000);
+        return new EmbeddedChannel() {
+            @Override
+            public SocketAddress remoteAddress() {
+                return remote;
+            }
+        };
+    }
+
+    // ==================== 連線額度 ====================
+
+    @Test
+    void reservesUpToMaxConnectionsAndReleases() {
+        AdmissionController admission = new AdmissionController(3);
+        InetAddress ip = address("10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.ADMITTED);
+        }
+        assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.REJECT_CAPACITY);
+        assertThat(admission.getReserved()).isEqualTo(3);
+
+        admission.release(ip);
+        assertThat(admission.getReserved()).isEqualTo(2);
+        assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.ADMITTED);
+
+        assertThat(admission.getAdmittedCount()).isEqualTo(4);
+        assertThat(admission.getRejectedCount(AdmissionController.REJECT_CAPACITY)).isEqualTo(1);
+        assertThat(admission.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void zeroMaxConnectionsIsUnlimited() {
+        AdmissionController admission = new AdmissionController(0);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(admission.tryAdmit(address("10.0.%d.%d".formatted(i / 250, i % 250))))
+                    .isEqualTo(AdmissionController.ADMITTED);
+        }
+        assertThat(admission.getReserved()).isEqualTo(1000);
+    }
+
+    @Test
+    void concurrentAdmitNeverExceedsMaxConnections() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(100);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int base = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (admission.tryAdmit(address("10.%d.%d.1".formatted(base, i))) == AdmissionController.ADMITTED) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(30_000L);
+        }
+        assertThat(accepted.get()).isEqualTo(100);
+        assertThat(admission.getReserved()).isEqualTo(100);
+        assertThat(admission.getRejectedCount(AdmissionController.REJECT_CAPACITY)).isEqualTo(700);
+    }
+
+    // ==================== IP 與子網段 ====================
+
+    @Test
+    void limitsConnectionsPerIp() {
+        AdmissionController admission = new AdmissionController(0);
+        admission.setMaxPerIp(2);
+        InetAddress ip = address("10.0.0.1");
+        assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.REJECT_IP);
+        // 拒絕時退回保留的全域額度
+        assertThat(admission.getReserved()).isEqualTo(2);
+        assertThat(admission.getConnections(ip)).isEqualTo(2);
+
+        // 其他 IP 不受影響
+        assertThat(admission.tryAdmit(address("10.0.0.2"))).isEqualTo(AdmissionController.ADMITTED);
+
+        admission.release(ip);
+        assertThat(admission.getConnections(ip)).isEqualTo(1);
+        assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.ADMITTED);
+    }
+
+    @Test
+    void limitsConnectionsPerIpv4Subnet() {
+        AdmissionController admission = new AdmissionController(0);
+        admission.setMaxPerSubnet(2);
+        assertThat(admission.tryAdmit(address("192.168.1.10"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(address("192.168.1.20"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(address("192.168.1.30"))).isEqualTo(AdmissionController.REJECT_SUBNET);
+        // 拒絕時退回 IP 計數與全域額度
+        assertThat(admission.getConnections(address("192.168.1.30"))).isZero();
+        assertThat(admission.getReserved()).isEqualTo(2);
+
+        assertThat(admission.tryAdmit(address("192.168.2.10"))).isEqualTo(AdmissionController.ADMITTED);
+
+        admission.release(address("192.168.1.10"));
+        assertThat(admission.tryAdmit(address("192.168.1.30"))).isEqualTo(AdmissionController.ADMITTED);
+    }
+
+    @Test
+    void limitsConnectionsPerIpv6Subnet() {
+        AdmissionController admission = new AdmissionController(0);
+        admission.setMaxPerSubnet(1);
+        assertThat(admission.tryAdmit(address("2001:db8:0:1::1"))).isEqualTo(AdmissionController.ADMITTED);
+        // 同一個 /64
+        assertThat(admission.tryAdmit(address("2001:db8:0:1:ffff::2"))).isEqualTo(AdmissionController.REJECT_SUBNET);
+        assertThat(admission.tryAdmit(address("2001:db8:0:2::1"))).isEqualTo(AdmissionController.ADMITTED);
+    }
+
+    // ==================== 令牌桶 ====================
+
+    @Test
+    void acceptRateExhaustsBurstAndRefills() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(0);
+        admission.setAcceptRate(10, 2);
+        assertThat(admission.tryAdmit(address("10.0.0.1"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(address("10.0.0.2"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(address("10.0.0.3"))).isEqualTo(AdmissionController.REJECT_ACCEPT_RATE);
+        // 速率拒絕不保留額度
+        assertThat(admission.getReserved()).isEqualTo(2);
+
+        // 每秒 10 個，250 毫秒後至少補回 2 個（不超過 burst）
+        Thread.sleep(250L);
+        assertThat(admission.tryAdmit(address("10.0.0.3"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(address("10.0.0.4"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(address("10.0.0.5"))).isEqualTo(AdmissionController.REJECT_ACCEPT_RATE);
+
+        admission.setAcceptRate(0, 0);
+        assertThat(admission.tryAdmit(address("10.0.0.5"))).isEqualTo(AdmissionController.ADMITTED);
+    }
+
+    @Test
+    void ipAcceptRateIsPerAddress() {
+        AdmissionController admission = new AdmissionController(0);
+        admission.setIpAcceptRate(0.001, 3);
+        InetAddress ip = address("10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.ADMITTED);
+        }
+        assertThat(admission.tryAdmit(ip)).isEqualTo(AdmissionController.REJECT_IP_RATE);
+        assertThat(admission.tryAdmit(address("10.0.0.2"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.getRejectedCount(AdmissionController.REJECT_IP_RATE)).isEqualTo(1);
+    }
+
+    @Test
+    void updateRemovesOnlyRefilledIpBuckets() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(0);
+        admission.setIpAcceptRate(1000, 1);
+        admission.tryAdmit(address("10.0.0.1"));
+        Thread.sleep(20L);
+        assertThat(admission.update()).isEqualTo(1);
+
+        admission.setIpAcceptRate(0.001, 1);
+        admission.tryAdmit(address("10.0.0.1"));
+        assertThat(admission.update()).isZero();
+        // 令牌桶尚未補滿，重新建立不會讓同一個 IP 繞過速率
+        assertThat(admission.tryAdmit(address("10.0.0.1"))).isEqualTo(AdmissionController.REJECT_IP_RATE);
+    }
+
+    // ==================== AcceptHandler ====================
+
+    @Test
+    void acceptHandlerReleasesOnceWhenChildCloses() {
+        AdmissionController admission = new AdmissionController(1);
+        EmbeddedChannel server = new EmbeddedChannel(admission.getAcceptHandler());
+        EmbeddedChannel child = child("10.0.0.1");
+
+        server.writeInbound(child);
+        assertThat((Object) server.readInbound()).isSameAs(child);
+        assertThat(admission.getReserved()).isEqualTo(1);
+        assertThat(admission.getConnections(address("10.0.0.1"))).isEqualTo(1);
+
+        child.close();
+        assertThat(admission.getReserved()).isZero();
+        assertThat(admission.getConnections(address("10.0.0.1"))).isZero();
+        child.close();
+        assertThat(admission.getReserved()).isZero();
+        server.finishAndReleaseAll();
+    }
+
+    @Test
+    void acceptHandlerReleasesOnceWhenRegistrationFails() {
+        AdmissionController admission = new AdmissionController(1);
+        // 模擬 ServerBootstrapAcceptor 註冊失敗：同步以 closeForcibly 關閉子 Channel，closeFuture 不會完成
+        EmbeddedChannel server = new EmbeddedChannel(admission.getAcceptHandler(), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ((EmbeddedChannel) msg).unsafe().closeForcibly();
+            }
+        });
+        EmbeddedChannel child = child("10.0.0.1");
+
+        server.writeInbound(child);
+        assertThat(child.isOpen()).isFalse();
+        assertThat(admission.getReserved()).isZero();
+        assertThat(admission.getConnections(address("10.0.0.1"))).isZero();
+
+        // 之後 closeFuture 完成也不會再釋放一次
+        child.close();
+        assertThat(admission.getReserved()).isZero();
+        assertThat(admission.tryAdmit(address("10.0.0.2"))).isEqualTo(AdmissionController.ADMITTED);
+        assertThat(admission.tryAdmit(address("10.0.0.3"))).isEqualTo(AdmissionController.REJECT_CAPACITY);
+        server.finishAndReleaseAll();
+    }
+
+    @Test
+    void acceptHandlerClosesRejectedChildWithoutForwarding() {
+        AdmissionController admission = new AdmissionController(0);
+        admission.setMaxPerIp(1);
+        EmbeddedChannel server = new EmbeddedChannel(admission.getAcceptHandler());
+        EmbeddedChannel first = child("10.0.0.1");
+        EmbeddedChannel second = child("10.0.0.1");
+
+        server.writeInbound(first);
+        server.writeInbound(second);
+        assertThat((Object) server.readInbound()).isSameAs(first);
+        assertThat((Object) server.readInbound()).isNull();
+        assertThat(second.isOpen()).isFalse();
+        assertThat(admission.getReserved()).isEqualTo(1);
+        assertThat(admission.getRejectedCount(AdmissionController.REJECT_IP)).isEqualTo(1);
+
+        first.close();
+        assertThat(admission.getReserved()).isZero();
+        server.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,192 @@
+package com.vscodelife.serversocket.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * 連線生命週期的閒置、驗證期限、心跳與最長存活事件，以及延遲重排與取消
+ */
+class ConnectionLifecycleTest {
+    private static final long TICK = 10L;
+
+    private final List<String> events = new ArrayList<>();
+    private ConnectionLifecycle lifecycle;
+
+    @BeforeEach
+    void setUp() {
+        lifecycle = new ConnectionLifecycle(TICK);
+        lifecycle.setListener(new ConnectionLifecycle.Listener() {
+            @Override
+            public void onAuthTimeout(Channel channel) {
+                events.add(event("auth", channel));
+            }
+
+            @Override
+            public void onIdle(Channel channel) {
+                events.add(event("idle", channel));
+            }
+
+            @Override
+            public void onHeartbeat(Channel channel) {
+                events.add(event("heartbeat", channel));
+            }
+
+            @Override
+            public void onMaxSessionAge(Channel channel) {
+                events.add(event("age", channel));
+            }
+        });
+    }
+
+    /**
+     * 註冊連線並回傳註冊完成後的時間，連線的各項期限不晚於此時間加上設定值
+     */
+    long register(Channel channel) {
+        lifecycle.register(channel);
+        return System.currentTimeMillis();
+    }
+
+    static String event(String name, Channel channel) {
+        return name + ":" + channel.id().asShortText();
+    }
+
+    // ==================== 閒置 ====================
+
+    @Test
+    void idleFiresAfterNoTouch() {
+        lifecycle.setIdleTimeout(1000L);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        long registered = register(channel);
+        assertThat(lifecycle.size()).isEqualTo(1);
+
+        assertThat(lifecycle.update(registered + 500L)).isZero();
+        assertThat(events).isEmpty();
+
+        assertThat(lifecycle.update(registered + 1000L + TICK)).isEqualTo(1);
+        assertThat(events).containsExactly(event("idle", channel));
+        // 觸發後不再排程
+        assertThat(lifecycle.size()).isZero();
+        lifecycle.update(registered + 5000L);
+        assertThat(events).hasSize(1);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void touchBetweenTicksReschedulesLazily() throws InterruptedException {
+        lifecycle.setIdleTimeout(200L);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        long registered = register(channel);
+
+        Thread.sleep(100L);
+        lifecycle.touch(channel);
+        long touched = System.currentTimeMillis();
+
+        // 原本的期限到期時依最新活動時間判斷：尚未閒置，改排到下一個期限
+        assertThat(lifecycle.update(registered + 200L + TICK)).isEqualTo(1);
+        assertThat(events).isEmpty();
+        assertThat(lifecycle.size()).isEqualTo(1);
+
+        assertThat(lifecycle.update(touched + 200L + TICK)).isEqualTo(1);
+        assertThat(events).containsExactly(event("idle", channel));
+        channel.finishAndReleaseAll();
+    }
+
+    // ==================== 驗證期限 ====================
+
+    @Test
+    void authDeadlineIsClearedByAuthenticated() {
+        lifecycle.setAuthTimeout(100L);
+        EmbeddedChannel authed = new EmbeddedChannel();
+        EmbeddedChannel pending = new EmbeddedChannel();
+        long registered = Math.max(register(authed), register(pending));
+        lifecycle.authenticated(authed);
+
+        assertThat(lifecycle.update(registered + 100L + TICK)).isEqualTo(2);
+        assertThat(events).containsExactly(event("auth", pending));
+        // 已驗證的連線沒有其他期限，不再排程
+        assertThat(lifecycle.size()).isZero();
+        authed.finishAndReleaseAll();
+        pending.finishAndReleaseAll();
+    }
+
+    // ==================== 心跳與最長存活 ====================
+
+    @Test
+    void heartbeatRepeatsWhileNoMessageArrives() {
+        lifecycle.setHeartbeatInterval(100L);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        long registered = register(channel);
+
+        lifecycle.update(registered + 100L + TICK);
+        assertThat(events).containsExactly(event("heartbeat", channel));
+
+        // 下一次心跳從上一次送出的時間起算
+        lifecycle.update(registered + 200L + 2 * TICK);
+        assertThat(events).containsExactly(event("heartbeat", channel), event("heartbeat", channel));
+        assertThat(lifecycle.size()).isEqualTo(1);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void maxSessionAgeFiresRegardlessOfActivity() {
+        lifecycle.setMaxSessionAge(300L);
+        lifecycle.setIdleTimeout(10_000L);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        long registered = register(channel);
+        lifecycle.touch(channel);
+
+        assertThat(lifecycle.update(registered + 100L)).isZero();
+        assertThat(lifecycle.update(registered + 300L + TICK)).isEqualTo(1);
+        assertThat(events).containsExactly(event("age", channel));
+        assertThat(lifecycle.size()).isZero();
+        channel.finishAndReleaseAll();
+    }
+
+    // ==================== 取消 ====================
+
+    @Test
+    void unregisterSuppressesPendingCallback() {
+        lifecycle.setIdleTimeout(100L);
+        lifecycle.setAuthTimeout(100L);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        long registered = register(channel);
+
+        lifecycle.unregister(channel);
+        assertThat(lifecycle.size()).isZero();
+        assertThat(lifecycle.update(registered + 1000L)).isZero();
+        assertThat(events).isEmpty();
+
+        // 重複呼叫與之後的 touch 不影響
+        lifecycle.unregister(channel);
+        lifecycle.touch(channel);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void inactiveChannelIsDroppedWithoutCallback() {
+        lifecycle.setIdleTimeout(100L);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        long registered = register(channel);
+        channel.close();
+
+        assertThat(lifecycle.update(registered + 100L + TICK)).isEqualTo(1);
+        assertThat(events).isEmpty();
+        assertThat(lifecycle.size()).isZero();
+    }
+
+    @Test
+    void registerSkipsWheelWhenAllDisabled() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        lifecycle.register(channel);
+        assertThat(lifecycle.size()).isZero();
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,225 @@
+package com.vscodelife.serversocket.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.vscodelife.serversocket.component.OfflineMailbox.Letter;
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.util.SegmentLog;
+
+/**
+ * 離線信箱的存入順序、確認記錄、重啟恢復、中斷記錄與容量上限
+ */
+class OfflineMailboxTest {
+    private static final long RETENTION = 60_000L;
+    private static final String USER = "alice";
+    // 記錄頭 35 位元組 + 用戶編號 + 4 位元組內容
+    private static final int RECORD_LENGTH = 35 + USER.length() + 4;
+
+    @TempDir
+    Path directory;
+
+    OfflineMailbox open() {
+        return OfflineMailbox.open(directory, RETENTION, 100, 64 * 1024, 8);
+    }
+
+    static boolean post(OfflineMailbox mailbox, String userId, int i) {
+        return mailbox.post(userId, 3, i, new ByteArrayBuffer().writeInt(i));
+    }
+
+    static void assertLetters(List<Letter> letters, int from, int to) {
+        assertThat(letters).hasSize(to - from + 1);
+        for (int i = 0; i < letters.size(); i++) {
+            Letter letter = letters.get(i);
+            assertThat(letter.getMainNo()).isEqualTo(3);
+            assertThat(letter.getSubNo()).isEqualTo(from + i);
+            assertThat(letter.getBuffer().readInt()).isEqualTo(from + i);
+        }
+    }
+
+    List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(".mbx")).sorted().toList();
+        }
+    }
+
+    // ==================== 存入與取出 ====================
+
+    @Test
+    void pollsInPostOrder() {
+        try (OfflineMailbox mailbox = open()) {
+            for (int i = 1; i <= 10; i++) {
+                assertThat(post(mailbox, USER, i)).isTrue();
+            }
+            assertThat(mailbox.size(USER)).isEqualTo(10);
+
+            assertLetters(mailbox.poll(USER, 4), 1, 4);
+            assertLetters(mailbox.poll(USER, 100), 5, 10);
+            assertThat(mailbox.poll(USER, 100)).isEmpty();
+            assertThat(mailbox.size()).isZero();
+            assertThat(mailbox.getUserCount()).isZero();
+        }
+    }
+
+    @Test
+    void keepsUsersSeparate() {
+        try (OfflineMailbox mailbox = open()) {
+            for (int i = 1; i <= 3; i++) {
+                post(mailbox, USER, i);
+                post(mailbox, "bob", i + 100);
+            }
+            assertLetters(mailbox.poll(USER, 10), 1, 3);
+            assertLetters(mailbox.poll("bob", 10), 101, 103);
+        }
+    }
+
+    @Test
+    void postDoesNotMoveBufferIndexes() {
+        try (OfflineMailbox mailbox = open()) {
+            ByteArrayBuffer buffer = new ByteArrayBuffer().writeInt(1).writeInt(2);
+            buffer.readInt();
+            int readerIndex = buffer.readerIndex();
+            mailbox.post(USER, 3, 1, buffer);
+            assertThat(buffer.readerIndex()).isEqualTo(readerIndex);
+            // 存入的是 buffer 的全部資料
+            ByteArrayBuffer content = mailbox.poll(USER, 1).get(0).getBuffer();
+            assertThat(content.readInt()).isEqualTo(1);
+            assertThat(content.readInt()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void rejectsMessageLargerThanSegment() {
+        try (OfflineMailbox mailbox = OfflineMailbox.open(directory, RETENTION, 100, 1024, 8)) {
+            assertThat(mailbox.post(USER, 3, 1, new ByteArrayBuffer().writeBytes(new byte[2048]))).isFalse();
+            assertThat(mailbox.size()).isZero();
+        }
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThatThrownBy(() -> OfflineMailbox.open(directory, RETENTION, 0, 1024, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OfflineMailbox.open(directory, RETENTION, 10, 1024, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ==================== 重啟恢復 ====================
+
+    @Test
+    void acknowledgedMessagesStayPolledAfterReopen() {
+        try (OfflineMailbox mailbox = open()) {
+            for (int i = 1; i <= 5; i++) {
+                post(mailbox, USER, i);
+            }
+            assertLetters(mailbox.poll(USER, 2), 1, 2);
+        }
+        try (OfflineMailbox mailbox = open()) {
+            assertThat(mailbox.getRecoveredCount()).isEqualTo(3);
+            assertLetters(mailbox.poll(USER, 10), 3, 5);
+
+            // 恢復後的序號接續之前的序號，新消息的確認不會影響舊消息
+            post(mailbox, USER, 6);
+        }
+        try (OfflineMailbox mailbox = open()) {
+            assertThat(mailbox.getRecoveredCount()).isEqualTo(1);
+            assertLetters(mailbox.poll(USER, 10), 6, 6);
+        }
+    }
+
+    @Test
+    void dropsTornRecordAtTailAndKeepsEarlierOnes() throws IOException {
+        try (OfflineMailbox mailbox = open()) {
+            for (int i = 1; i <= 3; i++) {
+                post(mailbox, USER, i);
+            }
+        }
+        // 最後一筆記錄的內容寫到一半：內容與 CRC 不符
+        int last = SegmentLog.SEGMENT_HEADER + 2 * RECORD_LENGTH;
+        Path file = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0x7F }), last + RECORD_LENGTH - 1);
+        }
+
+        try (OfflineMailbox mailbox = open()) {
+            assertThat(mailbox.getRecoveredCount()).isEqualTo(2);
+            // 新記錄從中斷的位置繼續寫入
+            post(mailbox, USER, 4);
+        }
+        try (OfflineMailbox mailbox = open()) {
+            assertThat(mailbox.getRecoveredCount()).isEqualTo(3);
+            List<Letter> letters = mailbox.poll(USER, 10);
+            assertThat(letters).extracting(Letter::getSubNo).containsExactly(1, 2, 4);
+        }
+    }
+
+    // ==================== 容量上限 ====================
+
+    @Test
+    void dropsOldestWhenUserIsFull() {
+        try (OfflineMailbox mailbox = OfflineMailbox.open(directory, RETENTION, 3, 64 * 1024, 8)) {
+            for (int i = 1; i <= 5; i++) {
+                post(mailbox, USER, i);
+            }
+            assertThat(mailbox.size(USER)).isEqualTo(3);
+        }
+        try (OfflineMailbox mailbox = OfflineMailbox.open(directory, RETENTION, 3, 64 * 1024, 8)) {
+            // 捨棄的消息寫入了確認記錄，恢復時不會重新出現
+            assertThat(mailbox.getRecoveredCount()).isEqualTo(3);
+            assertLetters(mailbox.poll(USER, 10), 3, 5);
+        }
+    }
+
+    @Test
+    void dropsOldestSegmentAtSegmentLimit() throws IOException {
+        try (OfflineMailbox mailbox = OfflineMailbox.open(directory, RETENTION, 1000, 512, 2)) {
+            for (int i = 1; i <= 100; i++) {
+                assertThat(post(mailbox, USER, i)).isTrue();
+            }
+            assertThat(mailbox.getSegmentCount()).isLessThanOrEqualTo(2);
+            assertThat(segmentFiles()).hasSizeLessThanOrEqualTo(2);
+
+            // 保留的是最新的消息，仍依存入順序取出
+            int kept = mailbox.size(USER);
+            assertThat(kept).isBetween(1, 99);
+            assertLetters(mailbox.poll(USER, 1000), 101 - kept, 100);
+        }
+    }
+
+    @Test
+    void updateDeletesPolledSegments() throws IOException {
+        try (OfflineMailbox mailbox = OfflineMailbox.open(directory, RETENTION, 1000, 512, 64)) {
+            for (int i = 1; i <= 50; i++) {
+                post(mailbox, USER, i);
+            }
+            assertThat(mailbox.getSegmentCount()).isGreaterThan(2);
+
+            mailbox.poll(USER, 1000);
+            mailbox.update(System.currentTimeMillis());
+            assertThat(mailbox.getSegmentCount()).isEqualTo(1);
+            assertThat(segmentFiles()).hasSize(1);
+        }
+    }
+
+    @Test
+    void closedMailboxRejectsAccess() {
+        OfflineMailbox mailbox = open();
+        post(mailbox, USER, 1);
+        mailbox.close();
+        assertThat(post(mailbox, USER, 2)).isFalse();
+        assertThat(mailbox.poll(USER, 10)).isEmpty();
+        mailbox.close();
+    }
+}
@@ -0,0 +1,619 @@
+package com.vscodelife.socketio.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * {@code @MessageTag} 結構編解碼器產生器
+ *
+ * <p>
+ * 編譯期掃描帶有 {@code @MessageTag} 欄位的類別，為每個類別在同一套件下產生
+ * {@code <類別名稱>_StructCodec}，依 order 順序直接呼叫 {@code ByteArrayBuffer} 的讀寫方法，
+ * 產生的位元組格式與執行期反射序列化相同。
+ * </p>
+ *
+ * <ul>
+ * <li>同一類別（含父類別）中重複的 order 會產生編譯錯誤</li>
+ * <li>無法直接存取的私有欄位透過 getter/setter 讀寫（支援 Lombok 產生的存取方法）</li>
+ * <li>包含不支援型別的類別不產生編解碼器，執行期自動改用反射序列化</li>
+ * </ul>
+ */
+@SupportedAnnotationTypes(MessageTagProcessor.MESSAGE_TAG)
+public class MessageTagProcessor extends AbstractProcessor {
+    static final String MESSAGE_TAG = "com.vscodelife.socketio.annotation.MessageTag";
+
+    private static final String BUFFER = "com.vscodelife.socketio.buffer.ByteArrayBuffer";
+    private static final String STRUCT_CODEC = "com.vscodelife.socketio.buffer.StructCodec";
+    private static final String CODEC_SUFFIX = "_StructCodec";
+
+    // 基本型別與可直接讀寫的參考型別對應的 ByteArrayBuffer 方法名稱（不含 write/read 前綴）
+    private static final Map<String, String> VALUE_METHODS = new LinkedHashMap<>();
+
+    static {
+        VALUE_METHODS.put("boolean", "Bool");
+        VALUE_METHODS.put("byte", "Byte");
+        VALUE_METHODS.put("short", "Short");
+        VALUE_METHODS.put("char", "Char");
+        VALUE_METHODS.put("int", "Int");
+        VALUE_METHODS.put("long", "Long");
+        VALUE_METHODS.put("float", "Float");
+        VALUE_METHODS.put("double", "Double");
+        VALUE_METHODS.put("java.lang.Boolean", "Bool");
+        VALUE_METHODS.put("java.lang.Byte", "Byte");
+        VALUE_METHODS.put("java.lang.Short", "Short");
+        VALUE_METHODS.put("java.lang.Character", "Char");
+        VALUE_METHODS.put("java.lang.Integer", "Int");
+        VALUE_METHODS.put("java.lang.Long", "Long");
+        VALUE_METHODS.put("java.lang.Float", "Float");
+        VALUE_METHODS.put("java.lang.Double", "Double");
+        VALUE_METHODS.put("java.lang.String", "String");
+        VALUE_METHODS.put("java.util.Date", "Date");
+        VALUE_METHODS.put("java.time.LocalDateTime", "LocalDateTime");
+        VALUE_METHODS.put("java.math.BigDecimal", "BigDecimal");
+        VALUE_METHODS.put("java.math.BigInteger", "BigInteger");
+        VALUE_METHODS.put("int[]", "IntArray");
+        VALUE_METHODS.put("long[]", "LongArray");
+        VALUE_METHODS.put("float[]", "FloatArray");
+        VALUE_METHODS.put("double[]", "DoubleArray");
+    }
+
+    private final Set<String> processed = new HashSet<>();
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        messager = processingEnv.getMessager();
+
+        TypeElement messageTag = elements.getTypeElement(MESSAGE_TAG);
+        if (messageTag == null) {
+            return false;
+        }
+
+        Set<TypeElement> structTypes = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(messageTag)) {
+            if (element.getKind() == ElementKind.FIELD && element.getEnclosingElement() instanceof TypeElement) {
+                structTypes.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement type : structTypes) {
+            if (processed.add(elements.getBinaryName(type).toString())) {
+                generate(type);
+            }
+        }
+        // 不宣告處理完畢，讓其他處理器（例如 Lombok）照常運作
+        return false;
+    }
+
+    // ==================== 產生流程 ====================
+
+    private void generate(TypeElement type) {
+        List<VariableElement> fields = collectFields(type);
+        if (fields == null) {
+            return; // order 衝突，已回報編譯錯誤
+        }
+        if (!isGeneratable(type)) {
+            return;
+        }
+
+        List<FieldModel> models = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            FieldModel model = createModel(type, fields.get(i), i);
+            if (model == null) {
+                return;
+            }
+            models.add(model);
+        }
+
+        String packageName = getPackageName(type);
+        String codecSimpleName = flatName(type) + CODEC_SUFFIX;
+        String codecName = packageName.isEmpty() ? codecSimpleName : packageName + "." + codecSimpleName;
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile(codecName, type).openWriter();
+            try (writer) {
+                writer.write(render(type, packageName, codecSimpleName, models));
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "無法產生 " + codecName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * 收集類別與父類別的 @MessageTag 欄位並依 order 排序，order 重複時回報錯誤並回傳 null
+     */
+    private List<VariableElement> collectFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        Map<Integer, VariableElement> orders = new LinkedHashMap<>();
+        boolean conflict = false;
+
+        // 與執行期相同：先收集子類別欄位，再往上收集父類別欄位
+        TypeElement current = type;
+        while (current != null && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                AnnotationMirror tag = findAnnotation(field, MESSAGE_TAG);
+                if (tag == null || field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                int order = getOrder(tag);
+                VariableElement previous = orders.putIfAbsent(order, field);
+                if (previous != null) {
+                    messager.printMessage(Diagnostic.Kind.ERROR,
+                            String.format("@MessageTag order %d 重複: %s.%s 與 %s.%s", order,
+                                    previous.getEnclosingElement().getSimpleName(), previous.getSimpleName(),
+                                    field.getEnclosingElement().getSimpleName(), field.getSimpleName()),
+                            field);
+                    conflict = true;
+                }
+                fields.add(field);
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement()
+                    : null;
+        }
+        if (conflict) {
+            return null;
+        }
+
+        fields.sort((f1, f2) -> Integer.compare(getOrder(findAnnotation(f1, MESSAGE_TAG)),
+                getOrder(findAnnotation(f2, MESSAGE_TAG))));
+        return fields;
+    }
+
+    /**
+     * 檢查類別本身是否能由產生的程式碼建立實例
+     */
+    private boolean isGeneratable(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (type.getKind() != ElementKind.CLASS || modifiers.contains(Modifier.ABSTRACT)
+                || modifiers.contains(Modifier.PRIVATE) || !type.getTypeParameters().isEmpty()) {
+            return skip(type, "僅支援非抽象、非私有且沒有型別參數的類別");
+        }
+        for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+            TypeElement t = (TypeElement) enclosing;
+            if (t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)) {
+                return skip(type, "內部類別必須為 static");
+            }
+            if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                return skip(type, "不支援區域類別");
+            }
+        }
+        if (!hasNoArgConstructor(type)) {
+            return skip(type, "找不到可存取的無參數建構子");
+        }
+        return true;
+    }
+
+    private boolean hasNoArgConstructor(TypeElement type) {
+        if (hasAnnotation(type, "lombok.NoArgsConstructor")) {
+            return true;
+        }
+        // Lombok 產生建構子後編譯器不再提供預設建構子，此時只接受明確宣告的無參數建構子
+        boolean lombokConstructors = hasAnnotation(type, "lombok.AllArgsConstructor")
+                || hasAnnotation(type, "lombok.RequiredArgsConstructor")
+                || hasAnnotation(type, "lombok.Data")
+                || hasAnnotation(type, "lombok.Value");
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getParameters().isEmpty() || constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            if (!lombokConstructors || elements.getOrigin(constructor) == Elements.Origin.EXPLICIT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 建立欄位的讀寫描述，型別或存取方式不支援時回傳 null
+     */
+    private FieldModel createModel(TypeElement owner, VariableElement field, int index) {
+        if (field.getModifiers().contains(Modifier.FINAL)) {
+            return skipField(owner, field, "不支援 final 欄位");
+        }
+
+        TypeMirror fieldType = field.asType();
+        ValueCodec codec = valueCodec(fieldType);
+        ValueCodec elementCodec = null;
+        if (codec == null) {
+            elementCodec = listElementCodec(fieldType);
+            if (elementCodec == null) {
+                return skipField(owner, field, "不支援的型別 " + fieldType);
+            }
+        }
+
+        String name = field.getSimpleName().toString();
+        String getter;
+        String setter;
+        if (isDirectlyAccessible(owner, field)) {
+            getter = "value." + name;
+            setter = "value." + name + " = %s;";
+        } else {
+            String getterName = getterName(field);
+            String setterName = setterName(field);
+            if (!hasAccessor(owner, field, getterName, true) || !hasAccessor(owner, field, setterName, false)) {
+                return skipField(owner, field, "私有欄位缺少 " + getterName + "/" + setterName);
+            }
+            getter = "value." + getterName + "()";
+            setter = "value." + setterName + "(%s);";
+        }
+        return new FieldModel(index, name, fieldType, codec, elementCodec, getter, setter);
+    }
+
+    // ==================== 型別對應 ====================
+
+    /**
+     * 單一值（非 null）的讀寫程式碼
+     */
+    private static final class ValueCodec {
+        private final String typeName;
+        private final boolean primitive;
+        private final String writeFormat;
+        private final String readExpression;
+
+        private ValueCodec(String typeName, boolean primitive, String writeFormat, String readExpression) {
+            this.typeName = typeName;
+            this.primitive = primitive;
+            this.writeFormat = writeFormat;
+            this.readExpression = readExpression;
+        }
+
+        String write(String value) {
+            return String.format(writeFormat, value);
+        }
+    }
+
+    private ValueCodec valueCodec(TypeMirror type) {
+        String typeName = types.erasure(type).toString();
+        String method = VALUE_METHODS.get(typeName);
+        if (method != null) {
+            return new ValueCodec(typeName, type.getKind().isPrimitive(),
+                    "buffer.write" + method + "(%s);", "buffer.read" + method + "()");
+        }
+        if (type.getKind() == TypeKind.ARRAY
+                && ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE) {
+            return new ValueCodec("byte[]", false,
+                    "buffer.writeInt(%1$s.length);\n" + "buffer.writeBytes(%1$s);",
+                    "buffer.readBytes(buffer.readInt())");
+        }
+        if (type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).getTypeArguments().isEmpty()) {
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            String qualifiedName = element.getQualifiedName().toString();
+            boolean structLike = (element.getKind() == ElementKind.CLASS || element.getKind() == ElementKind.INTERFACE)
+                    && !qualifiedName.startsWith("java.") && !qualifiedName.startsWith("javax.");
+            if (structLike) {
+                // 巢狀結構沿用 writeStruct/readStruct（包含類型名稱，支援多型）
+                return new ValueCodec(qualifiedName, false, "buffer.writeStruct(%s);",
+                        "buffer.readStruct(" + qualifiedName + ".class)");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * List&lt;E&gt; 欄位的元素讀寫程式碼，不是 List 或元素型別不支援時回傳 null
+     */
+    private ValueCodec listElementCodec(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declared = (DeclaredType) type;
+        TypeElement element = (TypeElement) declared.asElement();
+        if (!element.getQualifiedName().contentEquals("java.util.List") || declared.getTypeArguments().size() != 1) {
+            return null;
+        }
+        TypeMirror elementType = declared.getTypeArguments().get(0);
+        if (elementType.getKind() != TypeKind.DECLARED && elementType.getKind() != TypeKind.ARRAY) {
+            return null;
+        }
+        return valueCodec(elementType);
+    }
+
+    // ==================== 欄位存取 ====================
+
+    private boolean isDirectlyAccessible(TypeElement owner, VariableElement field) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        // 套件可見與 protected 欄位只有在同一套件時可直接存取
+        return getPackageName((TypeElement) field.getEnclosingElement()).equals(getPackageName(owner));
+    }
+
+    private String getterName(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        if (field.asType().getKind() == TypeKind.BOOLEAN) {
+            // 與 Lombok 相同：isXxx 形式的 boolean 欄位 getter 不重複加上 is
+            return isPrefixed(name) ? name : "is" + capitalize(name);
+        }
+        return "get" + capitalize(name);
+    }
+
+    private String setterName(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        if (field.asType().getKind() == TypeKind.BOOLEAN && isPrefixed(name)) {
+            return "set" + name.substring(2);
+        }
+        return "set" + capitalize(name);
+    }
+
+    private static boolean isPrefixed(String name) {
+        return name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2));
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * 檢查存取方法是否存在，或是否會由 Lombok 產生
+     */
+    private boolean hasAccessor(TypeElement owner, VariableElement field, String methodName, boolean getter) {
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(owner))) {
+            if (method.getSimpleName().contentEquals(methodName)
+                    && method.getParameters().size() == (getter ? 0 : 1)
+                    && !method.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        Element declaring = field.getEnclosingElement();
+        String lombokAccessor = getter ? "lombok.Getter" : "lombok.Setter";
+        return hasAnnotation(field, lombokAccessor)
+                || hasAnnotation(declaring, lombokAccessor)
+                || hasAnnotation(declaring, "lombok.Data")
+                || (getter && hasAnnotation(declaring, "lombok.Value"));
+    }
+
+    // ==================== 原始碼輸出 ====================
+
+    private String render(TypeElement type, String packageName, String codecSimpleName, List<FieldModel> fields) {
+        String typeName = type.getQualifiedName().toString();
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("/**\n");
+        sb.append(" * {@link ").append(typeName).append("} 的結構編解碼器（由 socketio-processor 產生，請勿修改）\n");
+        sb.append(" */\n");
+        sb.append("@javax.annotation.processing.Generated(\"").append(MessageTagProcessor.class.getName())
+                .append("\")\n");
+        sb.append("public final class ").append(codecSimpleName).append(" implements ").append(STRUCT_CODEC)
+                .append("<").append(typeName).append("> {\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public void encode(").append(BUFFER).append(" buffer, ").append(typeName).append(" value) {\n");
+        for (FieldModel field : fields) {
+            appendIndented(sb, 2, "// order " + getOrder(findAnnotation(findField(type, field.name), MESSAGE_TAG))
+                    + ": " + field.name);
+            appendIndented(sb, 2, field.encode());
+        }
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public ").append(typeName).append(" decode(").append(BUFFER).append(" buffer) {\n");
+        sb.append("        ").append(typeName).append(" value = new ").append(typeName).append("();\n");
+        for (FieldModel field : fields) {
+            appendIndented(sb, 2, field.decode());
+        }
+        sb.append("        return value;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void appendIndented(StringBuilder sb, int level, String code) {
+        String indent = "    ".repeat(level);
+        for (String line : code.split("\n")) {
+            sb.append(indent).append(line).append('\n');
+        }
+    }
+
+    /**
+     * 單一欄位的讀寫程式碼，格式與 ByteArrayBuffer 反射序列化的標準格式一致
+     */
+    private static final class FieldModel {
+        private final int index;
+        private final String name;
+        private final TypeMirror type;
+        private final ValueCodec codec;
+        private final ValueCodec elementCodec;
+        private final String getter;
+        private final String setterFormat;
+
+        private FieldModel(int index, String name, TypeMirror type, ValueCodec codec, ValueCodec elementCodec,
+                String getter, String setterFormat) {
+            this.index = index;
+            this.name = name;
+            this.type = type;
+            this.codec = codec;
+            this.elementCodec = elementCodec;
+            this.getter = getter;
+            this.setterFormat = setterFormat;
+        }
+
+        private String set(String expression) {
+            return String.format(setterFormat, expression);
+        }
+
+        String encode() {
+            if (codec != null && codec.primitive) {
+                // 基本型別不可能為 null，固定寫入非 null 標記
+                return "buffer.writeBool(true);\n" + codec.write(getter);
+            }
+            String v = "v" + index;
+            StringBuilder sb = new StringBuilder();
+            sb.append(type).append(' ').append(v).append(" = ").append(getter).append(";\n");
+            sb.append("if (").append(v).append(" == null) {\n");
+            sb.append("    buffer.writeBool(false);\n");
+            sb.append("} else {\n");
+            sb.append("    buffer.writeBool(true);\n");
+            if (codec != null) {
+                sb.append(indent(codec.write(v)));
+            } else {
+                String e = "e" + index;
+                sb.append("    buffer.writeInt(").append(v).append(".size());\n");
+                sb.append("    for (").append(elementCodec.typeName).append(' ').append(e).append(" : ").append(v)
+                        .append(") {\n");
+                sb.append("        if (").append(e).append(" == null) {\n");
+                sb.append("            buffer.writeBool(false);\n");
+                sb.append("        } else {\n");
+                sb.append("            buffer.writeBool(true);\n");
+                sb.append(indent(indent(indent(elementCodec.write(e)))));
+                sb.append("        }\n");
+                sb.append("    }\n");
+            }
+            sb.append("}");
+            return sb.toString();
+        }
+
+        String decode() {
+            if (codec != null && codec.primitive) {
+                return "if (buffer.readBool()) {\n" + indent(set(codec.readExpression)) + "}";
+            }
+            if (codec != null) {
+                return set("buffer.readBool() ? " + codec.readExpression + " : null");
+            }
+            String size = "size" + index;
+            String list = "list" + index;
+            StringBuilder sb = new StringBuilder();
+            sb.append("if (buffer.readBool()) {\n");
+            sb.append("    int ").append(size).append(" = buffer.readInt();\n");
+            // 每個元素至少有 1 位元組的 null 標記，數量超過可讀位元組時在配置前拒絕
+            sb.append("    if (").append(size).append(" < 0 || ").append(size)
+                    .append(" > buffer.readableBytes()) {\n");
+            sb.append("        throw new IndexOutOfBoundsException(\"元素數量不合法: \" + ").append(size)
+                    .append(");\n");
+            sb.append("    }\n");
+            sb.append("    java.util.List<").append(elementCodec.typeName).append("> ").append(list)
+                    .append(" = new java.util.ArrayList<>(").append(size).append(");\n");
+            sb.append("    for (int i = 0; i < ").append(size).append("; i++) {\n");
+            sb.append("        ").append(list).append(".add(buffer.readBool() ? ")
+                    .append(elementCodec.readExpression).append(" : null);\n");
+            sb.append("    }\n");
+            sb.append(indent(set(list)));
+            sb.append("} else {\n");
+            sb.append(indent(set("null")));
+            sb.append("}");
+            return sb.toString();
+        }
+
+        private static String indent(String code) {
+            StringBuilder sb = new StringBuilder();
+            for (String line : code.split("\n")) {
+                sb.append("    ").append(line).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    private boolean skip(TypeElement type, String reason) {
+        messager.printMessage(Diagnostic.Kind.NOTE,
+                "略過 " + type.getQualifiedName() + " 的編解碼器產生（" + reason + "），執行期將使用反射序列化", type);
+        return false;
+    }
+
+    private FieldModel skipField(TypeElement owner, VariableElement field, String reason) {
+        skip(owner, field.getSimpleName() + ": " + reason);
+        return null;
+    }
+
+    private VariableElement findField(TypeElement type, String name) {
+        TypeElement current = type;
+        while (current != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(name) && findAnnotation(field, MESSAGE_TAG) != null) {
+                    return field;
+                }
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement()
+                    : null;
+        }
+        throw new IllegalStateException("找不到欄位: " + name);
+    }
+
+    private String getPackageName(TypeElement type) {
+        PackageElement pkg = elements.getPackageOf(type);
+        return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    }
+
+    /**
+     * 巢狀類別以 _ 連接外部類別名稱，與執行期的尋找規則一致
+     */
+    private String flatName(TypeElement type) {
+        String binaryName = elements.getBinaryName(type).toString();
+        String packageName = getPackageName(type);
+        String simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        return simpleName.replace('$', '_');
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return findAnnotation(element, annotationName) != null;
+    }
+
+    private static int getOrder(AnnotationMirror tag) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : tag.getElementValues()
+                .entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("order")) {
+                return (Integer) entry.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException("@MessageTag 缺少 order");
+    }
+}
@@ -0,0 +1,20 @@
+package com.vscodelife.socketio.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 宣告結構類型的數字編號
+ *
+ * <p>
+ * 帶有此註解的類別在 {@code writeStruct} 時以變長整數編號取代完整類別名稱，
+ * 編號在通訊雙方必須一致，範圍為 0 ~ {@code TypeRegistry.MAX_ID}。
+ * </p>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StructType {
+    int id();
+}
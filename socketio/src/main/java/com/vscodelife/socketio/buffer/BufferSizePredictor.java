@@ -0,0 +1,168 @@
+package com.vscodelife.socketio.buffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vscodelife.socketio.message.base.ProtocolKey;
+
+/**
+ * 依協議預測緩衝區初始容量
+ *
+ * <p>
+ * 參考 Netty {@code AdaptiveRecvByteBufAllocator} 的作法，為每個 {@link ProtocolKey}
+ * 記錄最近一次編碼後的大小，並從容量表中挑選剛好容納的大小作為下一次的初始容量：
+ * </p>
+ * <ul>
+ * <li>實際大小超過預測值時立即放大到足以容納的容量，下一次寫入不需要擴容</li>
+ * <li>連續兩次明顯小於預測值時才縮小一格，避免大小交錯的協議來回抖動</li>
+ * </ul>
+ *
+ * <h3>使用示例：</h3>
+ *
+ * <pre>{@code
+ * // 依協議預先配置容量
+ * ByteArrayBuffer buffer = ByteArrayBuffer.forProtocol(ProtocolId.GET_USER_LIST);
+ * buffer.writeList(users);
+ *
+ * // 打包送出前記錄實際大小
+ * BufferSizePredictor.getDefault().record(mainNo, subNo, buffer.writerIndex());
+ * }</pre>
+ */
+public class BufferSizePredictor {
+    public static final int DEFAULT_MINIMUM = 16;
+    public static final int DEFAULT_INITIAL = 256;
+    public static final int DEFAULT_MAXIMUM = 1024 * 1024;
+
+    private static final int INDEX_DECREMENT = 1;
+    private static final int[] SIZE_TABLE;
+
+    static {
+        List<Integer> sizeTable = new ArrayList<>();
+        // 512 以下以 16 為間隔，貼近小型回應的實際大小
+        for (int size = 16; size < 512; size += 16) {
+            sizeTable.add(size);
+        }
+        // 512 以上每格放大 1.25 倍並對齊 16，限制最大浪費比例
+        for (long size = 512; size <= (1 << 30); size = ((size + (size >> 2)) + 15) & ~15L) {
+            sizeTable.add((int) size);
+        }
+        SIZE_TABLE = sizeTable.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static final BufferSizePredictor DEFAULT = new BufferSizePredictor();
+
+    private final int minIndex;
+    private final int maxIndex;
+    private final int initialIndex;
+    private final Map<ProtocolKey, Handle> handles = new ConcurrentHashMap<>();
+
+    public BufferSizePredictor() {
+        this(DEFAULT_MINIMUM, DEFAULT_INITIAL, DEFAULT_MAXIMUM);
+    }
+
+    /**
+     * @param minimum 預測容量下限
+     * @param initial 尚無歷史紀錄時的預設容量
+     * @param maximum 預測容量上限（實際寫入超過時仍會自動擴容）
+     */
+    public BufferSizePredictor(int minimum, int initial, int maximum) {
+        if (minimum <= 0) {
+            throw new IllegalArgumentException("minimum: " + minimum);
+        }
+        if (initial < minimum) {
+            throw new IllegalArgumentException("initial: " + initial);
+        }
+        if (maximum < initial) {
+            throw new IllegalArgumentException("maximum: " + maximum);
+        }
+        this.minIndex = getSizeTableIndex(minimum);
+        int max = getSizeTableIndex(maximum);
+        if (SIZE_TABLE[max] > maximum) {
+            max--;
+        }
+        this.maxIndex = Math.max(minIndex, max);
+        this.initialIndex = Math.min(maxIndex, Math.max(minIndex, getSizeTableIndex(initial)));
+    }
+
+    public static BufferSizePredictor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 取得指定協議的預測容量
+     */
+    public int guess(ProtocolKey key) {
+        Handle handle = key == null ? null : handles.get(key);
+        return handle == null ? SIZE_TABLE[initialIndex] : handle.nextSize;
+    }
+
+    public int guess(int mainNo, int subNo) {
+        return guess(ProtocolKey.valueOf(mainNo, subNo));
+    }
+
+    /**
+     * 記錄指定協議實際編碼後的大小
+     */
+    public void record(ProtocolKey key, int actualSize) {
+        if (key == null || actualSize < 0) {
+            return;
+        }
+        Handle handle = handles.get(key);
+        if (handle == null) {
+            handle = handles.computeIfAbsent(key, k -> new Handle());
+        }
+        handle.record(actualSize);
+    }
+
+    public void record(int mainNo, int subNo, int actualSize) {
+        record(ProtocolKey.valueOf(mainNo, subNo), actualSize);
+    }
+
+    /**
+     * 清除所有協議的歷史紀錄
+     */
+    public void reset() {
+        handles.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BufferSizePredictor[min=%d initial=%d max=%d protocols=%d]",
+                SIZE_TABLE[minIndex], SIZE_TABLE[initialIndex], SIZE_TABLE[maxIndex], handles.size());
+    }
+
+    private static int getSizeTableIndex(int size) {
+        int index = Arrays.binarySearch(SIZE_TABLE, size);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, SIZE_TABLE.length - 1);
+    }
+
+    private class Handle {
+        private int index = initialIndex;
+        private boolean decreaseNow;
+        private volatile int nextSize = SIZE_TABLE[initialIndex];
+
+        synchronized void record(int actualSize) {
+            if (actualSize > SIZE_TABLE[index]) {
+                // 直接放大到足以容納的容量
+                index = Math.min(getSizeTableIndex(actualSize), maxIndex);
+                decreaseNow = false;
+            } else if (actualSize <= SIZE_TABLE[Math.max(0, index - INDEX_DECREMENT)]) {
+                if (decreaseNow) {
+                    index = Math.max(index - INDEX_DECREMENT, minIndex);
+                    decreaseNow = false;
+                } else {
+                    decreaseNow = true;
+                }
+            } else {
+                decreaseNow = false;
+            }
+            nextSize = SIZE_TABLE[index];
+        }
+    }
+}
@@ -2,13 +2,14 @@ package com.vscodelife.socketio.buffer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -16,11 +17,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import com.vscodelife.socketio.annotation.MessageTag;
+import com.vscodelife.socketio.compress.CompressionCodec;
+import com.vscodelife.socketio.compress.CompressionCodecs;
+import com.vscodelife.socketio.compress.CompressionPolicy;
+import com.vscodelife.socketio.message.base.ProtocolKey;
 import com.vscodelife.socketio.util.JsonUtil;
+import com.vscodelife.socketio.util.StringCache;
 
 /**
  * 可重複使用的位元組陣列緩衝區
@@ -32,7 +38,29 @@ public class ByteArrayBuffer implements Cloneable {
     // ==================== 常數定義 ====================
 
     private static final int DEFAULT_CAPACITY = 256;
+    private static final int MIN_CAPACITY = 16;
     private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    // 解壓縮後的長度上限，避免惡意資料宣告過大的原始長度
+    private static final int MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+    // 結構標記：null、類別名稱（與舊版的 true 標記相容）、TypeRegistry 編號
+    private static final byte STRUCT_NULL = 0;
+    private static final byte STRUCT_TYPE_NAME = 1;
+    private static final byte STRUCT_TYPE_ID = 2;
+
+    // 以 VarHandle 直接存取位元組陣列中的多位元組數值，由 JIT 編譯為單一讀寫指令
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class,
+            java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class,
+            java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class,
+            java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class,
+            java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            java.nio.ByteOrder.LITTLE_ENDIAN);
 
     /**
      * 字節序枚舉
@@ -50,6 +78,10 @@ public class ByteArrayBuffer implements Cloneable {
     private int capacity;
     private ByteOrder byteOrder;
 
+    // 緊湊結構編碼狀態，僅在 writeStructCompact/readStructCompact 呼叫期間有效
+    private boolean compactMode;
+    private long lastTimestamp;
+
     // ==================== 建構子 ====================
 
     /**
@@ -78,7 +110,7 @@ public class ByteArrayBuffer implements Cloneable {
         if (initialCapacity < 0) {
             throw new IllegalArgumentException("初始容量不能為負數: " + initialCapacity);
         }
-        this.capacity = Math.max(initialCapacity, DEFAULT_CAPACITY);
+        this.capacity = Math.max(initialCapacity, MIN_CAPACITY);
         this.buffer = new byte[this.capacity];
         this.writeIndex = 0;
         this.readIndex = 0;
@@ -100,6 +132,25 @@ public class ByteArrayBuffer implements Cloneable {
         this.byteOrder = byteOrder != null ? byteOrder : ByteOrder.BIG_ENDIAN;
     }
 
+    /**
+     * 依協議的歷史編碼大小預先配置容量
+     * 
+     * @param key 協議鍵
+     */
+    public static ByteArrayBuffer forProtocol(ProtocolKey key) {
+        return new ByteArrayBuffer(BufferSizePredictor.getDefault().guess(key));
+    }
+
+    /**
+     * 依協議的歷史編碼大小預先配置容量
+     * 
+     * @param mainNo 主協議號
+     * @param subNo  子協議號
+     */
+    public static ByteArrayBuffer forProtocol(int mainNo, int subNo) {
+        return new ByteArrayBuffer(BufferSizePredictor.getDefault().guess(mainNo, subNo));
+    }
+
     // ==================== 緩衝區控制方法 ====================
 
     /**
@@ -157,6 +208,25 @@ public class ByteArrayBuffer implements Cloneable {
         }
     }
 
+    /**
+     * 建立共用底層陣列的緩衝區，讀寫索引與此緩衝區獨立（內部使用）
+     */
+    ByteArrayBuffer duplicate() {
+        ByteArrayBuffer duplicate = new ByteArrayBuffer(0, this.byteOrder);
+        duplicate.buffer = this.buffer;
+        duplicate.capacity = this.capacity;
+        duplicate.writeIndex = this.writeIndex;
+        duplicate.readIndex = this.readIndex;
+        return duplicate;
+    }
+
+    /**
+     * 取得底層陣列（內部使用）
+     */
+    byte[] array() {
+        return buffer;
+    }
+
     // ==================== 容量管理方法 ====================
 
     /**
@@ -184,7 +254,7 @@ public class ByteArrayBuffer implements Cloneable {
 
         int newCapacity = capacity;
         while (newCapacity < minCapacity) {
-            newCapacity = Math.min(newCapacity * 2, MAX_CAPACITY);
+            newCapacity = (int) Math.min((long) newCapacity * 2, MAX_CAPACITY);
         }
         return newCapacity;
     }
@@ -197,18 +267,11 @@ public class ByteArrayBuffer implements Cloneable {
     public ByteArrayBuffer writeInt(int value) {
         ensureCapacity(writeIndex + 4);
         if (byteOrder == ByteOrder.BIG_ENDIAN) {
-            // Big-Endian（網絡字節序）
-            buffer[writeIndex++] = (byte) (value >>> 24);
-            buffer[writeIndex++] = (byte) (value >>> 16);
-            buffer[writeIndex++] = (byte) (value >>> 8);
-            buffer[writeIndex++] = (byte) value;
+            INT_BE.set(buffer, writeIndex, value);
         } else {
-            // Little-Endian
-            buffer[writeIndex++] = (byte) value;
-            buffer[writeIndex++] = (byte) (value >>> 8);
-            buffer[writeIndex++] = (byte) (value >>> 16);
-            buffer[writeIndex++] = (byte) (value >>> 24);
+            INT_LE.set(buffer, writeIndex, value);
         }
+        writeIndex += 4;
         return this;
     }
 
@@ -218,26 +281,11 @@ public class ByteArrayBuffer implements Cloneable {
     public ByteArrayBuffer writeLong(long value) {
         ensureCapacity(writeIndex + 8);
         if (byteOrder == ByteOrder.BIG_ENDIAN) {
-            // Big-Endian（網絡字節序）
-            buffer[writeIndex++] = (byte) (value >>> 56);
-            buffer[writeIndex++] = (byte) (value >>> 48);
-            buffer[writeIndex++] = (byte) (value >>> 40);
-            buffer[writeIndex++] = (byte) (value >>> 32);
-            buffer[writeIndex++] = (byte) (value >>> 24);
-            buffer[writeIndex++] = (byte) (value >>> 16);
-            buffer[writeIndex++] = (byte) (value >>> 8);
-            buffer[writeIndex++] = (byte) value;
+            LONG_BE.set(buffer, writeIndex, value);
         } else {
-            // Little-Endian
-            buffer[writeIndex++] = (byte) value;
-            buffer[writeIndex++] = (byte) (value >>> 8);
-            buffer[writeIndex++] = (byte) (value >>> 16);
-            buffer[writeIndex++] = (byte) (value >>> 24);
-            buffer[writeIndex++] = (byte) (value >>> 32);
-            buffer[writeIndex++] = (byte) (value >>> 40);
-            buffer[writeIndex++] = (byte) (value >>> 48);
-            buffer[writeIndex++] = (byte) (value >>> 56);
+            LONG_LE.set(buffer, writeIndex, value);
         }
+        writeIndex += 8;
         return this;
     }
 
@@ -247,14 +295,11 @@ public class ByteArrayBuffer implements Cloneable {
     public ByteArrayBuffer writeShort(short value) {
         ensureCapacity(writeIndex + 2);
         if (byteOrder == ByteOrder.BIG_ENDIAN) {
-            // Big-Endian（網絡字節序）
-            buffer[writeIndex++] = (byte) (value >>> 8);
-            buffer[writeIndex++] = (byte) value;
+            SHORT_BE.set(buffer, writeIndex, value);
         } else {
-            // Little-Endian
-            buffer[writeIndex++] = (byte) value;
-            buffer[writeIndex++] = (byte) (value >>> 8);
+            SHORT_LE.set(buffer, writeIndex, value);
         }
+        writeIndex += 2;
         return this;
     }
 
@@ -306,9 +351,9 @@ public class ByteArrayBuffer implements Cloneable {
             return writeInt(-1);
         }
 
-        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
-        writeInt(bytes.length);
-        return writeBytes(bytes);
+        int length = utf8Length(value);
+        writeInt(length);
+        return writeUtf8(value, length);
     }
 
     /**
@@ -325,6 +370,21 @@ public class ByteArrayBuffer implements Cloneable {
         return this;
     }
 
+    /**
+     * 寫入位元組陣列的指定區段
+     */
+    public ByteArrayBuffer writeBytes(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+            return this;
+        }
+
+        ensureCapacity(writeIndex + length);
+        System.arraycopy(bytes, offset, buffer, writeIndex, length);
+        writeIndex += length;
+        return this;
+    }
+
     /**
      * 寫入 Date 物件
      * 格式: [時間戳記(8 bytes)]
@@ -377,6 +437,234 @@ public class ByteArrayBuffer implements Cloneable {
         return writeBigInteger(value.unscaledValue());
     }
 
+    // ==================== 基本型別陣列寫入方法 ====================
+
+    /**
+     * 寫入整數陣列
+     * 格式: [陣列長度(4 bytes)][元素資料(長度 * 4 bytes)]，長度 -1 表示 null
+     */
+    public ByteArrayBuffer writeIntArray(int[] values) {
+        if (values == null) {
+            return writeInt(-1);
+        }
+        writeInt(values.length);
+        return putInts(values);
+    }
+
+    /**
+     * 寫入長整數陣列
+     * 格式: [陣列長度(4 bytes)][元素資料(長度 * 8 bytes)]，長度 -1 表示 null
+     */
+    public ByteArrayBuffer writeLongArray(long[] values) {
+        if (values == null) {
+            return writeInt(-1);
+        }
+        writeInt(values.length);
+        return putLongs(values);
+    }
+
+    /**
+     * 寫入浮點數陣列
+     * 格式: [陣列長度(4 bytes)][元素資料(長度 * 4 bytes)]，長度 -1 表示 null
+     */
+    public ByteArrayBuffer writeFloatArray(float[] values) {
+        if (values == null) {
+            return writeInt(-1);
+        }
+        writeInt(values.length);
+        return putFloats(values);
+    }
+
+    /**
+     * 寫入雙精度浮點數陣列
+     * 格式: [陣列長度(4 bytes)][元素資料(長度 * 8 bytes)]，長度 -1 表示 null
+     */
+    public ByteArrayBuffer writeDoubleArray(double[] values) {
+        if (values == null) {
+            return writeInt(-1);
+        }
+        writeInt(values.length);
+        return putDoubles(values);
+    }
+
+    private ByteArrayBuffer putInts(int[] values) {
+        int length = Math.multiplyExact(values.length, 4);
+        ensureCapacity(writeIndex + length);
+        wrapWritable(length).asIntBuffer().put(values);
+        writeIndex += length;
+        return this;
+    }
+
+    private ByteArrayBuffer putLongs(long[] values) {
+        int length = Math.multiplyExact(values.length, 8);
+        ensureCapacity(writeIndex + length);
+        wrapWritable(length).asLongBuffer().put(values);
+        writeIndex += length;
+        return this;
+    }
+
+    private ByteArrayBuffer putFloats(float[] values) {
+        int length = Math.multiplyExact(values.length, 4);
+        ensureCapacity(writeIndex + length);
+        wrapWritable(length).asFloatBuffer().put(values);
+        writeIndex += length;
+        return this;
+    }
+
+    private ByteArrayBuffer putDoubles(double[] values) {
+        int length = Math.multiplyExact(values.length, 8);
+        ensureCapacity(writeIndex + length);
+        wrapWritable(length).asDoubleBuffer().put(values);
+        writeIndex += length;
+        return this;
+    }
+
+    /**
+     * 以 NIO 視圖包裝寫入位置之後的區段，批次寫入時由 JDK 以區塊複製完成
+     */
+    private ByteBuffer wrapWritable(int length) {
+        return ByteBuffer.wrap(buffer, writeIndex, length).order(nioByteOrder());
+    }
+
+    private java.nio.ByteOrder nioByteOrder() {
+        return byteOrder == ByteOrder.BIG_ENDIAN ? java.nio.ByteOrder.BIG_ENDIAN : java.nio.ByteOrder.LITTLE_ENDIAN;
+    }
+
+    // ==================== 變長整數寫入方法 ====================
+
+    /**
+     * 寫入無號變長整數（LEB128）
+     * 每個位元組使用低 7 位元存放資料、最高位元表示後續是否還有位元組，0~127 僅佔 1 byte，最多 5 bytes
+     * 負數會被視為無號整數而佔用 5 bytes，有號數值請使用 {@link #writeSignedVarInt(int)}
+     */
+    public ByteArrayBuffer writeVarInt(int value) {
+        ensureCapacity(writeIndex + 5);
+        while ((value & ~0x7F) != 0) {
+            buffer[writeIndex++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[writeIndex++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * 寫入無號變長長整數（LEB128），最多 10 bytes
+     */
+    public ByteArrayBuffer writeVarLong(long value) {
+        ensureCapacity(writeIndex + 10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[writeIndex++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[writeIndex++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * 寫入有號變長整數（ZigZag + LEB128）
+     * ZigZag 將正負數交錯對應為無號數（0→0, -1→1, 1→2, -2→3），絕對值小的負數同樣只佔少量位元組
+     */
+    public ByteArrayBuffer writeSignedVarInt(int value) {
+        return writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * 寫入有號變長長整數（ZigZag + LEB128）
+     */
+    public ByteArrayBuffer writeSignedVarLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * 寫入變長長度前綴的字串 (UTF-8 編碼)
+     * 格式: [長度 + 1(varint)][字串資料]，長度前綴 0 表示 null
+     */
+    public ByteArrayBuffer writeVarString(String value) {
+        if (value == null) {
+            return writeVarInt(0);
+        }
+
+        int length = utf8Length(value);
+        writeVarInt(length + 1);
+        return writeUtf8(value, length);
+    }
+
+    /**
+     * 計算字串以 UTF-8 編碼後的位元組長度，與 {@code String.getBytes(UTF_8)} 一致（孤立代理字元編碼為 '?'）
+     */
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // 代理對共 2 個字元編碼為 4 bytes
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 將字串以 UTF-8 直接編碼到底層陣列，不建立暫存位元組陣列
+     *
+     * @param length 預先以 {@link #utf8Length(String)} 計算的位元組長度
+     */
+    private ByteArrayBuffer writeUtf8(String value, int length) {
+        ensureCapacity(writeIndex + length);
+        int chars = value.length();
+        if (length == chars) {
+            // 每個字元都只佔 1 byte：ASCII 直接寫入，其餘只可能是孤立代理字元
+            byte[] buf = buffer;
+            int offset = writeIndex;
+            for (int i = 0; i < chars; i++) {
+                char c = value.charAt(i);
+                buf[offset + i] = c < 0x80 ? (byte) c : (byte) '?';
+            }
+            writeIndex += length;
+            return this;
+        }
+
+        int index = writeIndex;
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[index++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[index++] = (byte) (0xC0 | (c >> 6));
+                buffer[index++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                char low;
+                if (Character.isHighSurrogate(c) && i + 1 < chars
+                        && Character.isLowSurrogate(low = value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, low);
+                    buffer[index++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[index++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[index++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[index++] = (byte) (0x80 | (codePoint & 0x3F));
+                    i++;
+                } else {
+                    buffer[index++] = (byte) '?';
+                }
+            } else {
+                buffer[index++] = (byte) (0xE0 | (c >> 12));
+                buffer[index++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[index++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeIndex = index;
+        return this;
+    }
+
     // ==================== JSON 支援方法 ====================
 
     /**
@@ -484,20 +772,9 @@ public class ByteArrayBuffer implements Cloneable {
      */
     public int readInt() {
         checkReadableBytes(4);
-        int value;
-        if (byteOrder == ByteOrder.BIG_ENDIAN) {
-            // Big-Endian（網絡字節序）
-            value = ((buffer[readIndex] & 0xFF) << 24) |
-                    ((buffer[readIndex + 1] & 0xFF) << 16) |
-                    ((buffer[readIndex + 2] & 0xFF) << 8) |
-                    (buffer[readIndex + 3] & 0xFF);
-        } else {
-            // Little-Endian
-            value = (buffer[readIndex] & 0xFF) |
-                    ((buffer[readIndex + 1] & 0xFF) << 8) |
-                    ((buffer[readIndex + 2] & 0xFF) << 16) |
-                    ((buffer[readIndex + 3] & 0xFF) << 24);
-        }
+        int value = byteOrder == ByteOrder.BIG_ENDIAN
+                ? (int) INT_BE.get(buffer, readIndex)
+                : (int) INT_LE.get(buffer, readIndex);
         readIndex += 4;
         return value;
     }
@@ -507,28 +784,9 @@ public class ByteArrayBuffer implements Cloneable {
      */
     public long readLong() {
         checkReadableBytes(8);
-        long value;
-        if (byteOrder == ByteOrder.BIG_ENDIAN) {
-            // Big-Endian（網絡字節序）
-            value = ((long) (buffer[readIndex] & 0xFF) << 56) |
-                    ((long) (buffer[readIndex + 1] & 0xFF) << 48) |
-                    ((long) (buffer[readIndex + 2] & 0xFF) << 40) |
-                    ((long) (buffer[readIndex + 3] & 0xFF) << 32) |
-                    ((long) (buffer[readIndex + 4] & 0xFF) << 24) |
-                    ((long) (buffer[readIndex + 5] & 0xFF) << 16) |
-                    ((long) (buffer[readIndex + 6] & 0xFF) << 8) |
-                    (long) (buffer[readIndex + 7] & 0xFF);
-        } else {
-            // Little-Endian
-            value = (long) (buffer[readIndex] & 0xFF) |
-                    ((long) (buffer[readIndex + 1] & 0xFF) << 8) |
-                    ((long) (buffer[readIndex + 2] & 0xFF) << 16) |
-                    ((long) (buffer[readIndex + 3] & 0xFF) << 24) |
-                    ((long) (buffer[readIndex + 4] & 0xFF) << 32) |
-                    ((long) (buffer[readIndex + 5] & 0xFF) << 40) |
-                    ((long) (buffer[readIndex + 6] & 0xFF) << 48) |
-                    ((long) (buffer[readIndex + 7] & 0xFF) << 56);
-        }
+        long value = byteOrder == ByteOrder.BIG_ENDIAN
+                ? (long) LONG_BE.get(buffer, readIndex)
+                : (long) LONG_LE.get(buffer, readIndex);
         readIndex += 8;
         return value;
     }
@@ -538,16 +796,9 @@ public class ByteArrayBuffer implements Cloneable {
      */
     public short readShort() {
         checkReadableBytes(2);
-        short value;
-        if (byteOrder == ByteOrder.BIG_ENDIAN) {
-            // Big-Endian（網絡字節序）
-            value = (short) (((buffer[readIndex] & 0xFF) << 8) |
-                    (buffer[readIndex + 1] & 0xFF));
-        } else {
-            // Little-Endian
-            value = (short) ((buffer[readIndex] & 0xFF) |
-                    ((buffer[readIndex + 1] & 0xFF) << 8));
-        }
+        short value = byteOrder == ByteOrder.BIG_ENDIAN
+                ? (short) SHORT_BE.get(buffer, readIndex)
+                : (short) SHORT_LE.get(buffer, readIndex);
         readIndex += 2;
         return value;
     }
@@ -603,10 +854,9 @@ public class ByteArrayBuffer implements Cloneable {
         }
 
         checkReadableBytes(length);
-        byte[] bytes = new byte[length];
-        System.arraycopy(buffer, readIndex, bytes, 0, length);
+        String value = StringCache.decode(buffer, readIndex, length);
         readIndex += length;
-        return new String(bytes, StandardCharsets.UTF_8);
+        return value;
     }
 
     /**
@@ -679,6 +929,172 @@ public class ByteArrayBuffer implements Cloneable {
         return new BigDecimal(unscaledValue, scale);
     }
 
+    // ==================== 基本型別陣列讀取方法 ====================
+
+    /**
+     * 讀取整數陣列
+     */
+    public int[] readIntArray() {
+        int size = readArraySize();
+        if (size < 0) {
+            return null;
+        }
+        return getInts(size);
+    }
+
+    /**
+     * 讀取長整數陣列
+     */
+    public long[] readLongArray() {
+        int size = readArraySize();
+        if (size < 0) {
+            return null;
+        }
+        return getLongs(size);
+    }
+
+    /**
+     * 讀取浮點數陣列
+     */
+    public float[] readFloatArray() {
+        int size = readArraySize();
+        if (size < 0) {
+            return null;
+        }
+        return getFloats(size);
+    }
+
+    /**
+     * 讀取雙精度浮點數陣列
+     */
+    public double[] readDoubleArray() {
+        int size = readArraySize();
+        if (size < 0) {
+            return null;
+        }
+        return getDoubles(size);
+    }
+
+    /**
+     * 讀取陣列長度，-1 表示 null，其他負數視為資料錯誤
+     */
+    private int readArraySize() {
+        int size = readInt();
+        if (size < -1) {
+            throw new IllegalStateException("無效的陣列長度: " + size);
+        }
+        return size;
+    }
+
+    private int[] getInts(int size) {
+        int length = Math.multiplyExact(size, 4);
+        checkReadableBytes(length);
+        int[] values = new int[size];
+        wrapReadable(length).asIntBuffer().get(values);
+        readIndex += length;
+        return values;
+    }
+
+    private long[] getLongs(int size) {
+        int length = Math.multiplyExact(size, 8);
+        checkReadableBytes(length);
+        long[] values = new long[size];
+        wrapReadable(length).asLongBuffer().get(values);
+        readIndex += length;
+        return values;
+    }
+
+    private float[] getFloats(int size) {
+        int length = Math.multiplyExact(size, 4);
+        checkReadableBytes(length);
+        float[] values = new float[size];
+        wrapReadable(length).asFloatBuffer().get(values);
+        readIndex += length;
+        return values;
+    }
+
+    private double[] getDoubles(int size) {
+        int length = Math.multiplyExact(size, 8);
+        checkReadableBytes(length);
+        double[] values = new double[size];
+        wrapReadable(length).asDoubleBuffer().get(values);
+        readIndex += length;
+        return values;
+    }
+
+    private ByteBuffer wrapReadable(int length) {
+        return ByteBuffer.wrap(buffer, readIndex, length).order(nioByteOrder());
+    }
+
+    // ==================== 變長整數讀取方法 ====================
+
+    /**
+     * 讀取無號變長整數（LEB128）
+     */
+    public int readVarInt() {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("無效的 varint 編碼: 超過 5 bytes");
+    }
+
+    /**
+     * 讀取無號變長長整數（LEB128）
+     */
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("無效的 varlong 編碼: 超過 10 bytes");
+    }
+
+    /**
+     * 讀取有號變長整數（ZigZag + LEB128）
+     */
+    public int readSignedVarInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 讀取有號變長長整數（ZigZag + LEB128）
+     */
+    public long readSignedVarLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 讀取變長長度前綴的字串
+     */
+    public String readVarString() {
+        int length = readVarInt() - 1;
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IllegalStateException("無效的字串長度: " + length);
+        }
+        if (length == 0) {
+            return "";
+        }
+
+        checkReadableBytes(length);
+        String value = StringCache.decode(buffer, readIndex, length);
+        readIndex += length;
+        return value;
+    }
+
     // ==================== JSON 支援讀取方法 ====================
 
     /**
@@ -714,6 +1130,8 @@ public class ByteArrayBuffer implements Cloneable {
             if (size == -1) {
                 return null; // null 列表
             }
+            // 每個元素至少有 1 位元組的 null 標記
+            checkElementCount(size, 1);
 
             List<T> list = new ArrayList<>(size);
 
@@ -824,6 +1242,13 @@ public class ByteArrayBuffer implements Cloneable {
         return Arrays.copyOfRange(buffer, 0, writeIndex);
     }
 
+    /**
+     * 以唯讀的 ByteBuffer 檢視可讀取的數據，共用底層陣列不複製，也不移動讀取索引
+     */
+    public ByteBuffer nioBuffer() {
+        return ByteBuffer.wrap(buffer, readIndex, writeIndex - readIndex).slice().asReadOnlyBuffer();
+    }
+
     /**
      * 寫入結構化物件
      * 使用 @MessageTag 註解標記的欄位會按照 order 順序進行序列化
@@ -836,13 +1261,22 @@ public class ByteArrayBuffer implements Cloneable {
     public ByteArrayBuffer writeStruct(Object obj) {
         try {
             if (obj == null) {
-                writeBool(false);
+                writeByte(STRUCT_NULL);
                 return this;
             }
-            writeBool(true);
 
-            // 寫入實際類型名稱以便反序列化時能正確建立物件
-            writeString(obj.getClass().getName());
+            // 寫入實際類型以便反序列化時能正確建立物件，已註冊的類型只寫入編號
+            int typeId = TypeRegistry.idOf(obj.getClass());
+            if (typeId >= 0) {
+                writeByte(STRUCT_TYPE_ID);
+                writeVarInt(typeId);
+            } else if (compactMode) {
+                writeByte(STRUCT_TYPE_NAME);
+                writeVarString(obj.getClass().getName());
+            } else {
+                writeByte(STRUCT_TYPE_NAME);
+                writeString(obj.getClass().getName());
+            }
 
             return writeStructValue(obj);
         } catch (Throwable e) {
@@ -850,56 +1284,151 @@ public class ByteArrayBuffer implements Cloneable {
         }
     }
 
+    /**
+     * 以緊湊格式寫入結構化物件
+     * 與 {@link #writeStruct(Object)} 支援相同的欄位類型，但改用較省空間的編碼：
+     * <ul>
+     * <li>長度、大小與整數欄位使用變長整數（有號數值使用 ZigZag）</li>
+     * <li>每個結構的欄位 null 標記合併為位元圖，每 8 個欄位佔 1 byte</li>
+     * <li>Date/LocalDateTime 以與前一個時間戳記的差值寫入</li>
+     * </ul>
+     * 緊湊格式與標準格式不相容，必須使用 {@link #readStructCompact(Class)} 讀取
+     *
+     * @param obj 要序列化的物件
+     */
+    public ByteArrayBuffer writeStructCompact(Object obj) {
+        boolean previousMode = compactMode;
+        compactMode = true;
+        if (!previousMode) {
+            lastTimestamp = 0L;
+        }
+        try {
+            return writeStruct(obj);
+        } finally {
+            compactMode = previousMode;
+        }
+    }
+
     /**
      * 寫入結構化物件的值（內部使用）
      */
     private ByteArrayBuffer writeStructValue(Object obj) throws Throwable {
-        Class<?> clazz = obj.getClass();
-
-        // 收集所有帶有 @MessageTag 註解的欄位（包括父類別）
-        Field[] fields = getAllMessageTagFields(clazz);
+        // 取得快取的欄位描述（帶有 @MessageTag 註解的欄位，包括父類別）
+        StructSchema schema = StructSchema.of(obj.getClass());
+        if (compactMode) {
+            return writeCompactStructValue(obj, schema);
+        }
+        // 優先使用編譯期產生的編解碼器
+        if (schema.getCodec() != null) {
+            schema.getCodec().encode(this, obj);
+            return this;
+        }
 
-        for (Field field : fields) {
-            field.setAccessible(true);
-            Object fieldValue = field.get(obj);
-            writeFieldValue(field, fieldValue);
+        for (StructSchema.FieldCodec codec : schema.getFields()) {
+            if (codec.isPrimitive()) {
+                // 基本型別欄位不可能為 null，直接以精確型別讀取，不經過裝箱
+                writeBool(true);
+                writePrimitiveField(codec, obj);
+            } else {
+                writeFieldValue(codec, codec.get(obj));
+            }
         }
 
         return this;
     }
 
     /**
-     * 寫入欄位值（支援泛型）
+     * 以緊湊格式寫入結構欄位
+     * 格式: [null 位元圖((欄位數 + 7) / 8 bytes)][非 null 欄位資料]
      */
-    private ByteArrayBuffer writeFieldValue(Field field, Object value) throws Throwable {
-        Class<?> fieldType = field.getType();
+    private ByteArrayBuffer writeCompactStructValue(Object obj, StructSchema schema) throws Throwable {
+        StructSchema.FieldCodec[] fields = schema.getFields();
+        Object[] values = new Object[fields.length];
+        byte[] bitmap = new byte[(fields.length + 7) >>> 3];
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].isPrimitive() || (values[i] = fields[i].get(obj)) != null) {
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        writeBytes(bitmap);
+
+        for (int i = 0; i < fields.length; i++) {
+            StructSchema.FieldCodec codec = fields[i];
+            if (codec.isPrimitive()) {
+                writePrimitiveField(codec, obj);
+            } else if (values[i] != null) {
+                if (codec.getParameterizedType() != null) {
+                    writeParameterizedBody(codec.getParameterizedType(), values[i]);
+                } else {
+                    writeValueBody(codec.getType(), values[i]);
+                }
+            }
+        }
+        return this;
+    }
 
+    /**
+     * 寫入基本型別欄位的值，緊湊格式下整數類使用變長編碼
+     */
+    private ByteArrayBuffer writePrimitiveField(StructSchema.FieldCodec codec, Object obj) throws Throwable {
+        switch (codec.getKind()) {
+            case StructSchema.KIND_BOOLEAN:
+                return writeBool(codec.getBoolean(obj));
+            case StructSchema.KIND_BYTE:
+                return writeByte(codec.getByte(obj));
+            case StructSchema.KIND_SHORT:
+                return compactMode ? writeSignedVarInt(codec.getShort(obj)) : writeShort(codec.getShort(obj));
+            case StructSchema.KIND_CHAR:
+                return compactMode ? writeVarInt(codec.getChar(obj)) : writeChar(codec.getChar(obj));
+            case StructSchema.KIND_INT:
+                return compactMode ? writeSignedVarInt(codec.getInt(obj)) : writeInt(codec.getInt(obj));
+            case StructSchema.KIND_LONG:
+                return compactMode ? writeSignedVarLong(codec.getLong(obj)) : writeLong(codec.getLong(obj));
+            case StructSchema.KIND_FLOAT:
+                return writeFloat(codec.getFloat(obj));
+            case StructSchema.KIND_DOUBLE:
+                return writeDouble(codec.getDouble(obj));
+            default:
+                throw new IllegalStateException("非基本型別欄位: " + codec.getField());
+        }
+    }
+
+    /**
+     * 寫入欄位值（支援泛型）
+     */
+    private ByteArrayBuffer writeFieldValue(StructSchema.FieldCodec codec, Object value) throws Throwable {
         // 檢查是否為泛型欄位（如 List<User>）
-        Type genericType = field.getGenericType();
-        if (genericType instanceof ParameterizedType) {
-            return writeParameterizedValue((ParameterizedType) genericType, value);
+        if (codec.getParameterizedType() != null) {
+            return writeParameterizedValue(codec.getParameterizedType(), value);
         }
 
         // 非泛型欄位使用原有邏輯
-        return writeValue(fieldType, value);
+        return writeValue(codec.getType(), value);
     }
 
     /**
      * 寫入參數化類型值（如 List<User>）
      */
     private ByteArrayBuffer writeParameterizedValue(ParameterizedType paramType, Object value) throws Throwable {
-        Class<?> rawType = (Class<?>) paramType.getRawType();
-
         // null 值處理
         if (value == null) {
             return writeBool(false);
         }
         writeBool(true); // 非 null 標記
 
+        return writeParameterizedBody(paramType, value);
+    }
+
+    /**
+     * 寫入非 null 的參數化類型值內容
+     */
+    private ByteArrayBuffer writeParameterizedBody(ParameterizedType paramType, Object value) throws Throwable {
+        Class<?> rawType = (Class<?>) paramType.getRawType();
+
         // 處理 List 類型
         if (List.class.isAssignableFrom(rawType)) {
             List<?> list = (List<?>) value;
-            writeInt(list.size()); // 寫入列表大小
+            writeLength(list.size()); // 寫入列表大小
 
             // 獲取泛型參數類型
             Type[] typeArguments = paramType.getActualTypeArguments();
@@ -938,6 +1467,42 @@ public class ByteArrayBuffer implements Cloneable {
         }
         writeBool(true); // 非 null 標記
 
+        return writeValueBody(clazz, value);
+    }
+
+    /**
+     * 寫入非 null 值的內容
+     */
+    private ByteArrayBuffer writeValueBody(Class<?> clazz, Object value) throws Throwable {
+        if (compactMode) {
+            // 緊湊格式下整數、長度與時間戳記改用變長編碼
+            if (clazz == Short.class || clazz == short.class) {
+                return writeSignedVarInt((Short) value);
+            } else if (clazz == Character.class || clazz == char.class) {
+                return writeVarInt((Character) value);
+            } else if (clazz == Integer.class || clazz == int.class) {
+                return writeSignedVarInt((Integer) value);
+            } else if (clazz == Long.class || clazz == long.class) {
+                return writeSignedVarLong((Long) value);
+            } else if (clazz == String.class) {
+                return writeVarString((String) value);
+            } else if (clazz == BigDecimal.class) {
+                BigDecimal decimal = (BigDecimal) value;
+                writeSignedVarInt(decimal.scale());
+                byte[] bytes = decimal.unscaledValue().toByteArray();
+                writeVarInt(bytes.length);
+                return writeBytes(bytes);
+            } else if (clazz == BigInteger.class) {
+                byte[] bytes = ((BigInteger) value).toByteArray();
+                writeVarInt(bytes.length);
+                return writeBytes(bytes);
+            } else if (clazz == Date.class) {
+                return writeTimestampDelta(((Date) value).getTime());
+            } else if (clazz == LocalDateTime.class) {
+                return writeTimestampDelta(((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli());
+            }
+        }
+
         // 基本型別處理
         if (clazz == Boolean.class || clazz == boolean.class) {
             writeBool((Boolean) value);
@@ -973,9 +1538,13 @@ public class ByteArrayBuffer implements Cloneable {
 
         // 陣列處理
         if (clazz.isArray()) {
-            int len = Array.getLength(value);
-            writeInt(len);
             Class<?> componentType = clazz.getComponentType();
+            // 基本型別陣列批次寫入，避免逐一裝箱
+            if (componentType.isPrimitive()) {
+                return writePrimitiveArray(componentType, value);
+            }
+            int len = Array.getLength(value);
+            writeLength(len);
             for (int i = 0; i < len; i++) {
                 writeValue(componentType, Array.get(value, i));
             }
@@ -987,31 +1556,100 @@ public class ByteArrayBuffer implements Cloneable {
     }
 
     /**
-     * 獲取所有帶有 @MessageTag 註解的欄位（包括父類別），並按 order 排序
+     * 寫入基本型別陣列
+     * 格式: [陣列長度(4 bytes)][元素資料]，元素本身不可能為 null，因此不寫入個別的 null 標記
      */
-    private Field[] getAllMessageTagFields(Class<?> clazz) {
-        java.util.List<Field> allFields = new java.util.ArrayList<>();
+    private ByteArrayBuffer writePrimitiveArray(Class<?> componentType, Object value) {
+        if (compactMode) {
+            return writeCompactPrimitiveArray(componentType, value);
+        }
+        if (componentType == int.class) {
+            return writeIntArray((int[]) value);
+        } else if (componentType == long.class) {
+            return writeLongArray((long[]) value);
+        } else if (componentType == float.class) {
+            return writeFloatArray((float[]) value);
+        } else if (componentType == double.class) {
+            return writeDoubleArray((double[]) value);
+        } else if (componentType == byte.class) {
+            byte[] bytes = (byte[]) value;
+            writeInt(bytes.length);
+            return writeBytes(bytes);
+        } else if (componentType == short.class) {
+            short[] shorts = (short[]) value;
+            writeInt(shorts.length);
+            for (short v : shorts) {
+                writeShort(v);
+            }
+            return this;
+        } else if (componentType == char.class) {
+            char[] chars = (char[]) value;
+            writeInt(chars.length);
+            for (char v : chars) {
+                writeChar(v);
+            }
+            return this;
+        } else {
+            boolean[] bools = (boolean[]) value;
+            writeInt(bools.length);
+            for (boolean v : bools) {
+                writeBool(v);
+            }
+            return this;
+        }
+    }
 
-        // 遞迴收集所有類別（包括父類別）的欄位
-        Class<?> currentClass = clazz;
-        while (currentClass != null && currentClass != Object.class) {
-            Field[] declaredFields = currentClass.getDeclaredFields();
-            for (Field field : declaredFields) {
-                if (field.isAnnotationPresent(MessageTag.class)) {
-                    allFields.add(field);
-                }
+    /**
+     * 以緊湊格式寫入基本型別陣列
+     * 格式: [陣列長度(varint)][元素資料]，整數類元素使用 ZigZag 變長編碼
+     */
+    private ByteArrayBuffer writeCompactPrimitiveArray(Class<?> componentType, Object value) {
+        int len = Array.getLength(value);
+        writeVarInt(len);
+        if (componentType == int.class) {
+            for (int v : (int[]) value) {
+                writeSignedVarInt(v);
+            }
+        } else if (componentType == long.class) {
+            for (long v : (long[]) value) {
+                writeSignedVarLong(v);
+            }
+        } else if (componentType == short.class) {
+            for (short v : (short[]) value) {
+                writeSignedVarInt(v);
+            }
+        } else if (componentType == char.class) {
+            for (char v : (char[]) value) {
+                writeVarInt(v);
+            }
+        } else if (componentType == float.class) {
+            putFloats((float[]) value);
+        } else if (componentType == double.class) {
+            putDoubles((double[]) value);
+        } else if (componentType == byte.class) {
+            writeBytes((byte[]) value);
+        } else {
+            for (boolean v : (boolean[]) value) {
+                writeBool(v);
             }
-            currentClass = currentClass.getSuperclass();
         }
+        return this;
+    }
 
-        // 按 order 排序
-        allFields.sort((f1, f2) -> {
-            MessageTag tag1 = f1.getAnnotation(MessageTag.class);
-            MessageTag tag2 = f2.getAnnotation(MessageTag.class);
-            return Integer.compare(tag1.order(), tag2.order());
-        });
+    /**
+     * 寫入長度欄位，緊湊格式下使用變長整數
+     */
+    private ByteArrayBuffer writeLength(int length) {
+        return compactMode ? writeVarInt(length) : writeInt(length);
+    }
 
-        return allFields.toArray(new Field[0]);
+    /**
+     * 寫入與前一個時間戳記的差值，連續的時間欄位通常只需 1~4 bytes
+     */
+    private ByteArrayBuffer writeTimestampDelta(long timestamp) {
+        writeSignedVarLong(timestamp - lastTimestamp);
+        lastTimestamp = timestamp;
+        return this;
     }
 
     /**
@@ -1024,86 +1662,222 @@ public class ByteArrayBuffer implements Cloneable {
     @SuppressWarnings("unchecked")
     public <T> T readStruct(Class<T> clazz) {
         try {
-            // 檢查 null 標記
-            if (!readBool()) {
+            StructSchema schema = readStructSchema(clazz);
+            if (schema == null) {
                 return null;
             }
+            return (T) readStructValue(schema);
+        } catch (Throwable e) {
+            throw new RuntimeException("讀取結構時發生錯誤: " + e.getMessage(), e);
+        }
+    }
 
-            // 讀取實際類型名稱
-            String actualClassName = readString();
-            if (actualClassName == null) {
-                throw new RuntimeException("無法讀取物件類型名稱");
-            }
+    /**
+     * 讀取結構標記與實際類型並驗證相容性，null 結構回傳 null（內部使用）
+     */
+    StructSchema readStructSchema(Class<?> clazz) {
+        Class<?> actualClass;
+        byte tag = readByte();
+        switch (tag) {
+            case STRUCT_NULL:
+                return null;
+            case STRUCT_TYPE_ID:
+                int typeId = readVarInt();
+                actualClass = TypeRegistry.typeOf(typeId, clazz);
+                if (actualClass == null) {
+                    throw new RuntimeException("未註冊的結構類型編號: " + typeId);
+                }
+                break;
+            case STRUCT_TYPE_NAME:
+                String actualClassName = compactMode ? readVarString() : readString();
+                if (actualClassName == null) {
+                    throw new RuntimeException("無法讀取物件類型名稱");
+                }
+                actualClass = TypeRegistry.forName(actualClassName);
+                if (actualClass == null) {
+                    throw new RuntimeException("找不到類別: " + actualClassName);
+                }
+                break;
+            default:
+                throw new RuntimeException("未知的結構標記: " + tag);
+        }
 
-            // 載入實際類型
-            Class<?> actualClass;
-            try {
-                actualClass = Class.forName(actualClassName);
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException("找不到類別: " + actualClassName, e);
-            }
+        // 驗證類型相容性
+        StructSchema schema = StructSchema.of(actualClass);
+        if (!schema.isAssignableTo(clazz)) {
+            throw new RuntimeException(String.format("類型不相容: 期望 %s，實際 %s",
+                    clazz.getName(), actualClass.getName()));
+        }
+        return schema;
+    }
 
-            // 驗證類型相容性
-            if (!clazz.isAssignableFrom(actualClass)) {
-                throw new RuntimeException(String.format("類型不相容: 期望 %s，實際 %s",
-                        clazz.getName(), actualClass.getName()));
-            }
+    /**
+     * 以唯讀檢視讀取結構化物件，不建立物件也不解碼欄位
+     * 檢視直接引用此緩衝區的內容，使用期間不可再寫入或清空此緩衝區；僅支援標準格式
+     *
+     * @param clazz 期望的類型（可以是父類別或介面）
+     * @return 結構檢視，null 結構回傳 null
+     * @see StructView
+     */
+    public <T> StructView<T> readStructView(Class<T> clazz) {
+        if (compactMode) {
+            throw new IllegalStateException("緊湊格式不支援結構檢視");
+        }
+        try {
+            return StructView.read(this, clazz);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("讀取結構檢視時發生錯誤: " + e.getMessage(), e);
+        }
+    }
 
-            return (T) readStructValue(actualClass);
+    /**
+     * 讀取單一欄位的值（內部使用）
+     */
+    Object readField(StructSchema.FieldCodec codec) {
+        try {
+            return readFieldValue(codec);
         } catch (Throwable e) {
-            throw new RuntimeException("讀取結構時發生錯誤: " + e.getMessage(), e);
+            throw new RuntimeException("讀取欄位時發生錯誤: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 讀取結構化物件的值（內部使用）
+     * 讀取以緊湊格式寫入的結構化物件
+     *
+     * @param clazz 期望的類型（可以是父類別或介面）
+     * @return 反序列化後的物件
+     * @see #writeStructCompact(Object)
      */
-    private Object readStructValue(Class<?> clazz) throws Throwable {
-        // 建立物件實例
-        Object instance = clazz.getDeclaredConstructor().newInstance();
+    public <T> T readStructCompact(Class<T> clazz) {
+        boolean previousMode = compactMode;
+        compactMode = true;
+        if (!previousMode) {
+            lastTimestamp = 0L;
+        }
+        try {
+            return readStruct(clazz);
+        } finally {
+            compactMode = previousMode;
+        }
+    }
 
-        // 收集所有帶有 @MessageTag 註解的欄位（包括父類別）
-        Field[] fields = getAllMessageTagFields(clazz);
+    /**
+     * 讀取結構化物件的值（內部使用）
+     */
+    private Object readStructValue(StructSchema schema) throws Throwable {
+        // 使用快取的欄位描述建立物件實例
+        if (!compactMode && schema.getCodec() != null) {
+            return schema.getCodec().decode(this);
+        }
+        Object instance = schema.newInstance();
+        if (compactMode) {
+            return readCompactStructValue(instance, schema);
+        }
 
-        for (Field field : fields) {
-            field.setAccessible(true);
-            Object fieldValue = readFieldValue(field);
-            field.set(instance, fieldValue);
+        for (StructSchema.FieldCodec codec : schema.getFields()) {
+            if (codec.isPrimitive()) {
+                // 基本型別欄位仍保留 null 標記以相容既有格式
+                if (readBool()) {
+                    readPrimitiveField(codec, instance);
+                }
+            } else {
+                codec.set(instance, readFieldValue(codec));
+            }
         }
 
         return instance;
     }
 
     /**
-     * 讀取欄位值（支援泛型）
+     * 以緊湊格式讀取結構欄位，位元圖中未標記的欄位保留預設值
      */
-    private Object readFieldValue(Field field) throws Throwable {
-        Class<?> fieldType = field.getType();
+    private Object readCompactStructValue(Object instance, StructSchema schema) throws Throwable {
+        StructSchema.FieldCodec[] fields = schema.getFields();
+        byte[] bitmap = readBytes((fields.length + 7) >>> 3);
+        for (int i = 0; i < fields.length; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) == 0) {
+                continue;
+            }
+            StructSchema.FieldCodec codec = fields[i];
+            if (codec.isPrimitive()) {
+                readPrimitiveField(codec, instance);
+            } else if (codec.getParameterizedType() != null) {
+                codec.set(instance, readParameterizedBody(codec.getParameterizedType()));
+            } else {
+                codec.set(instance, readValueBody(codec.getType()));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 讀取基本型別欄位的值並直接寫入實例，不經過裝箱
+     */
+    private void readPrimitiveField(StructSchema.FieldCodec codec, Object instance) throws Throwable {
+        switch (codec.getKind()) {
+            case StructSchema.KIND_BOOLEAN:
+                codec.setBoolean(instance, readBool());
+                break;
+            case StructSchema.KIND_BYTE:
+                codec.setByte(instance, readByte());
+                break;
+            case StructSchema.KIND_SHORT:
+                codec.setShort(instance, compactMode ? (short) readSignedVarInt() : readShort());
+                break;
+            case StructSchema.KIND_CHAR:
+                codec.setChar(instance, compactMode ? (char) readVarInt() : readChar());
+                break;
+            case StructSchema.KIND_INT:
+                codec.setInt(instance, compactMode ? readSignedVarInt() : readInt());
+                break;
+            case StructSchema.KIND_LONG:
+                codec.setLong(instance, compactMode ? readSignedVarLong() : readLong());
+                break;
+            case StructSchema.KIND_FLOAT:
+                codec.setFloat(instance, readFloat());
+                break;
+            case StructSchema.KIND_DOUBLE:
+                codec.setDouble(instance, readDouble());
+                break;
+            default:
+                throw new IllegalStateException("非基本型別欄位: " + codec.getField());
+        }
+    }
 
+    /**
+     * 讀取欄位值（支援泛型）
+     */
+    private Object readFieldValue(StructSchema.FieldCodec codec) throws Throwable {
         // 檢查是否為泛型欄位（如 List<User>）
-        Type genericType = field.getGenericType();
-        if (genericType instanceof ParameterizedType) {
-            return readParameterizedValue((ParameterizedType) genericType);
+        if (codec.getParameterizedType() != null) {
+            return readParameterizedValue(codec.getParameterizedType());
         }
 
         // 非泛型欄位使用原有邏輯
-        return readValue(fieldType);
+        return readValue(codec.getType());
     }
 
     /**
      * 讀取參數化類型值（如 List<User>）
      */
     private Object readParameterizedValue(ParameterizedType paramType) throws Throwable {
-        Class<?> rawType = (Class<?>) paramType.getRawType();
-
         // 檢查 null 標記
         if (!readBool()) {
             return null;
         }
 
+        return readParameterizedBody(paramType);
+    }
+
+    /**
+     * 讀取非 null 的參數化類型值內容
+     */
+    private Object readParameterizedBody(ParameterizedType paramType) throws Throwable {
+        Class<?> rawType = (Class<?>) paramType.getRawType();
+
         // 處理 List 類型
         if (List.class.isAssignableFrom(rawType)) {
-            int size = readInt(); // 讀取列表大小
+            int size = readLength(1); // 讀取列表大小
             List<Object> list = new ArrayList<>(size);
 
             // 獲取泛型參數類型
@@ -1146,6 +1920,36 @@ public class ByteArrayBuffer implements Cloneable {
             return null;
         }
 
+        return readValueBody(clazz);
+    }
+
+    /**
+     * 讀取非 null 值的內容
+     */
+    private Object readValueBody(Class<?> clazz) throws Throwable {
+        if (compactMode) {
+            if (clazz == Short.class || clazz == short.class) {
+                return (short) readSignedVarInt();
+            } else if (clazz == Character.class || clazz == char.class) {
+                return (char) readVarInt();
+            } else if (clazz == Integer.class || clazz == int.class) {
+                return readSignedVarInt();
+            } else if (clazz == Long.class || clazz == long.class) {
+                return readSignedVarLong();
+            } else if (clazz == String.class) {
+                return readVarString();
+            } else if (clazz == BigDecimal.class) {
+                int scale = readSignedVarInt();
+                return new BigDecimal(new BigInteger(readBytes(readLength())), scale);
+            } else if (clazz == BigInteger.class) {
+                return new BigInteger(readBytes(readLength()));
+            } else if (clazz == Date.class) {
+                return new Date(readTimestampDelta());
+            } else if (clazz == LocalDateTime.class) {
+                return LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(readTimestampDelta()), ZoneOffset.UTC);
+            }
+        }
+
         // 基本型別處理
         if (clazz == Boolean.class || clazz == boolean.class) {
             return readBool();
@@ -1177,8 +1981,12 @@ public class ByteArrayBuffer implements Cloneable {
 
         // 陣列處理
         if (clazz.isArray()) {
-            int len = readInt();
             Class<?> componentType = clazz.getComponentType();
+            // 基本型別陣列批次讀取
+            if (componentType.isPrimitive()) {
+                return readPrimitiveArray(componentType);
+            }
+            int len = readLength(1);
             Object array = Array.newInstance(componentType, len);
             for (int i = 0; i < len; i++) {
                 Array.set(array, i, readValue(componentType));
@@ -1190,62 +1998,223 @@ public class ByteArrayBuffer implements Cloneable {
         return readStruct(clazz);
     }
 
+    /**
+     * 讀取基本型別陣列
+     */
+    private Object readPrimitiveArray(Class<?> componentType) {
+        if (compactMode) {
+            return readCompactPrimitiveArray(componentType);
+        }
+        if (componentType == int.class) {
+            return readIntArray();
+        } else if (componentType == long.class) {
+            return readLongArray();
+        } else if (componentType == float.class) {
+            return readFloatArray();
+        } else if (componentType == double.class) {
+            return readDoubleArray();
+        }
+
+        int len = readArraySize();
+        if (len < 0) {
+            return null;
+        }
+        if (componentType == byte.class) {
+            return readBytes(len);
+        } else if (componentType == short.class) {
+            checkElementCount(len, 2);
+            short[] shorts = new short[len];
+            for (int i = 0; i < len; i++) {
+                shorts[i] = readShort();
+            }
+            return shorts;
+        } else if (componentType == char.class) {
+            checkElementCount(len, 2);
+            char[] chars = new char[len];
+            for (int i = 0; i < len; i++) {
+                chars[i] = readChar();
+            }
+            return chars;
+        } else {
+            checkElementCount(len, 1);
+            boolean[] bools = new boolean[len];
+            for (int i = 0; i < len; i++) {
+                bools[i] = readBool();
+            }
+            return bools;
+        }
+    }
+
+    /**
+     * 以緊湊格式讀取基本型別陣列
+     */
+    private Object readCompactPrimitiveArray(Class<?> componentType) {
+        // 變長整數與布林值每個至少 1 位元組，float/double/byte 由批次讀取檢查完整長度
+        int len = readLength(1);
+        if (componentType == int.class) {
+            int[] ints = new int[len];
+            for (int i = 0; i < len; i++) {
+                ints[i] = readSignedVarInt();
+            }
+            return ints;
+        } else if (componentType == long.class) {
+            long[] longs = new long[len];
+            for (int i = 0; i < len; i++) {
+                longs[i] = readSignedVarLong();
+            }
+            return longs;
+        } else if (componentType == short.class) {
+            short[] shorts = new short[len];
+            for (int i = 0; i < len; i++) {
+                shorts[i] = (short) readSignedVarInt();
+            }
+            return shorts;
+        } else if (componentType == char.class) {
+            char[] chars = new char[len];
+            for (int i = 0; i < len; i++) {
+                chars[i] = (char) readVarInt();
+            }
+            return chars;
+        } else if (componentType == float.class) {
+            return getFloats(len);
+        } else if (componentType == double.class) {
+            return getDoubles(len);
+        } else if (componentType == byte.class) {
+            return readBytes(len);
+        } else {
+            boolean[] bools = new boolean[len];
+            for (int i = 0; i < len; i++) {
+                bools[i] = readBool();
+            }
+            return bools;
+        }
+    }
+
+    /**
+     * 讀取長度欄位，緊湊格式下使用變長整數
+     */
+    private int readLength() {
+        int length = compactMode ? readVarInt() : readInt();
+        if (length < 0) {
+            throw new IllegalStateException("無效的長度: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * 讀取元素數量，每個元素至少佔 minElementBytes 位元組
+     */
+    private int readLength(int minElementBytes) {
+        int length = readLength();
+        checkElementCount(length, minElementBytes);
+        return length;
+    }
+
+    /**
+     * 在配置陣列前檢查元素數量：數量來自對端，超過可讀位元組所能容納的元素數時直接拒絕，
+     * 避免小封包要求配置大量記憶體
+     */
+    private void checkElementCount(int count, int minElementBytes) {
+        if (count < 0 || count > readableBytes() / minElementBytes) {
+            throw new IndexOutOfBoundsException(
+                    String.format("元素數量不合法: %d, 可讀位元組 %d", count, readableBytes()));
+        }
+    }
+
+    private long readTimestampDelta() {
+        lastTimestamp += readSignedVarLong();
+        return lastTimestamp;
+    }
+
     // ==================== 壓縮/解壓縮方法 ====================
 
     /**
-     * 壓縮位元組陣列（使用 GZIP）
-     * 
-     * @param bytes 要壓縮的位元組陣列
-     * @return 壓縮後的位元組陣列
-     * @throws RuntimeException 如果壓縮過程中發生錯誤
+     * 以指定演算法壓縮可讀取的內容，不修改此緩衝區
+     * 格式: [原始長度(varint)][壓縮資料]
+     *
+     * @param codec 壓縮演算法
+     * @param level 壓縮等級，0 表示演算法預設值
+     * @return 壓縮後的新緩衝區，壓縮後沒有變小時回傳 null
      */
-    private byte[] compress(byte[] bytes) {
-        if (bytes == null || bytes.length == 0) {
-            return bytes;
+    public ByteArrayBuffer compressTo(CompressionCodec codec, int level) {
+        int length = readableBytes();
+        if (length == 0) {
+            return null;
         }
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                GZIPOutputStream gzipOut = new GZIPOutputStream(baos)) {
+        // 壓縮結果直接寫入新緩衝區的底層陣列，不經過暫存陣列
+        byte[] target = new byte[5 + codec.maxCompressedLength(length)];
+        int headerLength = putVarInt(target, length);
+        int compressedLength = codec.compress(buffer, readIndex, length, target, headerLength,
+                target.length - headerLength, level);
+        if (compressedLength < 0 || headerLength + compressedLength >= length) {
+            return null;
+        }
 
-            gzipOut.write(bytes);
-            gzipOut.finish();
-            return baos.toByteArray();
+        ByteArrayBuffer compressed = new ByteArrayBuffer(0, byteOrder);
+        compressed.buffer = target;
+        compressed.capacity = target.length;
+        compressed.writeIndex = headerLength + compressedLength;
+        return compressed;
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException("壓縮數據時發生錯誤: " + e.getMessage(), e);
+    /**
+     * 以指定演算法壓縮可讀取的內容並替換原始數據
+     *
+     * @return 是否實際壓縮，壓縮後沒有變小時保留原始數據並回傳 false
+     * @see #compressTo(CompressionCodec, int)
+     */
+    public boolean compress(CompressionCodec codec, int level) {
+        ByteArrayBuffer compressed = compressTo(codec, level);
+        if (compressed == null) {
+            return false;
         }
+        this.buffer = compressed.buffer;
+        this.capacity = compressed.capacity;
+        this.readIndex = 0;
+        this.writeIndex = compressed.writeIndex;
+        return true;
     }
 
     /**
-     * 解壓縮位元組陣列（使用 GZIP）
-     * 
-     * @param compressedBytes 壓縮的位元組陣列
-     * @return 解壓縮後的位元組陣列
-     * @throws RuntimeException 如果解壓縮過程中發生錯誤
+     * 解壓縮以 {@link #compressTo(CompressionCodec, int)} 格式壓縮的內容並替換原始數據
+     *
+     * @throws IllegalStateException 原始長度不合法或資料損毀
      */
-    private byte[] decompress(byte[] compressedBytes) {
-        if (compressedBytes == null || compressedBytes.length == 0) {
-            return compressedBytes;
+    public ByteArrayBuffer decompress(CompressionCodec codec) {
+        int originalLength = readVarInt();
+        if (originalLength < 0 || originalLength > MAX_DECOMPRESSED_LENGTH) {
+            throw new IllegalStateException("解壓縮長度不合法: " + originalLength);
         }
 
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(compressedBytes);
-                GZIPInputStream gzipIn = new GZIPInputStream(bais);
-                ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        byte[] target = new byte[Math.max(originalLength, MIN_CAPACITY)];
+        codec.decompress(buffer, readIndex, readableBytes(), target, 0, originalLength);
+        this.buffer = target;
+        this.capacity = target.length;
+        this.readIndex = 0;
+        this.writeIndex = originalLength;
+        return this;
+    }
 
-            byte[] buffer = new byte[1024];
-            int len;
-            while ((len = gzipIn.read(buffer)) != -1) {
-                baos.write(buffer, 0, len);
-            }
-            return baos.toByteArray();
+    /**
+     * 抽樣估算可讀取內容的位元組熵（bits/byte，0 ~ 8），接近 8 表示幾乎無法壓縮
+     */
+    public double estimateEntropy() {
+        return CompressionPolicy.estimateEntropy(buffer, readIndex, readableBytes());
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException("解壓縮數據時發生錯誤: " + e.getMessage(), e);
+    private static int putVarInt(byte[] target, int value) {
+        int index = 0;
+        while ((value & ~0x7F) != 0) {
+            target[index++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
         }
+        target[index++] = (byte) value;
+        return index;
     }
 
     /**
-     * 壓縮緩衝區的內容
+     * 壓縮緩衝區的內容（GZIP 格式）
      * 將目前緩衝區中的有效數據進行壓縮，並替換原始數據
      * 
      * @return 當前緩衝區實例（支援鏈式調用）
@@ -1257,21 +2226,24 @@ public class ByteArrayBuffer implements Cloneable {
         }
 
         try {
-            // 獲取有效數據
-            byte[] originalData = Arrays.copyOfRange(buffer, 0, writeIndex);
-
-            // 壓縮數據
-            byte[] compressedData = compress(originalData);
+            // 直接從底層陣列壓縮，不先複製有效數據
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, writeIndex / 2));
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(baos)) {
+                gzipOut.write(buffer, 0, writeIndex);
+            }
 
             // 檢查壓縮效果
-            if (compressedData.length >= originalData.length) {
+            if (baos.size() >= writeIndex) {
                 // 如果壓縮後反而更大，就不使用壓縮
                 return this;
             }
 
             // 重置緩衝區並寫入壓縮數據
-            clear();
-            writeBytes(compressedData);
+            byte[] compressedData = baos.toByteArray();
+            this.buffer = compressedData;
+            this.capacity = compressedData.length;
+            this.readIndex = 0;
+            this.writeIndex = compressedData.length;
 
             return this;
 
@@ -1281,7 +2253,7 @@ public class ByteArrayBuffer implements Cloneable {
     }
 
     /**
-     * 解壓縮緩衝區的內容
+     * 解壓縮緩衝區的內容（GZIP 格式）
      * 將目前緩衝區中的壓縮數據進行解壓縮，並替換原始數據
      * 
      * @return 當前緩衝區實例（支援鏈式調用）
@@ -1292,23 +2264,25 @@ public class ByteArrayBuffer implements Cloneable {
             return this; // 沒有數據需要解壓縮
         }
 
-        try {
-            // 獲取壓縮數據
-            byte[] compressedData = Arrays.copyOfRange(buffer, 0, writeIndex);
-
-            // 解壓縮數據
-            byte[] decompressedData = decompress(compressedData);
-
-            // 確保有足夠的容量存放解壓縮後的數據
-            if (decompressedData.length > capacity) {
-                // 擴展容量
-                capacity = Math.max(decompressedData.length, capacity * 2);
-                buffer = new byte[capacity];
+        try (GZIPInputStream gzipIn = new GZIPInputStream(new ByteArrayInputStream(buffer, 0, writeIndex))) {
+            // 直接解壓縮到新的底層陣列，不經過中間的輸出串流
+            byte[] target = new byte[Math.max(MIN_CAPACITY, writeIndex * 4)];
+            int length = 0;
+            int n;
+            while ((n = gzipIn.read(target, length, target.length - length)) != -1) {
+                length += n;
+                if (length == target.length) {
+                    if (length >= MAX_DECOMPRESSED_LENGTH) {
+                        throw new IllegalStateException("解壓縮長度超過上限: " + MAX_DECOMPRESSED_LENGTH);
+                    }
+                    target = Arrays.copyOf(target, Math.min(length << 1, MAX_DECOMPRESSED_LENGTH));
+                }
             }
 
-            // 重置緩衝區並寫入解壓縮數據
-            clear();
-            writeBytes(decompressedData);
+            this.buffer = target;
+            this.capacity = target.length;
+            this.readIndex = 0;
+            this.writeIndex = length;
 
             return this;
 
@@ -1319,6 +2293,7 @@ public class ByteArrayBuffer implements Cloneable {
 
     /**
      * 獲取壓縮比率
+     * 資料較大時只壓縮均勻分佈的取樣區段來估算，不會壓縮整個緩衝區
      * 
      * @return 壓縮後大小與原始大小的比率（0.0 到 1.0）
      */
@@ -1328,9 +2303,7 @@ public class ByteArrayBuffer implements Cloneable {
         }
 
         try {
-            byte[] originalData = Arrays.copyOfRange(buffer, 0, writeIndex);
-            byte[] compressedData = compress(originalData);
-            return (double) compressedData.length / originalData.length;
+            return CompressionPolicy.estimateRatio(CompressionCodecs.DEFLATE, buffer, 0, writeIndex);
         } catch (Exception e) {
             return 1.0; // 如果壓縮失敗，返回 1.0 表示沒有壓縮效果
         }
@@ -1,18 +1,44 @@
 package com.vscodelife.socketio.buffer;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONB;
 import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
 import com.alibaba.fastjson2.annotation.JSONCreator;
 import com.alibaba.fastjson2.annotation.JSONField;
 
+/**
+ * JSON 鍵值緩衝區
+ *
+ * <p>
+ * 以 {@link #lazy(byte[])} 建立時只保存原始 UTF-8 內容，第一次讀取欄位才解析；
+ * 未修改前轉發或重新序列化（{@link #toJson()}、{@link #writeTo(JSONWriter)}）直接沿用原始內容。
+ * {@link #clone()} 採寫入時複製，兩個緩衝區共用同一份資料直到其中一方修改。
+ * </p>
+ */
 public class JsonMapBuffer implements Cloneable {
 
+    // 已解析的內容，延遲解析的緩衝區在第一次存取前為 null
     @JSONField(serialize = false, deserialize = false)
     private JSONObject buffer;
+    // 原始 UTF-8 JSON，只在內容未修改時有效，陣列本身不會被修改因此可在複本間共用
+    @JSONField(serialize = false, deserialize = false)
+    private byte[] raw;
+    // buffer 與複本共用，修改前需先複製
+    @JSONField(serialize = false, deserialize = false)
+    private boolean shared;
 
     private JsonMapBuffer(JSONObject buffer) {
         this.buffer = buffer;
     }
 
+    private JsonMapBuffer(byte[] raw) {
+        this.raw = raw;
+    }
+
     @JSONCreator
     public JsonMapBuffer(String json) {
         this.buffer = JSONObject.parseObject(json);
@@ -22,95 +48,230 @@ public class JsonMapBuffer implements Cloneable {
         this.buffer = new JSONObject();
     }
 
+    /**
+     * 直接包裝已解析的 JSON 物件，不複製內容
+     */
+    public static JsonMapBuffer wrap(JSONObject object) {
+        return new JsonMapBuffer(object != null ? object : new JSONObject());
+    }
+
+    /**
+     * 以原始 UTF-8 JSON 物件建立延遲解析的緩衝區，陣列由緩衝區持有，呼叫端之後不可再修改
+     * <p>
+     * 未修改前 {@link #writeTo(JSONWriter)} 會原樣寫出這些位元組，呼叫端必須保證內容是已驗證的完整 JSON 物件
+     * （例如 JSON 讀取器已略過的範圍），不可傳入來自對端、尚未驗證的內容
+     * </p>
+     */
+    public static JsonMapBuffer lazy(byte[] utf8) {
+        if (utf8 == null || utf8.length == 0) {
+            return new JsonMapBuffer();
+        }
+        return new JsonMapBuffer(utf8);
+    }
+
+    /**
+     * 以原始 UTF-8 JSON 物件的片段建立延遲解析的緩衝區，內容會被複製
+     */
+    public static JsonMapBuffer lazy(byte[] utf8, int offset, int length) {
+        return lazy(Arrays.copyOfRange(utf8, offset, offset + length));
+    }
+
+    /**
+     * 從 JSONB 二進位內容建立緩衝區
+     */
+    public static JsonMapBuffer fromJsonb(byte[] jsonb) {
+        try {
+            return wrap(JSONB.parseObject(jsonb));
+        } catch (Exception e) {
+            throw new RuntimeException("解析 JSONB 緩衝區時發生錯誤: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 寫入時複製：複本與原緩衝區共用解析結果或原始內容，任一方修改時才複製
+     */
     @Override
     public JsonMapBuffer clone() {
         try {
-            JsonMapBuffer cloned = new JsonMapBuffer(new JSONObject(this.buffer));
+            JsonMapBuffer cloned = new JsonMapBuffer(this.buffer);
+            cloned.raw = this.raw;
+            if (this.buffer != null) {
+                this.shared = true;
+                cloned.shared = true;
+            }
             return cloned;
         } catch (Exception e) {
             throw new RuntimeException("克隆緩衝區時發生錯誤: " + e.getMessage(), e);
         }
     }
 
+    // ==================== 延遲解析 ====================
+
+    /**
+     * 是否已解析為 JSON 物件
+     */
+    @JSONField(serialize = false)
+    public boolean isParsed() {
+        return buffer != null;
+    }
+
+    /**
+     * 是否仍保有未修改的原始 UTF-8 內容
+     */
+    @JSONField(serialize = false)
+    public boolean hasRaw() {
+        return raw != null;
+    }
+
+    /**
+     * 估計序列化後的大小（位元組）：保有原始內容時為實際長度，否則依欄位數粗估
+     */
+    @JSONField(serialize = false)
+    public int estimateSize() {
+        byte[] current = raw;
+        if (current != null) {
+            return current.length;
+        }
+        JSONObject parsed = buffer;
+        return parsed == null ? 2 : 2 + parsed.size() * 32;
+    }
+
+    private JSONObject read() {
+        JSONObject current = buffer;
+        if (current == null) {
+            try {
+                current = JSON.parseObject(raw);
+            } catch (Exception e) {
+                throw new RuntimeException("解析 JSON 緩衝區時發生錯誤: " + e.getMessage(), e);
+            }
+            if (current == null) {
+                current = new JSONObject();
+            }
+            buffer = current;
+        }
+        return current;
+    }
+
+    private JSONObject write() {
+        JSONObject current = read();
+        if (shared) {
+            current = new JSONObject(current);
+            buffer = current;
+            shared = false;
+        }
+        raw = null;
+        return current;
+    }
+
+    /**
+     * 取得可修改的 JSON 物件，呼叫後視為已修改，之後序列化不再沿用原始內容
+     */
     @JSONField(serialize = false)
     public JSONObject getBuffer() {
-        return buffer;
+        return write();
     }
 
     @Override
     public String toString() {
-        return buffer.toJSONString();
+        return toJson();
     }
 
     public String toJson() {
-        return buffer.toJSONString();
+        byte[] current = raw;
+        if (current != null) {
+            return new String(current, StandardCharsets.UTF_8);
+        }
+        return read().toJSONString();
+    }
+
+    /**
+     * 將內容寫入 JSON 寫入器，未修改的緩衝區直接寫出原始內容而不重新序列化
+     */
+    public void writeTo(JSONWriter writer) {
+        byte[] current = raw;
+        if (current != null && writer.isUTF8()) {
+            writer.writeRaw(current);
+        } else if (current != null && !writer.jsonb) {
+            writer.writeRaw(new String(current, StandardCharsets.UTF_8));
+        } else {
+            writer.write(read());
+        }
+    }
+
+    /**
+     * 序列化為 JSONB 二進位格式，數字與位元組陣列不需轉成文字
+     */
+    public byte[] toJsonb() {
+        return JSONB.toBytes(read());
     }
 
     public void setBuffer(String json) {
         this.buffer = JSONObject.parseObject(json);
+        this.raw = null;
+        this.shared = false;
     }
 
     public void put(String key, Object value) {
-        buffer.put(key, value);
+        write().put(key, value);
     }
 
     @JSONField(serialize = false)
     public java.math.BigDecimal getBigDecimal(String key) {
-        return buffer.getBigDecimal(key);
+        return read().getBigDecimal(key);
     }
 
     @JSONField(serialize = false)
     public java.math.BigInteger getBigInteger(String key) {
-        return buffer.getBigInteger(key);
+        return read().getBigInteger(key);
     }
 
     @JSONField(serialize = false)
     public boolean getBoolean(String key) {
-        return buffer.getBooleanValue(key);
+        return read().getBooleanValue(key);
     }
 
     @JSONField(serialize = false)
     public byte getByte(String key) {
-        return buffer.getByteValue(key);
+        return read().getByteValue(key);
     }
 
     @JSONField(serialize = false)
     public byte[] getBytes(String key) {
-        return buffer.getBytes(key);
+        return read().getBytes(key);
     }
 
     @JSONField(serialize = false)
     public java.util.Date getDate(String key) {
-        return buffer.getDate(key);
+        return read().getDate(key);
     }
 
     @JSONField(serialize = false)
     public double getDouble(String key) {
-        return buffer.getDoubleValue(key);
+        return read().getDoubleValue(key);
     }
 
     @JSONField(serialize = false)
     public float getFloat(String key) {
-        return buffer.getFloatValue(key);
+        return read().getFloatValue(key);
     }
 
     @JSONField(serialize = false)
     public int getInteger(String key) {
-        return buffer.getIntValue(key);
+        return read().getIntValue(key);
     }
 
     @JSONField(serialize = false)
     public long getLong(String key) {
-        return buffer.getLongValue(key);
+        return read().getLongValue(key);
     }
 
     @JSONField(serialize = false)
     public short getShort(String key) {
-        return buffer.getShortValue(key);
+        return read().getShortValue(key);
     }
 
     @JSONField(serialize = false)
     public String getString(String key) {
-        return buffer.getString(key);
+        return read().getString(key);
     }
 }
@@ -0,0 +1,35 @@
+package com.vscodelife.socketio.buffer;
+
+/**
+ * 結構欄位編解碼器
+ *
+ * <p>
+ * 由 socketio-processor 在編譯期為帶有 {@code @MessageTag} 欄位的類別產生，
+ * 命名規則為同套件下的 {@code <類別名稱>_StructCodec}（巢狀類別以 {@code _} 連接外部類別名稱）。
+ * {@link ByteArrayBuffer#writeStruct(Object)} 與 {@link ByteArrayBuffer#readStruct(Class)}
+ * 在標準格式下會優先使用對應的編解碼器，找不到時才使用反射。
+ * </p>
+ *
+ * <p>
+ * 編解碼器只負責欄位內容，結構的 null 標記與類型名稱仍由 {@link ByteArrayBuffer} 寫入，
+ * 產生的格式與反射序列化完全相同。
+ * </p>
+ *
+ * @param <T> 結構類型
+ */
+public interface StructCodec<T> {
+    /**
+     * 產生的編解碼器類別名稱後綴
+     */
+    String CLASS_SUFFIX = "_StructCodec";
+
+    /**
+     * 依 order 順序寫入所有 {@code @MessageTag} 欄位
+     */
+    void encode(ByteArrayBuffer buffer, T value);
+
+    /**
+     * 建立實例並依 order 順序讀取所有 {@code @MessageTag} 欄位
+     */
+    T decode(ByteArrayBuffer buffer);
+}
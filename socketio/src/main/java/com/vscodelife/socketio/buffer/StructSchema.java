@@ -0,0 +1,345 @@
+package com.vscodelife.socketio.buffer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vscodelife.socketio.annotation.MessageTag;
+
+/**
+ * 結構序列化的類別描述（內部使用）
+ *
+ * <p>
+ * 每個類別只在第一次序列化時掃描 {@link MessageTag} 欄位並排序，
+ * 同時將建構子與欄位存取解析為 {@link MethodHandle}；基本型別欄位的存取器調整為精確型別，
+ * 讀寫時不經過裝箱。之後的序列化都直接使用快取的描述。
+ * </p>
+ */
+final class StructSchema {
+    static final int KIND_OBJECT = 0;
+    static final int KIND_BOOLEAN = 1;
+    static final int KIND_BYTE = 2;
+    static final int KIND_SHORT = 3;
+    static final int KIND_CHAR = 4;
+    static final int KIND_INT = 5;
+    static final int KIND_LONG = 6;
+    static final int KIND_FLOAT = 7;
+    static final int KIND_DOUBLE = 8;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<Class<?>, StructSchema> schemas = new ConcurrentHashMap<>();
+
+    private final Class<?> type;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fields;
+    private final int[] orders;
+    private final int referenceFieldCount;
+    private final StructCodec<Object> codec;
+    // 已驗證可指派的期望類型，讀取多型結構時不必重複檢查
+    private final Set<Class<?>> assignableTypes = ConcurrentHashMap.newKeySet();
+
+    private StructSchema(Class<?> type) throws IllegalAccessException {
+        this.type = type;
+        this.constructor = resolveConstructor(type);
+
+        List<Field> tagged = new ArrayList<>();
+        // 遞迴收集所有類別（包括父類別）的欄位
+        Class<?> currentClass = type;
+        while (currentClass != null && currentClass != Object.class) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                if (field.isAnnotationPresent(MessageTag.class) && !Modifier.isStatic(field.getModifiers())) {
+                    tagged.add(field);
+                }
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        // 按 order 排序
+        tagged.sort(Comparator.comparingInt(f -> f.getAnnotation(MessageTag.class).order()));
+
+        this.fields = new FieldCodec[tagged.size()];
+        this.orders = new int[tagged.size()];
+        int references = 0;
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = new FieldCodec(tagged.get(i));
+            orders[i] = tagged.get(i).getAnnotation(MessageTag.class).order();
+            if (!fields[i].isPrimitive()) {
+                references++;
+            }
+        }
+        this.referenceFieldCount = references;
+        this.codec = resolveCodec(type);
+    }
+
+    /**
+     * 取得類別的序列化描述，第一次呼叫時建立並快取
+     */
+    static StructSchema of(Class<?> type) {
+        StructSchema schema = schemas.get(type);
+        if (schema == null) {
+            schema = schemas.computeIfAbsent(type, k -> {
+                try {
+                    return new StructSchema(k);
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("建立結構描述時發生錯誤: " + e.getMessage(), e);
+                }
+            });
+        }
+        return schema;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    FieldCodec[] getFields() {
+        return fields;
+    }
+
+    /**
+     * 依 {@link MessageTag#order()} 取得欄位索引，找不到時回傳負數
+     */
+    int indexOf(int order) {
+        return Arrays.binarySearch(orders, order);
+    }
+
+    /**
+     * 參考型別（可能為 null）欄位的數量
+     */
+    int getReferenceFieldCount() {
+        return referenceFieldCount;
+    }
+
+    /**
+     * 編譯期產生的編解碼器，沒有產生時為 null
+     */
+    StructCodec<Object> getCodec() {
+        return codec;
+    }
+
+    /**
+     * 檢查此類別能否指派給期望類型，成功的結果會被快取
+     */
+    boolean isAssignableTo(Class<?> expected) {
+        if (expected == type || expected == Object.class || assignableTypes.contains(expected)) {
+            return true;
+        }
+        if (!expected.isAssignableFrom(type)) {
+            return false;
+        }
+        assignableTypes.add(expected);
+        return true;
+    }
+
+    /**
+     * 以無參數建構子建立實例
+     */
+    Object newInstance() throws Throwable {
+        if (constructor == null) {
+            throw new NoSuchMethodException(type.getName() + ".<init>()");
+        }
+        return (Object) constructor.invokeExact();
+    }
+
+    private static MethodHandle resolveConstructor(Class<?> type) throws IllegalAccessException {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        Constructor<?> ctor;
+        try {
+            ctor = type.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        ctor.setAccessible(true);
+        return LOOKUP.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+    }
+
+    /**
+     * 依命名規則尋找 socketio-processor 產生的編解碼器
+     */
+    @SuppressWarnings("unchecked")
+    private static StructCodec<Object> resolveCodec(Class<?> type) {
+        String packageName = type.getPackageName();
+        String simpleName = packageName.isEmpty()
+                ? type.getName()
+                : type.getName().substring(packageName.length() + 1);
+        String codecName = (packageName.isEmpty() ? "" : packageName + ".")
+                + simpleName.replace('$', '_') + StructCodec.CLASS_SUFFIX;
+        try {
+            Class<?> codecClass = Class.forName(codecName, true, type.getClassLoader());
+            if (!StructCodec.class.isAssignableFrom(codecClass)) {
+                return null;
+            }
+            return (StructCodec<Object>) codecClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("建立結構編解碼器時發生錯誤: " + codecName, e);
+        }
+    }
+
+    private static int kindOf(Class<?> type) {
+        if (type == boolean.class) {
+            return KIND_BOOLEAN;
+        } else if (type == byte.class) {
+            return KIND_BYTE;
+        } else if (type == short.class) {
+            return KIND_SHORT;
+        } else if (type == char.class) {
+            return KIND_CHAR;
+        } else if (type == int.class) {
+            return KIND_INT;
+        } else if (type == long.class) {
+            return KIND_LONG;
+        } else if (type == float.class) {
+            return KIND_FLOAT;
+        } else if (type == double.class) {
+            return KIND_DOUBLE;
+        }
+        return KIND_OBJECT;
+    }
+
+    /**
+     * 單一欄位的型別資訊與存取器
+     */
+    static final class FieldCodec {
+        private final Field field;
+        private final Class<?> type;
+        private final ParameterizedType parameterizedType;
+        private final int kind;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private FieldCodec(Field field) throws IllegalAccessException {
+            field.setAccessible(true);
+            this.field = field;
+            this.type = field.getType();
+            Type genericType = field.getGenericType();
+            this.parameterizedType = genericType instanceof ParameterizedType
+                    ? (ParameterizedType) genericType
+                    : null;
+            this.kind = kindOf(type);
+
+            // 基本型別保留精確型別以避免裝箱，參考型別統一為 Object
+            Class<?> valueType = kind == KIND_OBJECT ? Object.class : type;
+            this.getter = LOOKUP.unreflectGetter(field)
+                    .asType(MethodType.methodType(valueType, Object.class));
+            this.setter = LOOKUP.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, valueType));
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * 泛型欄位（如 List&lt;User&gt;）的參數化型別，非泛型欄位為 null
+         */
+        ParameterizedType getParameterizedType() {
+            return parameterizedType;
+        }
+
+        int getKind() {
+            return kind;
+        }
+
+        boolean isPrimitive() {
+            return kind != KIND_OBJECT;
+        }
+
+        Object get(Object obj) throws Throwable {
+            if (kind != KIND_OBJECT) {
+                return getter.invoke(obj);
+            }
+            return (Object) getter.invokeExact(obj);
+        }
+
+        void set(Object obj, Object value) throws Throwable {
+            if (kind != KIND_OBJECT) {
+                setter.invoke(obj, value);
+                return;
+            }
+            setter.invokeExact(obj, value);
+        }
+
+        boolean getBoolean(Object obj) throws Throwable {
+            return (boolean) getter.invokeExact(obj);
+        }
+
+        byte getByte(Object obj) throws Throwable {
+            return (byte) getter.invokeExact(obj);
+        }
+
+        short getShort(Object obj) throws Throwable {
+            return (short) getter.invokeExact(obj);
+        }
+
+        char getChar(Object obj) throws Throwable {
+            return (char) getter.invokeExact(obj);
+        }
+
+        int getInt(Object obj) throws Throwable {
+            return (int) getter.invokeExact(obj);
+        }
+
+        long getLong(Object obj) throws Throwable {
+            return (long) getter.invokeExact(obj);
+        }
+
+        float getFloat(Object obj) throws Throwable {
+            return (float) getter.invokeExact(obj);
+        }
+
+        double getDouble(Object obj) throws Throwable {
+            return (double) getter.invokeExact(obj);
+        }
+
+        void setBoolean(Object obj, boolean value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+
+        void setByte(Object obj, byte value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+
+        void setShort(Object obj, short value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+
+        void setChar(Object obj, char value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+
+        void setInt(Object obj, int value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+
+        void setLong(Object obj, long value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+
+        void setFloat(Object obj, float value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+
+        void setDouble(Object obj, double value) throws Throwable {
+            setter.invokeExact(obj, value);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.vscodelife.socketio.buffer;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 結構唯讀檢視（Flyweight）
+ *
+ * <p>
+ * 由 {@link ByteArrayBuffer#readStructView(Class)} 建立，不建立物件也不解碼欄位，
+ * 只在建立時掃描一次結構並記錄每個 {@code @MessageTag} 欄位的起始位置，
+ * 之後依 order 直接從底層位元組讀取需要的欄位。
+ * 適合只需要少數欄位做路由判斷、其餘內容原樣轉發的中繼服務：
+ * </p>
+ *
+ * <pre>
+ * StructView&lt;ChatMessage&gt; view = buffer.readStructView(ChatMessage.class);
+ * if (view.getInt(1) == ChatMessage.TYPE_USER) {
+ *     ByteArrayBuffer out = new ByteArrayBuffer(view.length());
+ *     view.writeTo(out); // 原始位元組轉發，不重新編碼
+ * }
+ * </pre>
+ *
+ * <ul>
+ * <li>檢視引用來源緩衝區的底層陣列，使用期間來源緩衝區不可再寫入或清空</li>
+ * <li>僅支援標準格式，緊湊格式的欄位位置依賴前面的內容，無法預先計算</li>
+ * <li>非執行緒安全，每個執行緒應各自建立檢視</li>
+ * </ul>
+ *
+ * @param <T> 結構類型
+ */
+public final class StructView<T> {
+    private final ByteArrayBuffer reader;
+    private final StructSchema schema;
+    private final int start;
+    private final int end;
+    // 每個欄位（含 null 標記）的起始位置，依欄位索引排列
+    private final int[] offsets;
+
+    private StructView(ByteArrayBuffer reader, StructSchema schema, int start, int end, int[] offsets) {
+        this.reader = reader;
+        this.schema = schema;
+        this.start = start;
+        this.end = end;
+        this.offsets = offsets;
+    }
+
+    /**
+     * 從來源緩衝區目前的讀取位置建立檢視，並將來源讀取位置移到結構之後
+     */
+    static <T> StructView<T> read(ByteArrayBuffer source, Class<T> clazz) {
+        ByteArrayBuffer reader = source.duplicate();
+        int start = reader.readerIndex();
+        StructSchema schema = reader.readStructSchema(clazz);
+        if (schema == null) {
+            source.readerIndex(reader.readerIndex());
+            return null;
+        }
+
+        StructSchema.FieldCodec[] fields = schema.getFields();
+        int[] offsets = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            offsets[i] = reader.readerIndex();
+            skipField(reader, fields[i]);
+        }
+        int end = reader.readerIndex();
+        source.readerIndex(end);
+        return new StructView<>(reader, schema, start, end, offsets);
+    }
+
+    // ==================== 結構資訊 ====================
+
+    /**
+     * 結構的實際類型
+     */
+    public Class<?> getType() {
+        return schema.getType();
+    }
+
+    /**
+     * 結構在緩衝區中的位元組長度（包含 null 標記與類型資訊）
+     */
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * 欄位是否為 null
+     */
+    public boolean isNull(int order) {
+        return reader.array()[offsetOf(order)] == 0;
+    }
+
+    // ==================== 欄位讀取 ====================
+
+    public boolean getBoolean(int order) {
+        return seek(order, boolean.class, Boolean.class).readBool();
+    }
+
+    public byte getByte(int order) {
+        return seek(order, byte.class, Byte.class).readByte();
+    }
+
+    public short getShort(int order) {
+        return seek(order, short.class, Short.class).readShort();
+    }
+
+    public char getChar(int order) {
+        return seek(order, char.class, Character.class).readChar();
+    }
+
+    public int getInt(int order) {
+        return seek(order, int.class, Integer.class).readInt();
+    }
+
+    public long getLong(int order) {
+        return seek(order, long.class, Long.class).readLong();
+    }
+
+    public float getFloat(int order) {
+        return seek(order, float.class, Float.class).readFloat();
+    }
+
+    public double getDouble(int order) {
+        return seek(order, double.class, Double.class).readDouble();
+    }
+
+    /**
+     * 讀取字串欄位，欄位為 null 時回傳 null
+     */
+    public String getString(int order) {
+        if (isNull(order)) {
+            return null;
+        }
+        return seek(order, String.class, String.class).readString();
+    }
+
+    /**
+     * 以檢視讀取巢狀結構欄位，欄位為 null 時回傳 null
+     */
+    public <S> StructView<S> getStruct(int order, Class<S> clazz) {
+        int index = indexOf(order);
+        StructSchema.FieldCodec field = schema.getFields()[index];
+        if (field.isPrimitive() || field.getParameterizedType() != null || isValueType(field.getType())
+                || field.getType().isArray()) {
+            throw new IllegalArgumentException(String.format("欄位 order=%d 不是結構類型: %s",
+                    order, field.getType().getName()));
+        }
+        reader.readerIndex(offsets[index]);
+        if (!reader.readBool()) {
+            return null;
+        }
+        return read(reader, clazz);
+    }
+
+    /**
+     * 完整解碼單一欄位，適用於集合、陣列、時間等沒有專用讀取方法的欄位
+     */
+    public Object get(int order) {
+        int index = indexOf(order);
+        reader.readerIndex(offsets[index]);
+        return reader.readField(schema.getFields()[index]);
+    }
+
+    /**
+     * 完整解碼為物件
+     */
+    @SuppressWarnings("unchecked")
+    public T materialize() {
+        reader.readerIndex(start);
+        return (T) reader.readStruct(schema.getType());
+    }
+
+    // ==================== 原始位元組轉發 ====================
+
+    /**
+     * 將結構的原始位元組寫入目標緩衝區，不重新編碼
+     * 寫入的內容可由 {@link ByteArrayBuffer#readStruct(Class)} 讀取
+     */
+    public ByteArrayBuffer writeTo(ByteArrayBuffer target) {
+        return target.writeBytes(reader.array(), start, end - start);
+    }
+
+    /**
+     * 複製結構的原始位元組
+     */
+    public byte[] toBytes() {
+        return Arrays.copyOfRange(reader.array(), start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "StructView{type=" + schema.getType().getName() + ", length=" + length() + "}";
+    }
+
+    // ==================== 內部方法 ====================
+
+    private int indexOf(int order) {
+        int index = schema.indexOf(order);
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("%s 沒有 order=%d 的欄位",
+                    schema.getType().getName(), order));
+        }
+        return index;
+    }
+
+    private int offsetOf(int order) {
+        return offsets[indexOf(order)];
+    }
+
+    /**
+     * 驗證欄位類型並將讀取位置移到欄位內容
+     */
+    private ByteArrayBuffer seek(int order, Class<?> primitiveType, Class<?> boxedType) {
+        int index = indexOf(order);
+        Class<?> type = schema.getFields()[index].getType();
+        if (type != primitiveType && type != boxedType) {
+            throw new IllegalArgumentException(String.format("欄位 order=%d 的類型為 %s，不是 %s",
+                    order, type.getName(), primitiveType.getName()));
+        }
+        reader.readerIndex(offsets[index]);
+        if (!reader.readBool()) {
+            throw new IllegalStateException(String.format("欄位 order=%d 為 null", order));
+        }
+        return reader;
+    }
+
+    private static boolean isValueType(Class<?> type) {
+        return type.isPrimitive() || type == Boolean.class || type == Byte.class || type == Short.class
+                || type == Character.class || type == Integer.class || type == Long.class
+                || type == Float.class || type == Double.class || type == String.class
+                || type == BigDecimal.class || type == BigInteger.class
+                || type == Date.class || type == LocalDateTime.class;
+    }
+
+    // ==================== 略過欄位（與標準格式寫入邏輯對應） ====================
+
+    private static void skip(ByteArrayBuffer reader, int length) {
+        reader.readerIndex(reader.readerIndex() + length);
+    }
+
+    private static void skipField(ByteArrayBuffer reader, StructSchema.FieldCodec field) {
+        if (field.getParameterizedType() != null) {
+            skipParameterized(reader, field.getParameterizedType());
+        } else {
+            skipValue(reader, field.getType());
+        }
+    }
+
+    private static void skipParameterized(ByteArrayBuffer reader, ParameterizedType paramType) {
+        if (!reader.readBool()) {
+            return;
+        }
+        Class<?> rawType = (Class<?>) paramType.getRawType();
+        if (!List.class.isAssignableFrom(rawType)) {
+            skipStruct(reader);
+            return;
+        }
+
+        int size = reader.readInt();
+        Type[] typeArguments = paramType.getActualTypeArguments();
+        if (typeArguments.length == 0) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (typeArguments[0] instanceof Class) {
+                skipValue(reader, (Class<?>) typeArguments[0]);
+            } else {
+                skipStruct(reader);
+            }
+        }
+    }
+
+    private static void skipValue(ByteArrayBuffer reader, Class<?> type) {
+        if (!reader.readBool()) {
+            return;
+        }
+
+        int size = fixedSize(type);
+        if (size > 0) {
+            skip(reader, size);
+        } else if (type == String.class || type == BigInteger.class) {
+            skip(reader, Math.max(reader.readInt(), 0));
+        } else if (type == BigDecimal.class) {
+            skip(reader, 4);
+            skip(reader, Math.max(reader.readInt(), 0));
+        } else if (type.isArray()) {
+            Class<?> componentType = type.getComponentType();
+            int length = reader.readInt();
+            if (componentType.isPrimitive()) {
+                skip(reader, Math.max(length, 0) * fixedSize(componentType));
+            } else {
+                for (int i = 0; i < length; i++) {
+                    skipValue(reader, componentType);
+                }
+            }
+        } else {
+            skipStruct(reader);
+        }
+    }
+
+    private static void skipStruct(ByteArrayBuffer reader) {
+        StructSchema schema = reader.readStructSchema(Object.class);
+        if (schema == null) {
+            return;
+        }
+        for (StructSchema.FieldCodec field : schema.getFields()) {
+            skipField(reader, field);
+        }
+    }
+
+    /**
+     * 固定長度類型的位元組數，非固定長度回傳 0
+     */
+    private static int fixedSize(Class<?> type) {
+        if (type == boolean.class || type == Boolean.class || type == byte.class || type == Byte.class) {
+            return 1;
+        } else if (type == short.class || type == Short.class || type == char.class || type == Character.class) {
+            return 2;
+        } else if (type == int.class || type == Integer.class || type == float.class || type == Float.class) {
+            return 4;
+        } else if (type == long.class || type == Long.class || type == double.class || type == Double.class
+                || type == Date.class || type == LocalDateTime.class) {
+            return 8;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,247 @@
+package com.vscodelife.socketio.buffer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vscodelife.socketio.annotation.StructType;
+
+/**
+ * 結構類型註冊表
+ *
+ * <p>
+ * 將結構類別對應到數字編號，{@link ByteArrayBuffer#writeStruct(Object)} 遇到已註冊的類別時
+ * 只寫入變長整數編號而不是完整類別名稱，讀取時也不必再經過 {@link Class#forName(String)}。
+ * 編號來源有兩種：
+ * </p>
+ * <ul>
+ * <li>類別上的 {@link StructType} 註解，第一次序列化或以該類型讀取時自動註冊</li>
+ * <li>呼叫 {@link #register(Class, int)} 明確註冊（通訊雙方都必須註冊），連線建立時以
+ * {@link #writeTo(ByteArrayBuffer)} / {@link #readFrom(ByteArrayBuffer)} 核對雙方是否一致</li>
+ * </ul>
+ *
+ * <p>
+ * 註冊表為整個程序共用，因此對方送來的註冊表只用來核對，不會改變本地的對應，
+ * 也不會依對方提供的類別名稱載入類別。
+ * </p>
+ *
+ * <p>
+ * 未註冊的類別仍以類別名稱傳輸，名稱解析結果（包含找不到的類別）會被快取。
+ * </p>
+ */
+public final class TypeRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(TypeRegistry.class);
+
+    public static final int MAX_ID = 0xFFFF;
+
+    // 找不到的類別名稱最多快取的數量，避免惡意名稱讓快取無限成長
+    private static final int MAX_MISSING_NAMES = 1024;
+    private static final Object MISSING = new Object();
+
+    private static final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile Class<?>[] types = new Class<?>[16];
+
+    private static final Map<String, Object> classNames = new ConcurrentHashMap<>();
+    private static int missingNames = 0;
+
+    // 類別上宣告的編號，沒有註解時為 -1
+    private static final ClassValue<Integer> declaredIds = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            StructType structType = type.getAnnotation(StructType.class);
+            return structType != null ? structType.id() : -1;
+        }
+    };
+
+    private TypeRegistry() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // ==================== 註冊 ====================
+
+    /**
+     * 依 {@link StructType} 註解註冊類別
+     *
+     * @throws IllegalArgumentException 類別沒有 {@link StructType} 註解
+     */
+    public static void register(Class<?>... classes) {
+        for (Class<?> type : classes) {
+            int id = declaredIds.get(type);
+            if (id < 0) {
+                throw new IllegalArgumentException("類別沒有 @StructType 註解: " + type.getName());
+            }
+            register(type, id);
+        }
+    }
+
+    /**
+     * 以指定編號註冊類別
+     *
+     * @throws IllegalArgumentException 編號超出範圍
+     * @throws IllegalStateException    編號或類別已經註冊為其他對應
+     */
+    public static synchronized void register(Class<?> type, int id) {
+        checkId(id);
+        Integer current = ids.get(type);
+        if (current != null) {
+            if (current == id) {
+                return;
+            }
+            throw new IllegalStateException(String.format("類別 %s 已註冊為編號 %d", type.getName(), current));
+        }
+        Class<?> bound = typeOf(id);
+        if (bound != null) {
+            throw new IllegalStateException(String.format("編號 %d 已註冊給類別 %s", id, bound.getName()));
+        }
+        bind(type, id);
+    }
+
+    /**
+     * 移除所有註冊與類別名稱快取
+     */
+    public static synchronized void clear() {
+        ids.clear();
+        types = new Class<?>[16];
+        classNames.clear();
+        missingNames = 0;
+    }
+
+    // ==================== 查詢 ====================
+
+    /**
+     * 取得類別的編號，未註冊時回傳 -1
+     * 帶有 {@link StructType} 註解的類別在第一次查詢時自動註冊
+     */
+    public static int idOf(Class<?> type) {
+        Integer id = ids.get(type);
+        if (id != null) {
+            return id;
+        }
+        int declared = declaredIds.get(type);
+        if (declared < 0) {
+            return -1;
+        }
+        register(type, declared);
+        return declared;
+    }
+
+    /**
+     * 取得編號對應的類別，未註冊時回傳 null
+     */
+    public static Class<?> typeOf(int id) {
+        Class<?>[] current = types;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * 取得編號對應的類別，尚未註冊時嘗試以期望類型上的 {@link StructType} 註解註冊
+     */
+    static Class<?> typeOf(int id, Class<?> expected) {
+        Class<?> type = typeOf(id);
+        if (type == null && declaredIds.get(expected) == id) {
+            register(expected, id);
+            type = expected;
+        }
+        return type;
+    }
+
+    /**
+     * 依名稱載入類別並快取結果，找不到時回傳 null
+     */
+    public static Class<?> forName(String className) {
+        Object cached = classNames.get(className);
+        if (cached == null) {
+            cached = loadClass(className);
+        }
+        return cached == MISSING ? null : (Class<?>) cached;
+    }
+
+    // ==================== 連線協商 ====================
+
+    /**
+     * 將目前的註冊表寫入緩衝區，格式為數量後接 (編號, 類別名稱) 配對
+     */
+    public static ByteArrayBuffer writeTo(ByteArrayBuffer buffer) {
+        Class<?>[] current = types;
+        int count = 0;
+        for (Class<?> type : current) {
+            if (type != null) {
+                count++;
+            }
+        }
+        buffer.writeVarInt(count);
+        for (int id = 0; id < current.length; id++) {
+            if (current[id] != null) {
+                buffer.writeVarInt(id);
+                buffer.writeVarString(current[id].getName());
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 核對對方送來的註冊表，只有本地已註冊且類別名稱相同的編號才算一致，不一致的項目記錄警告後略過
+     *
+     * @return 與本地一致的數量
+     */
+    public static int readFrom(ByteArrayBuffer buffer) {
+        int count = buffer.readVarInt();
+        int matched = 0;
+        for (int i = 0; i < count; i++) {
+            int id = buffer.readVarInt();
+            String className = buffer.readVarString();
+            checkId(id);
+            Class<?> bound = typeOf(id);
+            if (bound != null && bound.getName().equals(className)) {
+                matched++;
+            } else {
+                logger.warn("結構類型編號與本地不一致: id={} class={} local={}", id, className,
+                        bound != null ? bound.getName() : null);
+            }
+        }
+        return matched;
+    }
+
+    // ==================== 內部方法 ====================
+
+    private static void checkId(int id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("結構類型編號超出範圍: " + id);
+        }
+    }
+
+    /**
+     * 建立對應，呼叫端需持有類別鎖
+     */
+    private static void bind(Class<?> type, int id) {
+        Class<?>[] current = types;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.min(Math.max(current.length << 1, id + 1), MAX_ID + 1));
+        } else {
+            current = current.clone();
+        }
+        current[id] = type;
+        ids.put(type, id);
+        types = current;
+    }
+
+    private static Object loadClass(String className) {
+        Object result;
+        try {
+            result = Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            result = MISSING;
+        }
+        synchronized (TypeRegistry.class) {
+            if (result != MISSING) {
+                classNames.put(className, result);
+            } else if (missingNames < MAX_MISSING_NAMES && classNames.putIfAbsent(className, MISSING) == null) {
+                missingNames++;
+            }
+        }
+        return result;
+    }
+}
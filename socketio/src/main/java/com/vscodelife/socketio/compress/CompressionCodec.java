@@ -0,0 +1,59 @@
+package com.vscodelife.socketio.compress;
+
+/**
+ * 壓縮演算法介面
+ *
+ * <p>
+ * 實作直接在呼叫端提供的位元組陣列之間壓縮與解壓縮，不建立中間串流或暫存陣列。
+ * 自訂演算法可透過 {@link CompressionCodecs#register(CompressionCodec)} 註冊，
+ * 或在 {@code META-INF/services/com.vscodelife.socketio.compress.CompressionCodec} 中宣告後自動載入。
+ * </p>
+ *
+ * <p>
+ * 實作必須是執行緒安全的；需要重複使用的原生資源（例如 {@code Deflater}）應以執行緒為單位持有。
+ * </p>
+ */
+public interface CompressionCodec {
+    /**
+     * 演算法編號，寫入消息頭供接收端選擇解壓縮方式
+     * 0 保留給舊版 GZIP 格式，1 ~ 15 保留給內建演算法，自訂演算法使用 16 ~ 255
+     */
+    int id();
+
+    /**
+     * 演算法名稱
+     */
+    String name();
+
+    /**
+     * 壓縮指定長度資料時，輸出可能需要的最大位元組數
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * 壓縮資料
+     *
+     * @param src       來源陣列
+     * @param srcOffset 來源起始位置
+     * @param length    來源長度
+     * @param dst       輸出陣列
+     * @param dstOffset 輸出起始位置
+     * @param maxLength 輸出可用的最大長度
+     * @param level     壓縮等級，0 表示使用演算法預設值，不支援等級的演算法會忽略
+     * @return 壓縮後的長度，輸出空間不足時回傳 -1
+     */
+    int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int maxLength, int level);
+
+    /**
+     * 解壓縮資料
+     *
+     * @param src            壓縮資料陣列
+     * @param srcOffset      壓縮資料起始位置
+     * @param length         壓縮資料長度
+     * @param dst            輸出陣列
+     * @param dstOffset      輸出起始位置
+     * @param originalLength 原始資料長度
+     * @throws IllegalStateException 資料損毀或長度與原始長度不符
+     */
+    void decompress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int originalLength);
+}
@@ -0,0 +1,117 @@
+package com.vscodelife.socketio.compress;
+
+import java.util.ServiceLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.message.base.HeaderBase;
+
+/**
+ * 壓縮演算法註冊表
+ *
+ * <p>
+ * 內建 {@link DeflateCodec}、{@link Lz4Codec} 與 {@link DictionaryDeflateCodec}（僅解壓縮），並在類別載入時透過 {@link ServiceLoader}
+ * 載入其他 {@link CompressionCodec} 實作。接收端依消息頭中的演算法編號查表解壓縮。
+ * </p>
+ */
+public final class CompressionCodecs {
+    private static final Logger logger = LoggerFactory.getLogger(CompressionCodecs.class);
+
+    /**
+     * 舊版 GZIP 格式（{@link ByteArrayBuffer#compress()}），消息頭只標記 isCompress 時使用
+     */
+    public static final int LEGACY_GZIP = 0;
+
+    /**
+     * 連線串流壓縮（{@link StreamingCompressionContext}），需要連線上下文才能解壓縮，不在註冊表中
+     */
+    public static final int STREAM = 4;
+
+    public static final CompressionCodec DEFLATE = new DeflateCodec();
+    public static final CompressionCodec LZ4 = new Lz4Codec();
+    public static final CompressionCodec DEFLATE_DICTIONARY = new DictionaryDeflateCodec();
+
+    private static final CompressionCodec[] codecs = new CompressionCodec[256];
+
+    static {
+        register(DEFLATE);
+        register(LZ4);
+        register(DEFLATE_DICTIONARY);
+        for (CompressionCodec codec : ServiceLoader.load(CompressionCodec.class)) {
+            try {
+                register(codec);
+            } catch (RuntimeException e) {
+                logger.warn("略過壓縮演算法 {}: {}", codec.getClass().getName(), e.getMessage());
+            }
+        }
+    }
+
+    private CompressionCodecs() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * 註冊壓縮演算法
+     *
+     * @throws IllegalArgumentException 編號超出 1 ~ 255 或為保留的串流壓縮編號
+     * @throws IllegalStateException    編號已被其他演算法使用
+     */
+    public static synchronized void register(CompressionCodec codec) {
+        int id = codec.id();
+        if (id <= LEGACY_GZIP || id == STREAM || id >= codecs.length) {
+            throw new IllegalArgumentException("壓縮演算法編號超出範圍: " + id);
+        }
+        CompressionCodec current = codecs[id];
+        if (current != null && current.getClass() != codec.getClass()) {
+            throw new IllegalStateException(String.format("壓縮演算法編號 %d 已註冊給 %s", id, current.name()));
+        }
+        codecs[id] = codec;
+    }
+
+    /**
+     * 依編號取得壓縮演算法，找不到時回傳 null
+     */
+    public static CompressionCodec get(int id) {
+        return id > LEGACY_GZIP && id < codecs.length ? codecs[id] : null;
+    }
+
+    /**
+     * 依消息頭記錄的壓縮方式解壓縮訊息內容，未壓縮時不做任何處理
+     *
+     * @throws IllegalStateException 未知的壓縮演算法或資料損毀
+     */
+    public static void decompress(HeaderBase header, ByteArrayBuffer buffer) {
+        decompress(header, buffer, null);
+    }
+
+    /**
+     * 依消息頭記錄的壓縮方式解壓縮訊息內容，串流壓縮的訊息使用連線的上下文
+     *
+     * @param context 連線的串流壓縮上下文，未啟用時為 null
+     * @throws IllegalStateException 未知的壓縮演算法、缺少串流上下文或資料損毀
+     */
+    public static void decompress(HeaderBase header, ByteArrayBuffer buffer, StreamingCompressionContext context) {
+        if (header == null || buffer == null || !header.isCompress()) {
+            return;
+        }
+        int codecId = header.getCompressCodec();
+        if (codecId == STREAM) {
+            if (context == null) {
+                throw new IllegalStateException("連線未啟用串流壓縮");
+            }
+            context.decompress(header, buffer);
+            return;
+        }
+        if (codecId == LEGACY_GZIP) {
+            buffer.decompress();
+            return;
+        }
+        CompressionCodec codec = get(codecId);
+        if (codec == null) {
+            throw new IllegalStateException("未知的壓縮演算法編號: " + codecId);
+        }
+        buffer.decompress(codec);
+    }
+}
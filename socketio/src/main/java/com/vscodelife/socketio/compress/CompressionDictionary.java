@@ -0,0 +1,185 @@
+package com.vscodelife.socketio.compress;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+
+/**
+ * 預先訓練的壓縮字典
+ *
+ * <p>
+ * 小訊息本身太短，壓縮演算法找不到足夠的重複片段；預先放入常見的欄位內容、類別名稱與協議片段後，
+ * 即使只有數百 bytes 的訊息也能引用字典中的內容而得到明顯的壓縮效果。
+ * 字典由 {@link CompressionDictionaryTrainer} 從實際流量離線訓練產生，
+ * 以編號（1 ~ 255）識別，連線建立時由服務器傳送給客戶端並由客戶端回覆確認後才開始使用。
+ * </p>
+ */
+public final class CompressionDictionary {
+    /**
+     * Deflate 的滑動視窗大小，超過的部分無法被引用
+     */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    private static final CompressionDictionary[] dictionaries = new CompressionDictionary[256];
+    private static volatile CompressionDictionary defaultDictionary;
+
+    private final int id;
+    private final byte[] content;
+    private final DictionaryDeflateCodec codec;
+
+    /**
+     * @param id      字典編號（1 ~ 255）
+     * @param content 字典內容，越常出現的片段應放在越後面；超過 {@link #MAX_SIZE} 時只保留最後的部分
+     */
+    public CompressionDictionary(int id, byte[] content) {
+        if (id <= 0 || id > 255) {
+            throw new IllegalArgumentException("字典編號超出範圍: " + id);
+        }
+        if (content == null || content.length == 0) {
+            throw new IllegalArgumentException("字典內容不能為空");
+        }
+        this.id = id;
+        this.content = content.length > MAX_SIZE
+                ? Arrays.copyOfRange(content, content.length - MAX_SIZE, content.length)
+                : content.clone();
+        this.codec = new DictionaryDeflateCodec(this);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int size() {
+        return content.length;
+    }
+
+    /**
+     * 取得字典內容的副本
+     */
+    public byte[] getContent() {
+        return content.clone();
+    }
+
+    /**
+     * 字典內容（內部使用，不可修改）
+     */
+    byte[] content() {
+        return content;
+    }
+
+    /**
+     * 使用此字典壓縮的演算法
+     */
+    CompressionCodec codec() {
+        return codec;
+    }
+
+    // ==================== 註冊 ====================
+
+    /**
+     * 註冊字典，相同編號的字典會被取代
+     */
+    public static synchronized void register(CompressionDictionary dictionary) {
+        dictionaries[dictionary.id] = dictionary;
+    }
+
+    /**
+     * 編號尚未使用時註冊字典，已註冊時不取代
+     *
+     * @return 該編號目前註冊的字典（註冊成功時即為傳入的字典）
+     */
+    public static synchronized CompressionDictionary registerIfAbsent(CompressionDictionary dictionary) {
+        CompressionDictionary current = dictionaries[dictionary.id];
+        if (current != null) {
+            return current;
+        }
+        dictionaries[dictionary.id] = dictionary;
+        return dictionary;
+    }
+
+    /**
+     * 依編號取得字典，找不到時回傳 null
+     */
+    public static CompressionDictionary get(int id) {
+        return id > 0 && id < dictionaries.length ? dictionaries[id] : null;
+    }
+
+    /**
+     * 取得連線建立時提供給對方的字典，沒有設定時回傳 null
+     */
+    public static CompressionDictionary getDefault() {
+        return defaultDictionary;
+    }
+
+    /**
+     * 註冊字典並設定為連線建立時提供給對方的字典
+     */
+    public static synchronized void setDefault(CompressionDictionary dictionary) {
+        if (dictionary != null) {
+            register(dictionary);
+        }
+        defaultDictionary = dictionary;
+    }
+
+    // ==================== 讀寫 ====================
+
+    /**
+     * 從檔案載入字典（檔案內容即為字典內容）
+     */
+    public static CompressionDictionary load(int id, Path file) {
+        try {
+            return new CompressionDictionary(id, Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new RuntimeException("讀取壓縮字典時發生錯誤: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 將字典內容寫入檔案
+     */
+    public void save(Path file) {
+        try {
+            Files.write(file, content);
+        } catch (IOException e) {
+            throw new RuntimeException("寫入壓縮字典時發生錯誤: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 將字典寫入緩衝區，格式為 [編號(varint)][長度(varint)][內容]
+     */
+    public ByteArrayBuffer writeTo(ByteArrayBuffer buffer) {
+        buffer.writeVarInt(id);
+        buffer.writeVarInt(content.length);
+        return buffer.writeBytes(content);
+    }
+
+    /**
+     * 從緩衝區讀取對方傳送的字典，不註冊
+     * 字典表為整個程序共用，呼叫端應以 {@link #registerIfAbsent(CompressionDictionary)} 註冊並確認內容一致，
+     * 避免對方取代其他連線正在使用的字典
+     */
+    public static CompressionDictionary readFrom(ByteArrayBuffer buffer) {
+        int id = buffer.readVarInt();
+        int length = buffer.readVarInt();
+        if (length <= 0 || length > MAX_SIZE) {
+            throw new IllegalStateException("字典長度不合法: " + length);
+        }
+        return new CompressionDictionary(id, buffer.readBytes(length));
+    }
+
+    /**
+     * 編號與內容是否相同
+     */
+    public boolean contentEquals(CompressionDictionary other) {
+        return other != null && id == other.id && Arrays.equals(content, other.content);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompressionDictionary[id=%d size=%d]", id, content.length);
+    }
+}
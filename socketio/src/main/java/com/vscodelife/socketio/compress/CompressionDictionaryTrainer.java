@@ -0,0 +1,324 @@
+package com.vscodelife.socketio.compress;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+
+/**
+ * 壓縮字典訓練器
+ *
+ * <p>
+ * 從實際流量的樣本中挑選最常出現於多則訊息的片段組成 {@link CompressionDictionary}，做法類似 zstd 的 COVER 演算法：
+ * </p>
+ * <ol>
+ * <li>統計每個 8 bytes 片段出現在多少則樣本中（同一則樣本只計一次）</li>
+ * <li>將所有樣本依字典大小切成數個區間，在每個區間中找出片段分數總和最高的固定長度區段</li>
+ * <li>已選入的片段分數歸零，避免字典中出現重複內容</li>
+ * <li>依分數由低到高排列，分數最高的區段放在字典最後（距離最近，編碼最短）</li>
+ * </ol>
+ *
+ * <h3>使用示例：</h3>
+ *
+ * <pre>{@code
+ * // 收集流量（例如在 pack 之後呼叫）
+ * CompressionDictionaryTrainer.appendSample(out, buffer);
+ *
+ * // 離線訓練
+ * java com.vscodelife.socketio.compress.CompressionDictionaryTrainer dictionary.bin 1 16384 capture.bin
+ *
+ * // 服務器啟動時載入
+ * CompressionDictionary.setDefault(CompressionDictionary.load(1, Paths.get("dictionary.bin")));
+ * }</pre>
+ */
+public class CompressionDictionaryTrainer {
+    private static final Logger logger = LoggerFactory.getLogger(CompressionDictionaryTrainer.class);
+
+    public static final int DEFAULT_SIZE = 16 * 1024;
+
+    // 統計的片段長度
+    private static final int GRAM_SIZE = 8;
+    // 每個被選入字典的區段長度
+    private static final int SEGMENT_SIZE = 64;
+    // 樣本總大小上限，超過後的樣本會被略過
+    private static final int MAX_SAMPLE_BYTES = 64 * 1024 * 1024;
+
+    private final List<byte[]> samples = new ArrayList<>();
+    private long totalBytes = 0;
+
+    // ==================== 樣本 ====================
+
+    /**
+     * 加入一則樣本，短於片段長度的樣本會被略過
+     */
+    public CompressionDictionaryTrainer addSample(byte[] bytes, int offset, int length) {
+        if (length < GRAM_SIZE) {
+            return this;
+        }
+        if (totalBytes + length > MAX_SAMPLE_BYTES) {
+            logger.warn("樣本總大小超過 {} bytes，略過後續樣本", MAX_SAMPLE_BYTES);
+            return this;
+        }
+        samples.add(Arrays.copyOfRange(bytes, offset, offset + length));
+        totalBytes += length;
+        return this;
+    }
+
+    public CompressionDictionaryTrainer addSample(byte[] bytes) {
+        return addSample(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 加入緩衝區中可讀取的內容作為樣本，不改變讀取位置
+     */
+    public CompressionDictionaryTrainer addSample(ByteArrayBuffer buffer) {
+        return addSample(buffer.toBytes(), buffer.readerIndex(), buffer.readableBytes());
+    }
+
+    public int getSampleCount() {
+        return samples.size();
+    }
+
+    // ==================== 訓練 ====================
+
+    /**
+     * 以目前的樣本訓練字典
+     *
+     * @param id      字典編號（1 ~ 255）
+     * @param maxSize 字典大小上限，不超過 {@link CompressionDictionary#MAX_SIZE}
+     * @throws IllegalStateException 沒有可用的樣本或樣本間沒有共同片段
+     */
+    public CompressionDictionary train(int id, int maxSize) {
+        if (samples.isEmpty()) {
+            throw new IllegalStateException("沒有可用的樣本");
+        }
+        maxSize = Math.min(Math.max(maxSize, SEGMENT_SIZE), CompressionDictionary.MAX_SIZE);
+
+        Map<Long, int[]> frequencies = countFrequencies();
+
+        // 將所有樣本串接成一個序列，以區間為單位挑選區段
+        byte[] data = new byte[(int) totalBytes];
+        int[] sampleEnds = new int[samples.size()];
+        int position = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            byte[] sample = samples.get(i);
+            System.arraycopy(sample, 0, data, position, sample.length);
+            position += sample.length;
+            sampleEnds[i] = position;
+        }
+
+        int epochs = Math.max(1, maxSize / SEGMENT_SIZE);
+        int epochSize = Math.max(SEGMENT_SIZE, data.length / epochs);
+        List<long[]> selected = new ArrayList<>(); // (分數, 起始位置)
+        int selectedBytes = 0;
+        // 區間數量可能多於需要的區段數，多跑幾輪直到字典填滿或再也找不到有價值的區段
+        for (int round = 0; round < 4 && selectedBytes < maxSize; round++) {
+            int found = 0;
+            for (int start = 0; start < data.length && selectedBytes < maxSize; start += epochSize) {
+                long[] best = selectSegment(data, sampleEnds, start, Math.min(data.length, start + epochSize),
+                        frequencies);
+                if (best == null) {
+                    continue;
+                }
+                selected.add(best);
+                selectedBytes += SEGMENT_SIZE;
+                found++;
+            }
+            if (found == 0) {
+                break;
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalStateException("樣本之間沒有共同片段，無法訓練字典");
+        }
+
+        // 分數越高越靠近字典結尾
+        selected.sort((a, b) -> Long.compare(a[0], b[0]));
+        int count = Math.min(selected.size(), maxSize / SEGMENT_SIZE);
+        byte[] content = new byte[count * SEGMENT_SIZE];
+        List<long[]> kept = selected.subList(selected.size() - count, selected.size());
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(data, (int) kept.get(i)[1], content, i * SEGMENT_SIZE, SEGMENT_SIZE);
+        }
+        logger.info("字典訓練完成: id={} samples={} size={}", id, samples.size(), content.length);
+        return new CompressionDictionary(id, content);
+    }
+
+    public CompressionDictionary train(int id) {
+        return train(id, DEFAULT_SIZE);
+    }
+
+    /**
+     * 統計每個片段出現在多少則樣本中
+     */
+    private Map<Long, int[]> countFrequencies() {
+        Map<Long, int[]> frequencies = new HashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (byte[] sample : samples) {
+            seen.clear();
+            for (int i = 0; i + GRAM_SIZE <= sample.length; i++) {
+                Long gram = gram(sample, i);
+                if (seen.add(gram)) {
+                    frequencies.computeIfAbsent(gram, k -> new int[1])[0]++;
+                }
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * 在區間中以滑動視窗找出分數最高的區段，並將其中的片段分數歸零
+     *
+     * @return (分數, 起始位置)，區間內沒有出現在兩則以上樣本的片段時回傳 null
+     */
+    private static long[] selectSegment(byte[] data, int[] sampleEnds, int start, int end,
+            Map<Long, int[]> frequencies) {
+        long bestScore = 0;
+        int bestStart = -1;
+
+        int sampleIndex = sampleIndexOf(sampleEnds, start);
+        int segmentStart = start;
+        while (segmentStart + SEGMENT_SIZE <= end) {
+            // 區段不可跨越樣本邊界
+            int sampleEnd = sampleEnds[sampleIndex];
+            if (segmentStart + SEGMENT_SIZE > sampleEnd) {
+                segmentStart = sampleEnd;
+                if (++sampleIndex >= sampleEnds.length) {
+                    break;
+                }
+                continue;
+            }
+
+            long score = 0;
+            for (int i = segmentStart; i + GRAM_SIZE <= segmentStart + SEGMENT_SIZE; i++) {
+                score += score(frequencies, gram(data, i));
+            }
+            // 視窗向後滑動，每次加入一個片段並移除最前面的片段
+            int last = Math.min(end, sampleEnd) - SEGMENT_SIZE;
+            for (int s = segmentStart;; s++) {
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestStart = s;
+                }
+                if (s >= last) {
+                    break;
+                }
+                score -= score(frequencies, gram(data, s));
+                score += score(frequencies, gram(data, s + SEGMENT_SIZE - GRAM_SIZE + 1));
+            }
+            segmentStart = sampleEnd;
+            if (++sampleIndex >= sampleEnds.length) {
+                break;
+            }
+        }
+
+        if (bestStart < 0) {
+            return null;
+        }
+        for (int i = bestStart; i + GRAM_SIZE <= bestStart + SEGMENT_SIZE; i++) {
+            int[] frequency = frequencies.get(gram(data, i));
+            if (frequency != null) {
+                frequency[0] = 0;
+            }
+        }
+        return new long[] { bestScore, bestStart };
+    }
+
+    /**
+     * 只出現在單一樣本的片段對字典沒有幫助
+     */
+    private static int score(Map<Long, int[]> frequencies, long gram) {
+        int[] frequency = frequencies.get(gram);
+        return frequency == null || frequency[0] < 2 ? 0 : frequency[0];
+    }
+
+    private static int sampleIndexOf(int[] sampleEnds, int position) {
+        int index = Arrays.binarySearch(sampleEnds, position);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private static long gram(byte[] bytes, int index) {
+        long value = 0;
+        for (int i = 0; i < GRAM_SIZE; i++) {
+            value = value << 8 | (bytes[index + i] & 0xFF);
+        }
+        return value;
+    }
+
+    // ==================== 流量擷取檔 ====================
+
+    /**
+     * 將緩衝區中可讀取的內容附加到擷取檔，格式為 [長度(int)][內容]
+     */
+    public static void appendSample(OutputStream out, ByteArrayBuffer buffer) {
+        try {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(buffer.readableBytes());
+            data.write(buffer.toBytes(), buffer.readerIndex(), buffer.readableBytes());
+            data.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("寫入流量樣本時發生錯誤: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 讀取擷取檔中的所有樣本
+     */
+    public CompressionDictionaryTrainer addSamples(Path captureFile) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(captureFile))) {
+            DataInputStream data = new DataInputStream(in);
+            while (true) {
+                int length;
+                try {
+                    length = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 0 || length > MAX_SAMPLE_BYTES) {
+                    throw new IOException("樣本長度不合法: " + length);
+                }
+                byte[] bytes = new byte[length];
+                data.readFully(bytes);
+                addSample(bytes);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("讀取流量樣本時發生錯誤: " + e.getMessage(), e);
+        }
+        return this;
+    }
+
+    /**
+     * 離線訓練：{@code <輸出檔> <字典編號> <字典大小> <擷取檔...>}
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("usage: CompressionDictionaryTrainer <output> <id> <maxSize> <capture...>");
+            System.exit(1);
+        }
+        CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer();
+        for (int i = 3; i < args.length; i++) {
+            trainer.addSamples(Paths.get(args[i]));
+        }
+        CompressionDictionary dictionary = trainer.train(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        dictionary.save(Paths.get(args[0]));
+        System.out.println(dictionary + " -> " + args[0]);
+    }
+}
@@ -0,0 +1,312 @@
+package com.vscodelife.socketio.compress;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.message.base.HeaderBase;
+import com.vscodelife.socketio.message.base.ProtocolKey;
+
+/**
+ * 訊息壓縮策略
+ *
+ * <p>
+ * 決定每則送出的訊息是否壓縮以及使用哪個演算法：
+ * </p>
+ * <ul>
+ * <li>大小門檻可依協議個別設定，未設定時使用預設門檻</li>
+ * <li>壓縮前先抽樣估算位元組分佈的熵，已壓縮或加密的內容直接略過</li>
+ * <li>記錄每個協議最近的壓縮率，持續壓不下來的協議暫停壓縮，每隔一段時間再重新嘗試</li>
+ * <li>低於門檻的小訊息，在對方已確認 {@link CompressionDictionary} 時改用字典壓縮</li>
+ * </ul>
+ *
+ * <h3>使用示例：</h3>
+ *
+ * <pre>{@code
+ * CompressionPolicy.getDefault().setThreshold(ProtocolId.GET_USER_LIST, 512);
+ *
+ * // 打包時套用，來源緩衝區不會被修改（廣播時多個連線共用同一個緩衝區）
+ * ByteArrayBuffer body = CompressionPolicy.getDefault().apply(mainNo, subNo, buffer, header);
+ *
+ * // 接收端依消息頭解壓縮
+ * CompressionCodecs.decompress(header, body);
+ * }</pre>
+ */
+public class CompressionPolicy {
+    public static final int DEFAULT_THRESHOLD = 3000;
+    public static final double DEFAULT_MAX_RATIO = 0.9;
+    public static final int DEFAULT_DICTIONARY_THRESHOLD = 64;
+
+    // 抽樣估算時每個取樣區段的大小與區段數量
+    private static final int SAMPLE_WINDOW = 256;
+    private static final int SAMPLE_WINDOWS = 8;
+    // 每個位元組超過此熵（bits）視為不可壓縮
+    private static final double MAX_ENTROPY = 7.5;
+    // 協議被暫停壓縮後，每隔多少則訊息重新嘗試一次
+    private static final int RETRY_INTERVAL = 64;
+
+    private static final CompressionPolicy DEFAULT = new CompressionPolicy();
+
+    private volatile CompressionCodec codec = CompressionCodecs.LZ4;
+    private volatile int level = 0;
+    private volatile int threshold = DEFAULT_THRESHOLD;
+    private volatile double maxRatio = DEFAULT_MAX_RATIO;
+    private volatile int dictionaryThreshold = DEFAULT_DICTIONARY_THRESHOLD;
+    private final Map<ProtocolKey, Integer> thresholds = new ConcurrentHashMap<>();
+    private final Map<ProtocolKey, Stats> stats = new ConcurrentHashMap<>();
+
+    public static CompressionPolicy getDefault() {
+        return DEFAULT;
+    }
+
+    // ==================== 設定 ====================
+
+    public CompressionCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * 設定壓縮演算法與等級
+     *
+     * @param codec 壓縮演算法
+     * @param level 壓縮等級，0 表示演算法預設值
+     */
+    public CompressionPolicy setCodec(CompressionCodec codec, int level) {
+        if (codec == null) {
+            throw new IllegalArgumentException("codec cannot be null");
+        }
+        this.codec = codec;
+        this.level = level;
+        return this;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * 設定預設大小門檻，超過此大小的訊息才會嘗試壓縮
+     */
+    public CompressionPolicy setThreshold(int threshold) {
+        this.threshold = threshold;
+        return this;
+    }
+
+    /**
+     * 設定指定協議的大小門檻，小於 0 表示此協議不壓縮
+     */
+    public CompressionPolicy setThreshold(ProtocolKey key, int threshold) {
+        thresholds.put(key, threshold);
+        return this;
+    }
+
+    public CompressionPolicy setThreshold(int mainNo, int subNo, int threshold) {
+        return setThreshold(ProtocolKey.valueOf(mainNo, subNo), threshold);
+    }
+
+    public int getThreshold(ProtocolKey key) {
+        Integer value = thresholds.get(key);
+        return value == null ? threshold : value;
+    }
+
+    /**
+     * 設定可接受的最大壓縮率（壓縮後 / 原始），超過時視為不值得壓縮
+     */
+    public CompressionPolicy setMaxRatio(double maxRatio) {
+        if (maxRatio <= 0.0 || maxRatio > 1.0) {
+            throw new IllegalArgumentException("maxRatio: " + maxRatio);
+        }
+        this.maxRatio = maxRatio;
+        return this;
+    }
+
+    public int getDictionaryThreshold() {
+        return dictionaryThreshold;
+    }
+
+    /**
+     * 設定字典壓縮的大小門檻，介於此門檻與一般門檻之間的訊息使用字典壓縮，小於 0 表示停用字典壓縮
+     */
+    public CompressionPolicy setDictionaryThreshold(int dictionaryThreshold) {
+        this.dictionaryThreshold = dictionaryThreshold;
+        return this;
+    }
+
+    /**
+     * 清除所有協議的壓縮統計
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    // ==================== 套用 ====================
+
+    /**
+     * 判斷訊息是否應該壓縮
+     */
+    public boolean shouldCompress(ProtocolKey key, ByteArrayBuffer buffer) {
+        int limit = getThreshold(key);
+        if (limit < 0 || buffer.readableBytes() <= limit) {
+            return false;
+        }
+        return isCompressible(key, buffer);
+    }
+
+    private boolean isCompressible(ProtocolKey key, ByteArrayBuffer buffer) {
+        Stats stat = stats.get(key);
+        if (stat != null && !stat.shouldTry()) {
+            return false;
+        }
+        return buffer.estimateEntropy() <= MAX_ENTROPY;
+    }
+
+    /**
+     * 依策略壓縮訊息內容並在消息頭記錄壓縮方式
+     * 不修改來源緩衝區，回傳壓縮後的新緩衝區；不需要或不值得壓縮時回傳來源緩衝區
+     */
+    public ByteArrayBuffer apply(int mainNo, int subNo, ByteArrayBuffer buffer, HeaderBase header) {
+        return apply(mainNo, subNo, buffer, header, 0);
+    }
+
+    /**
+     * 依策略壓縮訊息內容並在消息頭記錄壓縮方式
+     * 未達一般門檻的訊息在對方已確認字典時改用字典壓縮
+     *
+     * @param dictionaryId 對方已確認的字典編號，0 表示不使用字典
+     */
+    public ByteArrayBuffer apply(int mainNo, int subNo, ByteArrayBuffer buffer, HeaderBase header,
+            int dictionaryId) {
+        if (buffer == null) {
+            return buffer;
+        }
+        ProtocolKey key = ProtocolKey.valueOf(mainNo, subNo);
+        int length = buffer.readableBytes();
+        int limit = getThreshold(key);
+        if (limit < 0) {
+            return buffer;
+        }
+
+        CompressionCodec current = codec;
+        int currentLevel = level;
+        if (length <= limit) {
+            CompressionDictionary dictionary = CompressionDictionary.get(dictionaryId);
+            int minLength = dictionaryThreshold;
+            if (dictionary == null || minLength < 0 || length < minLength) {
+                return buffer;
+            }
+            current = dictionary.codec();
+            currentLevel = 0;
+        }
+        if (!isCompressible(key, buffer)) {
+            return buffer;
+        }
+
+        ByteArrayBuffer compressed = buffer.compressTo(current, currentLevel);
+        int compressedLength = compressed == null ? length : compressed.readableBytes();
+        stats.computeIfAbsent(key, k -> new Stats()).record(length, compressedLength, maxRatio);
+        if (compressed == null || compressedLength > length * maxRatio) {
+            return buffer;
+        }
+        header.setCompression(current.id(), currentLevel);
+        return compressed;
+    }
+
+    // ==================== 抽樣估算 ====================
+
+    /**
+     * 抽樣估算資料的位元組熵（bits/byte，0 ~ 8）
+     * 資料較大時只在均勻分佈的數個區段中取樣，成本與資料大小無關
+     */
+    public static double estimateEntropy(byte[] bytes, int offset, int length) {
+        if (length <= 0) {
+            return 0.0;
+        }
+        int[] counts = new int[256];
+        int sampled = 0;
+        if (length <= SAMPLE_WINDOW * SAMPLE_WINDOWS) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                counts[bytes[i] & 0xFF]++;
+            }
+            sampled = length;
+        } else {
+            int stride = (length - SAMPLE_WINDOW) / (SAMPLE_WINDOWS - 1);
+            for (int w = 0; w < SAMPLE_WINDOWS; w++) {
+                int start = offset + w * stride;
+                for (int i = start, end = start + SAMPLE_WINDOW; i < end; i++) {
+                    counts[bytes[i] & 0xFF]++;
+                }
+            }
+            sampled = SAMPLE_WINDOW * SAMPLE_WINDOWS;
+        }
+
+        double entropy = 0.0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / sampled;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    /**
+     * 以抽樣區段實際壓縮估算壓縮率（壓縮後 / 原始）
+     */
+    public static double estimateRatio(CompressionCodec codec, byte[] bytes, int offset, int length) {
+        if (length <= 0) {
+            return 0.0;
+        }
+        int sampleLength = Math.min(length, SAMPLE_WINDOW * SAMPLE_WINDOWS);
+        byte[] sample;
+        if (sampleLength == length) {
+            sample = bytes;
+        } else {
+            // 將均勻分佈的取樣區段串接起來，保留區段內的重複模式
+            sample = new byte[sampleLength];
+            int stride = (length - SAMPLE_WINDOW) / (SAMPLE_WINDOWS - 1);
+            for (int w = 0; w < SAMPLE_WINDOWS; w++) {
+                System.arraycopy(bytes, offset + w * stride, sample, w * SAMPLE_WINDOW, SAMPLE_WINDOW);
+            }
+            offset = 0;
+        }
+        byte[] target = new byte[codec.maxCompressedLength(sampleLength)];
+        int compressed = codec.compress(sample, offset, sampleLength, target, 0, target.length, 0);
+        return compressed < 0 ? 1.0 : Math.min(1.0, (double) compressed / sampleLength);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "CompressionPolicy[codec=%s level=%d threshold=%d dictionaryThreshold=%d maxRatio=%.2f protocols=%d]",
+                codec.name(), level, threshold, dictionaryThreshold, maxRatio, stats.size());
+    }
+
+    /**
+     * 單一協議的壓縮統計
+     */
+    private static class Stats {
+        private int skipped;
+        private boolean suspended;
+
+        synchronized void record(int length, int compressedLength, double maxRatio) {
+            // 壓縮率不理想時暫停此協議的壓縮
+            suspended = compressedLength > length * maxRatio;
+            skipped = 0;
+        }
+
+        synchronized boolean shouldTry() {
+            if (!suspended) {
+                return true;
+            }
+            if (++skipped >= RETRY_INTERVAL) {
+                skipped = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.vscodelife.socketio.compress;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate 壓縮（不含 GZIP/zlib 標頭與校驗碼）
+ *
+ * <p>
+ * 每個執行緒持有一組 {@link Deflater}/{@link Inflater} 並在每次使用前重置，
+ * 避免每則訊息都建立新的原生壓縮狀態；資料直接在陣列之間處理，不經過串流。
+ * </p>
+ */
+public final class DeflateCodec implements CompressionCodec {
+    public static final int ID = 1;
+
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal
+            .withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return "deflate";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        // 與 zlib compressBound 相同的估算，額外保留區塊標頭空間
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int maxLength, int level) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setLevel(level <= 0 ? Deflater.DEFAULT_COMPRESSION : Math.min(level, Deflater.BEST_COMPRESSION));
+        deflater.setInput(src, srcOffset, length);
+        deflater.finish();
+
+        int written = 0;
+        while (!deflater.finished()) {
+            if (written >= maxLength) {
+                return -1;
+            }
+            written += deflater.deflate(dst, dstOffset + written, maxLength - written);
+        }
+        return written;
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int originalLength) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(src, srcOffset, length);
+        try {
+            int read = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(dst, dstOffset + read, originalLength - read);
+                if (n == 0 && (read == originalLength || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != originalLength || !inflater.finished()) {
+                throw new IllegalStateException("Deflate 資料長度不符: 期望 " + originalLength + "，實際 " + read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Deflate 資料損毀: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.vscodelife.socketio.compress;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 使用預設字典的 Deflate 壓縮
+ *
+ * <p>
+ * 壓縮資料的第一個位元組為字典編號，其後為不含標頭的 Deflate 資料，
+ * 解壓縮時依編號從 {@link CompressionDictionary} 取得相同的字典。
+ * 未指定字典的實例只能用於解壓縮。
+ * </p>
+ */
+public final class DictionaryDeflateCodec implements CompressionCodec {
+    public static final int ID = 3;
+
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal
+            .withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final CompressionDictionary dictionary;
+
+    /**
+     * 建立只能解壓縮的實例
+     */
+    public DictionaryDeflateCodec() {
+        this(null);
+    }
+
+    /**
+     * @param dictionary 壓縮時使用的字典
+     */
+    public DictionaryDeflateCodec(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public CompressionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return "deflate-dictionary";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return 1 + length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int maxLength, int level) {
+        if (dictionary == null) {
+            throw new IllegalStateException("未指定壓縮字典");
+        }
+        if (maxLength < 1) {
+            return -1;
+        }
+        dst[dstOffset] = (byte) dictionary.getId();
+
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setLevel(level <= 0 ? Deflater.DEFAULT_COMPRESSION : Math.min(level, Deflater.BEST_COMPRESSION));
+        deflater.setDictionary(dictionary.content());
+        deflater.setInput(src, srcOffset, length);
+        deflater.finish();
+
+        int written = 1;
+        while (!deflater.finished()) {
+            if (written >= maxLength) {
+                return -1;
+            }
+            written += deflater.deflate(dst, dstOffset + written, maxLength - written);
+        }
+        return written;
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int originalLength) {
+        if (length < 1) {
+            throw new IllegalStateException("缺少字典編號");
+        }
+        int dictionaryId = src[srcOffset] & 0xFF;
+        CompressionDictionary current = CompressionDictionary.get(dictionaryId);
+        if (current == null) {
+            throw new IllegalStateException("未知的壓縮字典編號: " + dictionaryId);
+        }
+
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        // 原始 Deflate 格式不會要求字典，必須在解壓縮前先設定
+        inflater.setDictionary(current.content());
+        inflater.setInput(src, srcOffset + 1, length - 1);
+        try {
+            int read = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(dst, dstOffset + read, originalLength - read);
+                if (n == 0 && (read == originalLength || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != originalLength || !inflater.finished()) {
+                throw new IllegalStateException("Deflate 資料長度不符: 期望 " + originalLength + "，實際 " + read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Deflate 資料損毀: " + e.getMessage(), e);
+        }
+    }
+}
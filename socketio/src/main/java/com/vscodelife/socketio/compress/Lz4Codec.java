@@ -0,0 +1,228 @@
+package com.vscodelife.socketio.compress;
+
+import java.util.Arrays;
+
+/**
+ * LZ4 區塊格式壓縮
+ *
+ * <p>
+ * 純 Java 實作的 LZ4 block format（與 liblz4 {@code LZ4_compress_default} 輸出相容），
+ * 以單一雜湊表尋找 4 bytes 以上的重複片段，不做熵編碼。
+ * 壓縮率低於 Deflate，但壓縮與解壓縮所需的 CPU 時間只有數分之一，適合頻繁傳送的中型訊息。
+ * 不支援壓縮等級，{@code level} 參數會被忽略。
+ * </p>
+ */
+public final class Lz4Codec implements CompressionCodec {
+    public static final int ID = 2;
+
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_LOG = 12;
+    private static final int MAX_DISTANCE = 65535;
+    // 最後一個匹配必須在資料結尾 12 bytes 之前開始，最後 5 bytes 必須是字面值
+    private static final int MF_LIMIT = 12;
+    private static final int LAST_LITERALS = 5;
+    // 連續找不到匹配時逐步加大掃描步距，快速略過不可壓縮的區段
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final ThreadLocal<int[]> hashTables = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    @Override
+    public int id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return "lz4";
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int maxLength, int level) {
+        int srcEnd = srcOffset + length;
+        int dstEnd = dstOffset + maxLength;
+        int anchor = srcOffset;
+        int op = dstOffset;
+
+        if (length > MF_LIMIT) {
+            int[] table = hashTables.get();
+            Arrays.fill(table, -1);
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int mfLimit = srcEnd - MF_LIMIT;
+
+            int ip = srcOffset;
+            int searchCount = 1 << SKIP_TRIGGER;
+            while (ip < mfLimit) {
+                int sequence = readIntLE(src, ip);
+                int h = hash(sequence);
+                int ref = table[h];
+                table[h] = ip;
+                if (ref < 0 || ip - ref > MAX_DISTANCE || readIntLE(src, ref) != sequence) {
+                    ip += searchCount++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                searchCount = 1 << SKIP_TRIGGER;
+
+                // 向前延伸匹配
+                while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                // 向後延伸匹配
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op, dstEnd);
+                if (op < 0) {
+                    return -1;
+                }
+                ip += matchLength;
+                anchor = ip;
+                if (ip < mfLimit) {
+                    table[hash(readIntLE(src, ip - 2))] = ip - 2;
+                }
+            }
+        }
+
+        // 剩餘資料全部作為字面值
+        int literalLength = srcEnd - anchor;
+        if (op + 1 + literalLength / 255 + 1 + literalLength > dstEnd) {
+            return -1;
+        }
+        int tokenPos = op++;
+        op = writeLength(dst, op, literalLength);
+        dst[tokenPos] = (byte) (Math.min(literalLength, 15) << 4);
+        System.arraycopy(src, anchor, dst, op, literalLength);
+        op += literalLength;
+        return op - dstOffset;
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int originalLength) {
+        int ip = srcOffset;
+        int srcEnd = srcOffset + length;
+        int op = dstOffset;
+        int dstEnd = dstOffset + originalLength;
+
+        while (ip < srcEnd) {
+            int token = src[ip++] & 0xFF;
+
+            // 字面值
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    if (ip >= srcEnd) {
+                        throw corrupted();
+                    }
+                    b = src[ip++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - ip || literalLength > dstEnd - op) {
+                throw corrupted();
+            }
+            System.arraycopy(src, ip, dst, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+            if (ip == srcEnd) {
+                break; // 最後一個序列只有字面值
+            }
+
+            // 匹配
+            if (srcEnd - ip < 2) {
+                throw corrupted();
+            }
+            int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+            int ref = op - offset;
+            if (offset == 0 || ref < dstOffset) {
+                throw corrupted();
+            }
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (ip >= srcEnd) {
+                        throw corrupted();
+                    }
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dstEnd - op) {
+                throw corrupted();
+            }
+            if (offset >= matchLength) {
+                System.arraycopy(dst, ref, dst, op, matchLength);
+            } else {
+                // 重疊複製（例如重複的位元組序列），必須逐位元組處理
+                for (int i = 0; i < matchLength; i++) {
+                    dst[op + i] = dst[ref + i];
+                }
+            }
+            op += matchLength;
+        }
+
+        if (op != dstEnd) {
+            throw new IllegalStateException("LZ4 資料長度不符: 期望 " + originalLength + "，實際 " + (op - dstOffset));
+        }
+    }
+
+    // ==================== 內部方法 ====================
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength,
+            byte[] dst, int op, int dstEnd) {
+        int matchExtra = matchLength - MIN_MATCH;
+        // 預估最大輸出長度：token + 字面值長度延伸 + 字面值 + offset + 匹配長度延伸
+        if (op + 1 + literalLength / 255 + 1 + literalLength + 2 + matchExtra / 255 + 1 > dstEnd) {
+            return -1;
+        }
+        int tokenPos = op++;
+        op = writeLength(dst, op, literalLength);
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        op += literalLength;
+
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        op = writeLength(dst, op, matchExtra);
+
+        dst[tokenPos] = (byte) (Math.min(literalLength, 15) << 4 | Math.min(matchExtra, 15));
+        return op;
+    }
+
+    /**
+     * 寫入 token 之後的長度延伸位元組（長度小於 15 時不需要）
+     */
+    private static int writeLength(byte[] dst, int op, int length) {
+        if (length >= 15) {
+            int remaining = length - 15;
+            while (remaining >= 255) {
+                dst[op++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[op++] = (byte) remaining;
+        }
+        return op;
+    }
+
+    private static int readIntLE(byte[] bytes, int index) {
+        return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8
+                | (bytes[index + 2] & 0xFF) << 16 | (bytes[index + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static IllegalStateException corrupted() {
+        return new IllegalStateException("LZ4 資料損毀");
+    }
+}
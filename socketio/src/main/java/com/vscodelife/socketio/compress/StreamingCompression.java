@@ -0,0 +1,175 @@
+package com.vscodelife.socketio.compress;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * 連線串流壓縮設定與記憶體預算
+ *
+ * <p>
+ * 類似 WebSocket permessage-deflate 的 context takeover：每條連線各自保留一組 Deflater / Inflater，
+ * 前後訊息共用 32KB 的滑動視窗，連續的同類訊息（相同協議、相同結構、重複的欄位）只需傳送差異。
+ * 每組上下文約佔用 {@link #CONTEXT_MEMORY} 的原生記憶體，因此以總預算限制同時啟用的連線數，
+ * 超出預算的連線協商失敗並退回一般的逐則壓縮。
+ * </p>
+ *
+ * <h3>協商流程：</h3>
+ * <ol>
+ * <li>服務器在連線建立時以 {@code NOTIFY_STREAM_COMPRESSION} 提出邀請，並先準備好解壓縮端</li>
+ * <li>客戶端啟用時建立上下文並回覆接受，之後送出的訊息即可串流壓縮</li>
+ * <li>服務器收到接受後才開始串流壓縮送往該連線的訊息；收到拒絕時釋放上下文</li>
+ * </ol>
+ */
+public class StreamingCompression {
+    /**
+     * 每組上下文的原生記憶體估計值（zlib 預設參數下 Deflater 約 256KB、Inflater 約 40KB）
+     */
+    public static final int CONTEXT_MEMORY = 300 * 1024;
+
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+    public static final int DEFAULT_MIN_SIZE = 32;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    private static final StreamingCompression DEFAULT = new StreamingCompression();
+
+    private volatile boolean enabled = false;
+    private volatile int level = DEFAULT_LEVEL;
+    private volatile int minSize = DEFAULT_MIN_SIZE;
+    private volatile long resetInterval = 0L;
+    private volatile int maxBufferSize = DEFAULT_MAX_BUFFER_SIZE;
+    private volatile long maxMemory = DEFAULT_MAX_MEMORY;
+
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final AtomicInteger contextCount = new AtomicInteger();
+
+    public static StreamingCompression getDefault() {
+        return DEFAULT;
+    }
+
+    // ==================== 設定 ====================
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 是否啟用串流壓縮，服務器端決定是否提出邀請，客戶端決定是否接受
+     */
+    public StreamingCompression setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 設定壓縮等級（1 ~ 9），串流模式下前後文已提供大部分的重複內容，較低的等級通常就足夠
+     */
+    public StreamingCompression setLevel(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level: " + level);
+        }
+        this.level = level;
+        return this;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * 設定串流壓縮的最小訊息大小，較小的訊息直接傳送
+     */
+    public StreamingCompression setMinSize(int minSize) {
+        this.minSize = minSize;
+        return this;
+    }
+
+    public long getResetInterval() {
+        return resetInterval;
+    }
+
+    /**
+     * 設定自動重置的間隔（原始位元組數），0 表示不自動重置
+     * 重置後前後文重新開始，可避免長時間連線在內容型態改變後仍引用過時的視窗
+     */
+    public StreamingCompression setResetInterval(long resetInterval) {
+        this.resetInterval = resetInterval;
+        return this;
+    }
+
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * 設定每條連線保留的輸出暫存區上限，較大的訊息使用一次性的暫存區
+     */
+    public StreamingCompression setMaxBufferSize(int maxBufferSize) {
+        this.maxBufferSize = maxBufferSize;
+        return this;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * 設定所有連線上下文的記憶體預算
+     */
+    public StreamingCompression setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+        return this;
+    }
+
+    // ==================== 上下文 ====================
+
+    /**
+     * 建立連線上下文，未啟用或超出記憶體預算時回傳 null
+     *
+     * @param outbound 是否立即啟用壓縮端（對方的解壓縮端已準備好時）
+     */
+    public StreamingCompressionContext acquire(boolean outbound) {
+        if (!enabled) {
+            return null;
+        }
+        int bufferSize = maxBufferSize;
+        long memory = CONTEXT_MEMORY + bufferSize;
+        long limit = maxMemory;
+        long current;
+        do {
+            current = usedMemory.get();
+            if (current + memory > limit) {
+                return null;
+            }
+        } while (!usedMemory.compareAndSet(current, current + memory));
+        contextCount.incrementAndGet();
+        return new StreamingCompressionContext(this, memory, level, minSize, resetInterval, bufferSize, outbound);
+    }
+
+    /**
+     * 由 {@link StreamingCompressionContext#release()} 呼叫
+     */
+    void release(long memory) {
+        usedMemory.addAndGet(-memory);
+        contextCount.decrementAndGet();
+    }
+
+    public long getUsedMemory() {
+        return usedMemory.get();
+    }
+
+    public int getContextCount() {
+        return contextCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StreamingCompression[enabled=%s level=%d contexts=%d memory=%d/%d]",
+                enabled, level, contextCount.get(), usedMemory.get(), maxMemory);
+    }
+}
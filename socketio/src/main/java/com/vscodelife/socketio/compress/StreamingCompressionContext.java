@@ -0,0 +1,302 @@
+package com.vscodelife.socketio.compress;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.message.base.HeaderBase;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * 單一連線的串流壓縮上下文
+ *
+ * <p>
+ * 由 {@link StreamingCompression#acquire(boolean)} 建立並以 {@link #attach(Channel, StreamingCompressionContext)}
+ * 綁定在連線上。每則訊息以 {@code SYNC_FLUSH} 結束並去掉結尾固定的 {@code 00 00 FF FF}，
+ * 消息頭的壓縮演算法記為 {@link CompressionCodecs#STREAM}，壓縮等級欄位改為旗標。
+ * </p>
+ *
+ * <ul>
+ * <li>壓縮與解壓縮必須依照實際的傳送與接收順序進行，因此只能在連線的編碼器與解碼器中呼叫</li>
+ * <li>Deflater / Inflater 在第一次使用時才建立，只接收不傳送的連線不會佔用壓縮端的記憶體</li>
+ * <li>{@link #reset()} 讓下一則送出的訊息重新開始，對方收到重置旗標後同步重置解壓縮端</li>
+ * </ul>
+ */
+public final class StreamingCompressionContext {
+    /**
+     * 連線屬性名稱
+     */
+    public static final String PROPERTY = "streamingCompression";
+
+    /**
+     * 重置旗標，記錄在消息頭的壓縮等級欄位
+     */
+    public static final int FLAG_RESET = 0x01;
+
+    private static final AttributeKey<StreamingCompressionContext> KEY = AttributeKey.valueOf(PROPERTY);
+    private static final byte[] SYNC_TAIL = { 0, 0, (byte) 0xFF, (byte) 0xFF };
+
+    private final StreamingCompression owner;
+    private final long memory;
+    private final int level;
+    private final int minSize;
+    private final long resetInterval;
+    private final int maxBufferSize;
+    private final CompressionCodec inbound = new Inbound();
+
+    private volatile boolean outbound;
+    private volatile boolean resetRequested;
+    private boolean released;
+
+    private Deflater deflater;
+    private Inflater inflater;
+    private byte[] scratch;
+    private long bytesSinceReset;
+    private long totalIn;
+    private long totalOut;
+
+    StreamingCompressionContext(StreamingCompression owner, long memory, int level, int minSize, long resetInterval,
+            int maxBufferSize, boolean outbound) {
+        this.owner = owner;
+        this.memory = memory;
+        this.level = level;
+        this.minSize = minSize;
+        this.resetInterval = resetInterval;
+        this.maxBufferSize = maxBufferSize;
+        this.outbound = outbound;
+    }
+
+    // ==================== 連線綁定 ====================
+
+    /**
+     * 取得連線上的上下文，未啟用時回傳 null
+     */
+    public static StreamingCompressionContext get(Channel channel) {
+        return channel == null ? null : channel.attr(KEY).get();
+    }
+
+    public static void attach(Channel channel, StreamingCompressionContext context) {
+        channel.attr(KEY).set(context);
+    }
+
+    /**
+     * 從連線移除上下文並釋放
+     */
+    public static void detach(Channel channel) {
+        if (channel != null) {
+            StreamingCompressionContext context = channel.attr(KEY).getAndSet(null);
+            if (context != null) {
+                context.release();
+            }
+        }
+    }
+
+    // ==================== 狀態 ====================
+
+    public boolean isOutbound() {
+        return outbound;
+    }
+
+    /**
+     * 對方的解壓縮端已準備好，開始串流壓縮送出的訊息
+     */
+    public void enableOutbound() {
+        outbound = true;
+    }
+
+    /**
+     * 下一則送出的訊息重新開始壓縮前後文
+     */
+    public void reset() {
+        resetRequested = true;
+    }
+
+    /**
+     * 累計壓縮率（壓縮後 / 原始），尚未壓縮任何訊息時為 1
+     */
+    public synchronized double getCompressionRatio() {
+        return totalIn == 0 ? 1.0 : (double) totalOut / totalIn;
+    }
+
+    /**
+     * 釋放原生資源並歸還記憶體預算，可重複呼叫
+     */
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        outbound = false;
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+        scratch = null;
+        owner.release(memory);
+    }
+
+    // ==================== 壓縮 ====================
+
+    /**
+     * 訊息內容是否會被串流壓縮，編碼器據此決定是否需要複製消息頭
+     */
+    public boolean accepts(ByteArrayBuffer body) {
+        return outbound && body != null && body.readableBytes() >= minSize;
+    }
+
+    /**
+     * 串流壓縮訊息內容並在消息頭記錄壓縮方式，不修改來源緩衝區
+     * 一旦壓縮就必須送出壓縮結果，否則雙方的前後文會不一致，因此即使沒有變小也會回傳壓縮結果。
+     * 同一則消息可能送往多個連線，header 應傳入本次編碼專用的副本
+     *
+     * @return 壓縮後的新緩衝區，未啟用或訊息太小時回傳 null
+     */
+    public synchronized ByteArrayBuffer compress(ByteArrayBuffer body, HeaderBase header) {
+        if (!outbound || released || body == null || body.readableBytes() < minSize) {
+            return null;
+        }
+        int length = body.readableBytes();
+        int flags = 0;
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        } else if (resetRequested || (resetInterval > 0 && bytesSinceReset >= resetInterval)) {
+            deflater.reset();
+            bytesSinceReset = 0;
+            flags |= FLAG_RESET;
+        }
+        resetRequested = false;
+
+        byte[] output = scratch;
+        int bound = length + (length >>> 12) + (length >>> 14) + 32;
+        if (output == null || output.length < bound) {
+            output = new byte[bound];
+        }
+        // 直接讀取來源的底層陣列，不先複製
+        deflater.setInput(body.nioBuffer());
+        int written = 0;
+        while (true) {
+            written += deflater.deflate(output, written, output.length - written, Deflater.SYNC_FLUSH);
+            if (written < output.length) {
+                break;
+            }
+            output = Arrays.copyOf(output, output.length << 1);
+        }
+        // SYNC_FLUSH 固定以空的 stored block 結尾，由接收端補回
+        if (written >= 4 && output[written - 4] == 0 && output[written - 3] == 0
+                && output[written - 2] == (byte) 0xFF && output[written - 1] == (byte) 0xFF) {
+            written -= 4;
+        }
+        scratch = output.length <= maxBufferSize ? output : null;
+
+        ByteArrayBuffer compressed = new ByteArrayBuffer(written + 5);
+        compressed.writeVarInt(length);
+        compressed.writeBytes(output, 0, written);
+        bytesSinceReset += length;
+        totalIn += length;
+        totalOut += compressed.readableBytes();
+        header.setCompression(CompressionCodecs.STREAM, flags);
+        return compressed;
+    }
+
+    /**
+     * 依消息頭的旗標串流解壓縮訊息內容並替換原始數據
+     *
+     * @throws IllegalStateException 上下文已釋放或資料損毀
+     */
+    public synchronized void decompress(HeaderBase header, ByteArrayBuffer body) {
+        if (released) {
+            throw new IllegalStateException("串流壓縮上下文已釋放");
+        }
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        } else if ((header.getCompressLevel() & FLAG_RESET) != 0) {
+            inflater.reset();
+        }
+        body.decompress(inbound);
+    }
+
+    /**
+     * 以連線的 Inflater 解壓縮，供 {@link ByteArrayBuffer#decompress(CompressionCodec)} 使用
+     */
+    private class Inbound implements CompressionCodec {
+        private final byte[] probe = new byte[1];
+
+        @Override
+        public int id() {
+            return CompressionCodecs.STREAM;
+        }
+
+        @Override
+        public String name() {
+            return "deflate-stream";
+        }
+
+        @Override
+        public int maxCompressedLength(int length) {
+            throw new UnsupportedOperationException("串流壓縮只能透過 StreamingCompressionContext.compress");
+        }
+
+        @Override
+        public int compress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int maxLength,
+                int level) {
+            throw new UnsupportedOperationException("串流壓縮只能透過 StreamingCompressionContext.compress");
+        }
+
+        @Override
+        public void decompress(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset,
+                int originalLength) {
+            int read = inflate(src, srcOffset, length, dst, dstOffset, originalLength, 0);
+            read = inflate(SYNC_TAIL, 0, SYNC_TAIL.length, dst, dstOffset, originalLength, read);
+            if (read != originalLength) {
+                throw new IllegalStateException("串流資料長度不符: 期望 " + originalLength + "，實際 " + read);
+            }
+        }
+
+        /**
+         * 消耗全部輸入，下一則訊息必須從這則結束的位置繼續
+         */
+        private int inflate(byte[] src, int offset, int length, byte[] dst, int dstOffset, int originalLength,
+                int read) {
+            inflater.setInput(src, offset, length);
+            try {
+                while (!inflater.needsInput()) {
+                    int n;
+                    if (read < originalLength) {
+                        n = inflater.inflate(dst, dstOffset + read, originalLength - read);
+                    } else {
+                        // 輸出已滿，剩餘的輸入只能是區塊標記
+                        n = inflater.inflate(probe, 0, 1);
+                        if (n > 0) {
+                            throw new IllegalStateException("串流資料超過原始長度 " + originalLength);
+                        }
+                    }
+                    if (n == 0 && !inflater.needsInput()) {
+                        if (inflater.finished() || inflater.needsDictionary()) {
+                            throw new IllegalStateException("串流資料損毀");
+                        }
+                        if (read >= originalLength) {
+                            break;
+                        }
+                    }
+                    read += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("串流資料損毀: " + e.getMessage(), e);
+            }
+            return read;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("StreamingCompressionContext[outbound=%s in=%d out=%d]", outbound, totalIn, totalOut);
+    }
+}
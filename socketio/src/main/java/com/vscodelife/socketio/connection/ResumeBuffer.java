@@ -0,0 +1,267 @@
+package com.vscodelife.socketio.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vscodelife.socketio.message.base.MessageBase;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 會話恢復用的送出序號與近期送出幀的環狀緩衝區
+ *
+ * <p>
+ * 以 {@link #attach(Channel, ResumeBuffer)} 綁定在連線上，編碼器每送出一個應用層幀（主協議號不為 0）
+ * 呼叫 {@link #append(Object)} 取得遞增的序號，客戶端以相同規則計數收到的幀。
+ * 斷線後會話暫停（{@link #suspend()}），期間送往此會話的消息直接放入緩衝區；
+ * 客戶端重連並帶上最後收到的序號時，{@link #resume(long, Runnable)} 回傳之後遺漏的幀，不需重新載入全部狀態。
+ * </p>
+ *
+ * <ul>
+ * <li>項目為消息（{@link MessageBase}）或已編碼的幀（{@link ByteBuf}），緩衝區持有一份引用</li>
+ * <li>最多保留 {@link #getCapacity()} 筆，超過時釋放最舊的一筆；遺漏的幀已被覆蓋時無法恢復</li>
+ * <li>主協議號 0 的控制幀（認證、會話編號、壓縮協商）屬於單一連線，不編號也不回放</li>
+ * </ul>
+ */
+public final class ResumeBuffer {
+    /**
+     * 連線屬性名稱
+     */
+    public static final String PROPERTY = "resumeBuffer";
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final AttributeKey<ResumeBuffer> KEY = AttributeKey.valueOf(PROPERTY);
+
+    private final Object[] ring;
+    private final int mask;
+
+    // 下一個送出幀的序號，序號從 1 開始
+    private long nextSequence = 1L;
+    private int count;
+    private boolean suspended;
+    private boolean replaying;
+
+    public ResumeBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 保留的幀數，會調整為 2 的次方
+     */
+    public ResumeBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new Object[size];
+        this.mask = size - 1;
+    }
+
+    // ==================== 連線綁定 ====================
+
+    /**
+     * 取得連線上的緩衝區，未啟用會話恢復時回傳 null
+     */
+    public static ResumeBuffer get(Channel channel) {
+        return channel == null ? null : channel.attr(KEY).get();
+    }
+
+    public static void attach(Channel channel, ResumeBuffer buffer) {
+        channel.attr(KEY).set(buffer);
+    }
+
+    /**
+     * 從連線移除緩衝區（不釋放內容，會話暫停期間仍需保留）
+     */
+    public static ResumeBuffer detach(Channel channel) {
+        return channel == null ? null : channel.attr(KEY).getAndSet(null);
+    }
+
+    /**
+     * 是否為需要編號的應用層協議
+     */
+    public static boolean isSequenced(int mainNo) {
+        return mainNo != 0;
+    }
+
+    /**
+     * 寫出不經過編碼器的已編碼幀（快取回放），在連線的事件迴圈中先記錄序號再寫出，序號與實際送出順序一致
+     */
+    public static void writeFrame(Channel channel, ByteBuf frame) {
+        if (!channel.eventLoop().inEventLoop()) {
+            channel.eventLoop().execute(() -> writeFrame(channel, frame));
+            return;
+        }
+        ResumeBuffer buffer = get(channel);
+        if (buffer != null) {
+            buffer.append(frame);
+        }
+        channel.writeAndFlush(frame);
+    }
+
+    // ==================== 狀態 ====================
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * 最後送出幀的序號，尚未送出時為 0
+     */
+    public synchronized long getSequence() {
+        return nextSequence - 1;
+    }
+
+    public synchronized boolean isSuspended() {
+        return suspended;
+    }
+
+    // ==================== 送出 ====================
+
+    /**
+     * 記錄一個送出的幀並回傳其序號，緩衝區另外保留一份引用（幀須在寫出前記錄）；回放期間的重送不重複記錄
+     *
+     * @return 幀的序號，回放中回傳 0
+     */
+    public synchronized long append(Object frame) {
+        if (replaying) {
+            return 0L;
+        }
+        return put(retain(frame));
+    }
+
+    /**
+     * 會話暫停時接管送往此會話的消息（取得呼叫端的引用），回傳 false 表示會話正常，由呼叫端照常寫出
+     * <p>
+     * 只有應用層消息會編號保存；主協議號 0 的控制幀（斷線通知、心跳、停機通知）屬於已中斷的連線，
+     * 客戶端也不計數，直接釋放，避免兩端序號不一致
+     * </p>
+     */
+    public synchronized boolean offer(Object frame) {
+        if (!suspended) {
+            return false;
+        }
+        if (frame instanceof MessageBase<?, ?> message && !isSequenced(message.getHeader().getMainNo())) {
+            release(frame);
+            return true;
+        }
+        put(frame);
+        return true;
+    }
+
+    private long put(Object frame) {
+        long sequence = nextSequence++;
+        int slot = (int) (sequence & mask);
+        if (count == ring.length) {
+            release(ring[slot]);
+        } else {
+            count++;
+        }
+        ring[slot] = frame;
+        return sequence;
+    }
+
+    // ==================== 暫停與恢復 ====================
+
+    /**
+     * 連線中斷時呼叫，之後送往此會話的消息由 {@link #offer(Object)} 保存
+     */
+    public synchronized void suspend() {
+        suspended = true;
+    }
+
+    /**
+     * 客戶端帶上最後收到的序號恢復會話，回傳之後遺漏的幀（各自保留一份引用，寫出後由 Netty 釋放），
+     * 並結束暫停；回放的幀保留原序號，須在 {@link #replay(Channel, List)} 中寫出避免重複記錄
+     * <p>
+     * rebind 在鎖內、結束暫停之前執行（例如把連線綁到新的 Channel）：其他執行緒的送出在此之前保存在緩衝區，
+     * 之後才會寫到新的 Channel，不會寫到已關閉的舊 Channel 而遺失
+     * </p>
+     *
+     * @param acknowledged 客戶端最後收到的序號
+     * @param rebind       序號有效時、結束暫停前執行，可為 null
+     * @return 遺漏的幀，序號超出範圍（遺漏的幀已被覆蓋或序號大於已送出）時回傳 null，此時不執行 rebind
+     */
+    public synchronized List<Object> resume(long acknowledged, Runnable rebind) {
+        long last = nextSequence - 1;
+        long first = nextSequence - count;
+        if (acknowledged > last || acknowledged < first - 1) {
+            return null;
+        }
+        if (rebind != null) {
+            rebind.run();
+        }
+        List<Object> missed = new ArrayList<>((int) (last - acknowledged));
+        for (long sequence = acknowledged + 1; sequence <= last; sequence++) {
+            missed.add(retain(ring[(int) (sequence & mask)]));
+        }
+        suspended = false;
+        return missed;
+    }
+
+    /**
+     * 在連線的事件迴圈中依序寫出遺漏的幀，寫出期間編碼器的 {@link #append(Object)} 不重複記錄
+     */
+    public void replay(Channel channel, List<Object> missed) {
+        if (!channel.eventLoop().inEventLoop()) {
+            channel.eventLoop().execute(() -> replay(channel, missed));
+            return;
+        }
+        synchronized (this) {
+            replaying = true;
+        }
+        try {
+            for (Object frame : missed) {
+                channel.write(frame);
+            }
+        } finally {
+            synchronized (this) {
+                replaying = false;
+            }
+        }
+        channel.flush();
+    }
+
+    /**
+     * 釋放全部保留的幀，會話結束時呼叫
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < ring.length; i++) {
+            if (ring[i] != null) {
+                release(ring[i]);
+                ring[i] = null;
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * 消息增加引用即可重新編碼；幀寫出時會移動讀取位置，因此改保存獨立讀寫位置的副本
+     */
+    private static Object retain(Object frame) {
+        if (frame instanceof MessageBase<?, ?> message) {
+            message.retain();
+            return message;
+        }
+        if (frame instanceof ByteBuf buf) {
+            return buf.retainedDuplicate();
+        }
+        return ReferenceCountUtil.retain(frame);
+    }
+
+    private static void release(Object frame) {
+        if (frame instanceof MessageBase<?, ?> message) {
+            message.release();
+        } else {
+            ReferenceCountUtil.release(frame);
+        }
+    }
+}
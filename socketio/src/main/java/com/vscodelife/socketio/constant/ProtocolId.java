@@ -6,6 +6,13 @@ public class ProtocolId {
     public static final ProtocolKey PING = new ProtocolKey(0, 0);
     public static final ProtocolKey AUTH = new ProtocolKey(0, 1);
     public static final ProtocolKey AUTH_RESULT = new ProtocolKey(0, 2);
+    public static final ProtocolKey RESUME = new ProtocolKey(0, 3);
+    public static final ProtocolKey RESUME_RESULT = new ProtocolKey(0, 4);
+    public static final ProtocolKey NOTIFY_DRAIN = new ProtocolKey(0, 121);
+    public static final ProtocolKey NOTIFY_RESUME_TOKEN = new ProtocolKey(0, 122);
+    public static final ProtocolKey NOTIFY_STREAM_COMPRESSION = new ProtocolKey(0, 123);
+    public static final ProtocolKey NOTIFY_COMPRESSION_DICTIONARY = new ProtocolKey(0, 124);
+    public static final ProtocolKey NOTIFY_TYPE_REGISTRY = new ProtocolKey(0, 125);
     public static final ProtocolKey NOTIFY_SESSION_ID = new ProtocolKey(0, 126);
     public static final ProtocolKey DISCONNECT = new ProtocolKey(0, 127);
 }
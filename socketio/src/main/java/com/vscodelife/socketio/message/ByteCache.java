@@ -17,4 +17,10 @@ public class ByteCache<H extends HeaderBase> extends CacheBase<ByteMessage<H>, B
     public ByteCache(boolean enabled) {
         super(logger, ByteCache.class.getSimpleName(), enabled);
     }
+
+    @Override
+    protected long sizeOf(ByteMessage<H> message) {
+        ByteArrayBuffer buffer = message.getBuffer();
+        return ENTRY_OVERHEAD + (buffer != null ? buffer.readableBytes() : 0);
+    }
 }
@@ -3,6 +3,7 @@ package com.vscodelife.socketio.message;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
 import com.vscodelife.socketio.message.base.HeaderBase;
 import com.vscodelife.socketio.message.base.MessageBase;
+import com.vscodelife.socketio.message.base.MessagePool;
 
 public class ByteMessage<H extends HeaderBase> extends MessageBase<H, ByteArrayBuffer> {
     public ByteMessage() {
@@ -13,6 +14,25 @@ public class ByteMessage<H extends HeaderBase> extends MessageBase<H, ByteArrayB
         super(header, buffer);
     }
 
+    /**
+     * 取得消息實例，開啟 {@link MessagePool} 時從池中取出重複使用
+     */
+    @SuppressWarnings("unchecked")
+    public static <H extends HeaderBase> ByteMessage<H> obtain(H header, ByteArrayBuffer buffer) {
+        if (!MessagePool.isEnabled()) {
+            return new ByteMessage<>(header, buffer);
+        }
+        ByteMessage<H> message = MessagePool.acquire(ByteMessage.class, ByteMessage::new);
+        message.reuse(header, buffer);
+        return message;
+    }
+
+    @Override
+    public ByteMessage<H> retain() {
+        super.retain();
+        return this;
+    }
+
     @Override
     public ByteMessage<H> clone() {
         try {
@@ -26,18 +46,12 @@ public class ByteMessage<H extends HeaderBase> extends MessageBase<H, ByteArrayB
                 throw new IllegalStateException("Cannot clone ByteMessage: buffer is null");
             }
 
-            // 創建新的 ByteMessage 實例
-            ByteMessage<H> cloned = new ByteMessage<H>();
-
             // 克隆 header
             @SuppressWarnings("unchecked")
             H clonedHeader = (H) this.header.clone();
-            cloned.setHeader(clonedHeader);
-
-            // 克隆 buffer
-            cloned.setBuffer(this.buffer.clone());
 
-            return cloned;
+            // 以 obtain 建立新實例（可能來自回收池），引用計數與釋放標記重新開始，不沿用原消息的狀態
+            return obtain(clonedHeader, this.buffer.clone());
         } catch (IllegalStateException e) {
             // 重新拋出防呆錯誤
             throw e;
@@ -17,4 +17,10 @@ public class JsonCache<H extends HeaderBase> extends CacheBase<JsonMessage<H>, J
     public JsonCache(boolean enabled) {
         super(logger, JsonCache.class.getSimpleName(), enabled);
     }
+
+    @Override
+    protected long sizeOf(JsonMessage<H> message) {
+        JsonMapBuffer buffer = message.getBuffer();
+        return ENTRY_OVERHEAD + (buffer != null ? buffer.estimateSize() : 0);
+    }
 }
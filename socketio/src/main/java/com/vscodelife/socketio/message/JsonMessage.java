@@ -4,6 +4,7 @@ import com.alibaba.fastjson2.annotation.JSONField;
 import com.vscodelife.socketio.buffer.JsonMapBuffer;
 import com.vscodelife.socketio.message.base.HeaderBase;
 import com.vscodelife.socketio.message.base.MessageBase;
+import com.vscodelife.socketio.message.base.MessagePool;
 
 public class JsonMessage<H extends HeaderBase> extends MessageBase<H, JsonMapBuffer> {
     public JsonMessage() {
@@ -14,6 +15,28 @@ public class JsonMessage<H extends HeaderBase> extends MessageBase<H, JsonMapBuf
         super(header, buffer);
     }
 
+    /**
+     * 取得消息實例，開啟 {@link MessagePool} 時從池中取出重複使用
+     */
+    @SuppressWarnings("unchecked")
+    public static <H extends HeaderBase> JsonMessage<H> obtain(H header, JsonMapBuffer buffer) {
+        if (!MessagePool.isEnabled()) {
+            return new JsonMessage<>(header, buffer);
+        }
+        JsonMessage<H> message = MessagePool.acquire(JsonMessage.class, JsonMessage::new);
+        message.reuse(header, buffer);
+        return message;
+    }
+
+    @Override
+    public JsonMessage<H> retain() {
+        super.retain();
+        return this;
+    }
+
+    /**
+     * 舊格式使用的 buffer 字串，外層序列化時會再跳脫一次；新的編解碼請使用 {@link JsonMessageCodec}
+     */
     @JSONField(name = "buffer")
     public String getBufferAsString() {
         return buffer != null ? buffer.toJson() : null;
@@ -38,18 +61,12 @@ public class JsonMessage<H extends HeaderBase> extends MessageBase<H, JsonMapBuf
                 throw new IllegalStateException("Cannot clone JsonMessage: buffer is null");
             }
 
-            // 創建新的 JsonMessage 實例
-            JsonMessage<H> cloned = new JsonMessage<H>();
-
             // 克隆 header
             @SuppressWarnings("unchecked")
             H clonedHeader = (H) this.header.clone();
-            cloned.setHeader(clonedHeader);
-
-            // 克隆 buffer
-            cloned.setBuffer(this.buffer.clone());
 
-            return cloned;
+            // 以 obtain 建立新實例（可能來自回收池），引用計數與釋放標記重新開始，不沿用原消息的狀態
+            return obtain(clonedHeader, this.buffer.clone());
         } catch (IllegalStateException e) {
             // 重新拋出防呆錯誤
             throw e;
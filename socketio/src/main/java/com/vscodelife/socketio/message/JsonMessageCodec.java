@@ -0,0 +1,343 @@
+package com.vscodelife.socketio.message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import com.vscodelife.socketio.buffer.JsonMapBuffer;
+import com.vscodelife.socketio.message.base.HeaderBase;
+import com.vscodelife.socketio.message.base.MessagePool;
+
+/**
+ * JsonMessage 單次編解碼器
+ *
+ * <p>
+ * 舊格式將 {@link JsonMapBuffer} 先序列化成字串再當作字串欄位放進外層 JSON（{@link JsonMessage#getBufferAsString()}），
+ * 內容被跳脫兩次；解碼時也要先解析外層、再轉換 header、最後重新解析內層字串。
+ * 此編解碼器以 fastjson2 的 {@link JSONWriter} / {@link JSONReader} 一次寫出與讀入巢狀物件：
+ * </p>
+ *
+ * <pre>
+ * 新格式: {"header":{...},"buffer":{"code":200,...}}
+ * 舊格式: {"header":{...},"buffer":"{\"code\":200,...}"}
+ * </pre>
+ *
+ * <ul>
+ * <li>解碼時自動辨識兩種格式，不需要設定</li>
+ * <li>編碼格式由 {@link #setLegacyFormat(boolean)} 決定，尚未更新的客戶端可繼續使用舊格式</li>
+ * <li>{@link #encodeToJsonb(JsonMessage)} / {@link #decodeJsonb(byte[], int, int, Class)}
+ * 以 fastjson2 JSONB 二進位格式傳輸相同結構，用於 WebSocket BinaryWebSocketFrame；
+ * 客戶端於握手時以子協定 {@link #SUBPROTOCOL_JSONB} 選用，未選用者維持文字 JSON</li>
+ * </ul>
+ */
+public class JsonMessageCodec {
+    private static final JsonMessageCodec DEFAULT = new JsonMessageCodec(false);
+
+    /**
+     * WebSocket 子協定：文字 JSON（TextWebSocketFrame）
+     */
+    public static final String SUBPROTOCOL_JSON = "tinysocket.json";
+    /**
+     * WebSocket 子協定：JSONB 二進位（BinaryWebSocketFrame）
+     */
+    public static final String SUBPROTOCOL_JSONB = "tinysocket.jsonb";
+
+    private static final String HEADER = "header";
+    private static final String BUFFER = "buffer";
+
+    private volatile boolean legacyFormat;
+
+    public JsonMessageCodec(boolean legacyFormat) {
+        this.legacyFormat = legacyFormat;
+    }
+
+    public static JsonMessageCodec getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean isLegacyFormat() {
+        return legacyFormat;
+    }
+
+    /**
+     * 設定編碼時是否使用舊格式（buffer 為 JSON 字串）
+     */
+    public JsonMessageCodec setLegacyFormat(boolean legacyFormat) {
+        this.legacyFormat = legacyFormat;
+        return this;
+    }
+
+    // ==================== 編碼 ====================
+
+    /**
+     * 將消息編碼為 JSON 字串
+     */
+    public String encode(JsonMessage<?> message) {
+        try (JSONWriter writer = JSONWriter.of(JSONWriter.Feature.WriteNulls)) {
+            write(writer, message, legacyFormat);
+            return writer.toString();
+        }
+    }
+
+    /**
+     * 將消息編碼為 UTF-8 位元組，可直接寫入網路緩衝區而不經過字串
+     */
+    public byte[] encodeToBytes(JsonMessage<?> message) {
+        try (JSONWriter writer = JSONWriter.ofUTF8(JSONWriter.Feature.WriteNulls)) {
+            write(writer, message, legacyFormat);
+            return writer.getBytes();
+        }
+    }
+
+    /**
+     * 將消息編碼為 JSONB 二進位格式，只有選用 JSONB 的新客戶端會收到，因此 buffer 固定為巢狀物件
+     */
+    public byte[] encodeToJsonb(JsonMessage<?> message) {
+        try (JSONWriter writer = JSONWriter.ofJSONB(JSONWriter.Feature.WriteNulls)) {
+            write(writer, message, false);
+            return writer.getBytes();
+        }
+    }
+
+    private static void write(JSONWriter writer, JsonMessage<?> message, boolean legacy) {
+        writer.startObject();
+        writeName(writer, HEADER);
+        writer.writeAny(message.getHeader());
+
+        writeName(writer, BUFFER);
+        JsonMapBuffer buffer = message.getBuffer();
+        if (buffer == null) {
+            writer.writeNull();
+        } else if (legacy) {
+            writer.writeString(buffer.toJson());
+        } else {
+            // 未修改的延遲解析緩衝區直接寫出原始內容
+            buffer.writeTo(writer);
+        }
+        writer.endObject();
+    }
+
+    private static void writeName(JSONWriter writer, String name) {
+        writer.writeName(name);
+        // JSONB 的鍵值之間沒有冒號
+        if (!writer.jsonb) {
+            writer.writeColon();
+        }
+    }
+
+    // ==================== 解碼 ====================
+
+    /**
+     * 從 JSON 字串解碼消息，支援新舊兩種格式
+     *
+     * @throws RuntimeException JSON 格式錯誤或缺少 header
+     */
+    public <H extends HeaderBase> JsonMessage<H> decode(String json, Class<H> headerClass) {
+        try (JSONReader reader = JSONReader.of(json)) {
+            return read(reader, r -> r.read(headerClass), null);
+        }
+    }
+
+    /**
+     * 從 UTF-8 位元組解碼消息，支援新舊兩種格式
+     * <p>
+     * buffer 只擷取原始位元組而不解析（{@link JsonMapBuffer#lazy(byte[])}），處理器讀取欄位時才解析，
+     * 未讀取就轉發的消息可直接寫出原始內容
+     * </p>
+     *
+     * @throws RuntimeException JSON 格式錯誤或缺少 header
+     */
+    public <H extends HeaderBase> JsonMessage<H> decode(byte[] utf8, int offset, int length, Class<H> headerClass) {
+        try (JSONReader reader = JSONReader.of(utf8, offset, length, StandardCharsets.UTF_8)) {
+            return read(reader, r -> r.read(headerClass), utf8);
+        }
+    }
+
+    /**
+     * 同 {@link #decode(byte[], int, int, Class)}，消息頭由 headerFactory 取得（例如從回收池）後以
+     * {@link HeaderBase#readFrom(JSONReader)} 填入，不經由反射建立新實例
+     */
+    public <H extends HeaderBase> JsonMessage<H> decode(byte[] utf8, int offset, int length,
+            Supplier<H> headerFactory) {
+        try (JSONReader reader = JSONReader.of(utf8, offset, length, StandardCharsets.UTF_8)) {
+            return read(reader, pooled(headerFactory), utf8);
+        }
+    }
+
+    /**
+     * 從 JSONB 二進位內容解碼消息
+     *
+     * @throws RuntimeException JSONB 格式錯誤或缺少 header
+     */
+    public <H extends HeaderBase> JsonMessage<H> decodeJsonb(byte[] jsonb, int offset, int length,
+            Class<H> headerClass) {
+        try (JSONReader reader = JSONReader.ofJSONB(jsonb, offset, length)) {
+            return checkJsonbEnd(reader, read(reader, r -> r.read(headerClass), null), offset + length);
+        }
+    }
+
+    /**
+     * 同 {@link #decodeJsonb(byte[], int, int, Class)}，消息頭由 headerFactory 取得後填入
+     */
+    public <H extends HeaderBase> JsonMessage<H> decodeJsonb(byte[] jsonb, int offset, int length,
+            Supplier<H> headerFactory) {
+        try (JSONReader reader = JSONReader.ofJSONB(jsonb, offset, length)) {
+            return checkJsonbEnd(reader, read(reader, pooled(headerFactory), null), offset + length);
+        }
+    }
+
+    /**
+     * JSONB 讀取器不檢查 length，不完整的內容會繼續讀取陣列中 offset + length 之後的位元組
+     * （例如共用的網路緩衝區中其他連線的資料），讀取範圍超出時丟棄結果
+     */
+    private static <H extends HeaderBase> JsonMessage<H> checkJsonbEnd(JSONReader reader, JsonMessage<H> message,
+            int end) {
+        if (reader.getOffset() > end) {
+            message.release();
+            throw new RuntimeException("解析 JsonMessage 時發生錯誤: JSONB 內容不完整");
+        }
+        return message;
+    }
+
+    private static <H extends HeaderBase> Function<JSONReader, H> pooled(Supplier<H> headerFactory) {
+        return reader -> {
+            H header = headerFactory.get();
+            try {
+                header.readFrom(reader);
+            } catch (RuntimeException e) {
+                MessagePool.recycle(header);
+                throw e;
+            }
+            return header;
+        };
+    }
+
+    private <H extends HeaderBase> JsonMessage<H> read(JSONReader reader, Function<JSONReader, H> headerReader,
+            byte[] utf8) {
+        if (!reader.nextIfObjectStart()) {
+            throw new RuntimeException("解析 JsonMessage 時發生錯誤: 不是 JSON 物件");
+        }
+        H header = null;
+        JsonMapBuffer buffer = null;
+        try {
+            while (!reader.nextIfObjectEnd()) {
+                String name = reader.readFieldName();
+                if (HEADER.equals(name)) {
+                    // 重複的 header 欄位以最後一個為準，先歸還前一個
+                    H previous = header;
+                    header = null;
+                    MessagePool.recycle(previous);
+                    header = headerReader.apply(reader);
+                } else if (BUFFER.equals(name)) {
+                    buffer = readBuffer(reader, utf8);
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } catch (RuntimeException e) {
+            // 解碼失敗時歸還已取得的消息頭
+            MessagePool.recycle(header);
+            throw e;
+        }
+        if (header == null) {
+            throw new RuntimeException("解析 JsonMessage 時發生錯誤: 缺少 header");
+        }
+        return JsonMessage.obtain(header, buffer != null ? buffer : new JsonMapBuffer());
+    }
+
+    private static JsonMapBuffer readBuffer(JSONReader reader, byte[] utf8) {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+        if (reader.isString()) {
+            // 舊格式：buffer 為 JSON 字串，內容未經讀取器驗證，必須解析後才能使用（不可原樣寫出）
+            String json = reader.readString();
+            if (json == null || json.isEmpty()) {
+                return new JsonMapBuffer();
+            }
+            try {
+                return JsonMapBuffer.wrap(JSON.parseObject(json));
+            } catch (Exception e) {
+                throw new RuntimeException("解析 JsonMessage 時發生錯誤: buffer 不是合法的 JSON 物件", e);
+            }
+        }
+        if (utf8 != null && reader.isObject()) {
+            // 讀取器的位置在目前字元之後，物件起點為前一個位元組
+            int start = reader.getOffset() - 1;
+            int end = start >= 0 && utf8[start] == '{' ? objectEnd(utf8, start) : -1;
+            if (end > 0) {
+                reader.skipValue();
+                // 原始內容會原樣寫出，只接受讀取器略過（驗證）的範圍與掃描結果一致的物件
+                if (!skippedTo(utf8, end, reader.getOffset() - 1)) {
+                    throw new RuntimeException("解析 JsonMessage 時發生錯誤: buffer 不是合法的 JSON 物件");
+                }
+                return JsonMapBuffer.lazy(utf8, start, end - start);
+            }
+        }
+        JSONObject object = reader.readJSONObject();
+        return JsonMapBuffer.wrap(object);
+    }
+
+    /**
+     * 讀取器略過值後停在下一個記號（位置 next），兩者之間只能有空白與一個逗號
+     */
+    private static boolean skippedTo(byte[] utf8, int end, int next) {
+        if (next < end || next > utf8.length) {
+            return false;
+        }
+        boolean comma = false;
+        for (int i = end; i < next; i++) {
+            byte b = utf8[i];
+            if (b == ',' && !comma) {
+                comma = true;
+            } else if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 找出從 start 開始的 JSON 物件結尾（右大括號之後的位置），略過字串內的括號與跳脫字元
+     *
+     * @return 結尾位置，內容不完整時回傳 -1
+     */
+    private static int objectEnd(byte[] utf8, int start) {
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < utf8.length; i++) {
+            byte b = utf8[i];
+            if (inString) {
+                if (b == '\\') {
+                    i++;
+                } else if (b == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return -1;
+    }
+}
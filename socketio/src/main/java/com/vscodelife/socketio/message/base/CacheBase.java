@@ -1,28 +1,88 @@
 package com.vscodelife.socketio.message.base;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 
-import com.vscodelife.socketio.util.DateUtil;
+import com.vscodelife.socketio.connection.ResumeBuffer;
+import com.vscodelife.socketio.util.TimingWheel;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+/**
+ * 回應快取，客戶端重送相同 requestId 時直接回放先前的回應
+ *
+ * <ul>
+ * <li>依（快取鍵, 協議, requestId）建立索引，查詢為 O(1)，與使用者數量無關</li>
+ * <li>依快取鍵雜湊分段加鎖，不同使用者的寫入與查詢互不阻塞</li>
+ * <li>每筆快取以階層式時間輪排程過期，{@link #update()} 只處理到期的項目</li>
+ * <li>每個快取鍵最多保留 {@link #getMaxMessagesPerKey()} 筆，超過時移除最舊的一筆</li>
+ * <li>全域記憶體預算 {@link #getMaxMemory()}，超過時輪流從各段依 LRU 移除，大小由 {@link #sizeOf(MessageBase)} 估計</li>
+ * </ul>
+ *
+ * <p>
+ * 幀模式（{@link #setFrameMode(boolean)}）下，編碼器以 {@link #putFrame} 保存已編碼的幀位元組（池化直接記憶體），
+ * 回放時 {@link #peekFrame} 回傳保留引用的副本直接寫出，不需重新編碼，也不會讓消息物件與其緩衝區常駐堆積。
+ * 同一個查詢鍵只會保存消息或幀其中一種。
+ * </p>
+ *
+ * <p>
+ * 快取只在回應產生後才有效。{@link #joinRequest} 追蹤處理中的請求：相同請求在處理期間重送時，
+ * 重送的通道附加到處理中的請求而不再分派，回應放入快取時一併寫給所有等待的通道。
+ * 處理中的請求超過 {@link #getInFlightTimeout()} 仍未產生回應時放棄等待。
+ * </p>
+ *
+ * <p>
+ * 幀模式可再搭配持久化層（{@link #setPersistentStore(PersistentFrameStore)}）：
+ * {@link #putFrame} 同時追加至本機磁碟的記憶體映射區段，{@link #peekFrame} 在記憶體未命中時改查磁碟，
+ * 客戶端跨重啟重送時仍能回放，不會重新執行非冪等操作。
+ * </p>
+ */
 public abstract class CacheBase<M extends MessageBase<? extends HeaderBase, B>, B> {
 
     private static final long DEFAULT_TIMEOUT = 30000L;
     private static final int DEFAULT_CACHE_SIZE = 10;
+    private static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+    private static final long DEFAULT_IN_FLIGHT_TIMEOUT = 10000L;
+    private static final int MAX_WAITERS = 16;
+    private static final int SEGMENT_COUNT = 16;
+    protected static final int ENTRY_OVERHEAD = 128;
 
     protected final Logger logger;
 
     private final Set<ProtocolKey> includedKeys = ConcurrentHashMap.newKeySet();
-    private final Map<String, Cache> cacheMap = new ConcurrentHashMap<>();
+    private final Segment[] segments;
+    private final TimingWheel<Entry> wheel = new TimingWheel<>();
+    private final TimingWheel<Pending> pendingWheel = new TimingWheel<>();
     private final AtomicBoolean enabled = new AtomicBoolean(true);
 
+    private volatile long timeout = DEFAULT_TIMEOUT;
+    private volatile int maxMessagesPerKey = DEFAULT_CACHE_SIZE;
+    private volatile long maxMemory = DEFAULT_MAX_MEMORY;
+    private volatile boolean frameMode;
+    private volatile long inFlightTimeout = DEFAULT_IN_FLIGHT_TIMEOUT;
+    private volatile PersistentFrameStore persistentStore;
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final AtomicInteger evictCursor = new AtomicInteger();
+
+    // 統計
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
     protected CacheBase(Logger logger, String clazzName) {
         this(logger, clazzName, true);
     }
@@ -30,6 +90,12 @@ public abstract class CacheBase<M extends MessageBase<? extends HeaderBase, B>,
     protected CacheBase(Logger logger, String clazzName, boolean enabled) {
         this.logger = logger;
         this.enabled.set(enabled);
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Segment[] created = new CacheBase.Segment[SEGMENT_COUNT];
+        this.segments = created;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
 
         logger.debug("{} cache initialized", clazzName);
     }
@@ -42,16 +108,92 @@ public abstract class CacheBase<M extends MessageBase<? extends HeaderBase, B>,
         this.enabled.set(enable);
     }
 
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 設定快取保留時間（毫秒），只影響之後放入的快取
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getMaxMessagesPerKey() {
+        return maxMessagesPerKey;
+    }
+
+    public void setMaxMessagesPerKey(int maxMessagesPerKey) {
+        this.maxMessagesPerKey = Math.max(1, maxMessagesPerKey);
+    }
+
+    public boolean isFrameMode() {
+        return frameMode;
+    }
+
+    /**
+     * 設定是否快取已編碼的幀而非消息物件，由編碼器與消息處理器依此決定呼叫 putFrame/peekFrame
+     */
+    public void setFrameMode(boolean frameMode) {
+        this.frameMode = frameMode;
+    }
+
+    public PersistentFrameStore getPersistentStore() {
+        return persistentStore;
+    }
+
+    /**
+     * 設定幀模式的持久化層，傳入 null 停用；儲存的生命週期（開啟與關閉）由呼叫端管理
+     */
+    public void setPersistentStore(PersistentFrameStore persistentStore) {
+        this.persistentStore = persistentStore;
+    }
+
+    public long getInFlightTimeout() {
+        return inFlightTimeout;
+    }
+
+    /**
+     * 設定處理中請求的最長等待時間（毫秒），逾時後重送的請求會重新分派
+     */
+    public void setInFlightTimeout(long inFlightTimeout) {
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * 設定全域記憶體預算（位元組），超過時依 LRU 移除快取
+     */
+    public void setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * 估計單筆快取佔用的記憶體，子類別可依緩衝區類型覆寫
+     */
+    protected long sizeOf(M message) {
+        return ENTRY_OVERHEAD;
+    }
+
+    /**
+     * 推進過期時間輪並移除到期的快取，成本與到期數量成正比
+     */
     public void update() {
-        // 取出過期快取列表
-        Set<String> keys = cacheMap.entrySet().stream()
-                .filter(entry -> entry.getValue().isTimeout())
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
-        // 依序移除過期快取
-        for (String key : keys) {
-            cacheMap.remove(key);
-            logger.debug("remove key={} and cache map size={}", key, cacheMap.size());
+        int expired = wheel.advance(System.currentTimeMillis(), entry -> {
+            if (segmentFor(entry.key).expire(entry)) {
+                expirations.increment();
+            }
+        });
+        if (expired > 0) {
+            logger.debug("expire cache count={} and cache size={}", expired, size());
+        }
+        pendingWheel.advance(System.currentTimeMillis(), pending -> segmentFor(pending.key).abandon(pending));
+        PersistentFrameStore store = persistentStore;
+        if (store != null) {
+            store.update(System.currentTimeMillis());
         }
     }
 
@@ -74,15 +216,13 @@ public abstract class CacheBase<M extends MessageBase<? extends HeaderBase, B>,
     }
 
     public boolean contains(String key) {
-        return cacheMap.containsKey(key);
+        return segmentFor(key).contains(key);
     }
 
     public boolean containMessage(String key, M message) {
-        Cache cache = cacheMap.get(key);
-        if (cache != null) {
-            return cache.contains(message);
-        }
-        return false;
+        ProtocolKey pkey = message.getProtocolKey();
+        return segmentFor(key).find(new IndexKey(key, pkey.getMainNo(), pkey.getSubNo(),
+                message.getRequestId())) != null;
     }
 
     public void putMessage(String key, M message) {
@@ -91,87 +231,494 @@ public abstract class CacheBase<M extends MessageBase<? extends HeaderBase, B>,
             logger.debug("message with key={} is not included in cache", pkey);
             return;
         }
-        Cache cache = cacheMap.get(key);
-        if (cache == null) {
-            cache = new Cache(key);
-            cacheMap.put(key, cache);
-            logger.debug("put key={} and cache map size={}", key, cacheMap.size());
+        IndexKey index = new IndexKey(key, pkey.getMainNo(), pkey.getSubNo(), message.getRequestId());
+        message.retain();
+        complete(segmentFor(key).put(new Entry(index, message, null, sizeOf(message))));
+        if (usedMemory.get() > maxMemory) {
+            evictOverBudget();
         }
-        cache.put(message);
     }
 
+    /**
+     * 保存已編碼的幀，內容從 frame 的 [index, index + length) 複製到大小剛好的池化直接記憶體，不影響 frame 的讀寫位置
+     */
+    public void putFrame(String key, ProtocolKey pkey, long requestId, ByteBuf frame, int index, int length) {
+        if (!isIncluded(pkey)) {
+            logger.debug("frame with key={} is not included in cache", pkey);
+            return;
+        }
+        ByteBuf copy = frame.alloc().directBuffer(length, length);
+        try {
+            copy.writeBytes(frame, index, length);
+        } catch (RuntimeException e) {
+            copy.release();
+            throw e;
+        }
+        // 同時追加至持久化層
+        PersistentFrameStore store = persistentStore;
+        if (store != null) {
+            try {
+                store.append(key, pkey.getMainNo(), pkey.getSubNo(), requestId, frame, index, length,
+                        System.currentTimeMillis() + timeout);
+            } catch (RuntimeException e) {
+                // 磁碟層失敗不影響記憶體快取與回應寫出
+                logger.warn("persist frame with key={} failed: {}", pkey, e.getMessage());
+            }
+        }
+        IndexKey indexKey = new IndexKey(key, pkey.getMainNo(), pkey.getSubNo(), requestId);
+        complete(segmentFor(key).put(new Entry(indexKey, null, copy, ENTRY_OVERHEAD + length)));
+        if (usedMemory.get() > maxMemory) {
+            evictOverBudget();
+        }
+    }
+
+    /**
+     * 取得快取的幀，回傳保留引用的副本（獨立讀寫位置），寫出至通道後由 Netty 釋放；
+     * 記憶體未命中且設定持久化層時改查磁碟，回傳堆積複本
+     */
+    public ByteBuf peekFrame(String key, int mainNo, int subNo, long requestId) {
+        ByteBuf frame = segmentFor(key).peekFrame(new IndexKey(key, mainNo, subNo, requestId));
+        if (frame == null) {
+            PersistentFrameStore store = persistentStore;
+            if (store != null) {
+                frame = store.get(key, mainNo, subNo, requestId);
+            }
+        }
+        if (frame != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return frame;
+    }
+
+    /**
+     * 取得快取消息，回傳的消息已增加引用計數，使用完畢後需呼叫 release（寫出至通道時由編碼器釋放）
+     */
     public M peekMessage(String key, int mainNo, int subNo, long requestId) {
-        Cache cache = cacheMap.get(key);
-        if (cache != null) {
-            return cache.peek(mainNo, subNo, requestId);
+        M message = segmentFor(key).peek(new IndexKey(key, mainNo, subNo, requestId));
+        if (message != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return message;
+    }
+
+    /**
+     * 單一處理：快取未命中時呼叫，判斷相同請求是否已在處理中
+     *
+     * <ul>
+     * <li>已有快取回應（剛好在查詢後放入）：直接寫給 waiter，回傳 true</li>
+     * <li>相同請求處理中：waiter 附加到等待列表，回應產生時寫出，回傳 true</li>
+     * <li>否則登記為處理中並回傳 false，呼叫端照常分派請求</li>
+     * </ul>
+     *
+     * @return true 表示呼叫端不需要再分派此請求
+     */
+    public boolean joinRequest(String key, int mainNo, int subNo, long requestId, Channel waiter) {
+        IndexKey index = new IndexKey(key, mainNo, subNo, requestId);
+        Object reply = segmentFor(key).join(index, waiter);
+        if (reply == null) {
+            return false;
+        }
+        coalesced.increment();
+        if (reply != Boolean.TRUE) {
+            write(waiter, reply);
+        }
+        return true;
+    }
+
+    /**
+     * 回應放入快取後寫給等待中的通道（在鎖外寫出）
+     */
+    private void complete(Delivery delivery) {
+        if (delivery == null) {
+            return;
+        }
+        for (int i = 0; i < delivery.waiters.size(); i++) {
+            write(delivery.waiters.get(i), delivery.replies.get(i));
+        }
+    }
+
+    private void write(Channel channel, Object reply) {
+        if (channel.isActive()) {
+            if (reply instanceof ByteBuf frame) {
+                // 幀不經過編碼器，由 ResumeBuffer 記錄送出序號
+                ResumeBuffer.writeFrame(channel, frame);
+            } else {
+                channel.writeAndFlush(reply);
+            }
+        } else if (reply instanceof ByteBuf frame) {
+            frame.release();
+        } else if (reply instanceof MessageBase<?, ?> message) {
+            message.release();
+        }
+    }
+
+    /**
+     * 移除快取鍵底下的所有快取
+     */
+    public void removeKey(String key) {
+        segmentFor(key).removeKey(key);
+    }
+
+    // ==================== 統計 ====================
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpiredCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * 處理中被合併（未重新分派）的重送請求數
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getUsedMemory() {
+        return usedMemory.get();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
         }
-        return null;
+        return size;
     }
 
-    private class Cache {
-        private String key;
-        private List<M> messages;
-        private long timeout;
+    @Override
+    public String toString() {
+        return String.format("size=%d memory=%d/%d hit=%d miss=%d eviction=%d expired=%d coalesced=%d",
+                size(), getUsedMemory(), maxMemory, getHitCount(), getMissCount(), getEvictionCount(),
+                getExpiredCount(), getCoalescedCount());
+    }
+
+    /**
+     * 超過記憶體預算時輪流從各段移除最久未使用的快取（各段內為 LRU），每次只持有一段的鎖
+     */
+    private void evictOverBudget() {
+        int empty = 0;
+        while (usedMemory.get() > maxMemory && empty < SEGMENT_COUNT) {
+            Segment segment = segments[evictCursor.getAndIncrement() & (SEGMENT_COUNT - 1)];
+            if (segment.evictOldest()) {
+                evictions.increment();
+                empty = 0;
+            } else {
+                empty++;
+            }
+        }
+    }
 
-        public Cache(String key) {
+    private Segment segmentFor(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 查詢鍵：快取鍵（通常為使用者 ID）、協議與 requestId
+     */
+    private static final class IndexKey {
+        private final String key;
+        private final long protocol;
+        private final long requestId;
+        private final int hash;
+
+        IndexKey(String key, int mainNo, int subNo, long requestId) {
             this.key = key;
-            this.messages = new ArrayList<>(DEFAULT_CACHE_SIZE);
-            this.timeout = System.currentTimeMillis() + DEFAULT_TIMEOUT;
+            this.protocol = ((long) mainNo << 32) | (subNo & 0xFFFFFFFFL);
+            this.requestId = requestId;
+            int h = key == null ? 0 : key.hashCode();
+            h = 31 * h + Long.hashCode(protocol);
+            this.hash = 31 * h + Long.hashCode(requestId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey that = (IndexKey) obj;
+            return protocol == that.protocol && requestId == that.requestId
+                    && (key == null ? that.key == null : key.equals(that.key));
         }
 
         @Override
-        public String toString() {
-            return String.format("cache key=%s timeout=%s", key, DateUtil.toTimeStr(timeout));
+        public int hashCode() {
+            return hash;
         }
+    }
 
-        public boolean isTimeout() {
-            return System.currentTimeMillis() > timeout;
+    private final class Entry {
+        private final IndexKey index;
+        private final String key;
+        // 消息模式與幀模式擇一
+        private final M message;
+        private final ByteBuf frame;
+        private final long size;
+        private final long expireTime;
+
+        private TimingWheel.Timeout<Entry> scheduled;
+        private boolean removed;
+        // LRU 雙向鏈結
+        private Entry prev;
+        private Entry next;
+
+        Entry(IndexKey index, M message, ByteBuf frame, long size) {
+            this.index = index;
+            this.key = index.key;
+            this.message = message;
+            this.frame = frame;
+            this.size = size;
+            this.expireTime = System.currentTimeMillis() + CacheBase.this.timeout;
         }
+    }
 
-        public boolean contains(M message) {
-            synchronized (this) {
-                if (messages != null) {
-                    ProtocolKey pkey = message.getProtocolKey();
-                    long requestId = message.getRequestId();
-                    for (M m : messages) {
-                        if (m.getProtocolKey().equals(pkey) && m.getRequestId() == requestId) {
-                            return true;
-                        }
-                    }
-                }
+    /**
+     * 處理中的請求與等待回應的重送通道
+     */
+    private final class Pending {
+        private final IndexKey index;
+        private final String key;
+        private final List<Channel> waiters = new ArrayList<>(2);
+        private TimingWheel.Timeout<Pending> scheduled;
+
+        Pending(IndexKey index) {
+            this.index = index;
+            this.key = index.key;
+        }
+    }
+
+    /**
+     * 回應產生時待寫出的通道與各自保留引用的回應
+     */
+    private static final class Delivery {
+        private final List<Channel> waiters;
+        private final List<Object> replies;
+
+        Delivery(List<Channel> waiters, List<Object> replies) {
+            this.waiters = waiters;
+            this.replies = replies;
+        }
+    }
+
+    /**
+     * 分段：持有該段快取鍵的索引、每個鍵的先進先出佇列、LRU 串列與處理中的請求
+     */
+    private final class Segment {
+        private final Map<IndexKey, Entry> index = new HashMap<>();
+        private final Map<IndexKey, Pending> pending = new HashMap<>();
+        private final Map<String, ArrayDeque<Entry>> keys = new HashMap<>();
+        // LRU 串列，head 為最久未使用
+        private Entry head;
+        private Entry tail;
+
+        synchronized int size() {
+            return index.size();
+        }
+
+        synchronized boolean contains(String key) {
+            return keys.containsKey(key);
+        }
+
+        synchronized Entry find(IndexKey key) {
+            Entry entry = index.get(key);
+            return entry != null && entry.expireTime > System.currentTimeMillis() ? entry : null;
+        }
+
+        synchronized M peek(IndexKey key) {
+            Entry entry = find(key);
+            if (entry == null || entry.message == null) {
+                return null;
+            }
+            unlink(entry);
+            link(entry);
+            entry.message.retain();
+            return entry.message;
+        }
+
+        synchronized ByteBuf peekFrame(IndexKey key) {
+            Entry entry = find(key);
+            if (entry == null || entry.frame == null) {
+                return null;
+            }
+            unlink(entry);
+            link(entry);
+            return entry.frame.retainedDuplicate();
+        }
+
+        /**
+         * 放入快取，entry 持有的消息或幀引用由快取接管
+         *
+         * @return 等待此回應的重送通道，沒有時回傳 null
+         */
+        synchronized Delivery put(Entry entry) {
+            Entry old = index.get(entry.index);
+            if (old != null && old.message != null && old.message == entry.message) {
+                // 同一個消息再次寫出（例如回放給重送的通道），保留原快取
+                entry.message.release();
+                return null;
+            }
+            index.put(entry.index, entry);
+            if (old != null) {
+                remove(old, true);
+            }
+            ArrayDeque<Entry> queue = keys.computeIfAbsent(entry.key, k -> new ArrayDeque<>(DEFAULT_CACHE_SIZE));
+            queue.addLast(entry);
+            link(entry);
+            usedMemory.addAndGet(entry.size);
+            entry.scheduled = wheel.scheduleAt(entry, entry.expireTime);
+            // 同一個鍵超過上限時移除最舊的一筆
+            while (queue.size() > maxMessagesPerKey) {
+                remove(queue.peekFirst(), true);
+                evictions.increment();
+            }
+            Pending waiting = pending.remove(entry.index);
+            if (waiting == null) {
+                return null;
+            }
+            waiting.scheduled.cancel();
+            if (waiting.waiters.isEmpty()) {
+                return null;
+            }
+            List<Object> replies = new ArrayList<>(waiting.waiters.size());
+            for (int i = 0; i < waiting.waiters.size(); i++) {
+                replies.add(reply(entry));
+            }
+            return new Delivery(waiting.waiters, replies);
+        }
+
+        /**
+         * @return null 表示登記為處理中；Boolean.TRUE 表示已附加到處理中的請求；其他為已保留引用的快取回應
+         */
+        synchronized Object join(IndexKey key, Channel waiter) {
+            Entry entry = find(key);
+            if (entry != null) {
+                unlink(entry);
+                link(entry);
+                return reply(entry);
+            }
+            Pending waiting = pending.get(key);
+            if (waiting == null) {
+                waiting = new Pending(key);
+                waiting.scheduled = pendingWheel.scheduleAt(waiting, System.currentTimeMillis() + inFlightTimeout);
+                pending.put(key, waiting);
+                return null;
+            }
+            if (waiting.waiters.size() < MAX_WAITERS && !waiting.waiters.contains(waiter)) {
+                waiting.waiters.add(waiter);
+            }
+            return Boolean.TRUE;
+        }
+
+        synchronized void abandon(Pending waiting) {
+            if (pending.get(waiting.index) == waiting) {
+                pending.remove(waiting.index);
+                logger.debug("abandon in-flight request key={} waiters={}", waiting.key, waiting.waiters.size());
+            }
+        }
+
+        private Object reply(Entry entry) {
+            if (entry.frame != null) {
+                return entry.frame.retainedDuplicate();
+            }
+            entry.message.retain();
+            return entry.message;
+        }
+
+        /**
+         * 移除本段最久未使用的一筆
+         *
+         * @return 本段已無快取時回傳 false
+         */
+        synchronized boolean evictOldest() {
+            if (head == null) {
                 return false;
             }
+            remove(head, true);
+            return true;
         }
 
-        public void put(M message) {
-            synchronized (this) {
-                if (messages != null) {
-                    if (DEFAULT_CACHE_SIZE == messages.size()) {
-                        messages.remove(0);
-                    }
-                    //
-                    messages.add(message);
-                    //
-                    timeout = System.currentTimeMillis() + DEFAULT_TIMEOUT;
-                }
+        synchronized boolean expire(Entry entry) {
+            if (entry.removed) {
+                return false;
             }
+            remove(entry, false);
+            return true;
         }
 
-        public M peek(int mainNo, int subNo, long requestId) {
-            return peek(new ProtocolKey(mainNo, subNo), requestId);
+        synchronized void removeKey(String key) {
+            ArrayDeque<Entry> queue = keys.get(key);
+            while (queue != null && !queue.isEmpty()) {
+                remove(queue.peekFirst(), true);
+            }
         }
 
-        public M peek(ProtocolKey key, long requestId) {
-            synchronized (this) {
-                if (messages != null) {
-                    for (M m : messages) {
-                        if (m.getProtocolKey().equals(key) && m.getRequestId() == requestId) {
-                            return m;
-                        }
-                    }
+        private void remove(Entry entry, boolean cancel) {
+            entry.removed = true;
+            if (index.get(entry.index) == entry) {
+                index.remove(entry.index);
+            }
+            ArrayDeque<Entry> queue = keys.get(entry.key);
+            if (queue != null) {
+                queue.remove(entry);
+                if (queue.isEmpty()) {
+                    keys.remove(entry.key);
                 }
-                return null;
             }
+            unlink(entry);
+            if (cancel && entry.scheduled != null) {
+                entry.scheduled.cancel();
+            }
+            usedMemory.addAndGet(-entry.size);
+            if (entry.message != null) {
+                entry.message.release();
+            } else {
+                entry.frame.release();
+            }
+        }
+
+        private void link(Entry entry) {
+            entry.prev = tail;
+            entry.next = null;
+            if (tail != null) {
+                tail.next = entry;
+            } else {
+                head = entry;
+            }
+            tail = entry;
+        }
+
+        private void unlink(Entry entry) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else if (head == entry) {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            } else if (tail == entry) {
+                tail = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
         }
     }
 }
@@ -1,14 +1,14 @@
 package com.vscodelife.socketio.message.base;
 
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONReader;
 import com.alibaba.fastjson2.annotation.JSONField;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class HeaderBase {
     protected String version;
     protected int mainNo;
@@ -16,12 +16,111 @@ public class HeaderBase {
     protected boolean isCompress;
     protected long sessionId;
     protected long requestId;
+    // 壓縮方式：低 8 位元為演算法編號，其上 8 位元為壓縮等級
+    protected int compressMode;
     @JSONField(serialize = false, deserialize = false)
     protected long rcvTimestamp;
 
+    public HeaderBase(String version, int mainNo, int subNo, boolean isCompress, long sessionId, long requestId,
+            long rcvTimestamp) {
+        this.version = version;
+        this.mainNo = mainNo;
+        this.subNo = subNo;
+        this.isCompress = isCompress;
+        this.sessionId = sessionId;
+        this.requestId = requestId;
+        this.rcvTimestamp = rcvTimestamp;
+    }
+
     @JSONField(serialize = false)
     public ProtocolKey getProtocolKey() {
-        return new ProtocolKey(mainNo, subNo);
+        return ProtocolKey.valueOf(mainNo, subNo);
+    }
+
+    /**
+     * 標記訊息內容已壓縮並記錄壓縮演算法與等級
+     *
+     * @param codecId 壓縮演算法編號，0 表示舊版 GZIP 格式
+     * @param level   壓縮等級
+     */
+    public void setCompression(int codecId, int level) {
+        isCompress = true;
+        compressMode = (codecId & 0xFF) | (level & 0xFF) << 8;
+    }
+
+    @JSONField(serialize = false)
+    public int getCompressCodec() {
+        return compressMode & 0xFF;
+    }
+
+    @JSONField(serialize = false)
+    public int getCompressLevel() {
+        return (compressMode >>> 8) & 0xFF;
+    }
+
+    /**
+     * 從 reader 目前的位置讀入一個 JSON（或 JSONB）物件並填入欄位，供解碼器填入從回收池取得的消息頭，
+     * 不認得的欄位直接略過
+     *
+     * @throws JSONException 內容不是物件或格式錯誤
+     */
+    public void readFrom(JSONReader reader) {
+        if (!reader.nextIfObjectStart()) {
+            throw new JSONException("消息頭必須是 JSON 物件");
+        }
+        while (!reader.nextIfObjectEnd()) {
+            String name = reader.readFieldName();
+            if (name == null || !readField(name, reader)) {
+                reader.skipValue();
+            }
+        }
+    }
+
+    /**
+     * 讀入單一欄位，子類別新增欄位時需覆寫，不認得的欄位交給 super.readField()
+     *
+     * @return 是否已讀取該欄位的值
+     */
+    protected boolean readField(String name, JSONReader reader) {
+        switch (name) {
+            case "version":
+                version = reader.readString();
+                return true;
+            case "mainNo":
+                mainNo = reader.readInt32Value();
+                return true;
+            case "subNo":
+                subNo = reader.readInt32Value();
+                return true;
+            case "compress":
+                isCompress = reader.readBoolValue();
+                return true;
+            case "sessionId":
+                sessionId = reader.readInt64Value();
+                return true;
+            case "requestId":
+                requestId = reader.readInt64Value();
+                return true;
+            case "compressMode":
+                compressMode = reader.readInt32Value();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 重置所有欄位，供回收池重複使用前呼叫，子類別新增欄位時需覆寫並呼叫 super.reset()
+     */
+    public void reset() {
+        version = null;
+        mainNo = 0;
+        subNo = 0;
+        isCompress = false;
+        compressMode = 0;
+        sessionId = 0L;
+        requestId = 0L;
+        rcvTimestamp = 0L;
     }
 
     @Override
@@ -32,6 +131,8 @@ public class HeaderBase {
 
     @Override
     public HeaderBase clone() {
-        return new HeaderBase(version, mainNo, subNo, isCompress, sessionId, requestId, rcvTimestamp);
+        HeaderBase header = new HeaderBase(version, mainNo, subNo, isCompress, sessionId, requestId, rcvTimestamp);
+        header.compressMode = compressMode;
+        return header;
     }
 }
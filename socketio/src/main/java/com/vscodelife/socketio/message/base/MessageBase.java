@@ -1,11 +1,22 @@
 package com.vscodelife.socketio.message.base;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 import com.alibaba.fastjson2.annotation.JSONField;
 
 public abstract class MessageBase<H extends HeaderBase, B> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<MessageBase> REF_CNT_UPDATER = AtomicIntegerFieldUpdater
+            .newUpdater(MessageBase.class, "refCnt");
+
     protected H header;
     protected B buffer;
 
+    // 引用計數，歸零時回收消息（僅在 MessagePool 開啟時實際回收）
+    private volatile int refCnt = 1;
+    // 安全模式下標記已釋放，用於偵測釋放後使用
+    private volatile boolean released;
+
     protected MessageBase() {
 
     }
@@ -17,12 +28,13 @@ public abstract class MessageBase<H extends HeaderBase, B> {
 
     @Override
     public String toString() {
-        return header.toString();
+        return header == null ? "released message" : header.toString();
     }
 
     public abstract MessageBase<H, B> clone();
 
     public H getHeader() {
+        ensureAccessible();
         return header;
     }
 
@@ -32,30 +44,36 @@ public abstract class MessageBase<H extends HeaderBase, B> {
 
     @JSONField(serialize = false)
     public String getVersion() {
+        ensureAccessible();
         return header == null ? null : header.getVersion();
     }
 
     @JSONField(serialize = false)
     public ProtocolKey getProtocolKey() {
+        ensureAccessible();
         return header == null ? null : header.getProtocolKey();
     }
 
     @JSONField(serialize = false)
     public boolean isCompress() {
+        ensureAccessible();
         return header != null && header.isCompress();
     }
 
     @JSONField(serialize = false)
     public long getSessionId() {
+        ensureAccessible();
         return header == null ? 0L : header.getSessionId();
     }
 
     @JSONField(serialize = false)
     public long getRequestId() {
+        ensureAccessible();
         return header == null ? 0L : header.getRequestId();
     }
 
     public B getBuffer() {
+        ensureAccessible();
         return buffer;
     }
 
@@ -63,4 +81,93 @@ public abstract class MessageBase<H extends HeaderBase, B> {
         this.buffer = buffer;
     }
 
+    // ==================== 回收生命週期 ====================
+
+    /**
+     * 取得目前引用計數
+     */
+    public int refCnt() {
+        return refCnt;
+    }
+
+    /**
+     * 判斷消息是否已在安全模式下被釋放
+     */
+    @JSONField(serialize = false)
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * 增加引用計數，保留消息（例如放入快取）時呼叫
+     *
+     * @throws IllegalStateException 消息已被釋放
+     */
+    public MessageBase<H, B> retain() {
+        for (;;) {
+            int cnt = refCnt;
+            if (cnt <= 0) {
+                throw new IllegalStateException("Cannot retain released message: " + this);
+            }
+            if (REF_CNT_UPDATER.compareAndSet(this, cnt, cnt + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * 減少引用計數，歸零時回收消息與消息頭
+     *
+     * @return 本次呼叫是否使引用計數歸零
+     */
+    public boolean release() {
+        for (;;) {
+            int cnt = refCnt;
+            if (cnt <= 0) {
+                if (MessagePool.isSafetyMode()) {
+                    throw new IllegalStateException("Message has already been released: " + this);
+                }
+                return false;
+            }
+            if (REF_CNT_UPDATER.compareAndSet(this, cnt, cnt - 1)) {
+                if (cnt == 1) {
+                    deallocate();
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 重新初始化從池中取出的消息
+     */
+    protected void reuse(H header, B buffer) {
+        this.header = header;
+        this.buffer = buffer;
+        this.released = false;
+        REF_CNT_UPDATER.set(this, 1);
+    }
+
+    /**
+     * 安全模式下檢查消息是否已被釋放
+     */
+    protected void ensureAccessible() {
+        if (released) {
+            throw new IllegalStateException("Message has been released and can not be accessed");
+        }
+    }
+
+    private void deallocate() {
+        if (MessagePool.isSafetyMode()) {
+            released = true;
+        }
+        if (MessagePool.isEnabled()) {
+            H h = this.header;
+            this.header = null;
+            this.buffer = null;
+            MessagePool.recycle(h);
+            MessagePool.recycle(this);
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package com.vscodelife.socketio.message.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.vscodelife.socketio.util.pool.ObjectPool;
+
+/**
+ * 消息與消息頭的回收池
+ *
+ * <p>
+ * 預設為關閉狀態，此時 {@link #acquire(Class, Supplier)} 等同於直接建立新實例，
+ * 釋放動作也不會重置任何欄位，行為與未使用回收池時完全一致。
+ * </p>
+ *
+ * <h3>生命週期：</h3>
+ * <ul>
+ * <li>解碼或打包時透過 {@code ByteMessage.obtain}/{@code JsonMessage.obtain} 取得消息</li>
+ * <li>分派完成或編碼完成後呼叫 {@link MessageBase#release()}</li>
+ * <li>需要保留消息（例如放入快取）時先呼叫 {@link MessageBase#retain()}，不再使用時再釋放</li>
+ * </ul>
+ *
+ * <h3>安全模式：</h3>
+ * <p>
+ * 開啟後已釋放的消息會被標記，之後任何存取都會拋出 {@link IllegalStateException}；
+ * 為了讓誤用能被穩定偵測，安全模式下釋放的物件不會放回池中重複使用。
+ * </p>
+ */
+public final class MessagePool {
+    private static volatile boolean enabled = false;
+    private static volatile boolean safetyMode = false;
+
+    private static final Map<Class<?>, ObjectPool<Object>> pools = new ConcurrentHashMap<>();
+
+    private MessagePool() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+        if (!enable) {
+            clear();
+        }
+    }
+
+    public static boolean isSafetyMode() {
+        return safetyMode;
+    }
+
+    public static void setSafetyMode(boolean safety) {
+        safetyMode = safety;
+    }
+
+    /**
+     * 取得指定類型的實例，回收池關閉時直接建立新實例
+     *
+     * @param clazz   實例類型（以實際類型區分不同的池）
+     * @param factory 池為空時使用的建立方法
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T acquire(Class<T> clazz, Supplier<T> factory) {
+        if (!enabled) {
+            return factory.get();
+        }
+        ObjectPool<Object> pool = pools.computeIfAbsent(clazz,
+                k -> new ObjectPool<>(k.getSimpleName(), (Supplier<Object>) factory, MessagePool::reset,
+                        ObjectPool.DEFAULT_MAX_SIZE));
+        return (T) pool.acquire();
+    }
+
+    /**
+     * 將實例放回對應的池中，未曾透過 acquire 建立過池的類型直接丟棄
+     */
+    public static void recycle(Object obj) {
+        if (obj == null || !enabled || safetyMode) {
+            return;
+        }
+        ObjectPool<Object> pool = pools.get(obj.getClass());
+        if (pool != null) {
+            pool.release(obj);
+        }
+    }
+
+    /**
+     * 清空所有池中的閒置實例
+     */
+    public static void clear() {
+        pools.values().forEach(ObjectPool::clear);
+    }
+
+    /**
+     * 取得目前所有池的統計資訊
+     */
+    public static List<ObjectPool<Object>> getPools() {
+        return new ArrayList<>(pools.values());
+    }
+
+    private static void reset(Object obj) {
+        if (obj instanceof HeaderBase header) {
+            header.reset();
+        }
+    }
+}
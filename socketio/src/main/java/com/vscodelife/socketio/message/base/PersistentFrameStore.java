@@ -0,0 +1,343 @@
+package com.vscodelife.socketio.message.base;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vscodelife.socketio.util.SegmentLog;
+import com.vscodelife.socketio.util.SegmentLog.Segment;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 持久化的回應幀儲存（冪等快取的磁碟層）
+ *
+ * <p>
+ * {@link CacheBase} 只存在於堆積，重啟或部署後消失，客戶端跨重啟重送時會重新執行非冪等操作。
+ * 此儲存以本機目錄下的記憶體映射區段檔（{@link SegmentLog}）保存（快取鍵, 協議, requestId）→ 已編碼的回應幀：
+ * </p>
+ *
+ * <ul>
+ * <li>只追加寫入：每筆記錄附 CRC32C，寫入即進入作業系統頁快取，程序結束後仍保留</li>
+ * <li>記憶體索引只保存 64 位元鍵雜湊與檔案位置（每筆 16 位元組），讀取時比對記錄中的完整鍵</li>
+ * <li>區段存活超過 TTL 或寫滿時換新區段，區段內全部記錄過期後整檔刪除</li>
+ * <li>啟動時依序掃描區段重建索引，只驗證最後一個區段（唯一可能寫到一半的區段）的 CRC</li>
+ * </ul>
+ *
+ * 記憶體映射不保證斷電時的持久性，需要時可定時呼叫 {@link #flush()}。
+ */
+public class PersistentFrameStore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PersistentFrameStore.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SUFFIX = ".seg";
+    private static final int MAGIC = 0x54534346; // "TSCF"
+    private static final int VERSION = 1;
+    // 記錄頭：length(4) + crc(4) + expireAt(8) + requestId(8) + mainNo(4) + subNo(4) + keyLength(2)
+    private static final int RECORD_HEADER = 34;
+    private static final int MAX_KEY_LENGTH = 0xFFFF;
+
+    private final SegmentLog log;
+    private final Index index = new Index();
+
+    private int recovered;
+    private boolean closed;
+
+    private PersistentFrameStore(Path directory, long ttl, int segmentSize) {
+        this.log = new SegmentLog(directory, SUFFIX, MAGIC, VERSION, segmentSize, RECORD_HEADER, ttl);
+    }
+
+    /**
+     * 開啟（或建立）儲存目錄並從既有區段恢復索引
+     *
+     * @param directory   本機目錄
+     * @param ttl         區段換新週期（毫秒），通常與快取保留時間相同
+     * @param segmentSize 區段檔大小（位元組）
+     */
+    public static PersistentFrameStore open(Path directory, long ttl, int segmentSize) {
+        PersistentFrameStore store = new PersistentFrameStore(directory, ttl, segmentSize);
+        try {
+            store.recover();
+        } catch (IOException e) {
+            store.close();
+            throw new RuntimeException("開啟持久化快取時發生錯誤: " + e.getMessage(), e);
+        }
+        return store;
+    }
+
+    public static PersistentFrameStore open(Path directory, long ttl) {
+        return open(directory, ttl, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public Path getDirectory() {
+        return log.getDirectory();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return log.size();
+    }
+
+    /**
+     * 啟動時恢復的記錄數
+     */
+    public synchronized int getRecoveredCount() {
+        return recovered;
+    }
+
+    // ==================== 寫入與讀取 ====================
+
+    /**
+     * 追加一筆回應幀，內容取自 frame 的 [index, index + length)，不影響 frame 的讀寫位置
+     *
+     * @return 記錄超過區段大小或儲存已關閉時回傳 false
+     */
+    public synchronized boolean append(String key, int mainNo, int subNo, long requestId, ByteBuf frame,
+            int index, int length, long expireAt) {
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+        int recordLength = RECORD_HEADER + keyBytes.length + length;
+        if (closed || keyBytes.length > MAX_KEY_LENGTH || recordLength > log.getMaxRecordLength()) {
+            return false;
+        }
+        Segment segment = log.reserve(recordLength, System.currentTimeMillis());
+        ByteBuffer buffer = segment.getBuffer().duplicate();
+        buffer.position(segment.getPosition() + SegmentLog.RECORD_PREFIX);
+        buffer.putLong(expireAt);
+        buffer.putLong(requestId);
+        buffer.putInt(mainNo);
+        buffer.putInt(subNo);
+        buffer.putShort((short) keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.limit(buffer.position() + length);
+        frame.getBytes(index, buffer);
+        long location = log.commit(segment, recordLength);
+        segment.updateExpireAt(expireAt);
+        this.index.put(hash(keyBytes, mainNo, subNo, requestId), location);
+        return true;
+    }
+
+    /**
+     * 查詢回應幀，回傳內容的堆積複本，未命中或已過期時回傳 null
+     */
+    public synchronized ByteBuf get(String key, int mainNo, int subNo, long requestId) {
+        if (closed) {
+            return null;
+        }
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+        long location = index.get(hash(keyBytes, mainNo, subNo, requestId));
+        if (location == Index.MISSING) {
+            return null;
+        }
+        Segment segment = log.get(SegmentLog.segmentOf(location));
+        if (segment == null) {
+            return null;
+        }
+        ByteBuffer buffer = segment.getBuffer();
+        int offset = SegmentLog.offsetOf(location);
+        int recordLength = buffer.getInt(offset);
+        long expireAt = buffer.getLong(offset + 8);
+        if (expireAt <= System.currentTimeMillis()
+                || buffer.getLong(offset + 16) != requestId
+                || buffer.getInt(offset + 24) != mainNo
+                || buffer.getInt(offset + 28) != subNo
+                || !keyEquals(buffer, offset + RECORD_HEADER, buffer.getShort(offset + 32) & 0xFFFF, keyBytes)) {
+            return null;
+        }
+        int frameOffset = offset + RECORD_HEADER + keyBytes.length;
+        int frameLength = recordLength - RECORD_HEADER - keyBytes.length;
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(frameOffset).limit(frameOffset + frameLength);
+        return Unpooled.buffer(frameLength, frameLength).writeBytes(slice);
+    }
+
+    /**
+     * 刪除全部記錄已過期的區段，並讓目前區段依 TTL 換新
+     */
+    public synchronized void update(long now) {
+        if (closed) {
+            return;
+        }
+        if (dropExpired(now)) {
+            index.retain(log);
+        }
+        log.expire(now);
+    }
+
+    /**
+     * 將已寫入的內容強制寫回磁碟
+     */
+    public synchronized void flush() {
+        log.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        log.close();
+    }
+
+    // ==================== 區段 ====================
+
+    private boolean dropExpired(long now) {
+        boolean dropped = false;
+        for (Segment segment : new ArrayList<>(log.segments())) {
+            if (segment != log.current() && segment.getMaxExpireAt() <= now) {
+                log.delete(segment);
+                dropped = true;
+            }
+        }
+        return dropped;
+    }
+
+    private void recover() throws IOException {
+        long now = System.currentTimeMillis();
+        log.recover((segment, offset, recordLength) -> {
+            ByteBuffer buffer = segment.getBuffer();
+            int keyLength = buffer.getShort(offset + 32) & 0xFFFF;
+            if (RECORD_HEADER + keyLength > recordLength) {
+                return false;
+            }
+            long expireAt = buffer.getLong(offset + 8);
+            segment.updateExpireAt(expireAt);
+            if (expireAt > now) {
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(offset + RECORD_HEADER, keyBytes);
+                index.put(hash(keyBytes, buffer.getInt(offset + 24), buffer.getInt(offset + 28),
+                        buffer.getLong(offset + 16)), SegmentLog.location(segment.getId(), offset));
+                segment.retain();
+            }
+            return true;
+        }, now);
+        if (dropExpired(now)) {
+            index.retain(log);
+        }
+        for (Segment segment : log.segments()) {
+            recovered += segment.getLive();
+        }
+        logger.info("recover persistent cache dir={} segments={} records={}", log.getDirectory(), log.size(),
+                recovered);
+    }
+
+    private static boolean keyEquals(ByteBuffer buffer, int offset, int length, byte[] key) {
+        if (length != key.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a 64 位元雜湊，涵蓋快取鍵、協議與 requestId
+     */
+    private static long hash(byte[] key, int mainNo, int subNo, long requestId) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        h = (h ^ mainNo) * 0x100000001b3L;
+        h = (h ^ subNo) * 0x100000001b3L;
+        h = (h ^ requestId) * 0x100000001b3L;
+        h ^= h >>> 29;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * 開放定址的 long → long 索引（鍵雜湊 → 區段位置），不需要每筆建立物件
+     */
+    private static final class Index {
+        static final long MISSING = -1L;
+
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+                long k = keys[i];
+                if (k == key) {
+                    return values[i];
+                }
+                if (k == 0) {
+                    return MISSING;
+                }
+            }
+        }
+
+        void put(long key, long value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+                long k = keys[i];
+                if (k == 0) {
+                    keys[i] = key;
+                    values[i] = value;
+                    size++;
+                    return;
+                }
+                if (k == key) {
+                    // 相同請求的新記錄（或雜湊碰撞）以最新的為準
+                    values[i] = value;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 只保留仍存在區段中的項目，區段刪除後重建
+         */
+        void retain(SegmentLog live) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length];
+            values = new long[oldValues.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0 && live.get(SegmentLog.segmentOf(oldValues[i])) != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[capacity];
+            values = new long[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            return (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        }
+    }
+}
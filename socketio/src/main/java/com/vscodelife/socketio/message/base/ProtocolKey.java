@@ -1,6 +1,11 @@
 package com.vscodelife.socketio.message.base;
 
 public class ProtocolKey {
+        // 常用協議號的快取範圍，範圍內的協議鍵共用同一個實例
+        private static final int CACHE_MAIN_SIZE = 32;
+        private static final int CACHE_SUB_SIZE = 256;
+        private static final ProtocolKey[][] CACHE = new ProtocolKey[CACHE_MAIN_SIZE][CACHE_SUB_SIZE];
+
         private final int mainNo;
         private final int subNo;
 
@@ -9,6 +14,21 @@ public class ProtocolKey {
             this.subNo = subNo;
         }
 
+        /**
+         * 取得協議鍵，常用範圍內回傳快取實例，避免每次存取都建立新物件
+         */
+        public static ProtocolKey valueOf(int mainNo, int subNo) {
+            if (mainNo < 0 || mainNo >= CACHE_MAIN_SIZE || subNo < 0 || subNo >= CACHE_SUB_SIZE) {
+                return new ProtocolKey(mainNo, subNo);
+            }
+            ProtocolKey key = CACHE[mainNo][subNo];
+            if (key == null) {
+                key = new ProtocolKey(mainNo, subNo);
+                CACHE[mainNo][subNo] = key;
+            }
+            return key;
+        }
+
         public int getMainNo() {
             return mainNo;
         }
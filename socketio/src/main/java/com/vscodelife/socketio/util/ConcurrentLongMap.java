@@ -0,0 +1,499 @@
+package com.vscodelife.socketio.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 以 long 為鍵的並發雜湊表
+ *
+ * <p>
+ * {@code ConcurrentHashMap<Long, V>} 每次查詢都要將鍵裝箱，每個項目還有一個 Node 與一個 Long 物件。
+ * 本類別以開放定址（線性探測）將鍵與值直接存放在 {@code long[]} 與 {@code Object[]} 中，
+ * 並依鍵的雜湊分成多個區段各自加鎖，降低寫入競爭。
+ * </p>
+ *
+ * <ul>
+ * <li>查詢不裝箱，先以樂觀讀取（不加鎖）探測，期間有寫入時才改用讀鎖重試</li>
+ * <li>{@link #putIfAbsent(long, Object)} 與 {@link #remove(long)} 皆為單次原子操作</li>
+ * <li>刪除時以後移填補空位，不留墓碑，探測長度不會隨刪除累積</li>
+ * <li>不允許 null 值</li>
+ * <li>實作 {@code ConcurrentMap<Long, V>}，可取代原本的 {@code Map<Long, V>}；以 Long 為參數的方法會拆箱後轉呼叫 long 版本，
+ * {@link #values()} 與 {@link #entrySet()} 為呼叫當下的快照</li>
+ * </ul>
+ *
+ * @param <V> 值類型
+ */
+public class ConcurrentLongMap<V> extends AbstractMap<Long, V> implements ConcurrentMap<Long, V> {
+    public static final int DEFAULT_EXPECTED_SIZE = 256;
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private static final float LOAD_FACTOR = 0.66f;
+
+    private final Section<V>[] sections;
+    private final int sectionMask;
+
+    public ConcurrentLongMap() {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param expectedSize     預期項目數
+     * @param concurrencyLevel 區段數量，會調整為 2 的次方
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public ConcurrentLongMap(int expectedSize, int concurrencyLevel) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive");
+        }
+        int sectionCount = concurrencyLevel == 1 ? 1 : Integer.highestOneBit(concurrencyLevel - 1) << 1;
+        int perSection = (int) Math.ceil(expectedSize / (double) sectionCount / LOAD_FACTOR);
+        this.sections = new Section[sectionCount];
+        this.sectionMask = sectionCount - 1;
+        for (int i = 0; i < sectionCount; i++) {
+            sections[i] = new Section<>(perSection);
+        }
+    }
+
+    public V get(long key) {
+        long hash = hash(key);
+        return section(hash).get(key, (int) hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 放入項目並回傳原本的值
+     */
+    public V put(long key, V value) {
+        checkValue(value);
+        long hash = hash(key);
+        return section(hash).put(key, value, (int) hash, false);
+    }
+
+    /**
+     * 鍵不存在時放入項目，回傳原本的值（放入成功時為 null）
+     */
+    public V putIfAbsent(long key, V value) {
+        checkValue(value);
+        long hash = hash(key);
+        return section(hash).put(key, value, (int) hash, true);
+    }
+
+    /**
+     * 移除項目並回傳移除的值，不存在時回傳 null
+     */
+    public V remove(long key) {
+        long hash = hash(key);
+        return section(hash).remove(key, null, (int) hash);
+    }
+
+    /**
+     * 鍵目前對應到 value 時才移除
+     */
+    public boolean remove(long key, V value) {
+        checkValue(value);
+        long hash = hash(key);
+        return section(hash).remove(key, value, (int) hash) != null;
+    }
+
+    /**
+     * 鍵存在時替換為 value，回傳原本的值（不存在時為 null）
+     */
+    public V replace(long key, V value) {
+        checkValue(value);
+        long hash = hash(key);
+        return section(hash).replace(key, null, value, (int) hash);
+    }
+
+    /**
+     * 鍵目前對應到 oldValue 時才替換為 newValue
+     */
+    public boolean replace(long key, V oldValue, V newValue) {
+        checkValue(oldValue);
+        checkValue(newValue);
+        long hash = hash(key);
+        return section(hash).replace(key, oldValue, newValue, (int) hash) != null;
+    }
+
+    // ==================== Map 介面 ====================
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Long id ? get(id.longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    @Override
+    public V putIfAbsent(Long key, V value) {
+        return putIfAbsent(key.longValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Long id ? remove(id.longValue()) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object key, Object value) {
+        return key instanceof Long id && value != null && remove(id.longValue(), (V) value);
+    }
+
+    @Override
+    public V replace(Long key, V value) {
+        return replace(key.longValue(), value);
+    }
+
+    @Override
+    public boolean replace(Long key, V oldValue, V newValue) {
+        return replace(key.longValue(), oldValue, newValue);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Section<V> section : sections) {
+            size += section.size;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Section<V> section : sections) {
+            if (section.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 全部值的快照（各區段分別在讀鎖下複製），修改快照不影響本表
+     */
+    @Override
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        for (Section<V> section : sections) {
+            section.collect(values, null);
+        }
+        return values;
+    }
+
+    /**
+     * 全部項目的快照，透過迭代器移除時只在鍵仍對應到同一個值時才移除
+     */
+    @Override
+    public Set<Map.Entry<Long, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public void clear() {
+        for (Section<V> section : sections) {
+            section.clear();
+        }
+    }
+
+    private Section<V> section(long hash) {
+        return sections[(int) (hash >>> 32) & sectionMask];
+    }
+
+    private static void checkValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException("value must not be null");
+        }
+    }
+
+    /**
+     * 高 32 位元選擇區段，低 32 位元選擇槽位
+     */
+    private static long hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static int bucketHash(long key) {
+        return (int) hash(key);
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<Long, V>> {
+        @Override
+        public Iterator<Map.Entry<Long, V>> iterator() {
+            List<Map.Entry<Long, V>> entries = new ArrayList<>(ConcurrentLongMap.this.size());
+            for (Section<V> section : sections) {
+                section.collect(null, entries);
+            }
+            Iterator<Map.Entry<Long, V>> it = entries.iterator();
+            return new Iterator<Map.Entry<Long, V>>() {
+                private Map.Entry<Long, V> last;
+
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Map.Entry<Long, V> next() {
+                    last = it.next();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    ConcurrentLongMap.this.remove(last.getKey().longValue(), last.getValue());
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentLongMap.this.size();
+        }
+    }
+
+    private static final class Section<V> {
+        private final StampedLock lock = new StampedLock();
+        private long[] keys;
+        private Object[] values;
+        private volatile int size;
+        private int resizeThreshold;
+
+        Section(int capacity) {
+            allocate(Math.max(4, Integer.highestOneBit(Math.max(1, capacity) - 1) << 1));
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        V get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                V value = find(key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * 樂觀讀取時陣列可能正在被修改，探測次數以容量為上限，結果由呼叫端驗證
+         */
+        @SuppressWarnings("unchecked")
+        private V find(long key, int hash) {
+            long[] k = keys;
+            Object[] v = values;
+            if (k.length != v.length) {
+                return null;
+            }
+            int mask = v.length - 1;
+            int index = hash & mask;
+            for (int n = 0; n <= mask; n++) {
+                Object value = v[index];
+                if (value == null) {
+                    return null;
+                }
+                if (k[index] == key) {
+                    return (V) value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, V value, int hash, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = values.length - 1;
+                int index = hash & mask;
+                for (;;) {
+                    Object current = values[index];
+                    if (current == null) {
+                        keys[index] = key;
+                        values[index] = value;
+                        size++;
+                        if (size > resizeThreshold) {
+                            rehash(values.length << 1);
+                        }
+                        return null;
+                    }
+                    if (keys[index] == key) {
+                        if (!onlyIfAbsent) {
+                            values[index] = value;
+                        }
+                        return (V) current;
+                    }
+                    index = (index + 1) & mask;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, V expected, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = values.length - 1;
+                int index = hash & mask;
+                for (;;) {
+                    Object current = values[index];
+                    if (current == null) {
+                        return null;
+                    }
+                    if (keys[index] == key) {
+                        if (expected != null && current != expected && !expected.equals(current)) {
+                            return null;
+                        }
+                        removeAt(index);
+                        return (V) current;
+                    }
+                    index = (index + 1) & mask;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * expected 為 null 時只要鍵存在就替換，否則鍵目前對應到 expected 時才替換
+         */
+        @SuppressWarnings("unchecked")
+        V replace(long key, V expected, V value, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = values.length - 1;
+                int index = hash & mask;
+                for (;;) {
+                    Object current = values[index];
+                    if (current == null) {
+                        return null;
+                    }
+                    if (keys[index] == key) {
+                        if (expected != null && current != expected && !expected.equals(current)) {
+                            return null;
+                        }
+                        values[index] = value;
+                        return (V) current;
+                    }
+                    index = (index + 1) & mask;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 移除槽位後把後面同一串探測中的項目往前移，維持「探測到空槽即表示不存在」
+         */
+        private void removeAt(int index) {
+            int mask = values.length - 1;
+            int gap = index;
+            int next = index;
+            for (;;) {
+                next = (next + 1) & mask;
+                Object value = values[next];
+                if (value == null) {
+                    break;
+                }
+                int home = bucketHash(keys[next]) & mask;
+                // 空位位於項目原本的槽位與目前槽位之間時才能往前移
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = value;
+                    gap = next;
+                }
+            }
+            keys[gap] = 0L;
+            values[gap] = null;
+            size--;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocate(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                Object value = oldValues[i];
+                if (value != null) {
+                    int index = bucketHash(oldKeys[i]) & mask;
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = value;
+                }
+            }
+        }
+
+        /**
+         * 在讀鎖下複製值或項目，不需要的目標傳入 null
+         */
+        @SuppressWarnings("unchecked")
+        void collect(List<V> valueTarget, List<Map.Entry<Long, V>> entryTarget) {
+            long stamp = lock.readLock();
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    if (value == null) {
+                        continue;
+                    }
+                    if (valueTarget != null) {
+                        valueTarget.add((V) value);
+                    }
+                    if (entryTarget != null) {
+                        entryTarget.add(new AbstractMap.SimpleImmutableEntry<>(keys[i], (V) value));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                allocate(4);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
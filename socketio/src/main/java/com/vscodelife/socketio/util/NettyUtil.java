@@ -5,6 +5,7 @@ import java.nio.charset.StandardCharsets;
 import com.vscodelife.socketio.buffer.ByteArrayBuffer;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 public final class NettyUtil {
     // 私有建構函數，防止實例化
@@ -174,9 +175,11 @@ public final class NettyUtil {
     public static String readString(ByteBuf buffer, boolean bigEndian) {
         String str = "";
         if (buffer != null) {
-            byte[] bytes = readBytes(buffer, bigEndian);
-            if (bytes != null && bytes.length > 0) {
-                str = new String(bytes, StandardCharsets.UTF_8);
+            int len = readInt(buffer, bigEndian);
+            if (len > 0) {
+                // 直接從 ByteBuf 解碼，不建立中間位元組陣列
+                str = StringCache.decode(buffer, buffer.readerIndex(), len);
+                buffer.skipBytes(len);
             }
         }
         return str;
@@ -200,10 +203,28 @@ public final class NettyUtil {
         if (buffer != null) {
             if (StrUtil.isEmpty(value)) {
                 writeInt(buffer, 0, bigEndian);
-            } else {
+            } else if (hasUnpairedHighSurrogate(value)) {
+                // Netty 編碼孤立高位代理字元時會一併吃掉下一個字元，與 String.getBytes 結果不同
                 byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
-                writeBytes(buffer, bytes, bigEndian);
+                writeInt(buffer, bytes.length, bigEndian);
+                buffer.writeBytes(bytes);
+            } else {
+                // 先計算 UTF-8 長度再直接編碼到 ByteBuf，不建立中間位元組陣列
+                writeInt(buffer, ByteBufUtil.utf8Bytes(value), bigEndian);
+                ByteBufUtil.writeUtf8(buffer, value);
+            }
+        }
+    }
+
+    private static boolean hasUnpairedHighSurrogate(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (Character.isHighSurrogate(value.charAt(i))) {
+                if (i + 1 >= length || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    return true;
+                }
+                i++;
             }
         }
+        return false;
     }
 }
@@ -0,0 +1,485 @@
+package com.vscodelife.socketio.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * 以記憶體映射區段檔保存的只追加記錄日誌
+ *
+ * <p>
+ * 持久化快取與離線信箱共用的底層，只負責區段與記錄框架，記錄內容由使用端解讀：
+ * </p>
+ *
+ * <ul>
+ * <li>區段檔頭為 magic(4) + version(4) + createdAt(8)，檔名為十位數的區段編號</li>
+ * <li>記錄開頭為 length(4) + crc(4)，CRC32C 涵蓋 crc 之後的全部內容</li>
+ * <li>寫入時先寫內容與 CRC，最後寫入長度，恢復時長度為 0 即視為結尾</li>
+ * <li>記錄位置以 64 位元表示：高 32 位元為區段編號，低 32 位元為區段內偏移</li>
+ * <li>區段存活超過換新週期或寫滿時換新區段；刪除與關閉區段時立即解除映射，不等待 GC</li>
+ * </ul>
+ *
+ * 此類別不是執行緒安全的，由使用端負責同步；區段刪除後不可再存取它的映射內容。
+ */
+public class SegmentLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentLog.class);
+
+    // 區段檔頭：magic(4) + version(4) + createdAt(8)
+    public static final int SEGMENT_HEADER = 16;
+    // 記錄開頭：length(4) + crc(4)
+    public static final int RECORD_PREFIX = 8;
+
+    private final Path directory;
+    private final String suffix;
+    private final int magic;
+    private final int version;
+    private final int segmentSize;
+    private final int minRecordLength;
+    private final long rollInterval;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final CRC32C crc = new CRC32C();
+
+    private Segment current;
+
+    /**
+     * @param directory       本機目錄
+     * @param suffix          區段檔副檔名
+     * @param magic           區段檔頭的識別碼
+     * @param version         區段檔格式版本
+     * @param segmentSize     區段檔大小（位元組）
+     * @param minRecordLength 記錄的最小長度（含記錄開頭），恢復時長度不足即視為結尾
+     * @param rollInterval    區段換新週期（毫秒）
+     */
+    public SegmentLog(Path directory, String suffix, int magic, int version, int segmentSize, int minRecordLength,
+            long rollInterval) {
+        if (minRecordLength < RECORD_PREFIX) {
+            throw new IllegalArgumentException("minRecordLength too small: " + minRecordLength);
+        }
+        if (segmentSize <= SEGMENT_HEADER + minRecordLength) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.suffix = suffix;
+        this.magic = magic;
+        this.version = version;
+        this.segmentSize = segmentSize;
+        this.minRecordLength = minRecordLength;
+        this.rollInterval = Math.max(1L, rollInterval);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 單一區段可容納的最大記錄長度
+     */
+    public int getMaxRecordLength() {
+        return segmentSize - SEGMENT_HEADER;
+    }
+
+    public int size() {
+        return segments.size();
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public Segment get(int id) {
+        return segments.get(id);
+    }
+
+    public Segment first() {
+        return segments.isEmpty() ? null : segments.firstEntry().getValue();
+    }
+
+    /**
+     * 目前追加寫入的區段，尚未建立或已依週期換新時為 null
+     */
+    public Segment current() {
+        return current;
+    }
+
+    /**
+     * 依編號排序的全部區段（唯讀檢視）
+     */
+    public Collection<Segment> segments() {
+        return Collections.unmodifiableCollection(segments.values());
+    }
+
+    // ==================== 恢復 ====================
+
+    /**
+     * 依編號順序開啟目錄下的區段並逐筆走訪記錄
+     *
+     * <p>
+     * 只有最後一個區段可能在寫入途中中斷，只驗證它的 CRC；走訪在第一筆不完整的記錄停止，
+     * 之後的殘留內容會被清除。格式不符的檔案直接刪除。最後一個區段仍在換新週期內時繼續在其後追加。
+     * </p>
+     *
+     * @param visitor 記錄走訪者
+     * @param now     目前時間（毫秒）
+     */
+    public void recover(RecordVisitor visitor, long now) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            Segment segment = open(file);
+            if (segment == null) {
+                logger.warn("skip invalid segment {}", file);
+                Files.deleteIfExists(file);
+                continue;
+            }
+            segments.put(segment.id, segment);
+            scan(segment, i == files.size() - 1, visitor);
+        }
+        if (!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+            if (last.createdAt + rollInterval > now && last.capacity == segmentSize) {
+                current = last;
+            }
+        }
+    }
+
+    private void scan(Segment segment, boolean verify, RecordVisitor visitor) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = SEGMENT_HEADER;
+        while (offset + minRecordLength <= segment.capacity) {
+            int recordLength = buffer.getInt(offset);
+            if (recordLength < minRecordLength || offset + recordLength > segment.capacity) {
+                break;
+            }
+            if (verify && buffer.getInt(offset + 4) != checksum(buffer, offset + RECORD_PREFIX,
+                    recordLength - RECORD_PREFIX)) {
+                logger.warn("segment {} has torn record at offset={}", segment.path, offset);
+                break;
+            }
+            if (!visitor.visit(segment, offset, recordLength)) {
+                break;
+            }
+            offset += recordLength;
+        }
+        segment.position = offset;
+        // 清除中斷記錄之後的殘留內容，避免之後的追加與舊資料混在一起
+        if (offset + 4 <= segment.capacity) {
+            buffer.putInt(offset, 0);
+        }
+    }
+
+    // ==================== 寫入 ====================
+
+    /**
+     * 目前區段是否仍可追加指定長度的記錄（存在、未寫滿且未超過換新週期）
+     */
+    public boolean fits(int recordLength, long now) {
+        return current != null && current.position + recordLength <= segmentSize
+                && current.createdAt + rollInterval > now;
+    }
+
+    /**
+     * 建立新區段並作為目前區段
+     */
+    public Segment roll(long now) {
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path path = directory.resolve(String.format("%010d%s", id, suffix));
+        try {
+            Segment segment = create(id, path, now);
+            segments.put(id, segment);
+            current = segment;
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("建立區段時發生錯誤: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 取得可寫入指定長度記錄的區段，需要時換新區段
+     *
+     * <p>
+     * 使用端從回傳區段的 {@link Segment#getPosition()} + {@link #RECORD_PREFIX} 開始寫入內容，
+     * 再呼叫 {@link #commit(Segment, int)} 完成記錄。
+     * </p>
+     */
+    public Segment reserve(int recordLength, long now) {
+        if (recordLength < minRecordLength || recordLength > getMaxRecordLength()) {
+            throw new IllegalArgumentException("invalid recordLength: " + recordLength);
+        }
+        return fits(recordLength, now) ? current : roll(now);
+    }
+
+    /**
+     * 寫入 CRC 與長度完成目前位置的記錄
+     *
+     * @return 記錄位置
+     */
+    public long commit(Segment segment, int recordLength) {
+        int offset = segment.position;
+        segment.buffer.putInt(offset + 4, checksum(segment.buffer, offset + RECORD_PREFIX,
+                recordLength - RECORD_PREFIX));
+        segment.buffer.putInt(offset, recordLength);
+        segment.position = offset + recordLength;
+        return location(segment.id, offset);
+    }
+
+    /**
+     * 目前區段超過換新週期且已有記錄時結束它，下次寫入改用新區段
+     */
+    public void expire(long now) {
+        if (current != null && current.createdAt + rollInterval <= now && current.position > SEGMENT_HEADER) {
+            current = null;
+        }
+    }
+
+    // ==================== 刪除與關閉 ====================
+
+    /**
+     * 移除並刪除區段檔，區段的映射內容立即失效
+     */
+    public void delete(Segment segment) {
+        if (segments.remove(segment.id, segment)) {
+            if (segment == current) {
+                current = null;
+            }
+            segment.delete();
+        }
+    }
+
+    /**
+     * 將已寫入的內容強制寫回磁碟
+     */
+    public void flush() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        current = null;
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset).limit(offset + length);
+        crc.reset();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    // ==================== 位置 ====================
+
+    public static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    public static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    public static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    // ==================== 區段 ====================
+
+    private Segment create(int id, Path path, long createdAt) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(0, magic);
+            buffer.putInt(4, version);
+            buffer.putLong(8, createdAt);
+            return new Segment(id, path, channel, buffer, createdAt);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private Segment open(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        int id;
+        try {
+            id = Integer.parseInt(name.substring(0, name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size < SEGMENT_HEADER || size > Integer.MAX_VALUE) {
+                channel.close();
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) != magic || buffer.getInt(4) != version) {
+                unmap(buffer);
+                channel.close();
+                return null;
+            }
+            return new Segment(id, path, channel, buffer, buffer.getLong(8));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 立即解除映射；映射區原本要等 GC 回收才釋放，刪除後的檔案會一直佔用位址空間與磁碟空間
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            PlatformDependent.freeDirectBuffer(buffer);
+        } catch (Throwable e) {
+            logger.warn("unmap segment failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 記錄走訪者
+     */
+    public interface RecordVisitor {
+        /**
+         * @param segment      記錄所在區段
+         * @param offset       記錄在區段內的偏移
+         * @param recordLength 記錄長度（含記錄開頭）
+         * @return 記錄內容不合法時回傳 false，視為區段結尾
+         */
+        boolean visit(Segment segment, int offset, int recordLength);
+    }
+
+    /**
+     * 記憶體映射的區段檔
+     */
+    public static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final long createdAt;
+        private int position = SEGMENT_HEADER;
+        private long maxExpireAt;
+        // 區段中仍有效的記錄數，由使用端維護
+        private int live;
+        private boolean closed;
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer, long createdAt) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+            this.createdAt = createdAt;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * 區段的映射內容，只能以絕對位置存取或取 duplicate，區段刪除或關閉後不可再使用
+         */
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * 下一筆記錄的偏移
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * 區段中最晚的到期時間（毫秒）
+         */
+        public long getMaxExpireAt() {
+            return maxExpireAt;
+        }
+
+        public void updateExpireAt(long expireAt) {
+            maxExpireAt = Math.max(maxExpireAt, expireAt);
+        }
+
+        public int getLive() {
+            return live;
+        }
+
+        public void retain() {
+            live++;
+        }
+
+        public void release() {
+            live--;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unmap(buffer);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("close segment {} failed: {}", path, e.getMessage());
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("delete segment {} failed: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.vscodelife.socketio.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 短字串解碼快取
+ *
+ * <p>
+ * 使用者 ID、協議名稱、類別名稱等短字串在每個封包中反覆出現，
+ * 開啟後解碼時會以 UTF-8 位元組內容查表，命中時直接回傳同一個 {@link String} 實例，
+ * 省去字串建立並讓重複內容在堆積中只保留一份。
+ * </p>
+ *
+ * <ul>
+ * <li>直接映射表：以位元組雜湊決定槽位，衝突時新值覆蓋舊值，容量固定不會無限成長</li>
+ * <li>槽位內容為不可變物件，多執行緒同時查表與覆寫不需要加鎖</li>
+ * <li>超過 {@link #getMaxLength()} 的字串不進入快取</li>
+ * </ul>
+ *
+ * 預設為關閉狀態，此時行為等同於 {@code new String(bytes, UTF_8)}。
+ */
+public final class StringCache {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private static volatile boolean enabled = false;
+    private static volatile Entry[] table = new Entry[DEFAULT_CAPACITY];
+    private static volatile int maxLength = DEFAULT_MAX_LENGTH;
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    // Netty 直接記憶體緩衝區沒有底層陣列，查表前先複製到執行緒專屬的暫存區
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[maxLength]);
+
+    private StringCache() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+        if (!enable) {
+            clear();
+        }
+    }
+
+    /**
+     * 重新設定快取容量與可快取的最大位元組長度，會清空現有內容
+     *
+     * @param capacity  槽位數量，會調整為 2 的次方
+     * @param maxLength 可快取字串的最大 UTF-8 位元組長度
+     */
+    public static void configure(int capacity, int maxLength) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength: " + maxLength);
+        }
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        StringCache.maxLength = maxLength;
+        table = new Entry[size];
+    }
+
+    public static int getMaxLength() {
+        return maxLength;
+    }
+
+    public static int getCapacity() {
+        return table.length;
+    }
+
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 清空快取內容與統計
+     */
+    public static void clear() {
+        table = new Entry[table.length];
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * 將位元組陣列中的 UTF-8 資料解碼為字串，快取開啟時回傳共用實例
+     */
+    public static String decode(byte[] bytes, int offset, int length) {
+        if (!enabled || length > maxLength) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+
+        int hash = hash(bytes, offset, length);
+        Entry[] tab = table;
+        int index = hash & (tab.length - 1);
+        Entry entry = tab[index];
+        if (entry != null && entry.hash == hash && entry.matches(bytes, offset, length)) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        String value = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        tab[index] = new Entry(hash, bytes, offset, length, value);
+        return value;
+    }
+
+    /**
+     * 將 ByteBuf 指定區段的 UTF-8 資料解碼為字串，不移動讀取位置
+     */
+    public static String decode(ByteBuf buffer, int index, int length) {
+        if (!enabled || length > maxLength) {
+            return buffer.toString(index, length, StandardCharsets.UTF_8);
+        }
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + index, length);
+        }
+
+        byte[] bytes = scratch.get();
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, maxLength)];
+            scratch.set(bytes);
+        }
+        buffer.getBytes(index, bytes, 0, length);
+        return decode(bytes, 0, length);
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = length;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + bytes[i];
+        }
+        // 混合高位元，避免只取低位元當索引時分佈不均
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        private final int hash;
+        private final byte[] bytes;
+        private final String value;
+
+        private Entry(int hash, byte[] source, int offset, int length, String value) {
+            this.hash = hash;
+            this.bytes = new byte[length];
+            System.arraycopy(source, offset, this.bytes, 0, length);
+            this.value = value;
+        }
+
+        private boolean matches(byte[] source, int offset, int length) {
+            return bytes.length == length
+                    && Arrays.equals(bytes, 0, length, source, offset, offset + length);
+        }
+    }
+}
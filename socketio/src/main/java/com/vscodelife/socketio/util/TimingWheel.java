@@ -0,0 +1,305 @@
+package com.vscodelife.socketio.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 階層式時間輪
+ *
+ * <p>
+ * 大量逾時項目（快取過期、連線閒置）若每次都掃描全部項目，成本與項目數成正比。
+ * 時間輪將項目依到期時間放入環狀槽位，推進時只處理到期槽位內的項目；
+ * 超出第一層範圍的項目放在刻度較粗的上層，時間接近時再降到下層。
+ * </p>
+ *
+ * <ul>
+ * <li>{@link #schedule(Object, long)} 與 {@link Timeout#cancel()} 皆為 O(1)</li>
+ * <li>不自帶執行緒，由呼叫端定時呼叫 {@link #advance(long, Consumer)} 推進並取得到期項目</li>
+ * <li>到期回呼在鎖外執行，回呼中可再次排程</li>
+ * <li>到期時間以刻度為單位，項目不會提早到期，最多延後一個刻度</li>
+ * </ul>
+ *
+ * @param <T> 排程項目類型
+ */
+public class TimingWheel<T> {
+    public static final long DEFAULT_TICK_MILLIS = 1000L;
+    public static final int DEFAULT_WHEEL_SIZE = 64;
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int mask;
+    // 各層的槽位，第 0 層刻度為 tickMillis，上一層刻度為下一層的一整圈
+    private final List<Bucket<T>[]> levels = new ArrayList<>();
+    private final List<Long> levelTicks = new ArrayList<>();
+
+    private long currentTime;
+    private int size;
+
+    public TimingWheel() {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    public TimingWheel(long tickMillis, int wheelSize) {
+        this(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * @param tickMillis 第一層刻度（毫秒）
+     * @param wheelSize  每層槽位數量，會調整為 2 的次方
+     * @param startTime  起始時間（毫秒）
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long startTime) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("wheelSize must be at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.mask = this.wheelSize - 1;
+        this.currentTime = startTime - startTime % tickMillis;
+        addLevel(tickMillis);
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    public synchronized long getCurrentTime() {
+        return currentTime;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getLevelCount() {
+        return levels.size();
+    }
+
+    // ==================== 排程 ====================
+
+    /**
+     * 排程項目於 delayMillis 毫秒後到期（以目前推進到的時間為基準）
+     */
+    public synchronized Timeout<T> schedule(T task, long delayMillis) {
+        return scheduleAt(task, currentTime + Math.max(0L, delayMillis));
+    }
+
+    /**
+     * 排程項目於指定時間到期，已過期的時間會在下一個刻度到期
+     */
+    public synchronized Timeout<T> scheduleAt(T task, long expiration) {
+        Timeout<T> timeout = new Timeout<>(this, task, expiration);
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * 推進時間輪到指定時間並收集到期項目，回呼在鎖外依到期順序執行
+     *
+     * @return 到期項目數
+     */
+    public int advance(long now, Consumer<T> expired) {
+        List<Timeout<T>> due = new ArrayList<>();
+        synchronized (this) {
+            if (size == 0) {
+                // 沒有項目時直接跳到目前時間，避免長時間閒置後逐格推進
+                if (now >= currentTime + tickMillis) {
+                    currentTime = now - now % tickMillis;
+                }
+            } else {
+                while (currentTime + tickMillis <= now) {
+                    currentTime += tickMillis;
+                    tick(due);
+                }
+            }
+        }
+        for (Timeout<T> timeout : due) {
+            expired.accept(timeout.task);
+        }
+        return due.size();
+    }
+
+    private void tick(List<Timeout<T>> due) {
+        // 先處理第 0 層到期槽位，之後降層的項目才不會落入這個即將清空的槽位而提早一圈到期
+        Timeout<T> expired = levels.get(0)[(int) ((currentTime / tickMillis) & mask)].drain();
+        while (expired != null) {
+            Timeout<T> next = expired.next;
+            expired.next = null;
+            expire(expired, due);
+            expired = next;
+        }
+        // 由上層往下層，把進入當前刻度範圍的項目降到下層
+        for (int level = levels.size() - 1; level >= 1; level--) {
+            long levelTick = levelTicks.get(level);
+            if (currentTime % levelTick == 0) {
+                Timeout<T> timeout = levels.get(level)[(int) ((currentTime / levelTick) & mask)].drain();
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    timeout.next = null;
+                    if (timeout.expiration <= currentTime) {
+                        expire(timeout, due);
+                    } else {
+                        insert(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+    }
+
+    private void expire(Timeout<T> timeout, List<Timeout<T>> due) {
+        timeout.state = Timeout.EXPIRED;
+        size--;
+        due.add(timeout);
+    }
+
+    private void insert(Timeout<T> timeout) {
+        // 第 0 層以無條件進位決定槽位，確保不會提早到期；涵蓋 (current, current + 一圈]
+        long currentId = currentTime / tickMillis;
+        long id = Math.max((timeout.expiration + tickMillis - 1) / tickMillis, currentId + 1);
+        if (id <= currentId + wheelSize) {
+            levels.get(0)[(int) (id & mask)].add(timeout);
+            return;
+        }
+        // 上層以無條件捨去決定槽位，在槽位起點降到下層；涵蓋 (current, current + 一圈)
+        for (int level = 1;; level++) {
+            if (level == levels.size()) {
+                addLevel(levelTicks.get(level - 1) * wheelSize);
+            }
+            long levelTick = levelTicks.get(level);
+            long levelId = timeout.expiration / levelTick;
+            if (levelId < currentTime / levelTick + wheelSize) {
+                levels.get(level)[(int) (levelId & mask)].add(timeout);
+                return;
+            }
+        }
+    }
+
+    private void addLevel(long levelTick) {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Bucket<T>[] buckets = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket<>();
+        }
+        levels.add(buckets);
+        levelTicks.add(levelTick);
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.state != Timeout.PENDING) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        timeout.state = Timeout.CANCELLED;
+        size--;
+        return true;
+    }
+
+    // ==================== 槽位 ====================
+
+    /**
+     * 槽位內的雙向鏈結串列，取消時 O(1) 移除
+     */
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * 取出整個槽位的項目（以 next 串接），槽位清空
+         */
+        Timeout<T> drain() {
+            Timeout<T> first = head;
+            head = null;
+            for (Timeout<T> t = first; t != null; t = t.next) {
+                t.prev = null;
+                t.bucket = null;
+            }
+            return first;
+        }
+    }
+
+    /**
+     * 排程結果，可用於取消
+     */
+    public static final class Timeout<T> {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final TimingWheel<T> wheel;
+        private final T task;
+        private final long expiration;
+
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int state = PENDING;
+
+        private Timeout(TimingWheel<T> wheel, T task, long expiration) {
+            this.wheel = wheel;
+            this.task = task;
+            this.expiration = expiration;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getExpiration() {
+            return expiration;
+        }
+
+        public boolean isExpired() {
+            synchronized (wheel) {
+                return state == EXPIRED;
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (wheel) {
+                return state == CANCELLED;
+            }
+        }
+
+        /**
+         * 取消排程
+         *
+         * @return 尚未到期且成功取消時回傳 true
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+}
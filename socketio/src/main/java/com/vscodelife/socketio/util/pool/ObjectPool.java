@@ -0,0 +1,126 @@
+package com.vscodelife.socketio.util.pool;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 有界的物件池
+ *
+ * <p>
+ * 取得物件時優先從池中取出閒置實例，池為空時才透過工廠建立新實例；
+ * 歸還時先執行重置動作，池已滿則直接丟棄交由 GC 回收。
+ * 取得與歸還可以發生在不同執行緒（例如 Netty I/O 執行緒解碼、主執行緒分派後歸還）。
+ * </p>
+ *
+ * @param <T> 物件類型
+ */
+public class ObjectPool<T> {
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final String name;
+    private final Supplier<T> factory;
+    private final Consumer<T> resetter;
+    private final int maxSize;
+
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleSize = new AtomicInteger(0);
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public ObjectPool(String name, Supplier<T> factory) {
+        this(name, factory, null, DEFAULT_MAX_SIZE);
+    }
+
+    public ObjectPool(String name, Supplier<T> factory, Consumer<T> resetter, int maxSize) {
+        if (factory == null) {
+            throw new IllegalArgumentException("Factory cannot be null");
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max size cannot be negative: " + maxSize);
+        }
+        this.name = name;
+        this.factory = factory;
+        this.resetter = resetter;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 取得物件，池為空時建立新實例
+     */
+    public T acquire() {
+        T obj = idle.poll();
+        if (obj != null) {
+            idleSize.decrementAndGet();
+            reused.increment();
+            return obj;
+        }
+        created.increment();
+        return factory.get();
+    }
+
+    /**
+     * 歸還物件
+     *
+     * @return 是否成功放回池中，池已滿時回傳 false
+     */
+    public boolean release(T obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (resetter != null) {
+            resetter.accept(obj);
+        }
+        if (idleSize.incrementAndGet() > maxSize) {
+            idleSize.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        idle.offer(obj);
+        return true;
+    }
+
+    /**
+     * 清空池中所有閒置物件
+     */
+    public void clear() {
+        while (idle.poll() != null) {
+            idleSize.decrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getIdleSize() {
+        return idleSize.get();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getReusedCount() {
+        return reused.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ObjectPool[name=%s idle=%d max=%d created=%d reused=%d dropped=%d]",
+                name, getIdleSize(), maxSize, getCreatedCount(), getReusedCount(), getDroppedCount());
+    }
+}
@@ -0,0 +1,136 @@
+package com.vscodelife.socketio.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.message.base.ProtocolKey;
+
+/**
+ * 依協議預測緩衝區容量：放大、延遲縮小、收斂與上下限
+ */
+class BufferSizePredictorTest {
+    private static final ProtocolKey KEY = ProtocolKey.valueOf(3, 1);
+
+    /**
+     * 以相同大小重複記錄直到預測值不再變化，回傳最後的預測值
+     */
+    static int converge(BufferSizePredictor predictor, int actualSize) {
+        int previous = -1;
+        for (int i = 0; i < 1000 && predictor.guess(KEY) != previous; i++) {
+            previous = predictor.guess(KEY);
+            // 縮小需要連續兩次記錄
+            predictor.record(KEY, actualSize);
+            predictor.record(KEY, actualSize);
+        }
+        return predictor.guess(KEY);
+    }
+
+    // ==================== 預測 ====================
+
+    @Test
+    void usesInitialSizeWithoutHistory() {
+        BufferSizePredictor predictor = new BufferSizePredictor();
+        assertThat(predictor.guess(KEY)).isEqualTo(BufferSizePredictor.DEFAULT_INITIAL);
+        assertThat(predictor.guess(null)).isEqualTo(BufferSizePredictor.DEFAULT_INITIAL);
+        predictor.record(null, 10);
+        predictor.record(KEY, -1);
+        assertThat(predictor.guess(KEY)).isEqualTo(BufferSizePredictor.DEFAULT_INITIAL);
+    }
+
+    @Test
+    void growsImmediatelyToFitLargerSize() {
+        BufferSizePredictor predictor = new BufferSizePredictor();
+        predictor.record(KEY, 300);
+        assertThat(predictor.guess(KEY)).isEqualTo(304);
+        predictor.record(KEY, 5000);
+        assertThat(predictor.guess(KEY)).isGreaterThanOrEqualTo(5000).isLessThan(5000 * 5 / 4 + 16);
+        // 其他協議不受影響
+        assertThat(predictor.guess(3, 2)).isEqualTo(BufferSizePredictor.DEFAULT_INITIAL);
+    }
+
+    @Test
+    void shrinksOneStepAfterTwoConsecutiveSmallSizes() {
+        BufferSizePredictor predictor = new BufferSizePredictor();
+        predictor.record(KEY, 300);
+        predictor.record(KEY, 20);
+        assertThat(predictor.guess(KEY)).isEqualTo(304);
+        predictor.record(KEY, 20);
+        assertThat(predictor.guess(KEY)).isEqualTo(288);
+
+        // 中間穿插一次接近預測值的大小會重新計算
+        predictor.record(KEY, 20);
+        predictor.record(KEY, 280);
+        predictor.record(KEY, 20);
+        assertThat(predictor.guess(KEY)).isEqualTo(288);
+    }
+
+    @Test
+    void convergesToSmallestFittingSize() {
+        BufferSizePredictor predictor = new BufferSizePredictor();
+        predictor.record(KEY, 100_000);
+        assertThat(converge(predictor, 20)).isEqualTo(32);
+        assertThat(converge(predictor, 700)).isEqualTo(800);
+        assertThat(converge(predictor, 20)).isEqualTo(32);
+    }
+
+    @Test
+    void alternatingSizesDoNotOscillate() {
+        BufferSizePredictor predictor = new BufferSizePredictor();
+        int guess = converge(predictor, 100);
+        assertThat(guess).isEqualTo(112);
+        for (int i = 0; i < 100; i++) {
+            predictor.record(KEY, i % 2 == 0 ? 90 : 100);
+            assertThat(predictor.guess(KEY)).isEqualTo(guess);
+        }
+    }
+
+    // ==================== 上下限 ====================
+
+    @Test
+    void clampsToConfiguredBounds() {
+        BufferSizePredictor predictor = new BufferSizePredictor(64, 128, 4096);
+        assertThat(predictor.guess(KEY)).isEqualTo(128);
+        assertThat(converge(predictor, 1)).isEqualTo(64);
+
+        predictor.record(KEY, 1_000_000);
+        int max = predictor.guess(KEY);
+        assertThat(max).isLessThanOrEqualTo(4096).isGreaterThan(4096 * 4 / 5);
+        // 預測值不超過上限時仍可正常寫入並自動擴容
+        ByteArrayBuffer buffer = new ByteArrayBuffer(max).writeBytes(new byte[8192]);
+        assertThat(buffer.readableBytes()).isEqualTo(8192);
+    }
+
+    @Test
+    void rejectsInvalidBounds() {
+        assertThatThrownBy(() -> new BufferSizePredictor(0, 16, 64)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BufferSizePredictor(64, 32, 128)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BufferSizePredictor(16, 256, 128)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void resetForgetsHistory() {
+        BufferSizePredictor predictor = new BufferSizePredictor();
+        predictor.record(KEY, 5000);
+        predictor.reset();
+        assertThat(predictor.guess(KEY)).isEqualTo(BufferSizePredictor.DEFAULT_INITIAL);
+    }
+
+    // ==================== 預先配置 ====================
+
+    @Test
+    void forProtocolUsesDefaultPrediction() {
+        ProtocolKey key = ProtocolKey.valueOf(0x7FF0, 1);
+        BufferSizePredictor.getDefault().record(key, 1000);
+        try {
+            assertThat(ByteArrayBuffer.forProtocol(key).capacity())
+                    .isEqualTo(BufferSizePredictor.getDefault().guess(key))
+                    .isGreaterThanOrEqualTo(1000);
+            assertThat(ByteArrayBuffer.forProtocol(0x7FF0, 1).capacity())
+                    .isEqualTo(BufferSizePredictor.getDefault().guess(key));
+        } finally {
+            BufferSizePredictor.getDefault().reset();
+        }
+    }
+}
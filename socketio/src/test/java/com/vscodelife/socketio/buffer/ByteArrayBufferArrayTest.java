@@ -0,0 +1,202 @@
+package com.vscodelife.socketio.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.vscodelife.socketio.annotation.MessageTag;
+import com.vscodelife.socketio.buffer.ByteArrayBuffer.ByteOrder;
+
+/**
+ * 基本型別的 VarHandle 讀寫與陣列整塊讀寫，結果必須與逐一寫入元素相同
+ */
+class ByteArrayBufferArrayTest {
+    static final int[] INTS = { 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 0x01020304 };
+    static final long[] LONGS = { 0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE, 0x0102030405060708L };
+    static final float[] FLOATS = { 0f, -0f, 1.5f, Float.NaN, Float.MIN_VALUE, Float.NEGATIVE_INFINITY };
+    static final double[] DOUBLES = { 0d, -0d, Math.PI, Double.NaN, Double.MAX_VALUE, Double.POSITIVE_INFINITY };
+
+    public static class PrimitiveArrays {
+        @MessageTag(order = 1)
+        public int[] ints;
+        @MessageTag(order = 2)
+        public long[] longs;
+        @MessageTag(order = 3)
+        public float[] floats;
+        @MessageTag(order = 4)
+        public double[] doubles;
+        @MessageTag(order = 5)
+        public short[] shorts;
+        @MessageTag(order = 6)
+        public char[] chars;
+        @MessageTag(order = 7)
+        public boolean[] flags;
+        @MessageTag(order = 8)
+        public byte[] bytes;
+    }
+
+    /**
+     * 先寫入 1 byte，讓陣列內容不落在對齊的位置上
+     */
+    static ByteArrayBuffer unaligned(ByteOrder order) {
+        return new ByteArrayBuffer(16, order).writeByte((byte) 0x7F);
+    }
+
+    // ==================== 單一數值 ====================
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void primitivesUseConfiguredByteOrder(ByteOrder order) {
+        ByteArrayBuffer buffer = new ByteArrayBuffer(16, order)
+                .writeShort((short) 0x0102).writeInt(0x01020304).writeLong(0x0102030405060708L);
+        byte[] expected = order == ByteOrder.BIG_ENDIAN
+                ? new byte[] { 1, 2, 1, 2, 3, 4, 1, 2, 3, 4, 5, 6, 7, 8 }
+                : new byte[] { 2, 1, 4, 3, 2, 1, 8, 7, 6, 5, 4, 3, 2, 1 };
+        assertThat(buffer.toBytes()).isEqualTo(expected);
+        assertThat(buffer.readShort()).isEqualTo((short) 0x0102);
+        assertThat(buffer.readInt()).isEqualTo(0x01020304);
+        assertThat(buffer.readLong()).isEqualTo(0x0102030405060708L);
+    }
+
+    // ==================== 陣列整塊讀寫 ====================
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void intArrayMatchesElementWrites(ByteOrder order) {
+        ByteArrayBuffer expected = unaligned(order).writeInt(INTS.length);
+        for (int value : INTS) {
+            expected.writeInt(value);
+        }
+        ByteArrayBuffer actual = unaligned(order).writeIntArray(INTS);
+        assertThat(actual.toBytes()).isEqualTo(expected.toBytes());
+
+        actual.readByte();
+        assertThat(actual.readIntArray()).containsExactly(INTS);
+        assertThat(actual.readableBytes()).isZero();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void longArrayMatchesElementWrites(ByteOrder order) {
+        ByteArrayBuffer expected = unaligned(order).writeInt(LONGS.length);
+        for (long value : LONGS) {
+            expected.writeLong(value);
+        }
+        ByteArrayBuffer actual = unaligned(order).writeLongArray(LONGS);
+        assertThat(actual.toBytes()).isEqualTo(expected.toBytes());
+
+        actual.readByte();
+        assertThat(actual.readLongArray()).containsExactly(LONGS);
+        assertThat(actual.readableBytes()).isZero();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void floatArrayMatchesElementWrites(ByteOrder order) {
+        ByteArrayBuffer expected = unaligned(order).writeInt(FLOATS.length);
+        for (float value : FLOATS) {
+            expected.writeFloat(value);
+        }
+        ByteArrayBuffer actual = unaligned(order).writeFloatArray(FLOATS);
+        assertThat(actual.toBytes()).isEqualTo(expected.toBytes());
+
+        actual.readByte();
+        float[] decoded = actual.readFloatArray();
+        assertThat(decoded).hasSameSizeAs(FLOATS);
+        for (int i = 0; i < FLOATS.length; i++) {
+            // 以位元比較，區分 0 與 -0 並允許 NaN
+            assertThat(Float.floatToIntBits(decoded[i])).isEqualTo(Float.floatToIntBits(FLOATS[i]));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void doubleArrayMatchesElementWrites(ByteOrder order) {
+        ByteArrayBuffer expected = unaligned(order).writeInt(DOUBLES.length);
+        for (double value : DOUBLES) {
+            expected.writeDouble(value);
+        }
+        ByteArrayBuffer actual = unaligned(order).writeDoubleArray(DOUBLES);
+        assertThat(actual.toBytes()).isEqualTo(expected.toBytes());
+
+        actual.readByte();
+        double[] decoded = actual.readDoubleArray();
+        assertThat(decoded).hasSameSizeAs(DOUBLES);
+        for (int i = 0; i < DOUBLES.length; i++) {
+            assertThat(Double.doubleToLongBits(decoded[i])).isEqualTo(Double.doubleToLongBits(DOUBLES[i]));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void largeArrayGrowsBufferOnce(ByteOrder order) {
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) i * 0x9E3779B97F4A7C15L;
+        }
+        ByteArrayBuffer buffer = new ByteArrayBuffer(16, order).writeLongArray(values);
+        assertThat(buffer.readableBytes()).isEqualTo(4 + values.length * 8);
+        assertThat(buffer.readLongArray()).containsExactly(values);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void nullAndEmptyArrays(ByteOrder order) {
+        ByteArrayBuffer buffer = new ByteArrayBuffer(16, order)
+                .writeIntArray(null).writeLongArray(new long[0])
+                .writeFloatArray(null).writeDoubleArray(new double[0]);
+        assertThat(buffer.readableBytes()).isEqualTo(16);
+        assertThat(buffer.readIntArray()).isNull();
+        assertThat(buffer.readLongArray()).isEmpty();
+        assertThat(buffer.readFloatArray()).isNull();
+        assertThat(buffer.readDoubleArray()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void rejectsInvalidOrTruncatedArrays(ByteOrder order) {
+        ByteArrayBuffer negative = new ByteArrayBuffer(16, order).writeInt(-2);
+        assertThatThrownBy(negative::readIntArray).isInstanceOf(IllegalStateException.class);
+
+        ByteArrayBuffer truncated = new ByteArrayBuffer(16, order).writeInt(3).writeLong(1L);
+        assertThatThrownBy(truncated::readLongArray).isInstanceOf(IndexOutOfBoundsException.class);
+
+        // 長度乘上元素大小溢位時不可配置陣列
+        ByteArrayBuffer overflow = new ByteArrayBuffer(16, order).writeInt(Integer.MAX_VALUE);
+        assertThatThrownBy(overflow::readDoubleArray).isInstanceOf(ArithmeticException.class);
+    }
+
+    // ==================== 結構中的基本型別陣列 ====================
+
+    @ParameterizedTest
+    @EnumSource(ByteOrder.class)
+    void structPrimitiveArraysRoundTrip(ByteOrder order) {
+        PrimitiveArrays value = new PrimitiveArrays();
+        value.ints = INTS;
+        value.longs = LONGS;
+        value.floats = FLOATS;
+        value.doubles = DOUBLES;
+        value.shorts = new short[] { 1, -1, Short.MAX_VALUE };
+        value.chars = new char[] { 'a', '中', '\uD83D' };
+        value.flags = new boolean[] { true, false, true };
+        value.bytes = new byte[] { 0, -128, 127 };
+
+        byte[] bytes = new ByteArrayBuffer(16, order).writeStruct(value).toBytes();
+        ByteArrayBuffer buffer = new ByteArrayBuffer(bytes, order);
+        PrimitiveArrays decoded = buffer.readStruct(PrimitiveArrays.class);
+        assertThat(buffer.readableBytes()).isZero();
+        assertThat(decoded.ints).containsExactly(INTS);
+        assertThat(decoded.longs).containsExactly(LONGS);
+        assertThat(decoded.shorts).containsExactly(value.shorts);
+        assertThat(decoded.chars).containsExactly(value.chars);
+        assertThat(decoded.flags).containsExactly(value.flags);
+        assertThat(decoded.bytes).containsExactly(value.bytes);
+        // 浮點數含 NaN 與 -0，以重新編碼的位元組比較
+        assertThat(new ByteArrayBuffer(16, order).writeStruct(decoded).toBytes()).isEqualTo(bytes);
+
+        ByteArrayBuffer empty = new ByteArrayBuffer(16, order).writeStruct(new PrimitiveArrays());
+        assertThat(empty.readStruct(PrimitiveArrays.class)).usingRecursiveComparison().isEqualTo(new PrimitiveArrays());
+    }
+}
@@ -0,0 +1,182 @@
+package com.vscodelife.socketio.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.annotation.MessageTag;
+
+/**
+ * 變長整數、ZigZag 與緊湊結構格式的編解碼
+ */
+class ByteArrayBufferCompactTest {
+
+    public static class Sample {
+        @MessageTag(order = 1)
+        public int id;
+        @MessageTag(order = 2)
+        public long balance;
+        @MessageTag(order = 3)
+        public String name;
+        @MessageTag(order = 4)
+        public int[] scores;
+        @MessageTag(order = 5)
+        public List<String> tags;
+        @MessageTag(order = 6)
+        public Date createdAt;
+    }
+
+    public static class IntArrayHolder {
+        @MessageTag(order = 1)
+        public int[] values;
+    }
+
+    // ==================== 變長整數 ====================
+
+    @Test
+    void varIntRoundTrip() {
+        int[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE };
+        ByteArrayBuffer buffer = new ByteArrayBuffer();
+        for (int value : values) {
+            buffer.writeVarInt(value);
+            buffer.writeSignedVarInt(value);
+        }
+        for (int value : values) {
+            assertThat(buffer.readVarInt()).isEqualTo(value);
+            assertThat(buffer.readSignedVarInt()).isEqualTo(value);
+        }
+        assertThat(buffer.readableBytes()).isZero();
+    }
+
+    @Test
+    void varLongRoundTrip() {
+        long[] values = { 0L, 1L, 127L, 128L, Long.MAX_VALUE, -1L, Long.MIN_VALUE, 1L << 35 };
+        ByteArrayBuffer buffer = new ByteArrayBuffer();
+        for (long value : values) {
+            buffer.writeVarLong(value);
+            buffer.writeSignedVarLong(value);
+        }
+        for (long value : values) {
+            assertThat(buffer.readVarLong()).isEqualTo(value);
+            assertThat(buffer.readSignedVarLong()).isEqualTo(value);
+        }
+        assertThat(buffer.readableBytes()).isZero();
+    }
+
+    @Test
+    void zigZagKeepsSmallNegativesShort() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeSignedVarInt(-1).writeSignedVarInt(-64);
+        assertThat(buffer.readableBytes()).isEqualTo(2);
+    }
+
+    @Test
+    void varStringRoundTrip() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer();
+        buffer.writeVarString(null).writeVarString("").writeVarString("hello").writeVarString("中文字串");
+        assertThat(buffer.readVarString()).isNull();
+        assertThat(buffer.readVarString()).isEmpty();
+        assertThat(buffer.readVarString()).isEqualTo("hello");
+        assertThat(buffer.readVarString()).isEqualTo("中文字串");
+    }
+
+    @Test
+    void rejectsOverlongVarInt() {
+        byte[] bytes = { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01 };
+        assertThatThrownBy(() -> new ByteArrayBuffer(bytes).readVarInt()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsOverlongVarLong() {
+        byte[] bytes = new byte[11];
+        Arrays.fill(bytes, (byte) 0x80);
+        bytes[10] = 0x01;
+        assertThatThrownBy(() -> new ByteArrayBuffer(bytes).readVarLong()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsTruncatedVarInt() {
+        byte[] bytes = { (byte) 0x80, (byte) 0x80 };
+        assertThatThrownBy(() -> new ByteArrayBuffer(bytes).readVarInt())
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void rejectsVarStringLongerThanBuffer() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeVarInt(1000).writeBytes(new byte[] { 'a', 'b' });
+        assertThatThrownBy(buffer::readVarString).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    // ==================== 緊湊結構 ====================
+
+    @Test
+    void compactStructRoundTrip() {
+        Sample sample = new Sample();
+        sample.id = -42;
+        sample.balance = 1L << 40;
+        sample.name = "玩家";
+        sample.scores = new int[] { 1, -2, 300000 };
+        sample.tags = List.of("a", "bc");
+        sample.createdAt = new Date(1_700_000_000_000L);
+
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStructCompact(sample);
+        Sample decoded = new ByteArrayBuffer(buffer.toBytes()).readStructCompact(Sample.class);
+
+        assertThat(decoded.id).isEqualTo(sample.id);
+        assertThat(decoded.balance).isEqualTo(sample.balance);
+        assertThat(decoded.name).isEqualTo(sample.name);
+        assertThat(decoded.scores).containsExactly(sample.scores);
+        assertThat(decoded.tags).containsExactlyElementsOf(sample.tags);
+        assertThat(decoded.createdAt).isEqualTo(sample.createdAt);
+    }
+
+    @Test
+    void compactStructIsSmallerThanStandard() {
+        Sample sample = new Sample();
+        sample.id = 7;
+        sample.scores = new int[] { 1, 2, 3, 4 };
+        int standard = new ByteArrayBuffer().writeStruct(sample).readableBytes();
+        int compact = new ByteArrayBuffer().writeStructCompact(sample).readableBytes();
+        assertThat(compact).isLessThan(standard);
+    }
+
+    @Test
+    void rejectsTruncatedCompactStruct() {
+        Sample sample = new Sample();
+        sample.name = "truncated";
+        sample.scores = new int[] { 1, 2, 3 };
+        byte[] bytes = new ByteArrayBuffer().writeStructCompact(sample).toBytes();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+        assertThatThrownBy(() -> new ByteArrayBuffer(truncated).readStructCompact(Sample.class))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    // ==================== 陣列長度上限 ====================
+
+    @Test
+    void rejectsArrayLengthBeyondReadableBytes() {
+        // 以 values = {7} 取得前綴，再把長度 1 與元素 7 換成宣稱 2^31-1 個元素的長度
+        IntArrayHolder holder = new IntArrayHolder();
+        holder.values = new int[] { 7 };
+        byte[] bytes = new ByteArrayBuffer().writeStructCompact(holder).toBytes();
+        ByteArrayBuffer forged = new ByteArrayBuffer();
+        forged.writeBytes(Arrays.copyOf(bytes, bytes.length - 2));
+        forged.writeVarInt(Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> forged.readStructCompact(IntArrayHolder.class))
+                .isInstanceOf(RuntimeException.class)
+                .rootCause().isInstanceOf(IndexOutOfBoundsException.class).hasMessageContaining("元素數量");
+    }
+
+    @Test
+    void rejectsListSizeBeyondReadableBytes() {
+        ByteArrayBuffer forged = new ByteArrayBuffer().writeInt(1 << 30).writeByte((byte) 0);
+        assertThatThrownBy(() -> forged.readList(String.class))
+                .isInstanceOf(RuntimeException.class)
+                .rootCause().isInstanceOf(IndexOutOfBoundsException.class).hasMessageContaining("元素數量");
+    }
+}
@@ -0,0 +1,140 @@
+package com.vscodelife.socketio.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.vscodelife.socketio.util.NettyUtil;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 直接編碼到底層陣列的 UTF-8 寫入，結果必須與 {@code String.getBytes(UTF_8)} 完全相同
+ */
+class ByteArrayBufferStringTest {
+
+    static Stream<String> strings() {
+        return Stream.of(
+                "",
+                "ascii only",
+                // 2 bytes
+                "café ñ ß",
+                // 3 bytes，包含邊界值 U+0800、U+FFFF 與私用區字元
+                "中文測試 \u0800 \uFFFF \uE000",
+                // 代理對編碼為 4 bytes
+                "😀 emoji 𝄞",
+                // 孤立的高位與低位代理字元
+                "a\uD83Db",
+                "a\uDE00b",
+                "end\uD83D",
+                "\uDE00start",
+                // 順序相反的代理字元不是代理對
+                "\uDE00\uD83D",
+                // 連續的高位代理字元，只有最後一個與低位代理字元成對
+                "\uD83D😀",
+                // 孤立的高位代理字元後接多位元組字元
+                "\uD83D中é",
+                // 全部都是孤立代理字元，UTF-8 長度與字元數相同
+                "\uDFFF\uDC00\uD800",
+                "混合 mixed ✓ 😀\uD800 é");
+    }
+
+    static byte[] lengthPrefixed(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        return new ByteArrayBuffer().writeInt(utf8.length).writeBytes(utf8).toBytes();
+    }
+
+    // ==================== 與 JDK 編碼比對 ====================
+
+    @ParameterizedTest
+    @MethodSource("strings")
+    void writeStringMatchesJdkEncoding(String value) {
+        ByteArrayBuffer buffer = new ByteArrayBuffer(4).writeString(value);
+        assertThat(buffer.toBytes()).isEqualTo(lengthPrefixed(value));
+        assertThat(buffer.readString()).isEqualTo(new String(value.getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @MethodSource("strings")
+    void writeVarStringMatchesJdkEncoding(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        ByteArrayBuffer buffer = new ByteArrayBuffer(4).writeVarString(value);
+        byte[] expected = new ByteArrayBuffer().writeVarInt(utf8.length + 1).writeBytes(utf8).toBytes();
+        assertThat(buffer.toBytes()).isEqualTo(expected);
+        assertThat(buffer.readVarString()).isEqualTo(new String(utf8, StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @MethodSource("strings")
+    void nettyWriteStringMatchesJdkEncoding(String value) {
+        ByteBuf buf = Unpooled.buffer(4);
+        try {
+            NettyUtil.writeString(buf, value);
+            byte[] written = new byte[buf.readableBytes()];
+            buf.getBytes(0, written);
+            assertThat(written).isEqualTo(lengthPrefixed(value));
+            assertThat(NettyUtil.readString(buf)).isEqualTo(new String(value.getBytes(StandardCharsets.UTF_8),
+                    StandardCharsets.UTF_8));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void randomCharsMatchJdkEncoding() {
+        ByteBuf buf = Unpooled.buffer();
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            char[] chars = new char[random.nextInt(32)];
+            for (int i = 0; i < chars.length; i++) {
+                // 偏重代理字元範圍，產生大量成對與孤立的組合
+                chars[i] = random.nextInt(4) == 0 ? (char) (0xD800 + random.nextInt(0x800))
+                        : (char) random.nextInt(0x10000);
+            }
+            String value = new String(chars);
+            byte[] expected = lengthPrefixed(value);
+            assertThat(new ByteArrayBuffer(4).writeString(value).toBytes())
+                    .as("chars %s", Arrays.toString(chars))
+                    .isEqualTo(expected);
+
+            NettyUtil.writeString(buf.clear(), value);
+            assertThat(ByteBufUtil.getBytes(buf))
+                    .as("netty chars %s", Arrays.toString(chars))
+                    .isEqualTo(value.isEmpty() ? new byte[4] : expected);
+        }
+        buf.release();
+    }
+
+    // ==================== 讀取 ====================
+
+    @Test
+    void nullAndEmptyStrings() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeString(null).writeString("")
+                .writeVarString(null).writeVarString("");
+        assertThat(buffer.readableBytes()).isEqualTo(4 + 4 + 1 + 1);
+        assertThat(buffer.readString()).isNull();
+        assertThat(buffer.readString()).isEmpty();
+        assertThat(buffer.readVarString()).isNull();
+        assertThat(buffer.readVarString()).isEmpty();
+    }
+
+    @Test
+    void decodesFromMiddleOfBuffer() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeInt(7).writeString("前 😀").writeVarString("後")
+                .writeInt(8);
+        assertThat(buffer.readInt()).isEqualTo(7);
+        assertThat(buffer.readString()).isEqualTo("前 😀");
+        assertThat(buffer.readVarString()).isEqualTo("後");
+        assertThat(buffer.readInt()).isEqualTo(8);
+    }
+}
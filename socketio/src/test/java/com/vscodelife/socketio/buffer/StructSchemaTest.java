@@ -0,0 +1,161 @@
+package com.vscodelife.socketio.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.annotation.MessageTag;
+
+/**
+ * 結構描述的欄位收集與排序、快取，以及反射序列化的讀寫與錯誤處理
+ */
+class StructSchemaTest {
+    // 與 ByteArrayBuffer 的結構標記相同：以類別名稱標示類型
+    private static final byte STRUCT_TYPE_NAME = 1;
+
+    public static class Base {
+        @MessageTag(order = 2)
+        public String name;
+        @MessageTag(order = 10)
+        public long version;
+    }
+
+    public static class Derived extends Base {
+        public static final int CONSTANT = 1;
+        @MessageTag(order = 1)
+        public int id;
+        @MessageTag(order = 5)
+        private List<String> tags;
+        @MessageTag(order = 7)
+        protected boolean active;
+        public String untagged;
+
+        public List<String> getTags() {
+            return tags;
+        }
+    }
+
+    public static class NoDefaultConstructor {
+        @MessageTag(order = 1)
+        public int value;
+
+        public NoDefaultConstructor(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class Other {
+        @MessageTag(order = 1)
+        public int value;
+    }
+
+    // ==================== 欄位描述 ====================
+
+    @Test
+    void collectsTaggedFieldsIncludingSuperclassSortedByOrder() {
+        StructSchema schema = StructSchema.of(Derived.class);
+        assertThat(Arrays.stream(schema.getFields()).map(f -> f.getField().getName()))
+                .containsExactly("id", "name", "tags", "active", "version");
+        assertThat(schema.getType()).isSameAs(Derived.class);
+        // name、tags 為參考型別
+        assertThat(schema.getReferenceFieldCount()).isEqualTo(2);
+        // 測試類別沒有產生的編解碼器，使用反射
+        assertThat(schema.getCodec()).isNull();
+    }
+
+    @Test
+    void indexOfFindsFieldByOrder() {
+        StructSchema schema = StructSchema.of(Derived.class);
+        assertThat(schema.indexOf(1)).isZero();
+        assertThat(schema.indexOf(5)).isEqualTo(2);
+        assertThat(schema.indexOf(10)).isEqualTo(4);
+        assertThat(schema.indexOf(3)).isNegative();
+        assertThat(schema.indexOf(99)).isNegative();
+    }
+
+    @Test
+    void schemaIsCachedPerClass() {
+        assertThat(StructSchema.of(Derived.class)).isSameAs(StructSchema.of(Derived.class));
+        assertThat(StructSchema.of(Base.class)).isNotSameAs(StructSchema.of(Derived.class));
+    }
+
+    @Test
+    void isAssignableToChecksExpectedType() {
+        StructSchema schema = StructSchema.of(Derived.class);
+        assertThat(schema.isAssignableTo(Derived.class)).isTrue();
+        assertThat(schema.isAssignableTo(Base.class)).isTrue();
+        assertThat(schema.isAssignableTo(Object.class)).isTrue();
+        assertThat(schema.isAssignableTo(Other.class)).isFalse();
+        // 成功的結果會被快取，再次查詢結果相同
+        assertThat(schema.isAssignableTo(Base.class)).isTrue();
+    }
+
+    // ==================== 反射序列化 ====================
+
+    @Test
+    void roundTripsInheritedAndPrivateFields() {
+        Derived value = new Derived();
+        value.id = 7;
+        value.name = "name";
+        value.tags = List.of("a", "b");
+        value.active = true;
+        value.version = Long.MAX_VALUE;
+        value.untagged = "ignored";
+
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStruct(value);
+        Base decoded = buffer.readStruct(Base.class);
+        assertThat(decoded).isInstanceOf(Derived.class);
+        Derived derived = (Derived) decoded;
+        assertThat(derived.id).isEqualTo(7);
+        assertThat(derived.name).isEqualTo("name");
+        assertThat(derived.getTags()).containsExactly("a", "b");
+        assertThat(derived.active).isTrue();
+        assertThat(derived.version).isEqualTo(Long.MAX_VALUE);
+        // 沒有 @MessageTag 的欄位不序列化
+        assertThat(derived.untagged).isNull();
+        assertThat(buffer.readableBytes()).isZero();
+    }
+
+    @Test
+    void nullStructRoundTrips() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStruct(null);
+        assertThat(buffer.readableBytes()).isEqualTo(1);
+        assertThat(buffer.readStruct(Derived.class)).isNull();
+    }
+
+    @Test
+    void readRejectsIncompatibleExpectedType() {
+        Other other = new Other();
+        other.value = 1;
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStruct(other);
+        assertThatThrownBy(() -> buffer.readStruct(Derived.class))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("類型不相容");
+    }
+
+    @Test
+    void readRejectsClassWithoutDefaultConstructor() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStruct(new NoDefaultConstructor(3));
+        assertThatThrownBy(() -> buffer.readStruct(NoDefaultConstructor.class))
+                .isInstanceOf(RuntimeException.class)
+                .hasCauseInstanceOf(NoSuchMethodException.class);
+    }
+
+    @Test
+    void readRejectsUnknownClassNameAndTag() {
+        ByteArrayBuffer unknownClass = new ByteArrayBuffer().writeByte(STRUCT_TYPE_NAME)
+                .writeString("com.example.DoesNotExist");
+        assertThatThrownBy(() -> unknownClass.readStruct(Object.class))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("找不到類別");
+
+        ByteArrayBuffer unknownTag = new ByteArrayBuffer().writeByte((byte) 0x7E);
+        assertThatThrownBy(() -> unknownTag.readStruct(Object.class))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("未知的結構標記");
+    }
+}
@@ -0,0 +1,194 @@
+package com.vscodelife.socketio.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.annotation.MessageTag;
+
+/**
+ * 結構檢視的欄位位置計算、欄位讀取、原始位元組轉發與錯誤處理
+ */
+class StructViewTest {
+
+    public static class Inner {
+        @MessageTag(order = 1)
+        public String label;
+        @MessageTag(order = 2)
+        public short level;
+    }
+
+    /**
+     * 可變長度的巢狀結構、列表與陣列排在固定長度欄位之前，位置計算錯誤時後面的欄位會讀錯
+     */
+    public static class Envelope {
+        @MessageTag(order = 1)
+        public Inner inner;
+        @MessageTag(order = 2)
+        public List<Inner> items;
+        @MessageTag(order = 3)
+        public int[] codes;
+        @MessageTag(order = 4)
+        public String name;
+        @MessageTag(order = 5)
+        public int count;
+        @MessageTag(order = 6)
+        public long stamp;
+        @MessageTag(order = 7)
+        public Integer boxed;
+        @MessageTag(order = 8)
+        public double ratio;
+        @MessageTag(order = 9)
+        public Inner missing;
+    }
+
+    static Inner inner(String label, int level) {
+        Inner inner = new Inner();
+        inner.label = label;
+        inner.level = (short) level;
+        return inner;
+    }
+
+    static Envelope envelope() {
+        Envelope envelope = new Envelope();
+        envelope.inner = inner("巢狀", 3);
+        envelope.items = new ArrayList<>(Arrays.asList(inner("a", 1), null, inner(null, -2)));
+        envelope.codes = new int[] { 1, 2, 3 };
+        envelope.name = "envelope 😀";
+        envelope.count = 42;
+        envelope.stamp = Long.MIN_VALUE;
+        envelope.ratio = 0.5;
+        return envelope;
+    }
+
+    static StructView<Envelope> view(Envelope envelope) {
+        return new ByteArrayBuffer().writeStruct(envelope).readStructView(Envelope.class);
+    }
+
+    // ==================== 欄位讀取 ====================
+
+    @Test
+    void readsFieldsAfterVariableLengthFields() {
+        StructView<Envelope> view = view(envelope());
+        assertThat(view.getType()).isSameAs(Envelope.class);
+        // 讀取順序與欄位順序無關
+        assertThat(view.getDouble(8)).isEqualTo(0.5);
+        assertThat(view.getInt(5)).isEqualTo(42);
+        assertThat(view.getLong(6)).isEqualTo(Long.MIN_VALUE);
+        assertThat(view.getString(4)).isEqualTo("envelope 😀");
+        assertThat(view.getInt(5)).isEqualTo(42);
+    }
+
+    @Test
+    void readsNestedStructAsView() {
+        StructView<Envelope> view = view(envelope());
+        StructView<Inner> inner = view.getStruct(1, Inner.class);
+        assertThat(inner.getString(1)).isEqualTo("巢狀");
+        assertThat(inner.getShort(2)).isEqualTo((short) 3);
+        assertThat(inner.materialize()).usingRecursiveComparison().isEqualTo(inner("巢狀", 3));
+        assertThat(view.getStruct(9, Inner.class)).isNull();
+        // 讀取巢狀結構後，外層欄位仍可讀取
+        assertThat(view.getInt(5)).isEqualTo(42);
+    }
+
+    @Test
+    void decodesListsAndArraysWithGet() {
+        Envelope envelope = envelope();
+        StructView<Envelope> view = view(envelope);
+        assertThat(view.get(2)).usingRecursiveComparison().isEqualTo(envelope.items);
+        assertThat((int[]) view.get(3)).containsExactly(1, 2, 3);
+        assertThat(view.get(7)).isNull();
+    }
+
+    @Test
+    void reportsNullFields() {
+        StructView<Envelope> view = view(envelope());
+        assertThat(view.isNull(1)).isFalse();
+        assertThat(view.isNull(2)).isFalse();
+        assertThat(view.isNull(7)).isTrue();
+        assertThat(view.isNull(9)).isTrue();
+
+        Envelope empty = new Envelope();
+        StructView<Envelope> emptyView = view(empty);
+        assertThat(emptyView.getString(4)).isNull();
+        assertThat(emptyView.getInt(5)).isZero();
+    }
+
+    // ==================== 原始位元組轉發 ====================
+
+    @Test
+    void writeToProducesReadableStruct() {
+        Envelope envelope = envelope();
+        StructView<Envelope> view = view(envelope);
+        ByteArrayBuffer out = view.writeTo(new ByteArrayBuffer(view.length()));
+        assertThat(out.readableBytes()).isEqualTo(view.length());
+        assertThat(out.readStruct(Envelope.class)).usingRecursiveComparison().isEqualTo(envelope);
+        assertThat(view.materialize()).usingRecursiveComparison().isEqualTo(envelope);
+    }
+
+    @Test
+    void toBytesMatchesSerializedStruct() {
+        Envelope envelope = envelope();
+        byte[] serialized = new ByteArrayBuffer().writeStruct(envelope).toBytes();
+        StructView<Envelope> view = new ByteArrayBuffer(serialized).readStructView(Envelope.class);
+        assertThat(view.length()).isEqualTo(serialized.length);
+        assertThat(view.toBytes()).isEqualTo(serialized);
+    }
+
+    @Test
+    void consecutiveViewsAdvanceSourceReader() {
+        Envelope second = envelope();
+        second.count = 7;
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStruct(envelope()).writeStruct(null)
+                .writeStruct(second).writeInt(99);
+
+        StructView<Envelope> first = buffer.readStructView(Envelope.class);
+        assertThat(buffer.readStructView(Envelope.class)).isNull();
+        StructView<Envelope> third = buffer.readStructView(Envelope.class);
+        assertThat(buffer.readInt()).isEqualTo(99);
+        assertThat(buffer.readableBytes()).isZero();
+        // 各檢視互不影響
+        assertThat(first.getInt(5)).isEqualTo(42);
+        assertThat(third.getInt(5)).isEqualTo(7);
+    }
+
+    // ==================== 錯誤處理 ====================
+
+    @Test
+    void rejectsMismatchedFieldType() {
+        StructView<Envelope> view = view(envelope());
+        assertThatThrownBy(() -> view.getLong(5)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("order=5");
+        assertThatThrownBy(() -> view.getInt(4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> view.getString(5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsUnknownOrder() {
+        StructView<Envelope> view = view(envelope());
+        assertThatThrownBy(() -> view.getInt(99)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> view.isNull(99)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> view.get(99)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsNonStructFieldsInGetStruct() {
+        StructView<Envelope> view = view(envelope());
+        assertThatThrownBy(() -> view.getStruct(2, Inner.class)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> view.getStruct(3, Inner.class)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> view.getStruct(4, Inner.class)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> view.getStruct(5, Inner.class)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsReadingNullBoxedField() {
+        StructView<Envelope> view = view(envelope());
+        assertThatThrownBy(() -> view.getInt(7)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("order=7");
+    }
+}
@@ -0,0 +1,215 @@
+package com.vscodelife.socketio.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.annotation.MessageTag;
+import com.vscodelife.socketio.annotation.StructType;
+
+/**
+ * 結構類型註冊表的註冊衝突、連線時的註冊表核對，以及以編號寫入的結構格式
+ */
+class TypeRegistryTest {
+    // 與 ByteArrayBuffer 的結構標記相同：以編號標示類型
+    private static final byte STRUCT_TYPE_ID = 2;
+
+    @StructType(id = 7)
+    public static class Point {
+        @MessageTag(order = 1)
+        public int x;
+        @MessageTag(order = 2)
+        public int y;
+        @MessageTag(order = 3)
+        public Point next;
+    }
+
+    @StructType(id = 8)
+    public static class Route {
+        @MessageTag(order = 1)
+        public String name;
+        @MessageTag(order = 2)
+        public List<Point> points;
+    }
+
+    public static class Unannotated {
+        @MessageTag(order = 1)
+        public int value;
+    }
+
+    @BeforeEach
+    void setUp() {
+        TypeRegistry.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TypeRegistry.clear();
+    }
+
+    static Point point(int x, int y) {
+        Point point = new Point();
+        point.x = x;
+        point.y = y;
+        return point;
+    }
+
+    // ==================== 註冊 ====================
+
+    @Test
+    void registersFromAnnotation() {
+        TypeRegistry.register(Point.class, Route.class);
+        assertThat(TypeRegistry.idOf(Point.class)).isEqualTo(7);
+        assertThat(TypeRegistry.typeOf(8)).isSameAs(Route.class);
+        assertThat(TypeRegistry.typeOf(9)).isNull();
+        assertThat(TypeRegistry.typeOf(-1)).isNull();
+    }
+
+    @Test
+    void idOfRegistersAnnotatedClassOnFirstUse() {
+        assertThat(TypeRegistry.typeOf(7)).isNull();
+        assertThat(TypeRegistry.idOf(Point.class)).isEqualTo(7);
+        assertThat(TypeRegistry.typeOf(7)).isSameAs(Point.class);
+        assertThat(TypeRegistry.idOf(Unannotated.class)).isEqualTo(-1);
+    }
+
+    @Test
+    void reRegisteringSameMappingIsNoOp() {
+        TypeRegistry.register(Point.class, 7);
+        TypeRegistry.register(Point.class, 7);
+        TypeRegistry.register(Point.class);
+        assertThat(TypeRegistry.idOf(Point.class)).isEqualTo(7);
+    }
+
+    @Test
+    void rejectsConflictingRegistrations() {
+        TypeRegistry.register(Point.class, 7);
+        // 類別已註冊為其他編號
+        assertThatThrownBy(() -> TypeRegistry.register(Point.class, 9))
+                .isInstanceOf(IllegalStateException.class);
+        // 編號已註冊給其他類別
+        assertThatThrownBy(() -> TypeRegistry.register(Unannotated.class, 7))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(TypeRegistry.typeOf(7)).isSameAs(Point.class);
+        assertThat(TypeRegistry.idOf(Unannotated.class)).isEqualTo(-1);
+    }
+
+    @Test
+    void rejectsInvalidIdsAndUnannotatedClasses() {
+        assertThatThrownBy(() -> TypeRegistry.register(Unannotated.class, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TypeRegistry.register(Unannotated.class, TypeRegistry.MAX_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TypeRegistry.register(Unannotated.class))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        TypeRegistry.register(Unannotated.class, TypeRegistry.MAX_ID);
+        assertThat(TypeRegistry.typeOf(TypeRegistry.MAX_ID)).isSameAs(Unannotated.class);
+    }
+
+    @Test
+    void forNameCachesHitsAndMisses() {
+        assertThat(TypeRegistry.forName(Point.class.getName())).isSameAs(Point.class);
+        assertThat(TypeRegistry.forName(Point.class.getName())).isSameAs(Point.class);
+        assertThat(TypeRegistry.forName("com.example.DoesNotExist")).isNull();
+        assertThat(TypeRegistry.forName("com.example.DoesNotExist")).isNull();
+    }
+
+    // ==================== 註冊表核對 ====================
+
+    @Test
+    void readFromCountsMatchingEntries() {
+        TypeRegistry.register(Point.class, Route.class);
+        ByteArrayBuffer buffer = TypeRegistry.writeTo(new ByteArrayBuffer());
+        assertThat(TypeRegistry.readFrom(buffer)).isEqualTo(2);
+        assertThat(buffer.readableBytes()).isZero();
+    }
+
+    @Test
+    void readFromSkipsMismatchedEntriesWithoutChangingLocalMapping() {
+        TypeRegistry.register(Point.class, Route.class);
+        ByteArrayBuffer remote = new ByteArrayBuffer().writeVarInt(4);
+        // 一致
+        remote.writeVarInt(7).writeVarString(Point.class.getName());
+        // 相同編號但類別名稱不同
+        remote.writeVarInt(8).writeVarString("com.example.Route");
+        // 本地未註冊的編號
+        remote.writeVarInt(9).writeVarString(Unannotated.class.getName());
+        // 本地已註冊但編號不同
+        remote.writeVarInt(10).writeVarString(Point.class.getName());
+
+        assertThat(TypeRegistry.readFrom(remote)).isEqualTo(1);
+        assertThat(remote.readableBytes()).isZero();
+        // 對方的註冊表只用來核對
+        assertThat(TypeRegistry.typeOf(8)).isSameAs(Route.class);
+        assertThat(TypeRegistry.typeOf(9)).isNull();
+        assertThat(TypeRegistry.idOf(Point.class)).isEqualTo(7);
+    }
+
+    @Test
+    void readFromRejectsIdOutOfRange() {
+        ByteArrayBuffer remote = new ByteArrayBuffer().writeVarInt(1)
+                .writeVarInt(TypeRegistry.MAX_ID + 1).writeVarString("x");
+        assertThatThrownBy(() -> TypeRegistry.readFrom(remote)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ==================== 以編號寫入 ====================
+
+    @Test
+    void writesIdInsteadOfClassName() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStruct(point(1, 2));
+        assertThat(buffer.readByte()).isEqualTo(STRUCT_TYPE_ID);
+        assertThat(buffer.readVarInt()).isEqualTo(7);
+        // 其後只剩欄位：x、y 與 null 的 next
+        assertThat(buffer.readableBytes()).isEqualTo((1 + 4) * 2 + 1);
+
+        Unannotated unannotated = new Unannotated();
+        ByteArrayBuffer named = new ByteArrayBuffer().writeStruct(unannotated);
+        assertThat(named.readableBytes()).isGreaterThan(Unannotated.class.getName().length());
+    }
+
+    @Test
+    void idEncodedStructsRoundTrip() {
+        Route route = new Route();
+        route.name = "route";
+        Point first = point(1, 2);
+        first.next = point(3, 4);
+        route.points = new ArrayList<>(Arrays.asList(first, null, point(-5, 6)));
+
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeStruct(route).writeStruct(point(9, 9));
+        Route decoded = buffer.readStruct(Route.class);
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(route);
+        assertThat(buffer.readStruct(Point.class)).usingRecursiveComparison().isEqualTo(point(9, 9));
+        assertThat(buffer.readableBytes()).isZero();
+    }
+
+    @Test
+    void readerRegistersExpectedTypeForUnknownId() {
+        byte[] bytes = new ByteArrayBuffer().writeStruct(point(1, 2)).toBytes();
+        // 接收端尚未註冊，以期望類型上的註解註冊後讀取
+        TypeRegistry.clear();
+        Point decoded = new ByteArrayBuffer(bytes).readStruct(Point.class);
+        assertThat(decoded.x).isEqualTo(1);
+        assertThat(TypeRegistry.typeOf(7)).isSameAs(Point.class);
+    }
+
+    @Test
+    void readRejectsUnregisteredId() {
+        byte[] bytes = new ByteArrayBuffer().writeStruct(point(1, 2)).toBytes();
+        TypeRegistry.clear();
+        // 期望類型沒有宣告相同的編號，無法得知實際類型
+        assertThatThrownBy(() -> new ByteArrayBuffer(bytes).readStruct(Object.class))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("未註冊的結構類型編號");
+        assertThatThrownBy(() -> new ByteArrayBuffer(bytes).readStruct(Route.class))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("未註冊的結構類型編號");
+    }
+}
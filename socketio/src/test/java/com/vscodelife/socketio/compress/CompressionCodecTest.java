@@ -0,0 +1,178 @@
+package com.vscodelife.socketio.compress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+
+/**
+ * 內建壓縮演算法（LZ4、Deflate）的編解碼與損毀資料處理
+ */
+class CompressionCodecTest {
+
+    static Stream<CompressionCodec> codecs() {
+        return Stream.of(CompressionCodecs.LZ4, CompressionCodecs.DEFLATE);
+    }
+
+    static byte[] text(int length) {
+        byte[] unit = "{\"mainNo\":1,\"subNo\":2,\"name\":\"player\",\"score\":12345}".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = unit[i % unit.length];
+        }
+        return bytes;
+    }
+
+    static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    static byte[] roundTrip(CompressionCodec codec, byte[] source) {
+        // 輸入與輸出都放在非零偏移，確認不會讀寫到偏移之外
+        byte[] src = new byte[source.length + 7];
+        System.arraycopy(source, 0, src, 3, source.length);
+        byte[] compressed = new byte[codec.maxCompressedLength(source.length) + 5];
+        int length = codec.compress(src, 3, source.length, compressed, 5, compressed.length - 5, 0);
+        assertThat(length).isPositive();
+
+        byte[] restored = new byte[source.length + 4];
+        codec.decompress(compressed, 5, length, restored, 4, source.length);
+        return Arrays.copyOfRange(restored, 4, restored.length);
+    }
+
+    static byte[] compress(CompressionCodec codec, byte[] source) {
+        byte[] compressed = new byte[codec.maxCompressedLength(source.length)];
+        int length = codec.compress(source, 0, source.length, compressed, 0, compressed.length, 0);
+        return Arrays.copyOf(compressed, length);
+    }
+
+    // ==================== 編解碼 ====================
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsCompressibleData(CompressionCodec codec) {
+        for (int length : new int[] { 1, 15, 16, 300, 4096, 200_000 }) {
+            byte[] source = text(length);
+            assertThat(roundTrip(codec, source)).as("length=%d", length).isEqualTo(source);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsIncompressibleData(CompressionCodec codec) {
+        byte[] source = random(70_000, 1L);
+        assertThat(roundTrip(codec, source)).isEqualTo(source);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTripsOverlappingRuns(CompressionCodec codec) {
+        byte[] source = new byte[10_000];
+        Arrays.fill(source, (byte) 'a');
+        source[5000] = 'b';
+        assertThat(roundTrip(codec, source)).isEqualTo(source);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void reportsInsufficientOutput(CompressionCodec codec) {
+        byte[] source = random(1000, 2L);
+        byte[] dst = new byte[100];
+        assertThat(codec.compress(source, 0, source.length, dst, 0, dst.length, 0)).isEqualTo(-1);
+    }
+
+    // ==================== 損毀資料 ====================
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void rejectsTruncatedInput(CompressionCodec codec) {
+        byte[] source = text(4096);
+        byte[] compressed = compress(codec, source);
+        byte[] restored = new byte[source.length];
+        assertThatThrownBy(() -> codec.decompress(compressed, 0, compressed.length - 3, restored, 0, source.length))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void rejectsWrongOriginalLength(CompressionCodec codec) {
+        byte[] source = text(4096);
+        byte[] compressed = compress(codec, source);
+        byte[] restored = new byte[source.length * 2];
+        assertThatThrownBy(() -> codec.decompress(compressed, 0, compressed.length, restored, 0, source.length + 1))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> codec.decompress(compressed, 0, compressed.length, restored, 0, source.length - 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void lz4RejectsMatchBeforeOutputStart() {
+        // 4 個字面值後接 offset = 100 的匹配，參照位置在輸出開頭之前
+        byte[] forged = { 0x40, 'a', 'b', 'c', 'd', 100, 0, 0x00, 'e' };
+        byte[] restored = new byte[64];
+        assertThatThrownBy(() -> CompressionCodecs.LZ4.decompress(forged, 0, forged.length, restored, 0, 9))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void lz4RejectsLiteralRunPastInput() {
+        byte[] forged = { (byte) 0xF0, (byte) 200, 'a', 'b' };
+        byte[] restored = new byte[512];
+        assertThatThrownBy(() -> CompressionCodecs.LZ4.decompress(forged, 0, forged.length, restored, 0, 215))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void deflateRejectsGarbage() {
+        byte[] garbage = random(64, 3L);
+        garbage[0] = (byte) 0xFF;
+        byte[] restored = new byte[1024];
+        assertThatThrownBy(() -> CompressionCodecs.DEFLATE.decompress(garbage, 0, garbage.length, restored, 0, 1024))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // ==================== 緩衝區格式 ====================
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void bufferCompressToKeepsSourceAndRoundTrips(CompressionCodec codec) {
+        byte[] source = text(8192);
+        ByteArrayBuffer buffer = new ByteArrayBuffer(source);
+        ByteArrayBuffer compressed = buffer.compressTo(codec, 0);
+
+        assertThat(compressed).isNotNull();
+        assertThat(compressed.readableBytes()).isLessThan(source.length);
+        assertThat(buffer.toBytes()).isEqualTo(source);
+        assertThat(compressed.decompress(codec).toBytes()).isEqualTo(source);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void bufferCompressToSkipsIncompressibleData(CompressionCodec codec) {
+        assertThat(new ByteArrayBuffer(random(2048, 4L)).compressTo(codec, 0)).isNull();
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void bufferDecompressRejectsOversizedLength(CompressionCodec codec) {
+        ByteArrayBuffer forged = new ByteArrayBuffer().writeVarInt(Integer.MAX_VALUE).writeBytes(new byte[] { 1, 2 });
+        assertThatThrownBy(() -> forged.decompress(codec)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void registryResolvesBuiltInCodecs() {
+        assertThat(CompressionCodecs.get(Lz4Codec.ID)).isSameAs(CompressionCodecs.LZ4);
+        assertThat(CompressionCodecs.get(DeflateCodec.ID)).isSameAs(CompressionCodecs.DEFLATE);
+    }
+}
@@ -0,0 +1,158 @@
+package com.vscodelife.socketio.compress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+
+/**
+ * 預設字典壓縮、字典訓練與字典交換格式
+ *
+ * 字典表為整個程序共用，各測試使用不同的字典編號避免互相影響
+ */
+class CompressionDictionaryTest {
+
+    static byte[] frame(int i) {
+        // 字典門檻以上的小型幀（約 120 位元組），樣本必須長於訓練的區段長度
+        return String.format("{\"mainNo\":3,\"subNo\":%d,\"userId\":\"user-%d\",\"status\":\"online\","
+                + "\"room\":\"lobby-%d\",\"level\":%d,\"updatedAt\":%d}", i % 5, i, i % 3, i % 60,
+                1_700_000_000L + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static CompressionDictionary dictionary(int id) {
+        CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer();
+        for (int i = 0; i < 200; i++) {
+            trainer.addSample(frame(i));
+        }
+        return trainer.train(id, 4096);
+    }
+
+    static byte[] compress(CompressionCodec codec, byte[] source) {
+        byte[] compressed = new byte[codec.maxCompressedLength(source.length)];
+        int length = codec.compress(source, 0, source.length, compressed, 0, compressed.length, 0);
+        assertThat(length).isPositive();
+        return Arrays.copyOf(compressed, length);
+    }
+
+    // ==================== 編解碼 ====================
+
+    @Test
+    void roundTripsSmallFrames() {
+        CompressionDictionary dictionary = dictionary(201);
+        CompressionDictionary.register(dictionary);
+        CompressionCodec codec = dictionary.codec();
+
+        for (int i = 1000; i < 1010; i++) {
+            byte[] source = frame(i);
+            byte[] compressed = compress(codec, source);
+            assertThat(compressed[0] & 0xFF).isEqualTo(201);
+
+            byte[] restored = new byte[source.length];
+            CompressionCodecs.DEFLATE_DICTIONARY.decompress(compressed, 0, compressed.length, restored, 0,
+                    source.length);
+            assertThat(restored).isEqualTo(source);
+        }
+    }
+
+    @Test
+    void dictionaryBeatsPlainDeflateOnSmallFrames() {
+        CompressionDictionary dictionary = dictionary(202);
+        byte[] source = frame(4242);
+        int withDictionary = compress(dictionary.codec(), source).length;
+        int plain = compress(CompressionCodecs.DEFLATE, source).length;
+        assertThat(withDictionary).isLessThan(plain);
+    }
+
+    @Test
+    void decompressOnlyInstanceCannotCompress() {
+        byte[] source = frame(1);
+        byte[] dst = new byte[128];
+        assertThatThrownBy(() -> CompressionCodecs.DEFLATE_DICTIONARY.compress(source, 0, source.length, dst, 0,
+                dst.length, 0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    // ==================== 損毀資料 ====================
+
+    @Test
+    void rejectsUnknownDictionaryId() {
+        CompressionDictionary unregistered = dictionary(203);
+        byte[] source = frame(7);
+        byte[] compressed = compress(unregistered.codec(), source);
+        byte[] restored = new byte[source.length];
+        assertThatThrownBy(() -> CompressionCodecs.DEFLATE_DICTIONARY.decompress(compressed, 0, compressed.length,
+                restored, 0, source.length)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("203");
+    }
+
+    @Test
+    void rejectsMissingDictionaryId() {
+        byte[] restored = new byte[16];
+        assertThatThrownBy(() -> CompressionCodecs.DEFLATE_DICTIONARY.decompress(new byte[0], 0, 0, restored, 0,
+                16)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        CompressionDictionary dictionary = dictionary(204);
+        CompressionDictionary.register(dictionary);
+        byte[] source = frame(99);
+        byte[] compressed = compress(dictionary.codec(), source);
+        byte[] restored = new byte[source.length];
+        assertThatThrownBy(() -> CompressionCodecs.DEFLATE_DICTIONARY.decompress(compressed, 0,
+                compressed.length - 2, restored, 0, source.length)).isInstanceOf(IllegalStateException.class);
+    }
+
+    // ==================== 交換與註冊 ====================
+
+    @Test
+    void writeToReadFromRoundTripsWithoutRegistering() {
+        CompressionDictionary dictionary = dictionary(205);
+        ByteArrayBuffer buffer = dictionary.writeTo(new ByteArrayBuffer());
+
+        CompressionDictionary received = CompressionDictionary.readFrom(buffer);
+        assertThat(received.contentEquals(dictionary)).isTrue();
+        assertThat(CompressionDictionary.get(205)).isNull();
+    }
+
+    @Test
+    void readFromRejectsInvalidLength() {
+        ByteArrayBuffer empty = new ByteArrayBuffer().writeVarInt(206).writeVarInt(0);
+        assertThatThrownBy(() -> CompressionDictionary.readFrom(empty)).isInstanceOf(IllegalStateException.class);
+
+        ByteArrayBuffer oversized = new ByteArrayBuffer().writeVarInt(206)
+                .writeVarInt(CompressionDictionary.MAX_SIZE + 1);
+        assertThatThrownBy(() -> CompressionDictionary.readFrom(oversized)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void readFromRejectsTruncatedContent() {
+        ByteArrayBuffer truncated = new ByteArrayBuffer().writeVarInt(206).writeVarInt(100)
+                .writeBytes(new byte[] { 1, 2, 3 });
+        assertThatThrownBy(() -> CompressionDictionary.readFrom(truncated)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void registerIfAbsentKeepsExistingDictionary() {
+        CompressionDictionary local = new CompressionDictionary(207, "local".getBytes(StandardCharsets.UTF_8));
+        CompressionDictionary peer = new CompressionDictionary(207, "peer".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(CompressionDictionary.registerIfAbsent(local)).isSameAs(local);
+        CompressionDictionary current = CompressionDictionary.registerIfAbsent(peer);
+        assertThat(current).isSameAs(local);
+        assertThat(current.contentEquals(peer)).isFalse();
+        assertThat(CompressionDictionary.get(207)).isSameAs(local);
+    }
+
+    @Test
+    void rejectsInvalidId() {
+        byte[] content = { 1 };
+        assertThatThrownBy(() -> new CompressionDictionary(0, content)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CompressionDictionary(256, content))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,209 @@
+package com.vscodelife.socketio.compress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.message.base.HeaderBase;
+
+/**
+ * 串流壓縮上下文的依序編解碼、重置與損毀資料處理
+ */
+class StreamingCompressionContextTest {
+    private StreamingCompression compression;
+    private StreamingCompressionContext sender;
+    private StreamingCompressionContext receiver;
+
+    @BeforeEach
+    void setUp() {
+        compression = new StreamingCompression().setEnabled(true).setMinSize(16);
+        sender = compression.acquire(true);
+        receiver = compression.acquire(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.release();
+        receiver.release();
+        assertThat(compression.getContextCount()).isZero();
+        assertThat(compression.getUsedMemory()).isZero();
+    }
+
+    static byte[] message(int i) {
+        return String.format("{\"mainNo\":5,\"subNo\":1,\"roomId\":42,\"player\":\"p-%d\",\"x\":%d,\"y\":%d}", i,
+                i * 3, i * 7).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 送出一則訊息，回傳壓縮後的內容，header 記錄壓縮方式
+     */
+    ByteArrayBuffer send(byte[] content, HeaderBase header) {
+        ByteArrayBuffer compressed = sender.compress(new ByteArrayBuffer(content), header);
+        assertThat(compressed).isNotNull();
+        assertThat(header.getCompressCodec()).isEqualTo(CompressionCodecs.STREAM);
+        return compressed;
+    }
+
+    byte[] receive(ByteArrayBuffer compressed, HeaderBase header) {
+        CompressionCodecs.decompress(header, compressed, receiver);
+        return compressed.toBytes();
+    }
+
+    // ==================== 編解碼 ====================
+
+    @Test
+    void roundTripsMessagesInOrderWithContextTakeover() {
+        int first = 0;
+        int last = 0;
+        for (int i = 0; i < 50; i++) {
+            byte[] content = message(i);
+            HeaderBase header = new HeaderBase();
+            ByteArrayBuffer compressed = send(content, header);
+            if (i == 0) {
+                first = compressed.readableBytes();
+            }
+            last = compressed.readableBytes();
+            assertThat(receive(compressed, header)).isEqualTo(content);
+        }
+        // 後續訊息引用前面的內容，明顯小於第一則
+        assertThat(last).isLessThan(first / 2);
+        assertThat(sender.getCompressionRatio()).isLessThan(0.5);
+    }
+
+    @Test
+    void compressDoesNotModifySource() {
+        ByteArrayBuffer body = new ByteArrayBuffer(message(1));
+        int readerIndex = body.readerIndex();
+        sender.compress(body, new HeaderBase());
+        assertThat(body.readerIndex()).isEqualTo(readerIndex);
+        assertThat(body.toBytes()).isEqualTo(message(1));
+    }
+
+    @Test
+    void resetRestartsBothSides() {
+        for (int i = 0; i < 3; i++) {
+            HeaderBase header = new HeaderBase();
+            receive(send(message(i), header), header);
+        }
+
+        sender.reset();
+        HeaderBase header = new HeaderBase();
+        byte[] bytes = send(message(3), header).toBytes();
+        assertThat(header.getCompressLevel() & StreamingCompressionContext.FLAG_RESET).isNotZero();
+        assertThat(receive(new ByteArrayBuffer(bytes), header)).isEqualTo(message(3));
+
+        // 重置後的訊息不引用之前的內容，全新的解壓縮端也能解開
+        StreamingCompressionContext fresh = compression.acquire(false);
+        try {
+            ByteArrayBuffer copy = new ByteArrayBuffer(bytes);
+            CompressionCodecs.decompress(header, copy, fresh);
+            assertThat(copy.toBytes()).isEqualTo(message(3));
+        } finally {
+            fresh.release();
+        }
+    }
+
+    @Test
+    void resetIntervalResetsAutomatically() {
+        sender.release();
+        compression.setResetInterval(200);
+        sender = compression.acquire(true);
+
+        int resets = 0;
+        for (int i = 0; i < 20; i++) {
+            HeaderBase header = new HeaderBase();
+            ByteArrayBuffer compressed = send(message(i), header);
+            if ((header.getCompressLevel() & StreamingCompressionContext.FLAG_RESET) != 0) {
+                resets++;
+            }
+            assertThat(receive(compressed, header)).isEqualTo(message(i));
+        }
+        assertThat(resets).isPositive();
+    }
+
+    @Test
+    void skipsSmallMessagesAndInactiveOutbound() {
+        ByteArrayBuffer small = new ByteArrayBuffer("tiny".getBytes(StandardCharsets.UTF_8));
+        assertThat(sender.accepts(small)).isFalse();
+        assertThat(sender.compress(small, new HeaderBase())).isNull();
+
+        ByteArrayBuffer body = new ByteArrayBuffer(message(1));
+        assertThat(receiver.accepts(body)).isFalse();
+        assertThat(receiver.compress(body, new HeaderBase())).isNull();
+        receiver.enableOutbound();
+        assertThat(receiver.accepts(body)).isTrue();
+    }
+
+    // ==================== 損毀資料 ====================
+
+    @Test
+    void rejectsTruncatedMessage() {
+        HeaderBase header = new HeaderBase();
+        byte[] bytes = send(message(1), header).toBytes();
+        ByteArrayBuffer truncated = new ByteArrayBuffer(Arrays.copyOf(bytes, bytes.length - 3));
+        assertThatThrownBy(() -> receive(truncated, header)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsWrongOriginalLength() {
+        HeaderBase header = new HeaderBase();
+        ByteArrayBuffer compressed = send(message(1), header);
+        int length = compressed.readVarInt();
+        ByteArrayBuffer forged = new ByteArrayBuffer().writeVarInt(length - 1).writeBytes(compressed.toBytes());
+        assertThatThrownBy(() -> receive(forged, header)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsMessageOutOfOrder() {
+        // 第二則幾乎全部引用第一則的內容，跳過第一則時引用超出視窗
+        send(message(1), new HeaderBase());
+        HeaderBase header = new HeaderBase();
+        ByteArrayBuffer second = send(message(1), header);
+        assertThatThrownBy(() -> receive(second, header)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsStreamMessageWithoutContext() {
+        HeaderBase header = new HeaderBase();
+        ByteArrayBuffer compressed = send(message(1), header);
+        assertThatThrownBy(() -> CompressionCodecs.decompress(header, compressed, null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsDecompressAfterRelease() {
+        HeaderBase header = new HeaderBase();
+        ByteArrayBuffer compressed = send(message(1), header);
+        receiver.release();
+        assertThatThrownBy(() -> receive(compressed, header)).isInstanceOf(IllegalStateException.class);
+    }
+
+    // ==================== 記憶體預算 ====================
+
+    @Test
+    void acquireRespectsMemoryBudget() {
+        long perContext = StreamingCompression.CONTEXT_MEMORY + compression.getMaxBufferSize();
+        compression.setMaxMemory(perContext * 3);
+
+        StreamingCompressionContext third = compression.acquire(false);
+        assertThat(third).isNotNull();
+        assertThat(compression.acquire(false)).isNull();
+
+        third.release();
+        third.release();
+        assertThat(compression.getContextCount()).isEqualTo(2);
+        assertThat(compression.getUsedMemory()).isEqualTo(perContext * 2);
+    }
+
+    @Test
+    void acquireReturnsNullWhenDisabled() {
+        assertThat(new StreamingCompression().acquire(true)).isNull();
+    }
+}
@@ -0,0 +1,275 @@
+package com.vscodelife.socketio.connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.message.ByteMessage;
+import com.vscodelife.socketio.message.base.HeaderBase;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * 會話恢復緩衝區的序號、暫停期間的保存、恢復回放與引用計數
+ */
+class ResumeBufferTest {
+
+    static ByteBuf frame(int i) {
+        return Unpooled.buffer(4).writeInt(i);
+    }
+
+    static ByteMessage<HeaderBase> message(int mainNo) {
+        return new ByteMessage<>(new HeaderBase("1.0", mainNo, 1, false, 0L, 0L, 0L), new ByteArrayBuffer());
+    }
+
+    static List<Integer> contents(List<Object> frames) {
+        List<Integer> values = new ArrayList<>(frames.size());
+        for (Object frame : frames) {
+            ByteBuf buf = (ByteBuf) frame;
+            values.add(buf.getInt(buf.readerIndex()));
+        }
+        return values;
+    }
+
+    static void releaseAll(List<Object> frames) {
+        for (Object frame : frames) {
+            ((ByteBuf) frame).release();
+        }
+    }
+
+    /**
+     * 模擬編碼器：每個寫出的幀先記錄序號
+     */
+    static EmbeddedChannel channel(ResumeBuffer buffer) {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ResumeBuffer resume = ResumeBuffer.get(ctx.channel());
+                if (resume != null) {
+                    resume.append(msg);
+                }
+                ctx.write(msg, promise);
+            }
+        });
+        ResumeBuffer.attach(channel, buffer);
+        return channel;
+    }
+
+    // ==================== 序號 ====================
+
+    @Test
+    void appendNumbersFramesFromOne() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        List<ByteBuf> frames = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            ByteBuf frame = frame(i);
+            frames.add(frame);
+            assertThat(buffer.append(frame)).isEqualTo(i);
+        }
+        assertThat(buffer.getSequence()).isEqualTo(5);
+        assertThat(buffer.size()).isEqualTo(5);
+        // 緩衝區另外保留一份引用
+        assertThat(frames).allSatisfy(frame -> assertThat(frame.refCnt()).isEqualTo(2));
+
+        buffer.clear();
+        assertThat(frames).allSatisfy(frame -> assertThat(frame.refCnt()).isEqualTo(1));
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void capacityIsRoundedToPowerOfTwo() {
+        assertThat(new ResumeBuffer(1).getCapacity()).isEqualTo(1);
+        assertThat(new ResumeBuffer(5).getCapacity()).isEqualTo(8);
+        assertThat(new ResumeBuffer(256).getCapacity()).isEqualTo(256);
+        assertThatThrownBy(() -> new ResumeBuffer(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void overflowReleasesOldestFrame() {
+        ResumeBuffer buffer = new ResumeBuffer(4);
+        List<ByteBuf> frames = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            ByteBuf frame = frame(i);
+            frames.add(frame);
+            buffer.append(frame);
+        }
+        assertThat(buffer.size()).isEqualTo(4);
+        assertThat(frames.get(0).refCnt()).isEqualTo(1);
+        assertThat(frames.get(1).refCnt()).isEqualTo(1);
+        assertThat(frames.get(2).refCnt()).isEqualTo(2);
+        buffer.clear();
+    }
+
+    @Test
+    void retainsMessagesByReference() {
+        ResumeBuffer buffer = new ResumeBuffer(4);
+        ByteMessage<HeaderBase> message = message(1);
+        buffer.append(message);
+        assertThat(message.refCnt()).isEqualTo(2);
+        buffer.clear();
+        assertThat(message.refCnt()).isEqualTo(1);
+    }
+
+    // ==================== 暫停 ====================
+
+    @Test
+    void offerIsRejectedWhileActive() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        ByteBuf frame = frame(1);
+        assertThat(buffer.offer(frame)).isFalse();
+        assertThat(buffer.getSequence()).isZero();
+        assertThat(frame.refCnt()).isEqualTo(1);
+        frame.release();
+    }
+
+    @Test
+    void offerQueuesApplicationMessagesWhileSuspended() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        buffer.suspend();
+        ByteMessage<HeaderBase> message = message(1);
+        assertThat(buffer.offer(message)).isTrue();
+        assertThat(buffer.getSequence()).isEqualTo(1);
+        // 取得呼叫端的引用，不另外保留
+        assertThat(message.refCnt()).isEqualTo(1);
+        buffer.clear();
+        assertThat(message.refCnt()).isZero();
+    }
+
+    @Test
+    void offerDropsControlFramesWithoutNumbering() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        buffer.suspend();
+        ByteMessage<HeaderBase> control = message(0);
+        assertThat(buffer.offer(control)).isTrue();
+        assertThat(buffer.getSequence()).isZero();
+        assertThat(buffer.size()).isZero();
+        assertThat(control.refCnt()).isZero();
+    }
+
+    // ==================== 恢復 ====================
+
+    @Test
+    void resumeReturnsMissedFramesInOrder() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        for (int i = 1; i <= 5; i++) {
+            ByteBuf frame = frame(i);
+            buffer.append(frame);
+            frame.release();
+        }
+        buffer.suspend();
+        buffer.offer(frame(6));
+        buffer.offer(frame(7));
+        assertThat(buffer.getSequence()).isEqualTo(7);
+
+        List<Object> missed = buffer.resume(3, null);
+        assertThat(contents(missed)).containsExactly(4, 5, 6, 7);
+        assertThat(buffer.isSuspended()).isFalse();
+        releaseAll(missed);
+
+        // 已全部收到時沒有遺漏的幀
+        assertThat(buffer.resume(7, null)).isEmpty();
+        buffer.clear();
+    }
+
+    @Test
+    void resumeRunsRebindBeforeEndingSuspension() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        buffer.append(message(1));
+        buffer.suspend();
+        boolean[] suspendedDuringRebind = new boolean[1];
+        List<Object> missed = buffer.resume(0, () -> suspendedDuringRebind[0] = buffer.isSuspended());
+        assertThat(suspendedDuringRebind[0]).isTrue();
+        assertThat(buffer.isSuspended()).isFalse();
+        assertThat(missed).hasSize(1);
+        ((ByteMessage<?>) missed.get(0)).release();
+        buffer.clear();
+    }
+
+    @Test
+    void resumeRejectsSequenceOutOfRange() {
+        ResumeBuffer buffer = new ResumeBuffer(4);
+        for (int i = 1; i <= 6; i++) {
+            ByteBuf frame = frame(i);
+            buffer.append(frame);
+            frame.release();
+        }
+        buffer.suspend();
+        boolean[] rebound = new boolean[1];
+        // 大於已送出的序號
+        assertThat(buffer.resume(7, () -> rebound[0] = true)).isNull();
+        // 遺漏的第 2 筆已被覆蓋
+        assertThat(buffer.resume(1, () -> rebound[0] = true)).isNull();
+        assertThat(rebound[0]).isFalse();
+        assertThat(buffer.isSuspended()).isTrue();
+
+        List<Object> missed = buffer.resume(2, null);
+        assertThat(contents(missed)).containsExactly(3, 4, 5, 6);
+        releaseAll(missed);
+        buffer.clear();
+    }
+
+    @Test
+    void replayWritesMissedFramesWithoutRenumbering() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        EmbeddedChannel channel = channel(buffer);
+        for (int i = 1; i <= 3; i++) {
+            channel.writeAndFlush(frame(i));
+        }
+        assertThat(buffer.getSequence()).isEqualTo(3);
+        for (int i = 1; i <= 3; i++) {
+            ((ByteBuf) channel.readOutbound()).release();
+        }
+
+        buffer.suspend();
+        List<Object> missed = buffer.resume(1, null);
+        buffer.replay(channel, missed);
+        assertThat(buffer.getSequence()).isEqualTo(3);
+        List<Integer> replayed = new ArrayList<>();
+        ByteBuf out;
+        while ((out = channel.readOutbound()) != null) {
+            replayed.add(out.readInt());
+            out.release();
+        }
+        assertThat(replayed).containsExactly(2, 3);
+
+        // 回放結束後的送出照常編號
+        channel.writeAndFlush(frame(4));
+        assertThat(buffer.getSequence()).isEqualTo(4);
+        ((ByteBuf) channel.readOutbound()).release();
+
+        buffer.clear();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void writeFrameRecordsSequenceBeforeWriting() {
+        ResumeBuffer buffer = new ResumeBuffer(8);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ResumeBuffer.attach(channel, buffer);
+        ByteBuf frame = frame(1);
+        ResumeBuffer.writeFrame(channel, frame);
+        assertThat(buffer.getSequence()).isEqualTo(1);
+        ByteBuf out = channel.readOutbound();
+        assertThat(out.readInt()).isEqualTo(1);
+        out.release();
+
+        // 緩衝區保存獨立讀寫位置的副本，寫出後仍可完整回放
+        buffer.suspend();
+        List<Object> missed = buffer.resume(0, null);
+        assertThat(contents(missed)).containsExactly(1);
+        releaseAll(missed);
+        buffer.clear();
+        assertThat(frame.refCnt()).isZero();
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,268 @@
+package com.vscodelife.socketio.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONB;
+import com.alibaba.fastjson2.JSONObject;
+import com.vscodelife.socketio.buffer.JsonMapBuffer;
+import com.vscodelife.socketio.message.base.HeaderBase;
+
+/**
+ * JsonMessage 單次編解碼：新舊格式、位元組解碼與格式錯誤的輸入
+ */
+class JsonMessageCodecTest {
+    private final JsonMessageCodec codec = new JsonMessageCodec(false);
+    private final JsonMessageCodec legacy = new JsonMessageCodec(true);
+
+    static JsonMessage<HeaderBase> message() {
+        HeaderBase header = new HeaderBase("1.0", 3, 7, false, 123456789L, 42L, 0L);
+        JsonMapBuffer buffer = new JsonMapBuffer();
+        buffer.put("code", 200);
+        buffer.put("name", "玩家 \"one\" {}");
+        buffer.put("score", 9876543210L);
+        return new JsonMessage<>(header, buffer);
+    }
+
+    static void assertSameContent(JsonMessage<HeaderBase> decoded, JsonMessage<HeaderBase> expected) {
+        assertThat(decoded.getHeader()).isEqualTo(expected.getHeader());
+        assertThat(decoded.getBuffer().getInteger("code")).isEqualTo(200);
+        assertThat(decoded.getBuffer().getString("name")).isEqualTo("玩家 \"one\" {}");
+        assertThat(decoded.getBuffer().getLong("score")).isEqualTo(9876543210L);
+    }
+
+    static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ==================== 編解碼 ====================
+
+    @Test
+    void roundTripsString() {
+        JsonMessage<HeaderBase> message = message();
+        String json = codec.encode(message);
+        // 新格式的 buffer 為巢狀物件，不是跳脫後的字串
+        assertThat(JSON.parseObject(json).get("buffer")).isInstanceOf(JSONObject.class);
+        assertSameContent(codec.decode(json, HeaderBase.class), message);
+    }
+
+    @Test
+    void roundTripsBytes() {
+        JsonMessage<HeaderBase> message = message();
+        byte[] bytes = codec.encodeToBytes(message);
+        assertSameContent(codec.decode(bytes, 0, bytes.length, HeaderBase.class), message);
+    }
+
+    @Test
+    void decodesWithinOffsetAndLength() {
+        JsonMessage<HeaderBase> message = message();
+        byte[] bytes = codec.encodeToBytes(message);
+        byte[] padded = new byte[bytes.length + 10];
+        Arrays.fill(padded, (byte) '#');
+        System.arraycopy(bytes, 0, padded, 4, bytes.length);
+        assertSameContent(codec.decode(padded, 4, bytes.length, HeaderBase.class), message);
+    }
+
+    @Test
+    void decodesIntoSuppliedHeader() {
+        JsonMessage<HeaderBase> message = message();
+        byte[] bytes = codec.encodeToBytes(message);
+        HeaderBase target = new HeaderBase();
+        JsonMessage<HeaderBase> decoded = codec.decode(bytes, 0, bytes.length, () -> target);
+        assertThat(decoded.getHeader()).isSameAs(target);
+        assertSameContent(decoded, message);
+    }
+
+    @Test
+    void legacyFormatRoundTripsAndIsReadByNewCodec() {
+        JsonMessage<HeaderBase> message = message();
+        String json = legacy.encode(message);
+        assertThat(JSON.parseObject(json).get("buffer")).isInstanceOf(String.class);
+
+        assertSameContent(codec.decode(json, HeaderBase.class), message);
+        byte[] bytes = utf8(json);
+        assertSameContent(codec.decode(bytes, 0, bytes.length, HeaderBase.class), message);
+    }
+
+    @Test
+    void newFormatMatchesLegacyContent() {
+        JsonMessage<HeaderBase> message = message();
+        JsonMessage<HeaderBase> fromNew = codec.decode(codec.encode(message), HeaderBase.class);
+        JsonMessage<HeaderBase> fromLegacy = codec.decode(legacy.encode(message), HeaderBase.class);
+        assertThat(fromNew.getBuffer().toJson()).isEqualTo(fromLegacy.getBuffer().toJson());
+    }
+
+    @Test
+    void missingOrNullBufferDecodesAsEmpty() {
+        JsonMessage<HeaderBase> missing = codec.decode("{\"header\":{\"mainNo\":1,\"subNo\":2}}", HeaderBase.class);
+        assertThat(missing.getBuffer().getBuffer()).isEmpty();
+
+        JsonMessage<HeaderBase> nulled = codec.decode("{\"header\":{\"mainNo\":1},\"buffer\":null}",
+                HeaderBase.class);
+        assertThat(nulled.getBuffer().getBuffer()).isEmpty();
+    }
+
+    @Test
+    void ignoresUnknownFields() {
+        JsonMessage<HeaderBase> decoded = codec.decode(
+                "{\"trace\":[1,{\"a\":2}],\"header\":{\"mainNo\":9},\"buffer\":{\"k\":1},\"extra\":\"x\"}",
+                HeaderBase.class);
+        assertThat(decoded.getHeader().getMainNo()).isEqualTo(9);
+        assertThat(decoded.getBuffer().getInteger("k")).isEqualTo(1);
+    }
+
+    // ==================== 原始內容 ====================
+
+    @Test
+    void keepsRawBufferAndWritesItVerbatim() {
+        byte[] bytes = codec.encodeToBytes(message());
+        JsonMessage<HeaderBase> decoded = codec.decode(bytes, 0, bytes.length, HeaderBase.class);
+        assertThat(decoded.getBuffer().hasRaw()).isTrue();
+        assertThat(decoded.getBuffer().isParsed()).isFalse();
+        assertThat(codec.encodeToBytes(decoded)).isEqualTo(bytes);
+    }
+
+    @Test
+    void parsesLegacyStringBuffer() {
+        // 舊格式的字串未經讀取器驗證，只能解析後使用，不保留原始內容
+        byte[] bytes = utf8(legacy.encode(message()));
+        JsonMessage<HeaderBase> decoded = codec.decode(bytes, 0, bytes.length, HeaderBase.class);
+        assertThat(decoded.getBuffer().isParsed()).isTrue();
+        assertThat(decoded.getBuffer().hasRaw()).isFalse();
+    }
+
+    @Test
+    void rejectsLegacyBufferThatIsNotJson() {
+        assertThatThrownBy(() -> codec.decode("{\"header\":{\"mainNo\":1},\"buffer\":\"not json\"}",
+                HeaderBase.class)).isInstanceOf(RuntimeException.class).hasMessageContaining("buffer 不是合法");
+    }
+
+    @Test
+    void rejectsLegacyBufferInjectingFields() {
+        // 字串內容若原樣寫出，會在外層物件中注入額外的欄位
+        byte[] bytes = utf8("{\"header\":{\"mainNo\":1},\"buffer\":\"{\\\"a\\\":1},\\\"admin\\\":{\"}");
+        assertThatThrownBy(() -> codec.decode(bytes, 0, bytes.length, HeaderBase.class))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void rejectsBufferWhereScannerAndReaderDisagree() {
+        // 單引號字串中的右大括號：掃描結果在讀取器略過的範圍之前結束
+        byte[] bytes = utf8("{\"header\":{\"mainNo\":1},\"buffer\":{'a':'}'}}");
+        assertThatThrownBy(() -> codec.decode(bytes, 0, bytes.length, HeaderBase.class))
+                .isInstanceOf(RuntimeException.class).hasMessageContaining("buffer 不是合法");
+    }
+
+    // ==================== JSONB ====================
+
+    @Test
+    void roundTripsJsonb() {
+        JsonMessage<HeaderBase> message = message();
+        byte[] jsonb = codec.encodeToJsonb(message);
+        assertSameContent(codec.decodeJsonb(jsonb, 0, jsonb.length, HeaderBase.class), message);
+
+        HeaderBase target = new HeaderBase();
+        JsonMessage<HeaderBase> pooled = codec.decodeJsonb(jsonb, 0, jsonb.length, () -> target);
+        assertThat(pooled.getHeader()).isSameAs(target);
+        assertSameContent(pooled, message);
+    }
+
+    @Test
+    void jsonbIgnoresLegacySetting() {
+        // 選用 JSONB 的客戶端一定是新客戶端，buffer 固定為巢狀物件
+        JsonMessage<HeaderBase> message = message();
+        byte[] jsonb = legacy.encodeToJsonb(message);
+        assertThat(JSONB.parseObject(jsonb).get("buffer")).isInstanceOf(JSONObject.class);
+        assertSameContent(codec.decodeJsonb(jsonb, 0, jsonb.length, HeaderBase.class), message);
+    }
+
+    @Test
+    void jsonbBufferRoundTrips() {
+        JsonMapBuffer buffer = message().getBuffer();
+        JsonMapBuffer restored = JsonMapBuffer.fromJsonb(buffer.toJsonb());
+        assertThat(restored.getString("name")).isEqualTo(buffer.getString("name"));
+        assertThat(restored.getLong("score")).isEqualTo(buffer.getLong("score"));
+    }
+
+    @Test
+    void rejectsTruncatedJsonb() {
+        byte[] jsonb = codec.encodeToJsonb(message());
+        for (int length : new int[] { 1, jsonb.length / 2, jsonb.length - 1 }) {
+            assertThatThrownBy(() -> codec.decodeJsonb(jsonb, 0, length, HeaderBase.class))
+                    .as("length=%d", length).isInstanceOf(RuntimeException.class);
+        }
+    }
+
+    @Test
+    void decodesJsonbWithinOffsetAndLength() {
+        JsonMessage<HeaderBase> message = message();
+        byte[] jsonb = codec.encodeToJsonb(message);
+        byte[] padded = new byte[jsonb.length + 10];
+        System.arraycopy(jsonb, 0, padded, 4, jsonb.length);
+        assertSameContent(codec.decodeJsonb(padded, 4, jsonb.length, HeaderBase.class), message);
+    }
+
+    @Test
+    void rejectsJsonbRangeEndingInsideMessage() {
+        // 共用的緩衝區中完整的消息後面還有資料，長度截斷時不可讀取範圍之外的位元組
+        byte[] jsonb = codec.encodeToJsonb(message());
+        byte[] shared = Arrays.copyOf(jsonb, jsonb.length + 16);
+        for (int length = 1; length < jsonb.length; length++) {
+            int truncated = length;
+            assertThatThrownBy(() -> codec.decodeJsonb(shared, 0, truncated, HeaderBase::new))
+                    .as("length=%d", length).isInstanceOf(RuntimeException.class);
+        }
+    }
+
+    @Test
+    void rejectsTextAsJsonb() {
+        byte[] text = codec.encodeToBytes(message());
+        assertThatThrownBy(() -> codec.decodeJsonb(text, 0, text.length, HeaderBase.class))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    // ==================== 格式錯誤 ====================
+
+    @Test
+    void rejectsNonObject() {
+        assertThatThrownBy(() -> codec.decode("[1,2,3]", HeaderBase.class)).isInstanceOf(RuntimeException.class);
+        byte[] bytes = utf8("\"text\"");
+        assertThatThrownBy(() -> codec.decode(bytes, 0, bytes.length, HeaderBase.class))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void rejectsMissingHeader() {
+        assertThatThrownBy(() -> codec.decode("{\"buffer\":{\"code\":1}}", HeaderBase.class))
+                .isInstanceOf(RuntimeException.class).hasMessageContaining("header");
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        byte[] bytes = codec.encodeToBytes(message());
+        for (int length : new int[] { 1, bytes.length / 2, bytes.length - 1 }) {
+            assertThatThrownBy(() -> codec.decode(bytes, 0, length, HeaderBase.class))
+                    .as("length=%d", length).isInstanceOf(RuntimeException.class);
+        }
+    }
+
+    @Test
+    void rejectsMalformedHeaderIntoSuppliedHeader() {
+        byte[] bytes = utf8("{\"header\":[1,2],\"buffer\":{}}");
+        assertThatThrownBy(() -> codec.decode(bytes, 0, bytes.length, HeaderBase::new))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void rejectsBufferOfWrongType() {
+        byte[] bytes = utf8("{\"header\":{\"mainNo\":1},\"buffer\":[1,2]}");
+        assertThatThrownBy(() -> codec.decode(bytes, 0, bytes.length, HeaderBase.class))
+                .isInstanceOf(RuntimeException.class);
+    }
+}
@@ -0,0 +1,301 @@
+package com.vscodelife.socketio.message.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.message.ByteCache;
+import com.vscodelife.socketio.message.ByteMessage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * 回應快取的時間輪過期、消息與幀模式的回放、每鍵上限與處理中請求的單一處理
+ */
+class CacheBaseTest {
+    private static final String USER = "alice";
+    private static final ProtocolKey PROTOCOL = ProtocolKey.valueOf(3, 1);
+    // 時間輪預設刻度為 1 秒，到期項目最多延後一個刻度才由 update 移除
+    private static final long WHEEL_TICK = 1000L;
+
+    private ByteCache<HeaderBase> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ByteCache<>();
+        cache.registerProtocolKey(PROTOCOL);
+    }
+
+    static ByteMessage<HeaderBase> message(long requestId) {
+        HeaderBase header = new HeaderBase("1.0", PROTOCOL.getMainNo(), PROTOCOL.getSubNo(), false, 0L,
+                requestId, 0L);
+        return new ByteMessage<>(header, new ByteArrayBuffer().writeInt((int) requestId));
+    }
+
+    static byte[] payload(long requestId) {
+        return ("reply-" + requestId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 前後各有 2 位元組不屬於幀的資料，驗證只保存 [index, index + length)
+     */
+    static ByteBuf frame(long requestId) {
+        return Unpooled.buffer().writeShort(0x7F7F).writeBytes(payload(requestId)).writeShort(0x7F7F);
+    }
+
+    static void putFrame(CacheBase<?, ?> cache, long requestId) {
+        ByteBuf frame = frame(requestId);
+        cache.putFrame(USER, PROTOCOL, requestId, frame, 2, payload(requestId).length);
+        frame.release();
+    }
+
+    static byte[] bytes(ByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), bytes);
+        return bytes;
+    }
+
+    // ==================== 過期 ====================
+
+    @Test
+    void expiredEntriesAreRemovedByWheel() throws InterruptedException {
+        cache.setTimeout(50L);
+        ByteMessage<HeaderBase> message = message(1);
+        cache.putMessage(USER, message);
+        putFrame(cache, 2);
+        assertThat(message.refCnt()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getUsedMemory()).isPositive();
+
+        // 到期後查詢立即未命中，但項目要等時間輪推進才移除
+        Thread.sleep(100L);
+        assertThat(cache.peekMessage(USER, 3, 1, 1)).isNull();
+        assertThat(cache.peekFrame(USER, 3, 1, 2)).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+
+        Thread.sleep(WHEEL_TICK);
+        cache.update();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getExpiredCount()).isEqualTo(2);
+        assertThat(cache.getUsedMemory()).isZero();
+        assertThat(cache.contains(USER)).isFalse();
+        // 快取持有的引用已釋放
+        assertThat(message.refCnt()).isEqualTo(1);
+    }
+
+    @Test
+    void updateKeepsUnexpiredEntries() throws InterruptedException {
+        cache.setTimeout(60_000L);
+        putFrame(cache, 1);
+        Thread.sleep(WHEEL_TICK + 50L);
+        cache.update();
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getExpiredCount()).isZero();
+    }
+
+    // ==================== 消息模式 ====================
+
+    @Test
+    void peekMessageReturnsRetainedMessage() {
+        ByteMessage<HeaderBase> message = message(1);
+        cache.putMessage(USER, message);
+        assertThat(cache.containMessage(USER, message)).isTrue();
+
+        ByteMessage<HeaderBase> hit = cache.peekMessage(USER, 3, 1, 1);
+        assertThat(hit).isSameAs(message);
+        assertThat(message.refCnt()).isEqualTo(3);
+        hit.release();
+
+        assertThat(cache.peekMessage(USER, 3, 1, 2)).isNull();
+        assertThat(cache.peekMessage("bob", 3, 1, 1)).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+
+        cache.removeKey(USER);
+        assertThat(message.refCnt()).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresProtocolsNotIncluded() {
+        ByteMessage<HeaderBase> message = new ByteMessage<>(new HeaderBase("1.0", 9, 9, false, 0L, 1L, 0L),
+                new ByteArrayBuffer());
+        cache.putMessage(USER, message);
+        assertThat(cache.size()).isZero();
+        assertThat(message.refCnt()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsAtMostMaxMessagesPerKey() {
+        cache.setMaxMessagesPerKey(3);
+        List<ByteMessage<HeaderBase>> messages = new ArrayList<>();
+        for (long i = 1; i <= 5; i++) {
+            ByteMessage<HeaderBase> message = message(i);
+            messages.add(message);
+            cache.putMessage(USER, message);
+        }
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+        assertThat(messages.get(0).refCnt()).isEqualTo(1);
+        assertThat(messages.get(1).refCnt()).isEqualTo(1);
+        assertThat(cache.peekMessage(USER, 3, 1, 1)).isNull();
+        ByteMessage<HeaderBase> newest = cache.peekMessage(USER, 3, 1, 5);
+        assertThat(newest).isSameAs(messages.get(4));
+        newest.release();
+    }
+
+    // ==================== 幀模式 ====================
+
+    @Test
+    void frameModeReplaysStoredBytes() {
+        cache.setFrameMode(true);
+        ByteBuf frame = frame(1);
+        int readerIndex = frame.readerIndex();
+        int writerIndex = frame.writerIndex();
+        cache.putFrame(USER, PROTOCOL, 1, frame, 2, payload(1).length);
+        // 不影響原本幀的讀寫位置，且保存的是複本
+        assertThat(frame.readerIndex()).isEqualTo(readerIndex);
+        assertThat(frame.writerIndex()).isEqualTo(writerIndex);
+        frame.setByte(2, 'X');
+        frame.release();
+
+        ByteBuf first = cache.peekFrame(USER, 3, 1, 1);
+        ByteBuf second = cache.peekFrame(USER, 3, 1, 1);
+        assertThat(bytes(first)).isEqualTo(payload(1));
+        // 每次回放是獨立讀寫位置的副本
+        first.skipBytes(first.readableBytes());
+        assertThat(bytes(second)).isEqualTo(payload(1));
+        assertThat(first.refCnt()).isEqualTo(3);
+        first.release();
+        second.release();
+
+        // 回放寫出至通道，由通道釋放
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.writeAndFlush(cache.peekFrame(USER, 3, 1, 1));
+        ByteBuf written = channel.readOutbound();
+        assertThat(bytes(written)).isEqualTo(payload(1));
+        written.release();
+        channel.finishAndReleaseAll();
+
+        assertThat(cache.getUsedMemory()).isEqualTo(CacheBase.ENTRY_OVERHEAD + payload(1).length);
+        cache.removeKey(USER);
+        assertThat(written.refCnt()).isZero();
+        assertThat(cache.getUsedMemory()).isZero();
+    }
+
+    @Test
+    void putFrameReplacesPreviousReply() {
+        putFrame(cache, 1);
+        ByteBuf old = cache.peekFrame(USER, 3, 1, 1);
+        ByteBuf replacement = Unpooled.wrappedBuffer(payload(99));
+        cache.putFrame(USER, PROTOCOL, 1, replacement, 0, replacement.readableBytes());
+        replacement.release();
+
+        assertThat(cache.size()).isEqualTo(1);
+        ByteBuf current = cache.peekFrame(USER, 3, 1, 1);
+        assertThat(bytes(current)).isEqualTo(payload(99));
+        current.release();
+        // 先前取出的副本仍持有引用
+        assertThat(bytes(old)).isEqualTo(payload(1));
+        old.release();
+        assertThat(old.refCnt()).isZero();
+    }
+
+    // ==================== 單一處理 ====================
+
+    @Test
+    void joinRequestWritesCachedReplyImmediately() {
+        putFrame(cache, 1);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        assertThat(cache.joinRequest(USER, 3, 1, 1, channel)).isTrue();
+        ByteBuf written = channel.readOutbound();
+        assertThat(bytes(written)).isEqualTo(payload(1));
+        written.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void duplicateMessageRequestsShareOneReply() {
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel retry = new EmbeddedChannel();
+        assertThat(cache.joinRequest(USER, 3, 1, 1, first)).isFalse();
+        assertThat(cache.joinRequest(USER, 3, 1, 1, retry)).isTrue();
+        assertThat(cache.getCoalescedCount()).isEqualTo(1);
+
+        ByteMessage<HeaderBase> message = message(1);
+        cache.putMessage(USER, message);
+        assertThat((Object) retry.readOutbound()).isSameAs(message);
+        assertThat((Object) first.readOutbound()).isNull();
+        // 寫給等待中的通道時另外保留一份引用
+        assertThat(message.refCnt()).isEqualTo(3);
+        first.finishAndReleaseAll();
+        retry.finishAndReleaseAll();
+    }
+
+    @Test
+    void concurrentDuplicateRequestsRunLoaderOnce() throws InterruptedException {
+        int threads = 16;
+        for (long requestId = 1; requestId <= 50; requestId++) {
+            long id = requestId;
+            AtomicInteger loads = new AtomicInteger();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<EmbeddedChannel> channels = new ArrayList<>();
+            List<EmbeddedChannel> loaders = new ArrayList<>();
+            List<Thread> workers = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < threads; t++) {
+                EmbeddedChannel channel = new EmbeddedChannel();
+                channels.add(channel);
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                        if (!cache.joinRequest(USER, 3, 1, id, channel)) {
+                            // 取得處理權的請求才執行處理並放入回應
+                            loads.incrementAndGet();
+                            synchronized (loaders) {
+                                loaders.add(channel);
+                            }
+                            Thread.sleep(5L);
+                            putFrame(cache, id);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join(30_000L);
+            }
+            assertThat(failure.get()).isNull();
+            assertThat(loads.get()).as("request %d", id).isEqualTo(1);
+
+            // 其餘請求不論在處理中或回應放入後才到達，都恰好收到一份相同的回應
+            for (EmbeddedChannel channel : channels) {
+                if (loaders.contains(channel)) {
+                    assertThat((Object) channel.readOutbound()).isNull();
+                } else {
+                    ByteBuf written = channel.readOutbound();
+                    assertThat(written).as("request %d", id).isNotNull();
+                    assertThat(bytes(written)).isEqualTo(payload(id));
+                    written.release();
+                    assertThat((Object) channel.readOutbound()).isNull();
+                }
+                channel.finishAndReleaseAll();
+            }
+        }
+        assertThat(cache.getCoalescedCount()).isEqualTo(50L * (threads - 1));
+    }
+}
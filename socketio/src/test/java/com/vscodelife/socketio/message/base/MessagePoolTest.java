@@ -0,0 +1,177 @@
+package com.vscodelife.socketio.message.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+import com.vscodelife.socketio.message.ByteMessage;
+
+/**
+ * 消息回收池的引用計數、重複釋放與釋放後使用的偵測
+ */
+class MessagePoolTest {
+
+    @BeforeEach
+    void setUp() {
+        MessagePool.setEnabled(false);
+        MessagePool.setSafetyMode(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        MessagePool.setEnabled(false);
+        MessagePool.setSafetyMode(false);
+    }
+
+    static HeaderBase header(long requestId) {
+        return new HeaderBase("1.0", 3, 1, false, 9L, requestId, 0L);
+    }
+
+    static ByteMessage<HeaderBase> obtain(long requestId) {
+        HeaderBase header = MessagePool.acquire(HeaderBase.class, HeaderBase::new);
+        header.setVersion("1.0");
+        header.setMainNo(3);
+        header.setSubNo(1);
+        header.setRequestId(requestId);
+        return ByteMessage.obtain(header, new ByteArrayBuffer());
+    }
+
+    // ==================== 關閉狀態 ====================
+
+    @Test
+    void disabledPoolCreatesNewInstancesAndKeepsFields() {
+        ByteMessage<HeaderBase> message = ByteMessage.obtain(header(1), new ByteArrayBuffer());
+        assertThat(message.release()).isTrue();
+        // 未開啟時釋放不清除內容，與未使用回收池時相同
+        assertThat(message.getRequestId()).isEqualTo(1);
+        assertThat(message.getBuffer()).isNotNull();
+        assertThat(ByteMessage.obtain(header(2), new ByteArrayBuffer())).isNotSameAs(message);
+        assertThat(MessagePool.acquire(HeaderBase.class, HeaderBase::new))
+                .isNotSameAs(MessagePool.acquire(HeaderBase.class, HeaderBase::new));
+    }
+
+    // ==================== 引用計數 ====================
+
+    @Test
+    void releasesOnlyWhenLastReferenceDropped() {
+        MessagePool.setEnabled(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        assertThat(message.retain()).isSameAs(message);
+        assertThat(message.refCnt()).isEqualTo(2);
+        assertThat(message.release()).isFalse();
+        assertThat(message.getRequestId()).isEqualTo(1);
+        assertThat(message.release()).isTrue();
+        assertThat(message.refCnt()).isZero();
+    }
+
+    @Test
+    void recycledInstancesAreReusedWithFreshState() {
+        MessagePool.setEnabled(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        HeaderBase header = message.getHeader();
+        header.setCompression(2, 5);
+        message.release();
+
+        ByteMessage<HeaderBase> reused = obtain(2);
+        assertThat(reused).isSameAs(message);
+        assertThat(reused.getHeader()).isSameAs(header);
+        assertThat(reused.refCnt()).isEqualTo(1);
+        assertThat(reused.getRequestId()).isEqualTo(2);
+        // 放回池中時已重置，前一次的欄位不會殘留
+        assertThat(header.isCompress()).isFalse();
+        assertThat(header.getCompressMode()).isZero();
+        assertThat(header.getSessionId()).isZero();
+    }
+
+    @Test
+    void cloneStartsWithOwnReferenceCount() {
+        MessagePool.setEnabled(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        message.retain();
+        ByteMessage<HeaderBase> copy = message.clone();
+        assertThat(copy).isNotSameAs(message);
+        assertThat(copy.refCnt()).isEqualTo(1);
+        assertThat(copy.getHeader()).isNotSameAs(message.getHeader());
+        assertThat(copy.getRequestId()).isEqualTo(1);
+    }
+
+    // ==================== 重複釋放 ====================
+
+    @Test
+    void doubleReleaseIsIgnoredWithoutSafetyMode() {
+        MessagePool.setEnabled(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        assertThat(message.release()).isTrue();
+        assertThat(message.release()).isFalse();
+        assertThat(message.refCnt()).isZero();
+
+        // 重複釋放不會讓同一實例被放回池中兩次
+        ByteMessage<HeaderBase> first = obtain(2);
+        ByteMessage<HeaderBase> second = obtain(3);
+        assertThat(first).isSameAs(message);
+        assertThat(second).isNotSameAs(first);
+    }
+
+    @Test
+    void doubleReleaseThrowsInSafetyMode() {
+        MessagePool.setEnabled(true);
+        MessagePool.setSafetyMode(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        assertThat(message.release()).isTrue();
+        assertThatThrownBy(message::release).isInstanceOf(IllegalStateException.class);
+    }
+
+    // ==================== 釋放後使用 ====================
+
+    @Test
+    void accessAfterReleaseThrowsInSafetyMode() {
+        MessagePool.setEnabled(true);
+        MessagePool.setSafetyMode(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        message.release();
+
+        assertThat(message.isReleased()).isTrue();
+        assertThatThrownBy(message::getHeader).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(message::getBuffer).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(message::getRequestId).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(message::retain).isInstanceOf(IllegalStateException.class);
+        // 安全模式下不放回池中，之後取得的必定是新實例
+        assertThat(obtain(2)).isNotSameAs(message);
+    }
+
+    @Test
+    void safetyModeDetectsUseAfterReleaseWithoutPool() {
+        MessagePool.setSafetyMode(true);
+        ByteMessage<HeaderBase> message = ByteMessage.obtain(header(1), new ByteArrayBuffer());
+        message.release();
+        assertThatThrownBy(message::getProtocolKey).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void recycledMessageIsEmptiedWithoutSafetyMode() {
+        MessagePool.setEnabled(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        message.release();
+        // 未開啟安全模式時不拋出例外，但內容已被清除，無法再被誤用為原本的消息
+        assertThat(message.isReleased()).isFalse();
+        assertThat(message.getHeader()).isNull();
+        assertThat(message.getBuffer()).isNull();
+        assertThat(message.getRequestId()).isZero();
+        assertThatThrownBy(message::retain).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(message::clone).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void disablingPoolDropsIdleInstances() {
+        MessagePool.setEnabled(true);
+        ByteMessage<HeaderBase> message = obtain(1);
+        message.release();
+        MessagePool.setEnabled(false);
+        MessagePool.setEnabled(true);
+        assertThat(obtain(2)).isNotSameAs(message);
+    }
+}
@@ -0,0 +1,255 @@
+package com.vscodelife.socketio.message.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.vscodelife.socketio.util.SegmentLog;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 持久化回應幀儲存的讀寫、重啟恢復、中斷記錄與區段過期
+ */
+class PersistentFrameStoreTest {
+    private static final long TTL = 60_000L;
+    // 記錄頭 34 位元組 + 鍵 + 內容
+    private static final int RECORD_HEADER = 34;
+
+    @TempDir
+    Path directory;
+
+    static String key(int i) {
+        return "user-" + i;
+    }
+
+    static byte[] frame(int i) {
+        return ("frame-" + i + "-payload").getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int recordLength(int i) {
+        return RECORD_HEADER + key(i).getBytes(StandardCharsets.UTF_8).length + frame(i).length;
+    }
+
+    static boolean append(PersistentFrameStore store, int i, long expireAt) {
+        ByteBuf buf = Unpooled.wrappedBuffer(frame(i));
+        return store.append(key(i), 3, 1, i, buf, buf.readerIndex(), buf.readableBytes(), expireAt);
+    }
+
+    static byte[] get(PersistentFrameStore store, int i) {
+        ByteBuf buf = store.get(key(i), 3, 1, i);
+        if (buf == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+
+    static long future() {
+        return System.currentTimeMillis() + TTL;
+    }
+
+    List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    // ==================== 讀寫 ====================
+
+    @Test
+    void roundTripsFrames() {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            for (int i = 0; i < 20; i++) {
+                assertThat(append(store, i, future())).isTrue();
+            }
+            assertThat(store.size()).isEqualTo(20);
+            for (int i = 0; i < 20; i++) {
+                assertThat(get(store, i)).isEqualTo(frame(i));
+            }
+        }
+    }
+
+    @Test
+    void appendDoesNotMoveFrameIndexes() {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            ByteBuf buf = Unpooled.buffer().writeBytes(new byte[] { 9, 9 }).writeBytes(frame(1));
+            buf.readerIndex(2);
+            assertThat(store.append(key(1), 3, 1, 1, buf, 2, frame(1).length, future())).isTrue();
+            assertThat(buf.readerIndex()).isEqualTo(2);
+            assertThat(buf.writerIndex()).isEqualTo(2 + frame(1).length);
+            assertThat(get(store, 1)).isEqualTo(frame(1));
+        }
+    }
+
+    @Test
+    void missesOnDifferentKeyProtocolOrRequestId() {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            append(store, 1, future());
+            assertThat(store.get("user-2", 3, 1, 1)).isNull();
+            assertThat(store.get(key(1), 3, 2, 1)).isNull();
+            assertThat(store.get(key(1), 4, 1, 1)).isNull();
+            assertThat(store.get(key(1), 3, 1, 2)).isNull();
+            assertThat(store.get(key(1), 3, 1, 1)).isNotNull();
+        }
+    }
+
+    @Test
+    void missesExpiredRecord() {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            append(store, 1, System.currentTimeMillis() - 1);
+            assertThat(get(store, 1)).isNull();
+        }
+    }
+
+    @Test
+    void rejectsRecordLargerThanSegment() {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 256)) {
+            ByteBuf buf = Unpooled.wrappedBuffer(new byte[512]);
+            assertThat(store.append("big", 3, 1, 1, buf, 0, 512, future())).isFalse();
+            assertThat(store.size()).isZero();
+        }
+    }
+
+    // ==================== 重啟恢復 ====================
+
+    @Test
+    void recoversRecordsAfterReopen() {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 1024)) {
+            for (int i = 0; i < 50; i++) {
+                append(store, i, future());
+            }
+            assertThat(store.getSegmentCount()).isGreaterThan(1);
+        }
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 1024)) {
+            assertThat(store.getRecoveredCount()).isEqualTo(50);
+            for (int i = 0; i < 50; i++) {
+                assertThat(get(store, i)).as("record %d", i).isEqualTo(frame(i));
+            }
+        }
+    }
+
+    @Test
+    void skipsExpiredRecordsOnRecovery() {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            append(store, 1, System.currentTimeMillis() - 1);
+            append(store, 2, future());
+        }
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            assertThat(store.getRecoveredCount()).isEqualTo(1);
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(get(store, 2)).isEqualTo(frame(2));
+        }
+    }
+
+    @Test
+    void dropsTornRecordAtTailAndKeepsEarlierOnes() throws IOException {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            for (int i = 0; i < 5; i++) {
+                append(store, i, future());
+            }
+        }
+        // 最後一筆記錄的內容寫到一半：內容與 CRC 不符
+        int last = SegmentLog.SEGMENT_HEADER;
+        for (int i = 0; i < 4; i++) {
+            last += recordLength(i);
+        }
+        Path file = segmentFiles().get(segmentFiles().size() - 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0x7F }), last + recordLength(4) - 1);
+        }
+
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            assertThat(store.getRecoveredCount()).isEqualTo(4);
+            for (int i = 0; i < 4; i++) {
+                assertThat(get(store, i)).isEqualTo(frame(i));
+            }
+            assertThat(get(store, 4)).isNull();
+
+            // 新記錄從中斷的位置繼續寫入
+            append(store, 5, future());
+            assertThat(get(store, 5)).isEqualTo(frame(5));
+        }
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            assertThat(store.getRecoveredCount()).isEqualTo(5);
+            assertThat(get(store, 5)).isEqualTo(frame(5));
+        }
+    }
+
+    @Test
+    void ignoresGarbageLengthAfterLastRecord() throws IOException {
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            for (int i = 0; i < 3; i++) {
+                append(store, i, future());
+            }
+        }
+        int tail = SegmentLog.SEGMENT_HEADER + recordLength(0) + recordLength(1) + recordLength(2);
+        Path file = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 1_000_000), tail);
+        }
+
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            assertThat(store.getRecoveredCount()).isEqualTo(3);
+            append(store, 3, future());
+            assertThat(get(store, 3)).isEqualTo(frame(3));
+        }
+    }
+
+    @Test
+    void deletesInvalidSegmentFile() throws IOException {
+        Files.write(directory.resolve("0000000001.seg"), new byte[] { 1, 2, 3 });
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024)) {
+            assertThat(store.getRecoveredCount()).isZero();
+            assertThat(directory.resolve("0000000001.seg")).doesNotExist();
+            append(store, 1, future());
+            assertThat(get(store, 1)).isEqualTo(frame(1));
+        }
+    }
+
+    // ==================== 區段過期 ====================
+
+    @Test
+    void updateDeletesSegmentsWhoseRecordsAllExpired() throws IOException {
+        long now = System.currentTimeMillis();
+        try (PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 1024)) {
+            for (int i = 0; i < 50; i++) {
+                append(store, i, now + 1000);
+            }
+            int segments = store.getSegmentCount();
+            assertThat(segments).isGreaterThan(1);
+
+            store.update(now + 500);
+            assertThat(store.getSegmentCount()).isEqualTo(segments);
+
+            store.update(now + 2000);
+            // 目前區段保留，其餘區段整檔刪除
+            assertThat(store.getSegmentCount()).isEqualTo(1);
+            assertThat(segmentFiles()).hasSize(1);
+            assertThat(store.size()).isLessThan(50);
+        }
+    }
+
+    @Test
+    void closedStoreRejectsAccess() {
+        PersistentFrameStore store = PersistentFrameStore.open(directory, TTL, 64 * 1024);
+        append(store, 1, future());
+        store.close();
+        assertThat(append(store, 2, future())).isFalse();
+        assertThat(get(store, 1)).isNull();
+        store.close();
+    }
+}
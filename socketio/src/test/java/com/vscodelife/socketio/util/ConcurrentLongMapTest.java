@@ -0,0 +1,255 @@
+package com.vscodelife.socketio.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * long 鍵並發雜湊表的單執行緒語意與多執行緒的讀寫一致性
+ */
+class ConcurrentLongMapTest {
+    private static final int THREADS = 8;
+
+    /**
+     * 同時啟動全部工作並等待結束，工作拋出的第一個例外會重新拋出
+     */
+    static void runConcurrently(List<Runnable> tasks) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(60_000L);
+            assertThat(thread.isAlive()).isFalse();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    // ==================== 單執行緒 ====================
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        // 初始容量很小，過程中反覆擴容與後移填補
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(4, 2);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42L);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(2000) - 1000;
+            Long value = Long.valueOf(random.nextInt(100));
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    assertThat(map.put(key, value)).isEqualTo(expected.put(key, value));
+                    break;
+                case 2:
+                    assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+                    break;
+                case 3:
+                    assertThat(map.putIfAbsent(key, value)).isEqualTo(expected.putIfAbsent(key, value));
+                    break;
+                case 4:
+                    assertThat(map.replace(key, value)).isEqualTo(expected.replace(key, value));
+                    break;
+                default:
+                    assertThat(map.get(key)).isEqualTo(expected.get(key));
+                    break;
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(new HashMap<>(map)).isEqualTo(expected);
+    }
+
+    @Test
+    void conditionalOperations() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertThat(map.putIfAbsent(1L, "a")).isNull();
+        assertThat(map.putIfAbsent(1L, "b")).isEqualTo("a");
+
+        assertThat(map.replace(1L, "x", "c")).isFalse();
+        assertThat(map.replace(1L, "a", "c")).isTrue();
+        assertThat(map.replace(2L, "z")).isNull();
+        assertThat(map.containsKey(2L)).isFalse();
+
+        assertThat(map.remove(1L, "a")).isFalse();
+        assertThat(map.remove(1L, "c")).isTrue();
+        assertThat(map.isEmpty()).isTrue();
+    }
+
+    @Test
+    void keysAtExtremesAndZero() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        long[] keys = { 0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE };
+        for (long key : keys) {
+            map.put(key, "v" + key);
+        }
+        for (long key : keys) {
+            assertThat(map.get(key)).isEqualTo("v" + key);
+        }
+        assertThat(map.size()).isEqualTo(keys.length);
+    }
+
+    @Test
+    void rejectsNullValues() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertThatThrownBy(() -> map.put(1L, null)).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> map.putIfAbsent(1L, null)).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> map.replace(1L, null)).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> new ConcurrentLongMap<String>(-1, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ConcurrentLongMap<String>(16, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void boxedMethodsDelegateToLongMethods() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long, String> boxed = map;
+        assertThat(boxed.put(7L, "seven")).isNull();
+        assertThat(map.get(7L)).isEqualTo("seven");
+        assertThat(boxed.get(7L)).isEqualTo("seven");
+        assertThat(boxed.get("7")).isNull();
+        assertThat(boxed.containsKey(7)).isFalse();
+        assertThat(boxed.remove(7L)).isEqualTo("seven");
+    }
+
+    @Test
+    void valuesAndEntriesAreSnapshots() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        for (long i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+        }
+        List<String> values = map.values();
+        values.clear();
+        assertThat(map.size()).isEqualTo(100);
+
+        Iterator<Map.Entry<Long, String>> it = map.entrySet().iterator();
+        Map.Entry<Long, String> first = it.next();
+        Map.Entry<Long, String> second = it.next();
+        // 迭代後的修改不影響快照
+        map.remove(second.getKey().longValue());
+        assertThat(it).toIterable().hasSize(98);
+
+        // 透過迭代器移除時，鍵已對應到其他值則不移除
+        Iterator<Map.Entry<Long, String>> again = map.entrySet().iterator();
+        Map.Entry<Long, String> entry = again.next();
+        map.put(entry.getKey().longValue(), "changed");
+        again.remove();
+        assertThat(map.get(entry.getKey().longValue())).isEqualTo("changed");
+
+        assertThat(map.containsKey(first.getKey().longValue())).isTrue();
+    }
+
+    // ==================== 多執行緒 ====================
+
+    @Test
+    void concurrentPutRemoveGetOnDisjointKeys() throws InterruptedException {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(16, 4);
+        int perThread = 20_000;
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long base = (long) t * perThread;
+            tasks.add(() -> {
+                for (long k = base; k < base + perThread; k++) {
+                    assertThat(map.put(k, Long.valueOf(k * 10))).isNull();
+                }
+                for (long k = base; k < base + perThread; k += 2) {
+                    assertThat(map.remove(k)).isEqualTo(k * 10);
+                }
+                for (long k = base; k < base + perThread; k++) {
+                    assertThat(map.get(k)).isEqualTo(k % 2 == 0 ? null : k * 10);
+                }
+            });
+        }
+        runConcurrently(tasks);
+
+        assertThat(map.size()).isEqualTo(THREADS * perThread / 2);
+        for (long k = 0; k < (long) THREADS * perThread; k++) {
+            assertThat(map.get(k)).isEqualTo(k % 2 == 0 ? null : k * 10);
+        }
+    }
+
+    @Test
+    void readersSeeStableKeysWhileWritersResizeAndShift() throws InterruptedException {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(16, 2);
+        int stable = 1000;
+        for (long k = 0; k < stable; k++) {
+            map.put(k, Long.valueOf(-k));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS / 2; t++) {
+            long base = 1_000_000L * (t + 1);
+            tasks.add(() -> {
+                for (int round = 0; round < 20; round++) {
+                    for (long k = base; k < base + 5000; k++) {
+                        map.put(k, Long.valueOf(k));
+                    }
+                    for (long k = base; k < base + 5000; k++) {
+                        map.remove(k);
+                    }
+                }
+                running.set(false);
+            });
+        }
+        for (int t = 0; t < THREADS / 2; t++) {
+            tasks.add(() -> {
+                // 與寫入交錯的樂觀讀取不可漏掉或讀錯不變的項目
+                while (running.get()) {
+                    for (long k = 0; k < stable; k++) {
+                        assertThat(map.get(k)).isEqualTo(-k);
+                    }
+                }
+            });
+        }
+        runConcurrently(tasks);
+        assertThat(map.size()).isEqualTo(stable);
+    }
+
+    @Test
+    void concurrentCompareAndReplaceLosesNoUpdates() throws InterruptedException {
+        ConcurrentLongMap<Integer> map = new ConcurrentLongMap<>(16, 4);
+        int keys = 64;
+        int increments = 2000;
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < increments; i++) {
+                    for (long k = 0; k < keys; k++) {
+                        Integer current = map.putIfAbsent(k, Integer.valueOf(1));
+                        while (current != null && !map.replace(k, current, Integer.valueOf(current + 1))) {
+                            current = map.get(k);
+                        }
+                    }
+                }
+            });
+        }
+        runConcurrently(tasks);
+
+        for (long k = 0; k < keys; k++) {
+            assertThat(map.get(k)).isEqualTo(THREADS * increments);
+        }
+    }
+}
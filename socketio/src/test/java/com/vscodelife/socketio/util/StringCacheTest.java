@@ -0,0 +1,173 @@
+package com.vscodelife.socketio.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vscodelife.socketio.buffer.ByteArrayBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 短字串解碼快取的命中、長度上限、槽位覆寫與 ByteBuf 解碼
+ */
+class StringCacheTest {
+
+    @BeforeEach
+    void setUp() {
+        StringCache.configure(StringCache.DEFAULT_CAPACITY, StringCache.DEFAULT_MAX_LENGTH);
+        StringCache.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StringCache.setEnabled(false);
+        StringCache.configure(StringCache.DEFAULT_CAPACITY, StringCache.DEFAULT_MAX_LENGTH);
+    }
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ==================== 命中 ====================
+
+    @Test
+    void repeatedBytesDecodeToSameInstance() {
+        byte[] first = utf8("user-001");
+        // 內容相同但位於不同陣列與位移
+        byte[] second = utf8("xxuser-001");
+        String value = StringCache.decode(first, 0, first.length);
+        assertThat(value).isEqualTo("user-001");
+        assertThat(StringCache.decode(second, 2, first.length)).isSameAs(value);
+        assertThat(StringCache.getMissCount()).isEqualTo(1);
+        assertThat(StringCache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledCacheCreatesNewInstances() {
+        StringCache.setEnabled(false);
+        byte[] bytes = utf8("user-001");
+        String first = StringCache.decode(bytes, 0, bytes.length);
+        assertThat(StringCache.decode(bytes, 0, bytes.length)).isEqualTo(first).isNotSameAs(first);
+        assertThat(StringCache.getHitCount()).isZero();
+        assertThat(StringCache.getMissCount()).isZero();
+    }
+
+    @Test
+    void cachedEntryIsNotAffectedBySourceChanges() {
+        byte[] bytes = utf8("abc");
+        String value = StringCache.decode(bytes, 0, bytes.length);
+        bytes[0] = 'x';
+        assertThat(StringCache.decode(bytes, 0, bytes.length)).isEqualTo("xbc");
+        assertThat(StringCache.decode(utf8("abc"), 0, 3)).isEqualTo("abc");
+        assertThat(value).isEqualTo("abc");
+    }
+
+    @Test
+    void multiByteStringsAreCachedByBytes() {
+        byte[] bytes = utf8("中文 😀");
+        String value = StringCache.decode(bytes, 0, bytes.length);
+        assertThat(value).isEqualTo("中文 😀");
+        assertThat(StringCache.decode(bytes.clone(), 0, bytes.length)).isSameAs(value);
+    }
+
+    // ==================== 上限與覆寫 ====================
+
+    @Test
+    void stringsLongerThanMaxLengthBypassCache() {
+        StringCache.configure(16, 4);
+        byte[] bytes = utf8("abcde");
+        String first = StringCache.decode(bytes, 0, bytes.length);
+        assertThat(StringCache.decode(bytes, 0, bytes.length)).isEqualTo("abcde").isNotSameAs(first);
+        assertThat(StringCache.getMissCount()).isZero();
+
+        String shortValue = StringCache.decode(bytes, 0, 4);
+        assertThat(StringCache.decode(bytes, 0, 4)).isSameAs(shortValue);
+    }
+
+    @Test
+    void collidingEntriesOverwriteButStayCorrect() {
+        // 只有一個槽位，每個新值都覆蓋前一個
+        StringCache.configure(1, 64);
+        assertThat(StringCache.getCapacity()).isEqualTo(1);
+        for (int i = 0; i < 100; i++) {
+            String expected = "key-" + (i % 3);
+            byte[] bytes = utf8(expected);
+            assertThat(StringCache.decode(bytes, 0, bytes.length)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void configureRoundsCapacityToPowerOfTwo() {
+        StringCache.configure(1000, 32);
+        assertThat(StringCache.getCapacity()).isEqualTo(1024);
+        assertThat(StringCache.getMaxLength()).isEqualTo(32);
+        StringCache.configure(1024, 32);
+        assertThat(StringCache.getCapacity()).isEqualTo(1024);
+        assertThatThrownBy(() -> StringCache.configure(0, 32)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StringCache.configure(16, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void disablingClearsEntriesAndStatistics() {
+        byte[] bytes = utf8("user-001");
+        String value = StringCache.decode(bytes, 0, bytes.length);
+        StringCache.decode(bytes, 0, bytes.length);
+        StringCache.setEnabled(false);
+        assertThat(StringCache.getHitCount()).isZero();
+        StringCache.setEnabled(true);
+        assertThat(StringCache.decode(bytes, 0, bytes.length)).isNotSameAs(value);
+    }
+
+    // ==================== 緩衝區解碼 ====================
+
+    @Test
+    void decodesHeapAndDirectByteBufWithoutMovingReader() {
+        byte[] bytes = utf8("--user-001");
+        ByteBuf heap = Unpooled.wrappedBuffer(bytes);
+        ByteBuf direct = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+        try {
+            String value = StringCache.decode(heap, 2, bytes.length - 2);
+            assertThat(value).isEqualTo("user-001");
+            assertThat(StringCache.decode(direct, 2, bytes.length - 2)).isSameAs(value);
+            assertThat(heap.readerIndex()).isZero();
+            assertThat(direct.readerIndex()).isZero();
+        } finally {
+            heap.release();
+            direct.release();
+        }
+    }
+
+    @Test
+    void directByteBufLongerThanMaxLengthBypassesCache() {
+        StringCache.configure(16, 4);
+        ByteBuf direct = Unpooled.directBuffer().writeBytes(utf8("中文字串"));
+        try {
+            assertThat(StringCache.decode(direct, 0, direct.readableBytes())).isEqualTo("中文字串");
+            assertThat(StringCache.getMissCount()).isZero();
+        } finally {
+            direct.release();
+        }
+    }
+
+    @Test
+    void byteArrayBufferReadsShareCachedInstance() {
+        ByteArrayBuffer buffer = new ByteArrayBuffer().writeString("alice").writeVarString("alice");
+        String first = buffer.readString();
+        assertThat(buffer.readVarString()).isSameAs(first);
+
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            NettyUtil.writeString(buf, "alice");
+            assertThat(NettyUtil.readString(buf)).isSameAs(first);
+        } finally {
+            buf.release();
+        }
+    }
+}